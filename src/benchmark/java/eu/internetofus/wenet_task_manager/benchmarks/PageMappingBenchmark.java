@@ -0,0 +1,165 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.benchmarks;
+
+import eu.internetofus.common.components.models.Message;
+import eu.internetofus.common.components.task_manager.TasksPage;
+import eu.internetofus.common.model.Model;
+import eu.internetofus.wenet_task_manager.api.messages.MessagesPage;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark the mapping of the pages of tasks and messages that are returned by the API.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageMappingBenchmark {
+
+  /**
+   * The number of elements of the page.
+   */
+  @Param({ "10", "100", "1000" })
+  public int size;
+
+  /**
+   * The JSON of a page of tasks.
+   */
+  protected JsonObject tasksPageJson;
+
+  /**
+   * The JSON of a page of messages.
+   */
+  protected JsonObject messagesPageJson;
+
+  /**
+   * The page of tasks to convert to JSON.
+   */
+  protected TasksPage tasksPage;
+
+  /**
+   * The page of messages to convert to JSON.
+   */
+  protected MessagesPage messagesPage;
+
+  /**
+   * Create the pages to benchmark.
+   */
+  @Setup(Level.Trial)
+  public void setup() {
+
+    this.tasksPage = new TasksPage();
+    this.tasksPage.offset = 0;
+    this.tasksPage.total = this.size * 10L;
+    this.tasksPage.tasks = new ArrayList<>(this.size);
+    for (var i = 0; i < this.size; i++) {
+
+      final var task = TaskModelBenchmark.createTask(3);
+      task.id = String.valueOf(i);
+      this.tasksPage.tasks.add(task);
+    }
+    this.tasksPageJson = this.tasksPage.toJsonObject();
+
+    this.messagesPage = new MessagesPage();
+    this.messagesPage.offset = 0;
+    this.messagesPage.total = this.size * 10L;
+    this.messagesPage.messages = new ArrayList<>(this.size);
+    for (var i = 0; i < this.size; i++) {
+
+      final var message = new Message();
+      message.appId = "1";
+      message.receiverId = String.valueOf(i);
+      message.label = "QuestionToAnswerMessage";
+      message.attributes = new JsonObject().put("taskId", String.valueOf(i)).put("question", "Where to eat?");
+      this.messagesPage.messages.add(message);
+    }
+    this.messagesPageJson = this.messagesPage.toJsonObject();
+
+  }
+
+  /**
+   * Benchmark the conversion of a JSON to a page of tasks.
+   *
+   * @return the page of tasks.
+   */
+  @Benchmark
+  public TasksPage tasksPageFromJson() {
+
+    return Model.fromJsonObject(this.tasksPageJson, TasksPage.class);
+
+  }
+
+  /**
+   * Benchmark the conversion of a page of tasks to JSON.
+   *
+   * @return the JSON of the page.
+   */
+  @Benchmark
+  public JsonObject tasksPageToJson() {
+
+    return this.tasksPage.toJsonObject();
+
+  }
+
+  /**
+   * Benchmark the conversion of a JSON to a page of messages.
+   *
+   * @return the page of messages.
+   */
+  @Benchmark
+  public MessagesPage messagesPageFromJson() {
+
+    return Model.fromJsonObject(this.messagesPageJson, MessagesPage.class);
+
+  }
+
+  /**
+   * Benchmark the conversion of a page of messages to JSON.
+   *
+   * @return the JSON of the page.
+   */
+  @Benchmark
+  public JsonObject messagesPageToJson() {
+
+    return this.messagesPage.toJsonObject();
+
+  }
+
+}
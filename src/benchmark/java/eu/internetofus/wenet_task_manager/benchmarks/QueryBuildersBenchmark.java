@@ -0,0 +1,157 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.benchmarks;
+
+import eu.internetofus.common.model.ValidationErrorException;
+import eu.internetofus.wenet_task_manager.persistence.TasksRepository;
+import io.vertx.core.json.JsonObject;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark the builders of the queries and sorts used to retrieve the pages of tasks, transactions and messages.
+ *
+ * @see TasksRepository
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBuildersBenchmark {
+
+  /**
+   * The keywords of the goal to search.
+   */
+  protected List<String> goalKeywords = Arrays.asList("/.*help.*/", "question");
+
+  /**
+   * The order used to sort the tasks.
+   */
+  protected List<String> tasksOrder = Arrays.asList("goalName", "-requesterId", "creationTs");
+
+  /**
+   * The order used to sort the transactions.
+   */
+  protected List<String> transactionsOrder = Arrays.asList("-label", "goalName", "actioneerId");
+
+  /**
+   * The order used to sort the messages.
+   */
+  protected List<String> messagesOrder = Arrays.asList("-receiverId", "label", "appId");
+
+  /**
+   * Benchmark the query to retrieve a page of tasks.
+   *
+   * @return the created query.
+   */
+  @Benchmark
+  public JsonObject createTasksPageQuery() {
+
+    return TasksRepository.createTasksPageQuery("1", "/^requester.*/", "taskTypeId", "/.*help.*/", null, 0L,
+        1000000L, null, null, Boolean.FALSE, null, null);
+
+  }
+
+  /**
+   * Benchmark the sort to retrieve a page of tasks.
+   *
+   * @return the created sort.
+   *
+   * @throws ValidationErrorException if the order is not valid.
+   */
+  @Benchmark
+  public JsonObject createTasksPageSort() throws ValidationErrorException {
+
+    return TasksRepository.createTasksPageSort(this.tasksOrder);
+
+  }
+
+  /**
+   * Benchmark the query to retrieve a page of transactions.
+   *
+   * @return the created query.
+   */
+  @Benchmark
+  public JsonObject createTaskTransactionsPageQuery() {
+
+    return TasksRepository.createTaskTransactionsPageQuery("1", "/^requester.*/", "taskTypeId", "/.*help.*/", null,
+        this.goalKeywords, 0L, 1000000L, null, null, Boolean.FALSE, null, null, null, null, "/^answer.*/",
+        "actioneerId", 0L, 1000000L, null, null);
+
+  }
+
+  /**
+   * Benchmark the sort to retrieve a page of transactions.
+   *
+   * @return the created sort.
+   *
+   * @throws ValidationErrorException if the order is not valid.
+   */
+  @Benchmark
+  public JsonObject createTaskTransactionsPageSort() throws ValidationErrorException {
+
+    return TasksRepository.createTaskTransactionsPageSort(this.transactionsOrder);
+
+  }
+
+  /**
+   * Benchmark the query to retrieve a page of messages.
+   *
+   * @return the created query.
+   */
+  @Benchmark
+  public JsonObject createMessagesPageQuery() {
+
+    return TasksRepository.createMessagesPageQuery("1", "/^requester.*/", "taskTypeId", "/.*help.*/", null,
+        this.goalKeywords, 0L, 1000000L, null, null, Boolean.FALSE, null, null, null, null, "/^answer.*/",
+        "actioneerId", 0L, 1000000L, null, null, "/^receiver.*/", "QuestionToAnswerMessage");
+
+  }
+
+  /**
+   * Benchmark the sort to retrieve a page of messages.
+   *
+   * @return the created sort.
+   *
+   * @throws ValidationErrorException if the order is not valid.
+   */
+  @Benchmark
+  public JsonObject createMessagesPageSort() throws ValidationErrorException {
+
+    return TasksRepository.createMessagesPageSort(this.messagesOrder);
+
+  }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.benchmarks;
+
+import eu.internetofus.common.components.models.Message;
+import eu.internetofus.common.components.models.Task;
+import eu.internetofus.common.components.models.TaskGoal;
+import eu.internetofus.common.components.models.TaskTransaction;
+import eu.internetofus.common.model.Model;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark the conversion between JSON and {@link Task} when the task has a different number of transactions.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskModelBenchmark {
+
+  /**
+   * The number of transactions of the task.
+   */
+  @Param({ "10", "1000", "10000" })
+  public int transactions;
+
+  /**
+   * The task to convert to JSON.
+   */
+  protected Task task;
+
+  /**
+   * The JSON of the task to convert to a model.
+   */
+  protected JsonObject json;
+
+  /**
+   * Create a task with the specified number of transactions.
+   *
+   * @param transactions number of transactions of the task.
+   *
+   * @return the created task.
+   */
+  public static Task createTask(final int transactions) {
+
+    final var task = new Task();
+    task.id = "6189fd3e8c3f4b5e2d1a0c9b";
+    task.appId = "1";
+    task.communityId = "6189fd3e8c3f4b5e2d1a0c9c";
+    task.requesterId = "1";
+    task.taskTypeId = "6189fd3e8c3f4b5e2d1a0c9d";
+    task._creationTs = 1636400000L;
+    task._lastUpdateTs = 1636400000L;
+    task.goal = new TaskGoal();
+    task.goal.name = "Where to eat a good pizza?";
+    task.goal.description = "I want to know the best pizzeria of the city";
+    task.goal.keywords = Arrays.asList("pizza", "restaurant", "city");
+    task.attributes = new JsonObject().put("domain", "varia_misc").put("anonymous", false).put("maxAnswers", 5);
+    task.transactions = new ArrayList<>(transactions);
+    for (var i = 0; i < transactions; i++) {
+
+      final var transaction = new TaskTransaction();
+      transaction.id = String.valueOf(i);
+      transaction.taskId = task.id;
+      transaction.label = "answerTransaction";
+      transaction.actioneerId = String.valueOf(i % 100);
+      transaction._creationTs = task._creationTs + i;
+      transaction._lastUpdateTs = transaction._creationTs;
+      transaction.attributes = new JsonObject().put("answer", "The pizzeria number " + i);
+      final var message = new Message();
+      message.appId = task.appId;
+      message.receiverId = task.requesterId;
+      message.label = "AnsweredQuestionMessage";
+      message.attributes = new JsonObject().put("taskId", task.id)
+          .put("answer", transaction.attributes.getString("answer"));
+      transaction.messages = new ArrayList<>();
+      transaction.messages.add(message);
+      task.transactions.add(transaction);
+    }
+
+    return task;
+
+  }
+
+  /**
+   * Create the task and the JSON to benchmark.
+   */
+  @Setup(Level.Trial)
+  public void setup() {
+
+    this.task = createTask(this.transactions);
+    this.json = this.task.toJsonObject();
+
+  }
+
+  /**
+   * Benchmark the conversion of a task to JSON.
+   *
+   * @return the JSON of the task.
+   */
+  @Benchmark
+  public JsonObject toJsonObject() {
+
+    return this.task.toJsonObject();
+
+  }
+
+  /**
+   * Benchmark the conversion of a JSON to a task.
+   *
+   * @return the task of the JSON.
+   */
+  @Benchmark
+  public Task fromJsonObject() {
+
+    return Model.fromJsonObject(this.json, Task.class);
+
+  }
+
+  /**
+   * Benchmark the encoding of a task as it is done when it is sent through the event bus or as a HTTP response.
+   *
+   * @return the encoded task.
+   */
+  @Benchmark
+  public String encode() {
+
+    return this.task.toJsonObject().encode();
+
+  }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.loadtest;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A local HTTP server that replaces the other WeNet components (profile manager, service and interaction protocol
+ * engine) during the load tests. It accepts any request without doing any work, so the measures only depend on the
+ * task manager and its database.
+ *
+ * <ul>
+ * <li>The {@code GET} of a path that ends with {@code /users} returns the identifier of the load test user.</li>
+ * <li>Any other {@code GET} returns a model whose identifiers are the last element of the path, so any profile or
+ * application is defined.</li>
+ * <li>Any other request returns its body.</li>
+ * </ul>
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class LoadTestComponentsStub {
+
+  /**
+   * The identifier of the user that requests the tasks and does the transactions.
+   */
+  public static final String USER_ID = "loadtest_user";
+
+  /**
+   * The identifier of the application of the tasks.
+   */
+  public static final String APP_ID = "loadtest_app";
+
+  /**
+   * The server that replies to the requests.
+   */
+  protected HttpServer server;
+
+  /**
+   * Start the stub on a free port.
+   *
+   * @param vertx event bus to use.
+   *
+   * @return the future with the port where the stub is listening.
+   */
+  public Future<Integer> start(final Vertx vertx) {
+
+    this.server = vertx.createHttpServer().requestHandler(this::reply);
+    return this.server.listen(0, "localhost").map(HttpServer::actualPort);
+
+  }
+
+  /**
+   * Reply to a request done to a WeNet component.
+   *
+   * @param request to reply.
+   */
+  protected void reply(final HttpServerRequest request) {
+
+    request.body().onComplete(body -> {
+
+      final var response = request.response().putHeader("Content-Type", "application/json");
+      final var path = request.path();
+      if (HttpMethod.GET.equals(request.method())) {
+
+        if (path.endsWith("/users")) {
+
+          response.end(new JsonArray().add(USER_ID).toBuffer());
+
+        } else {
+
+          final var id = path.substring(path.lastIndexOf('/') + 1);
+          response.end(new JsonObject().put("id", id).put("appId", id).toBuffer());
+        }
+
+      } else if (body.succeeded() && body.result().length() > 0) {
+
+        response.end(body.result());
+
+      } else {
+
+        response.end(new JsonObject().toBuffer());
+      }
+
+    });
+
+  }
+
+  /**
+   * Return the URL of a component served by the stub.
+   *
+   * @param port      where the stub is listening.
+   * @param component name of the component.
+   *
+   * @return the URL of the component.
+   */
+  public static String urlOf(final int port, final String component) {
+
+    return "http://localhost:" + port + "/" + component;
+
+  }
+
+  /**
+   * Stop the stub.
+   *
+   * @return the future that will inform when the stub is stopped.
+   */
+  public Future<Void> stop() {
+
+    if (this.server == null) {
+
+      return Future.succeededFuture();
+
+    } else {
+
+      return this.server.close();
+    }
+
+  }
+
+}
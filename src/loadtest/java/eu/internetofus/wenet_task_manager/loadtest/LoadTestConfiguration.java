@@ -0,0 +1,168 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The configuration of a load test. The values are obtained from the system properties, thus they can be defined when
+ * the test is run, for example {@code mvn -Ploadtest test -Dloadtest.rate=200 -Dloadtest.duration=60}.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class LoadTestConfiguration {
+
+  /**
+   * The default mix of operations.
+   */
+  public static final String DEFAULT_MIX = "CREATE_TASK:2,ADD_TRANSACTION:3,ADD_MESSAGES:2,GET_TASKS_PAGE:2,"
+      + "GET_MESSAGES_PAGE:1";
+
+  /**
+   * The number of operations to start every second.
+   */
+  public double rate;
+
+  /**
+   * The seconds to warm up the task manager before start measuring.
+   */
+  public long warmup;
+
+  /**
+   * The seconds to measure the task manager.
+   */
+  public long duration;
+
+  /**
+   * The maximum number of operations that can be running at the same time. When it is reached the new operations are
+   * dropped.
+   */
+  public int maxInFlight;
+
+  /**
+   * The number of messages to add into a transaction for any {@link LoadTestOperation#ADD_MESSAGES}.
+   */
+  public int fanOut;
+
+  /**
+   * The number of elements to obtain on the pages.
+   */
+  public int pageSize;
+
+  /**
+   * The maximum ratio of operations that can fail.
+   */
+  public double maxErrorRatio;
+
+  /**
+   * The file where the report will be stored.
+   */
+  public String report;
+
+  /**
+   * The seed used to select the operations and the tasks or transactions to modify.
+   */
+  public long seed;
+
+  /**
+   * The weight of each operation.
+   */
+  public Map<LoadTestOperation, Integer> mix;
+
+  /**
+   * Create the configuration from the system properties.
+   *
+   * @return the configuration defined on the system properties.
+   */
+  public static LoadTestConfiguration fromSystemProperties() {
+
+    final var conf = new LoadTestConfiguration();
+    conf.rate = Double.parseDouble(System.getProperty("loadtest.rate", "50"));
+    conf.warmup = Long.parseLong(System.getProperty("loadtest.warmup", "5"));
+    conf.duration = Long.parseLong(System.getProperty("loadtest.duration", "30"));
+    conf.maxInFlight = Integer.parseInt(System.getProperty("loadtest.maxInFlight", "256"));
+    conf.fanOut = Integer.parseInt(System.getProperty("loadtest.fanOut", "5"));
+    conf.pageSize = Integer.parseInt(System.getProperty("loadtest.pageSize", "20"));
+    conf.maxErrorRatio = Double.parseDouble(System.getProperty("loadtest.maxErrorRatio", "0.01"));
+    conf.report = System.getProperty("loadtest.report", "loadtest-report.json");
+    conf.seed = Long.parseLong(System.getProperty("loadtest.seed", "0"));
+    conf.mix = parseMix(System.getProperty("loadtest.mix", DEFAULT_MIX));
+    return conf;
+
+  }
+
+  /**
+   * Obtain the weights of the operations from a value like {@code CREATE_TASK:2,GET_TASKS_PAGE:1}.
+   *
+   * @param value to parse.
+   *
+   * @return the weight of the operations defined on the value.
+   *
+   * @throws IllegalArgumentException if the value is not a valid mix.
+   */
+  public static Map<LoadTestOperation, Integer> parseMix(final String value) {
+
+    final var mix = new EnumMap<LoadTestOperation, Integer>(LoadTestOperation.class);
+    for (final var element : value.split(",")) {
+
+      final var parts = element.trim().split(":");
+      final var operation = LoadTestOperation.valueOf(parts[0].trim());
+      final var weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+      if (weight < 0) {
+
+        throw new IllegalArgumentException("The weight of " + operation + " can not be negative");
+      }
+      mix.put(operation, weight);
+    }
+    if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+
+      throw new IllegalArgumentException("The mix has to define at least one operation");
+    }
+    return mix;
+
+  }
+
+  /**
+   * Select randomly one operation respecting the weights of the mix.
+   *
+   * @param random generator of random numbers.
+   *
+   * @return the selected operation.
+   */
+  public LoadTestOperation nextOperation(final Random random) {
+
+    final var total = this.mix.values().stream().mapToInt(Integer::intValue).sum();
+    var value = random.nextInt(total);
+    for (final var entry : this.mix.entrySet()) {
+
+      value -= entry.getValue();
+      if (value < 0) {
+
+        return entry.getKey();
+      }
+    }
+    return LoadTestOperation.GET_TASKS_PAGE;
+
+  }
+
+}
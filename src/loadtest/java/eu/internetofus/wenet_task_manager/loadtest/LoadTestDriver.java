@@ -0,0 +1,399 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.loadtest;
+
+import eu.internetofus.common.components.models.Message;
+import eu.internetofus.common.components.models.Task;
+import eu.internetofus.common.components.models.TaskTransaction;
+import eu.internetofus.wenet_task_manager.api.messages.Messages;
+import eu.internetofus.wenet_task_manager.api.tasks.Tasks;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * Drive a mix of operations over the task manager at a constant rate. The operations are started following an open
+ * model, thus if the task manager is slow the operations are not delayed, they are accumulated until reach the
+ * {@link LoadTestConfiguration#maxInFlight}.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class LoadTestDriver {
+
+  /**
+   * The milliseconds between the checks to start new operations.
+   */
+  public static final long TICK = 10;
+
+  /**
+   * The maximum number of identifiers to remember to use on the operations.
+   */
+  public static final int MAX_IDENTIFIERS = 1000;
+
+  /**
+   * The event bus to use.
+   */
+  protected Vertx vertx;
+
+  /**
+   * The client to interact with the task manager.
+   */
+  protected WebClient client;
+
+  /**
+   * The configuration of the load test.
+   */
+  protected LoadTestConfiguration conf;
+
+  /**
+   * The component that records the latency of the operations.
+   */
+  protected LoadTestRecorder recorder;
+
+  /**
+   * The generator of random numbers.
+   */
+  protected Random random;
+
+  /**
+   * The task to use as template to create the new tasks.
+   */
+  protected JsonObject taskTemplate;
+
+  /**
+   * The transaction to use as template to add the transactions.
+   */
+  protected JsonObject transactionTemplate;
+
+  /**
+   * The message to use as template to add the messages.
+   */
+  protected JsonObject messageTemplate;
+
+  /**
+   * The identifier of the application of the tasks.
+   */
+  protected String appId;
+
+  /**
+   * The identifiers of the created tasks.
+   */
+  protected List<String> taskIds = Collections.synchronizedList(new ArrayList<>());
+
+  /**
+   * The identifiers of the created transactions. Each element is the identifier of the task and the identifier of the
+   * transaction.
+   */
+  protected List<String[]> transactionIds = Collections.synchronizedList(new ArrayList<>());
+
+  /**
+   * The number of operations that are running.
+   */
+  protected AtomicInteger inFlight = new AtomicInteger();
+
+  /**
+   * The operations that has to be started.
+   */
+  protected double pending;
+
+  /**
+   * This is {@code true} when the warm up has finished.
+   */
+  protected boolean measuring;
+
+  /**
+   * Create the driver.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to interact with the task manager.
+   * @param conf        configuration of the load test.
+   * @param recorder    to record the operations.
+   * @param task        that is stored on the task manager and it is used as template.
+   * @param transaction that is stored on the task and it is used as template.
+   */
+  public LoadTestDriver(final Vertx vertx, final WebClient client, final LoadTestConfiguration conf,
+      final LoadTestRecorder recorder, final Task task, final TaskTransaction transaction) {
+
+    this.vertx = vertx;
+    this.client = client;
+    this.conf = conf;
+    this.recorder = recorder;
+    this.random = new Random(conf.seed);
+    this.appId = task.appId;
+    this.taskIds.add(task.id);
+    this.transactionIds.add(new String[] { task.id, transaction.id });
+
+    this.taskTemplate = task.toJsonObject();
+    this.taskTemplate.remove("id");
+    this.taskTemplate.remove("transactions");
+    this.taskTemplate.remove("closeTs");
+    this.taskTemplate.remove("_creationTs");
+    this.taskTemplate.remove("_lastUpdateTs");
+
+    this.transactionTemplate = transaction.toJsonObject();
+    this.transactionTemplate.remove("id");
+    this.transactionTemplate.remove("messages");
+    this.transactionTemplate.remove("_creationTs");
+    this.transactionTemplate.remove("_lastUpdateTs");
+
+    final var message = new Message();
+    message.appId = task.appId;
+    message.receiverId = task.requesterId;
+    message.label = "LoadTestMessage";
+    message.attributes = new JsonObject().put("taskId", task.id);
+    this.messageTemplate = message.toJsonObject();
+
+  }
+
+  /**
+   * Run the load test.
+   *
+   * @return the future with the seconds that the operations has been measured.
+   */
+  public Future<Double> run() {
+
+    final Promise<Double> promise = Promise.promise();
+    final var start = System.nanoTime();
+    final var warmup = TimeUnit.SECONDS.toNanos(this.conf.warmup);
+    final var end = warmup + TimeUnit.SECONDS.toNanos(this.conf.duration);
+    final var perTick = this.conf.rate * TICK / 1000.0;
+    this.vertx.setPeriodic(TICK, timer -> {
+
+      final var elapsed = System.nanoTime() - start;
+      if (elapsed >= end) {
+
+        this.vertx.cancelTimer(timer);
+        this.measuring = false;
+        this.waitInFlight(promise, (elapsed - warmup) / 1_000_000_000.0);
+
+      } else {
+
+        if (!this.measuring && elapsed >= warmup) {
+
+          this.measuring = true;
+          this.recorder.startMeasuring();
+        }
+        this.pending += perTick;
+        while (this.pending >= 1.0) {
+
+          this.pending -= 1.0;
+          this.launch();
+        }
+      }
+    });
+    return promise.future();
+
+  }
+
+  /**
+   * Wait until all the operations have finished.
+   *
+   * @param promise to complete when all the operations have finished.
+   * @param seconds that has been measured the operations.
+   */
+  protected void waitInFlight(final Promise<Double> promise, final double seconds) {
+
+    if (this.inFlight.get() == 0) {
+
+      this.recorder.stopMeasuring();
+      promise.complete(seconds);
+
+    } else {
+
+      this.vertx.setTimer(100, any -> this.waitInFlight(promise, seconds));
+    }
+
+  }
+
+  /**
+   * Start a new operation.
+   */
+  protected void launch() {
+
+    final var record = this.measuring;
+    if (this.inFlight.get() >= this.conf.maxInFlight) {
+
+      if (record) {
+
+        this.recorder.drop();
+      }
+      return;
+    }
+
+    final var operation = this.conf.nextOperation(this.random);
+    this.inFlight.incrementAndGet();
+    final var start = System.nanoTime();
+    this.execute(operation).onComplete(result -> {
+
+      this.inFlight.decrementAndGet();
+      if (record) {
+
+        this.recorder.record(operation, System.nanoTime() - start, result.succeeded());
+      }
+    });
+
+  }
+
+  /**
+   * Execute an operation over the task manager.
+   *
+   * @param operation to execute.
+   *
+   * @return the future that will be completed when the operation has finished.
+   */
+  protected Future<?> execute(final LoadTestOperation operation) {
+
+    switch (operation) {
+    case CREATE_TASK:
+      return this.createTask();
+    case ADD_TRANSACTION:
+      return this.addTransaction();
+    case ADD_MESSAGES:
+      return this.addMessages();
+    case GET_TASKS_PAGE:
+      return this.getPage(Tasks.PATH);
+    default:
+      return this.getPage(Messages.PATH);
+    }
+
+  }
+
+  /**
+   * Check that the response has the expected status.
+   *
+   * @param response to check.
+   * @param status   that the response has to have.
+   *
+   * @return the future with the body of the response.
+   */
+  protected static Future<JsonObject> expect(final Future<HttpResponse<Buffer>> response, final Status status) {
+
+    return response.compose(res -> {
+
+      if (res.statusCode() == status.getStatusCode()) {
+
+        return Future.succeededFuture(res.bodyAsJsonObject());
+
+      } else {
+
+        return Future.failedFuture(
+            new IllegalStateException("Unexpected status " + res.statusCode() + ": " + res.bodyAsString()));
+      }
+    });
+
+  }
+
+  /**
+   * Remember a new identifier.
+   *
+   * @param ids        where the identifier has to be stored.
+   * @param identifier to store.
+   * @param <T>        type of the identifier.
+   */
+  protected <T> void remember(final List<T> ids, final T identifier) {
+
+    if (ids.size() < MAX_IDENTIFIERS) {
+
+      ids.add(identifier);
+
+    } else {
+
+      ids.set(this.random.nextInt(MAX_IDENTIFIERS), identifier);
+    }
+
+  }
+
+  /**
+   * Create a new task.
+   *
+   * @return the future with the created task.
+   */
+  protected Future<JsonObject> createTask() {
+
+    return expect(this.client.post(Tasks.PATH).sendJsonObject(this.taskTemplate.copy()), Status.CREATED)
+        .onSuccess(task -> this.remember(this.taskIds, task.getString("id")));
+
+  }
+
+  /**
+   * Add a transaction into one of the created tasks.
+   *
+   * @return the future with the added transaction.
+   */
+  protected Future<JsonObject> addTransaction() {
+
+    final var taskId = this.taskIds.get(this.random.nextInt(this.taskIds.size()));
+    final var transaction = this.transactionTemplate.copy().put("taskId", taskId);
+    return expect(
+        this.client.post(Tasks.PATH + "/" + taskId + Tasks.TRANSACTIONS_PATH).sendJsonObject(transaction),
+        Status.CREATED).onSuccess(
+            added -> this.remember(this.transactionIds, new String[] { taskId, added.getString("id") }));
+
+  }
+
+  /**
+   * Add {@link LoadTestConfiguration#fanOut} messages into one of the created transactions.
+   *
+   * @return the future that will be completed when all the messages have been added.
+   */
+  @SuppressWarnings("rawtypes")
+  protected Future<CompositeFuture> addMessages() {
+
+    final var ids = this.transactionIds.get(this.random.nextInt(this.transactionIds.size()));
+    final var path = Tasks.PATH + "/" + ids[0] + Tasks.TRANSACTIONS_PATH + "/" + ids[1] + Tasks.MESSAGES_PATH;
+    final List<Future> messages = new ArrayList<>();
+    for (var i = 0; i < this.conf.fanOut; i++) {
+
+      final var message = this.messageTemplate.copy();
+      message.getJsonObject("attributes").put("taskId", ids[0]).put("index", i);
+      messages.add(expect(this.client.post(path).sendJsonObject(message), Status.CREATED));
+    }
+    return CompositeFuture.all(messages);
+
+  }
+
+  /**
+   * Obtain a page of the application of the tasks.
+   *
+   * @param path to the resource to obtain the page.
+   *
+   * @return the future with the page.
+   */
+  protected Future<JsonObject> getPage(final String path) {
+
+    return expect(this.client.get(path).addQueryParam("appId", this.appId).addQueryParam("offset", "0")
+        .addQueryParam("limit", String.valueOf(this.conf.pageSize)).send(), Status.OK);
+
+  }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.loadtest;
+
+import eu.internetofus.common.vertx.AbstractMain;
+import eu.internetofus.common.vertx.AbstractWeNetComponentIntegrationExtension;
+import eu.internetofus.wenet_task_manager.Main;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClientSession;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Extension used to run the load tests over a task manager that is started locally without Docker. The task manager
+ * uses the MongoDB defined on the next system properties, and the other WeNet components are replaced by a
+ * {@link LoadTestComponentsStub}.
+ *
+ * <ul>
+ * <li>{@code loadtest.mongo.host} the host of the MongoDB ({@code localhost} by default).</li>
+ * <li>{@code loadtest.mongo.port} the port of the MongoDB ({@code 27017} by default).</li>
+ * <li>{@code loadtest.mongo.db_name} the database to use ({@code wenetTaskManagerDB} by default).</li>
+ * <li>{@code loadtest.mongo.username} the user of the database ({@code wenetTaskManager} by default).</li>
+ * <li>{@code loadtest.mongo.password} the password of the user ({@code password} by default).</li>
+ * </ul>
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class LoadTestIntegrationExtension extends AbstractWeNetComponentIntegrationExtension {
+
+  /**
+   * The stub of the other WeNet components.
+   */
+  private static LoadTestComponentsStub stub;
+
+  /**
+   * The port where the stub is listening.
+   */
+  private static int stubPort;
+
+  /**
+   * Start the stub of the other WeNet components if it is not started.
+   *
+   * @return the port where the stub is listening.
+   */
+  protected static synchronized int startStub() {
+
+    if (stub == null) {
+
+      final var started = new LoadTestComponentsStub();
+      try {
+
+        stubPort = started.start(Vertx.vertx()).toCompletionStage().toCompletableFuture().get();
+        stub = started;
+
+      } catch (final InterruptedException cause) {
+
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Cannot start the stub of the WeNet components", cause);
+
+      } catch (final ExecutionException cause) {
+
+        throw new IllegalStateException("Cannot start the stub of the WeNet components", cause.getCause());
+      }
+    }
+    return stubPort;
+
+  }
+
+  /**
+   * Obtain a free port to start the API.
+   *
+   * @return a port that is not used.
+   */
+  protected static int freePort() {
+
+    try (var socket = new ServerSocket(0)) {
+
+      return socket.getLocalPort();
+
+    } catch (final IOException cause) {
+
+      throw new UncheckedIOException(cause);
+    }
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected String[] createMainStartArguments() {
+
+    final var port = startStub();
+    final var args = new ArrayList<String>();
+    args.add("-papi.port=" + freePort());
+    args.add("-ppersistence.host=" + System.getProperty("loadtest.mongo.host", "localhost"));
+    args.add("-ppersistence.port=" + System.getProperty("loadtest.mongo.port", "27017"));
+    args.add("-ppersistence.db_name=" + System.getProperty("loadtest.mongo.db_name", "wenetTaskManagerDB"));
+    args.add("-ppersistence.username=" + System.getProperty("loadtest.mongo.username", "wenetTaskManager"));
+    args.add("-ppersistence.password=" + System.getProperty("loadtest.mongo.password", "password"));
+    args.add("-pwenetComponents.profileManager=" + LoadTestComponentsStub.urlOf(port, "profile_manager"));
+    args.add("-pwenetComponents.service=" + LoadTestComponentsStub.urlOf(port, "service"));
+    args.add("-pwenetComponents.interactionProtocolEngine="
+        + LoadTestComponentsStub.urlOf(port, "interaction_protocol_engine"));
+    return args.toArray(new String[args.size()]);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see Main
+   */
+  @Override
+  protected AbstractMain createMain() {
+
+    return new Main();
+
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * The other WeNet components are served by the stub, so no simulator is registered.
+   */
+  @Override
+  protected void afterStarted(final Vertx vertx, final WebClientSession client, final JsonObject conf) {
+
+    // the components are replaced by the stub
+
+  }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.loadtest;
+
+/**
+ * The operations that can be done over the task manager when it is under load.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public enum LoadTestOperation {
+
+  /**
+   * Create a new task.
+   */
+  CREATE_TASK,
+
+  /**
+   * Add a transaction into a task.
+   */
+  ADD_TRANSACTION,
+
+  /**
+   * Add some messages into a transaction.
+   */
+  ADD_MESSAGES,
+
+  /**
+   * Obtain a page of tasks.
+   */
+  GET_TASKS_PAGE,
+
+  /**
+   * Obtain a page of messages.
+   */
+  GET_MESSAGES_PAGE;
+
+}
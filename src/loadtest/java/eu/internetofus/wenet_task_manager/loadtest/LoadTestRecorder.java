@@ -0,0 +1,235 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.loadtest;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Record the latency of the operations done during a load test and generate the report.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class LoadTestRecorder {
+
+  /**
+   * The percentiles to report.
+   */
+  public static final double[] PERCENTILES = { 0.5, 0.9, 0.95, 0.99, 0.999 };
+
+  /**
+   * The names of the {@link #PERCENTILES} on the report.
+   */
+  public static final String[] PERCENTILE_NAMES = { "p50", "p90", "p95", "p99", "p999" };
+
+  /**
+   * The registry where the timers are stored.
+   */
+  protected SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  /**
+   * The timers of the operations.
+   */
+  protected Map<LoadTestOperation, Timer> timers = new EnumMap<>(LoadTestOperation.class);
+
+  /**
+   * The number of failed operations.
+   */
+  protected Map<LoadTestOperation, AtomicLong> errors = new EnumMap<>(LoadTestOperation.class);
+
+  /**
+   * The number of operations that has been dropped because there are too many in flight.
+   */
+  protected AtomicLong dropped = new AtomicLong();
+
+  /**
+   * The bytes allocated by the JVM when the measure has started.
+   */
+  protected long allocatedAtStart = -1;
+
+  /**
+   * The bytes allocated by the JVM while it has been measuring, or {@code -1} if the JVM can not measure the
+   * allocations.
+   */
+  protected long allocated = -1;
+
+  /**
+   * Create the recorder.
+   */
+  public LoadTestRecorder() {
+
+    for (final var operation : LoadTestOperation.values()) {
+
+      this.timers.put(operation, Timer.builder("loadtest.operation").tag("operation", operation.name())
+          .publishPercentiles(PERCENTILES).register(this.registry));
+      this.errors.put(operation, new AtomicLong());
+    }
+
+  }
+
+  /**
+   * Record that an operation has finished.
+   *
+   * @param operation that has finished.
+   * @param nanos     that the operation has spent.
+   * @param success   is {@code true} if the operation has finished successfully.
+   */
+  public void record(final LoadTestOperation operation, final long nanos, final boolean success) {
+
+    if (success) {
+
+      this.timers.get(operation).record(nanos, TimeUnit.NANOSECONDS);
+
+    } else {
+
+      this.errors.get(operation).incrementAndGet();
+    }
+
+  }
+
+  /**
+   * Return the bytes allocated by all the live threads of the JVM. The task manager is started on the same JVM that the
+   * load test, so it counts the allocations of the server and the client.
+   *
+   * @return the allocated bytes or {@code -1} if the JVM can not measure the allocations.
+   */
+  public static long allocatedBytes() {
+
+    final var bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+
+      final var threads = (com.sun.management.ThreadMXBean) bean;
+      if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+
+        var total = 0L;
+        for (final var allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+
+          if (allocated > 0) {
+
+            total += allocated;
+          }
+        }
+        return total;
+      }
+    }
+    return -1;
+
+  }
+
+  /**
+   * Called when the operations start to be measured.
+   */
+  public void startMeasuring() {
+
+    this.allocatedAtStart = allocatedBytes();
+
+  }
+
+  /**
+   * Called when the operations stop to be measured.
+   */
+  public void stopMeasuring() {
+
+    final var end = allocatedBytes();
+    if (this.allocatedAtStart >= 0 && end >= 0) {
+
+      this.allocated = end - this.allocatedAtStart;
+    }
+
+  }
+
+  /**
+   * Record that an operation has been dropped.
+   */
+  public void drop() {
+
+    this.dropped.incrementAndGet();
+
+  }
+
+  /**
+   * Return the ratio of operations that has failed.
+   *
+   * @return the ratio of failed operations.
+   */
+  public double errorRatio() {
+
+    final var failed = this.errors.values().stream().mapToLong(AtomicLong::get).sum();
+    final var succeeded = this.timers.values().stream().mapToLong(Timer::count).sum();
+    final var total = failed + succeeded;
+    return total == 0 ? 0.0 : (double) failed / total;
+
+  }
+
+  /**
+   * Generate the report of the recorded operations.
+   *
+   * @param conf    configuration of the load test.
+   * @param seconds that has been measured the operations.
+   *
+   * @return the JSON report with the throughput and latency percentiles of the operations.
+   */
+  public JsonObject report(final LoadTestConfiguration conf, final double seconds) {
+
+    final var operations = new JsonArray();
+    var totalCount = 0L;
+    var totalErrors = 0L;
+    for (final var operation : LoadTestOperation.values()) {
+
+      final var timer = this.timers.get(operation);
+      final var count = timer.count();
+      final var failed = this.errors.get(operation).get();
+      if (count + failed == 0) {
+
+        continue;
+      }
+      totalCount += count;
+      totalErrors += failed;
+      final var snapshot = timer.takeSnapshot();
+      final var percentiles = new JsonObject();
+      final var values = snapshot.percentileValues();
+      for (var i = 0; i < values.length && i < PERCENTILE_NAMES.length; i++) {
+
+        percentiles.put(PERCENTILE_NAMES[i], values[i].value(TimeUnit.MILLISECONDS));
+      }
+      operations.add(new JsonObject().put("operation", operation.name()).put("count", count).put("errors", failed)
+          .put("throughput", count / seconds).put("mean", snapshot.mean(TimeUnit.MILLISECONDS))
+          .put("max", snapshot.max(TimeUnit.MILLISECONDS)).put("percentiles", percentiles));
+    }
+
+    final var total = totalCount + totalErrors;
+    final var allocatedPerOperation = this.allocated < 0 || total == 0 ? -1 : this.allocated / total;
+    return new JsonObject().put("rate", conf.rate).put("warmup", conf.warmup).put("duration", seconds)
+        .put("count", totalCount).put("errors", totalErrors).put("dropped", this.dropped.get())
+        .put("throughput", totalCount / seconds).put("allocatedBytes", this.allocated)
+        .put("allocatedBytesPerOperation", allocatedPerOperation).put("latencyUnit", "ms")
+        .put("operations", operations);
+
+  }
+
+}
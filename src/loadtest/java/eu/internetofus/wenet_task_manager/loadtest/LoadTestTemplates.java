@@ -0,0 +1,112 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.loadtest;
+
+import eu.internetofus.common.components.models.Task;
+import eu.internetofus.common.components.models.TaskTransaction;
+import eu.internetofus.common.model.Model;
+import eu.internetofus.wenet_task_manager.api.task_types.TaskTypes;
+import eu.internetofus.wenet_task_manager.api.tasks.Tasks;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * The task and the transaction that the load tests use as templates. They are created through the API of the task
+ * manager, with the user and the application that the {@link LoadTestComponentsStub} accepts, thus the load tests do
+ * not need the other WeNet components.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class LoadTestTemplates {
+
+  /**
+   * The label of the transactions of the load test.
+   */
+  public static final String TRANSACTION_LABEL = "LoadTestTransaction";
+
+  /**
+   * The stored task to use as template.
+   */
+  public Task task;
+
+  /**
+   * The stored transaction to use as template.
+   */
+  public TaskTransaction transaction;
+
+  /**
+   * Create the task type of the load test.
+   *
+   * @return the task type to store.
+   */
+  public static JsonObject createTaskType() {
+
+    final var schema = new JsonObject().put("type", "object");
+    return new JsonObject().put("name", "Load test").put("description", "The task type used by the load tests.")
+        .put("transactions", new JsonObject().put(TRANSACTION_LABEL, schema))
+        .put("callbacks", new JsonObject().put("LoadTestMessage", schema));
+
+  }
+
+  /**
+   * Store the templates on the task manager.
+   *
+   * @param client to interact with the task manager.
+   *
+   * @return the future with the stored templates.
+   */
+  public static Future<LoadTestTemplates> create(final WebClient client) {
+
+    final var templates = new LoadTestTemplates();
+    return LoadTestDriver.expect(client.post(TaskTypes.PATH).sendJsonObject(createTaskType()), Status.CREATED)
+        .compose(taskType -> {
+
+          final var task = new JsonObject().put("requesterId", LoadTestComponentsStub.USER_ID)
+              .put("appId", LoadTestComponentsStub.APP_ID).put("taskTypeId", taskType.getString("id"))
+              .put("goal", new JsonObject().put("name", "Load test").put("description", "Measure the task manager"))
+              .put("attributes", new JsonObject());
+          return LoadTestDriver.expect(client.post(Tasks.PATH).sendJsonObject(task), Status.CREATED);
+
+        }).compose(task -> {
+
+          final var taskId = task.getString("id");
+          final var transaction = new JsonObject().put("taskId", taskId).put("label", TRANSACTION_LABEL)
+              .put("actioneerId", LoadTestComponentsStub.USER_ID).put("attributes", new JsonObject());
+          return LoadTestDriver.expect(
+              client.post(Tasks.PATH + "/" + taskId + Tasks.TRANSACTIONS_PATH).sendJsonObject(transaction),
+              Status.CREATED).compose(transactionObject -> {
+
+                templates.transaction = Model.fromJsonObject(transactionObject, TaskTransaction.class);
+                return LoadTestDriver.expect(client.get(Tasks.PATH + "/" + taskId).send(), Status.OK);
+              });
+
+        }).map(task -> {
+
+          templates.task = Model.fromJsonObject(task, Task.class);
+          return templates;
+
+        });
+
+  }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.loadtest;
+
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The reference values of the performance of the task manager. For each operation it stores the 95th percentile of
+ * the latency and the bytes allocated per operation.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class PerformanceBaseline {
+
+  /**
+   * The name of the field with the 95th percentile of the latency in milliseconds.
+   */
+  public static final String P95 = "p95";
+
+  /**
+   * The name of the field with the bytes allocated per operation.
+   */
+  public static final String ALLOCATED = "allocatedBytesPerOperation";
+
+  /**
+   * The values of each operation.
+   */
+  protected JsonObject operations;
+
+  /**
+   * Create a baseline.
+   *
+   * @param operations the values of each operation.
+   */
+  public PerformanceBaseline(final JsonObject operations) {
+
+    this.operations = operations;
+
+  }
+
+  /**
+   * Create an empty baseline.
+   */
+  public PerformanceBaseline() {
+
+    this(new JsonObject());
+
+  }
+
+  /**
+   * Add the values of the report of a load test that only has run one operation.
+   *
+   * @param operation that has been run.
+   * @param report    of the load test.
+   *
+   * @return this baseline.
+   *
+   * @see LoadTestRecorder#report(LoadTestConfiguration, double)
+   */
+  public PerformanceBaseline add(final LoadTestOperation operation, final JsonObject report) {
+
+    final var values = new JsonObject().put(ALLOCATED, report.getLong(ALLOCATED, -1L));
+    final var operations = report.getJsonArray("operations");
+    for (var i = 0; i < operations.size(); i++) {
+
+      final var operationReport = operations.getJsonObject(i);
+      if (operation.name().equals(operationReport.getString("operation"))) {
+
+        values.put(P95, operationReport.getJsonObject("percentiles").getDouble(P95));
+      }
+    }
+    this.operations.put(operation.name(), values);
+    return this;
+
+  }
+
+  /**
+   * Return the values of the baseline.
+   *
+   * @return the JSON with the values of each operation.
+   */
+  public JsonObject toJsonObject() {
+
+    return this.operations;
+
+  }
+
+  /**
+   * Compare with another baseline and return the values that have regressed.
+   *
+   * @param current                 the values to compare with this baseline.
+   * @param maxLatencyRegression    the maximum ratio that the latency can increase.
+   * @param maxAllocationRegression the maximum ratio that the allocated bytes can increase.
+   *
+   * @return the description of the values that have regressed. It is empty if none has regressed.
+   */
+  public List<String> regressions(final PerformanceBaseline current, final double maxLatencyRegression,
+      final double maxAllocationRegression) {
+
+    final var regressions = new ArrayList<String>();
+    for (final var operation : current.operations.fieldNames()) {
+
+      final var reference = this.operations.getJsonObject(operation);
+      if (reference != null) {
+
+        final var values = current.operations.getJsonObject(operation);
+        this.check(regressions, operation, P95, reference, values, maxLatencyRegression);
+        this.check(regressions, operation, ALLOCATED, reference, values, maxAllocationRegression);
+      }
+    }
+    return regressions;
+
+  }
+
+  /**
+   * Check if a value has regressed.
+   *
+   * @param regressions   where add the description of the regression.
+   * @param operation     that is checked.
+   * @param field         name of the value to check.
+   * @param reference     the reference values.
+   * @param values        the current values.
+   * @param maxRegression the maximum ratio that the value can increase.
+   */
+  protected void check(final List<String> regressions, final String operation, final String field,
+      final JsonObject reference, final JsonObject values, final double maxRegression) {
+
+    final var expected = reference.getDouble(field, -1d);
+    final var value = values.getDouble(field, -1d);
+    if (expected > 0 && value >= 0 && value > expected * (1 + maxRegression)) {
+
+      regressions.add(String.format("%s %s is %.2f and the baseline is %.2f (+%.1f%%)", operation, field, value,
+          expected, (value / expected - 1) * 100));
+    }
+
+  }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.loadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.internetofus.common.components.models.Task;
+import eu.internetofus.common.components.models.TaskTransaction;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.Timeout;
+import io.vertx.junit5.VertxTestContext;
+import java.util.EnumMap;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.tinylog.Logger;
+
+/**
+ * Run a fixed load scenario over each operation and check that the latency and the allocations have not regressed
+ * with respect a stored baseline. The task manager is started as on the load test, and the test is configured with
+ * the next system properties:
+ *
+ * <ul>
+ * <li>{@code performance.baseline} the file with the baseline. The test fails if it does not exist, unless the
+ * baseline has to be updated.</li>
+ * <li>{@code performance.report} the file where store the values of this run.</li>
+ * <li>{@code performance.updateBaseline} if {@code true} the values of this run are stored as the baseline.</li>
+ * <li>{@code performance.maxLatencyRegression} the ratio that the 95th percentile can increase (0.2 by default).</li>
+ * <li>{@code performance.maxAllocationRegression} the ratio that the allocations can increase (0.2 by default).</li>
+ * <li>{@code performance.rate}, {@code performance.warmup} and {@code performance.duration} to define the
+ * scenario of each operation (20 operations per second, 5 seconds of warm up and 15 seconds to measure).</li>
+ * </ul>
+ *
+ * @see PerformanceBaseline
+ * @see LoadTestIntegrationExtension
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(LoadTestIntegrationExtension.class)
+public class PerformanceRegressionIT {
+
+  /**
+   * Create the configuration of the scenario to run over an operation.
+   *
+   * @param operation to run.
+   *
+   * @return the configuration of the scenario.
+   */
+  protected LoadTestConfiguration createScenario(final LoadTestOperation operation) {
+
+    final var conf = LoadTestConfiguration.fromSystemProperties();
+    conf.rate = Double.parseDouble(System.getProperty("performance.rate", "20"));
+    conf.warmup = Long.parseLong(System.getProperty("performance.warmup", "5"));
+    conf.duration = Long.parseLong(System.getProperty("performance.duration", "15"));
+    conf.seed = 0;
+    conf.mix = new EnumMap<>(LoadTestOperation.class);
+    conf.mix.put(operation, 1);
+    return conf;
+
+  }
+
+  /**
+   * Run the scenario of an operation and add its values into the baseline.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param task        to use as template.
+   * @param transaction to use as template.
+   * @param operation   to run.
+   * @param current     baseline where add the values of the operation.
+   *
+   * @return the future that will be completed when the scenario has finished.
+   */
+  protected Future<PerformanceBaseline> runScenario(final Vertx vertx, final WebClient client, final Task task,
+      final TaskTransaction transaction, final LoadTestOperation operation, final PerformanceBaseline current) {
+
+    final var conf = this.createScenario(operation);
+    final var recorder = new LoadTestRecorder();
+    return new LoadTestDriver(vertx, client, conf, recorder, task, transaction).run().map(seconds -> {
+
+      final var report = recorder.report(conf, seconds);
+      Logger.info("Performance of {}:\n{}", operation, report.encodePrettily());
+      assertThat(recorder.errorRatio()).as("Error ratio of %s", operation).isLessThanOrEqualTo(conf.maxErrorRatio);
+      return current.add(operation, report);
+    });
+
+  }
+
+  /**
+   * Check that the performance of the operations has not regressed.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   */
+  @Test
+  @Timeout(value = 1, timeUnit = TimeUnit.HOURS)
+  public void shouldNotRegress(final Vertx vertx, final WebClient client, final VertxTestContext testContext) {
+
+    final var baselineFile = System.getProperty("performance.baseline", "performance-baseline.json");
+    final var reportFile = System.getProperty("performance.report", "performance-report.json");
+    final var updateBaseline = Boolean.parseBoolean(System.getProperty("performance.updateBaseline", "false"));
+    final var maxLatencyRegression = Double
+        .parseDouble(System.getProperty("performance.maxLatencyRegression", "0.2"));
+    final var maxAllocationRegression = Double
+        .parseDouble(System.getProperty("performance.maxAllocationRegression", "0.2"));
+
+    final var current = new PerformanceBaseline();
+    LoadTestTemplates.create(client).compose(templates -> {
+
+      Future<PerformanceBaseline> future = Future.succeededFuture(current);
+      for (final var operation : LoadTestOperation.values()) {
+
+        future = future.compose(
+            any -> this.runScenario(vertx, client, templates.task, templates.transaction, operation, current));
+      }
+      return future;
+
+    }).compose(any -> vertx.fileSystem().writeFile(reportFile, current.toJsonObject().toBuffer()))
+        .compose(any -> vertx.fileSystem().exists(baselineFile)).compose(exists -> {
+
+          if (updateBaseline) {
+
+            Logger.info("Storing the performance baseline on {}", baselineFile);
+            return vertx.fileSystem().writeFile(baselineFile, current.toJsonObject().toBuffer())
+                .map(any -> new PerformanceBaseline());
+
+          } else if (!exists) {
+
+            return Future.failedFuture(new IllegalStateException("The performance baseline " + baselineFile
+                + " does not exist, run with -Dperformance.updateBaseline=true to store it"));
+
+          } else {
+
+            return vertx.fileSystem().readFile(baselineFile)
+                .map(buffer -> new PerformanceBaseline(buffer.toJsonObject()));
+          }
+
+        }).onComplete(testContext.succeeding(baseline -> testContext.verify(() -> {
+
+          final var regressions = baseline.regressions(current, maxLatencyRegression, maxAllocationRegression);
+          assertThat(regressions).as("Performance regressions against %s", baselineFile).isEmpty();
+          testContext.completeNow();
+
+        })));
+
+  }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.loadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.Timeout;
+import io.vertx.junit5.VertxTestContext;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.tinylog.Logger;
+
+/**
+ * Load test that drives a mix of operations over a task manager that is started locally, without Docker, over the
+ * configured MongoDB and with the other WeNet components replaced by a stub. The throughput and the latency
+ * percentiles of each operation are stored on the file defined on the property {@code loadtest.report}.
+ *
+ * @see LoadTestConfiguration
+ * @see LoadTestDriver
+ * @see LoadTestIntegrationExtension
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(LoadTestIntegrationExtension.class)
+public class TaskManagerLoadTest {
+
+  /**
+   * Check that the task manager can sustain the configured load.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   */
+  @Test
+  @Timeout(value = 1, timeUnit = TimeUnit.HOURS)
+  public void shouldSustainLoad(final Vertx vertx, final WebClient client, final VertxTestContext testContext) {
+
+    final var conf = LoadTestConfiguration.fromSystemProperties();
+    final var recorder = new LoadTestRecorder();
+    LoadTestTemplates.create(client).compose(
+        templates -> new LoadTestDriver(vertx, client, conf, recorder, templates.task, templates.transaction).run())
+        .compose(seconds -> {
+
+          final var report = recorder.report(conf, seconds);
+          Logger.info("Load test report:\n{}", () -> report.encodePrettily());
+          return vertx.fileSystem().writeFile(conf.report, report.toBuffer());
+
+        }).onComplete(testContext.succeeding(any -> testContext.verify(() -> {
+
+          assertThat(recorder.errorRatio()).isLessThanOrEqualTo(conf.maxErrorRatio);
+          testContext.completeNow();
+
+        })));
+
+  }
+
+}
@@ -22,8 +22,10 @@ package eu.internetofus.wenet_task_manager;
 
 import eu.internetofus.common.vertx.AbstractMainVerticle;
 import eu.internetofus.wenet_task_manager.api.APIVerticle;
+import eu.internetofus.wenet_task_manager.metrics.MetricsVerticle;
 import eu.internetofus.wenet_task_manager.persistence.PersistenceVerticle;
 import eu.internetofus.wenet_task_manager.services.ServicesVerticle;
+import eu.internetofus.wenet_task_manager.tracing.TracingVerticle;
 import io.vertx.core.AbstractVerticle;
 
 /**
@@ -40,7 +42,8 @@ public class MainVerticle extends AbstractMainVerticle {
   @Override
   protected Class<? extends AbstractVerticle>[] getVerticleClassesToDeploy() {
 
-    return new Class[] { ServicesVerticle.class, PersistenceVerticle.class, APIVerticle.class };
+    return new Class[] { MetricsVerticle.class, TracingVerticle.class, ServicesVerticle.class,
+        PersistenceVerticle.class, APIVerticle.class };
   }
 
 }
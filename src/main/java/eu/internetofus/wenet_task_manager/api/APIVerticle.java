@@ -28,6 +28,8 @@ import eu.internetofus.wenet_task_manager.api.help.Help;
 import eu.internetofus.wenet_task_manager.api.help.HelpResource;
 import eu.internetofus.wenet_task_manager.api.messages.Messages;
 import eu.internetofus.wenet_task_manager.api.messages.MessagesResource;
+import eu.internetofus.wenet_task_manager.api.metrics.Metrics;
+import eu.internetofus.wenet_task_manager.api.metrics.MetricsResource;
 import eu.internetofus.wenet_task_manager.api.profiles.Profiles;
 import eu.internetofus.wenet_task_manager.api.profiles.ProfilesResource;
 import eu.internetofus.wenet_task_manager.api.task_transactions.TaskTransactions;
@@ -36,9 +38,19 @@ import eu.internetofus.wenet_task_manager.api.task_types.TaskTypes;
 import eu.internetofus.wenet_task_manager.api.task_types.TaskTypesResource;
 import eu.internetofus.wenet_task_manager.api.tasks.Tasks;
 import eu.internetofus.wenet_task_manager.api.tasks.TasksResource;
+import eu.internetofus.wenet_task_manager.events.ReceiverSubscriptions;
+import eu.internetofus.wenet_task_manager.events.TaskEventsFeed;
+import eu.internetofus.wenet_task_manager.events.TaskEventsHandler;
+import eu.internetofus.wenet_task_manager.metrics.HttpServerMetricsHandler;
+import eu.internetofus.wenet_task_manager.metrics.MetricsRegistry;
+import eu.internetofus.wenet_task_manager.metrics.WebClientMetricsInterceptor;
+import eu.internetofus.wenet_task_manager.tracing.HttpServerTracingHandler;
+import eu.internetofus.wenet_task_manager.tracing.WebClientTracingInterceptor;
+import io.vertx.core.Promise;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.openapi.RouterBuilder;
 import io.vertx.serviceproxy.ServiceBinder;
+import org.tinylog.Logger;
 
 /**
  * The verticle that provide the manage the WeNet task manager API.
@@ -47,6 +59,47 @@ import io.vertx.serviceproxy.ServiceBinder;
  */
 public class APIVerticle extends AbstractAPIVerticle {
 
+  /**
+   * The feed with the events of the tasks that are streamed by the API.
+   */
+  protected TaskEventsFeed feed;
+
+  /**
+   * Enable the response compression and tune the HTTP/2 connections before starting the API server.
+   *
+   * {@inheritDoc}
+   *
+   * @see ApiServerOptions#configure(JsonObject)
+   */
+  @Override
+  public void start(final Promise<Void> startPromise) throws Exception {
+
+    final var apiConf = this.config().getJsonObject("api");
+    if (apiConf != null) {
+
+      ApiServerOptions.configure(apiConf);
+    }
+    super.start(startPromise);
+
+  }
+
+  /**
+   * Stop to receive the events of the tasks before stopping the API server.
+   *
+   * {@inheritDoc}
+   */
+  @Override
+  public void stop() throws Exception {
+
+    if (this.feed != null) {
+
+      this.feed.close().onFailure(cause -> Logger.warn(cause, "Cannot close the task events feed"));
+      this.feed = null;
+    }
+    super.stop();
+
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -62,11 +115,30 @@ public class APIVerticle extends AbstractAPIVerticle {
   @Override
   protected void mountServiceInterfaces(final RouterBuilder routerFactory) {
 
+    final var serverTiming = this.config().getJsonObject("metrics", new JsonObject()).getBoolean("serverTiming", false);
+    final var metricsHandler = new HttpServerMetricsHandler(MetricsRegistry.get(), serverTiming);
+    final var apiConf = this.config().getJsonObject("api");
+    if (ApiServerOptions.isCompressionEnabled(apiConf)) {
+
+      routerFactory.rootHandler(new CompressionThresholdHandler(ApiServerOptions.compressionMinSize(apiConf)));
+    }
+    routerFactory.rootHandler(metricsHandler);
+    routerFactory.rootHandler(new HttpServerTracingHandler());
+    metricsHandler.registerOperations(routerFactory);
+
+    final var eventsConf = this.config().getJsonObject("events", new JsonObject());
+    this.feed = new TaskEventsFeed(eventsConf.getInteger("bufferSize", TaskEventsFeed.DEFAULT_BUFFER_SIZE));
+    this.feed.listen(this.vertx).onFailure(cause -> Logger.error(cause, "Cannot listen the task events"));
+    routerFactory.rootHandler(new TaskEventsHandler(this.vertx, this.feed,
+        eventsConf.getLong("keepAlive", TaskEventsHandler.DEFAULT_KEEP_ALIVE)));
+
     routerFactory.mountServiceInterface(Help.class, Help.ADDRESS);
     new ServiceBinder(this.vertx).setAddress(Help.ADDRESS).register(Help.class, new HelpResource(this));
 
+    final var queries = PageQueries.create(apiConf == null ? null : apiConf.getJsonObject("pageQueries"));
     routerFactory.mountServiceInterface(Tasks.class, Tasks.ADDRESS);
-    new ServiceBinder(this.vertx).setAddress(Tasks.ADDRESS).register(Tasks.class, new TasksResource(this.vertx));
+    new ServiceBinder(this.vertx).setAddress(Tasks.ADDRESS).register(Tasks.class, new TasksResource(this.vertx,
+        apiConf != null && apiConf.getBoolean("serverMerge", false), queries));
 
     routerFactory.mountServiceInterface(TaskTypes.class, TaskTypes.ADDRESS);
     new ServiceBinder(this.vertx).setAddress(TaskTypes.ADDRESS).register(TaskTypes.class,
@@ -74,16 +146,21 @@ public class APIVerticle extends AbstractAPIVerticle {
 
     routerFactory.mountServiceInterface(TaskTransactions.class, TaskTransactions.ADDRESS);
     new ServiceBinder(this.vertx).setAddress(TaskTransactions.ADDRESS).register(TaskTransactions.class,
-        new TaskTransactionsResource(this.vertx));
+        new TaskTransactionsResource(this.vertx, queries));
 
     routerFactory.mountServiceInterface(Messages.class, Messages.ADDRESS);
+    final var subscriptions = new ReceiverSubscriptions(this.vertx,
+        eventsConf.getLong("pollRetention", ReceiverSubscriptions.DEFAULT_RETENTION));
     new ServiceBinder(this.vertx).setAddress(Messages.ADDRESS).register(Messages.class,
-        new MessagesResource(this.vertx));
+        new MessagesResource(this.vertx, subscriptions, queries));
 
     routerFactory.mountServiceInterface(Profiles.class, Profiles.ADDRESS);
     new ServiceBinder(this.vertx).setAddress(Profiles.ADDRESS).register(Profiles.class,
         new ProfilesResource(this.vertx));
 
+    routerFactory.mountServiceInterface(Metrics.class, Metrics.ADDRESS);
+    new ServiceBinder(this.vertx).setAddress(Metrics.ADDRESS).register(Metrics.class, new MetricsResource());
+
   }
 
   /**
@@ -99,6 +176,8 @@ public class APIVerticle extends AbstractAPIVerticle {
     final var conf = new JsonObject();
     conf.put(WeNetTaskManagerClient.TASK_MANAGER_CONF_KEY, "http://" + host + ":" + port);
     final var client = AbstractServicesVerticle.createWebClientSession(this.getVertx(), this.config());
+    WebClientMetricsInterceptor.instrument(client, MetricsRegistry.get());
+    WebClientTracingInterceptor.instrument(client);
     WeNetTaskManager.register(this.vertx, client, conf);
 
   }
@@ -0,0 +1,156 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api;
+
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Translate the compression and HTTP/2 parameters of the {@code api} configuration into the options of the HTTP
+ * server that provide the API.
+ *
+ * @see HttpServerOptions
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public interface ApiServerOptions {
+
+  /**
+   * The name of the configuration object with the response compression parameters.
+   */
+  String COMPRESSION_KEY = "compression";
+
+  /**
+   * The name of the configuration object with the HTTP/2 parameters.
+   */
+  String HTTP2_KEY = "http2";
+
+  /**
+   * The compression level that is used by default.
+   */
+  int DEFAULT_COMPRESSION_LEVEL = 6;
+
+  /**
+   * The minimum size, in bytes, of a response body to be compressed by default.
+   */
+  int DEFAULT_COMPRESSION_MIN_SIZE = 1024;
+
+  /**
+   * The maximum number of concurrent streams of a HTTP/2 connection by default.
+   */
+  long DEFAULT_MAX_CONCURRENT_STREAMS = 100;
+
+  /**
+   * Check if the response compression is enabled.
+   *
+   * @param apiConf configuration of the API.
+   *
+   * @return {@code true} if the responses has to be compressed.
+   */
+  static boolean isCompressionEnabled(final JsonObject apiConf) {
+
+    return compression(apiConf).getBoolean("enabled", true);
+
+  }
+
+  /**
+   * Obtain the minimum size of a response body to be compressed.
+   *
+   * @param apiConf configuration of the API.
+   *
+   * @return the minimum number of bytes of a body to be compressed.
+   */
+  static int compressionMinSize(final JsonObject apiConf) {
+
+    return Math.max(0, compression(apiConf).getInteger("minSize", DEFAULT_COMPRESSION_MIN_SIZE));
+
+  }
+
+  /**
+   * Obtain the compression parameters of the API.
+   *
+   * @param apiConf configuration of the API.
+   *
+   * @return the compression configuration.
+   */
+  private static JsonObject compression(final JsonObject apiConf) {
+
+    if (apiConf == null) {
+
+      return new JsonObject();
+
+    } else {
+
+      return apiConf.getJsonObject(COMPRESSION_KEY, new JsonObject());
+    }
+
+  }
+
+  /**
+   * Add to the API configuration the HTTP server options that enable the response compression and that tune the
+   * HTTP/2 connections.
+   *
+   * @param apiConf configuration of the API to update.
+   *
+   * @return the updated configuration.
+   *
+   * @throws IllegalArgumentException if the resulting configuration is not valid HTTP server options.
+   */
+  static JsonObject configure(final JsonObject apiConf) {
+
+    final var compression = compression(apiConf);
+    final var enabled = compression.getBoolean("enabled", true);
+    apiConf.put("compressionSupported", enabled);
+    apiConf.put("decompressionSupported", compression.getBoolean("decompression", false));
+    if (enabled) {
+
+      final var level = compression.getInteger("level", DEFAULT_COMPRESSION_LEVEL);
+      if (level < 1 || level > 9) {
+
+        throw new IllegalArgumentException("The compression level has to be between 1 and 9.");
+      }
+      apiConf.put("compressionLevel", level);
+    }
+
+    final var http2 = apiConf.getJsonObject(HTTP2_KEY, new JsonObject());
+    final var settings = apiConf.getJsonObject("initialSettings", new JsonObject());
+    settings.put("maxConcurrentStreams",
+        http2.getLong("maxConcurrentStreams", DEFAULT_MAX_CONCURRENT_STREAMS));
+    apiConf.put("initialSettings", settings);
+    final var windowSize = http2.getInteger("connectionWindowSize");
+    if (windowSize != null) {
+
+      apiConf.put("http2ConnectionWindowSize", windowSize);
+    }
+    apiConf.put("alpnVersions", new JsonArray().add(HttpVersion.HTTP_2.name()).add(HttpVersion.HTTP_1_1.name()));
+
+    final var options = new HttpServerOptions(apiConf);
+    if (options.getInitialSettings().getMaxConcurrentStreams() < 1) {
+
+      throw new IllegalArgumentException("The HTTP/2 maximum concurrent streams has to be positive.");
+    }
+    return apiConf;
+
+  }
+
+}
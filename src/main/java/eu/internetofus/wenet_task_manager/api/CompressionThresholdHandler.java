@@ -0,0 +1,78 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Disable the compression of the responses whose body is smaller than a threshold, because compressing them only
+ * costs CPU without saving any bandwidth. The size of the body is only known before sending the headers on HTTP/1.x,
+ * so the HTTP/2 responses are always compressed.
+ *
+ * @see ApiServerOptions#compressionMinSize(io.vertx.core.json.JsonObject)
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class CompressionThresholdHandler implements Handler<RoutingContext> {
+
+  /**
+   * The minimum number of bytes of a response body to be compressed.
+   */
+  protected int minSize;
+
+  /**
+   * Create the handler.
+   *
+   * @param minSize minimum number of bytes of a response body to be compressed.
+   */
+  public CompressionThresholdHandler(final int minSize) {
+
+    this.minSize = minSize;
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void handle(final RoutingContext ctx) {
+
+    if (this.minSize > 0 && ctx.request().version() != HttpVersion.HTTP_2) {
+
+      ctx.addHeadersEndHandler(ignored -> {
+
+        final var response = ctx.response();
+        final var written = response.bytesWritten();
+        if (written > 0 && written < this.minSize && !response.headers().contains(HttpHeaders.CONTENT_ENCODING)) {
+
+          response.putHeader(HttpHeaders.CONTENT_ENCODING, HttpHeaders.IDENTITY);
+        }
+
+      });
+    }
+    ctx.next();
+
+  }
+
+}
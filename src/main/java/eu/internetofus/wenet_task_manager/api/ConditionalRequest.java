@@ -0,0 +1,425 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api;
+
+import eu.internetofus.common.vertx.ServiceResponseHandlers;
+import eu.internetofus.wenet_task_manager.persistence.ModelVersions;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.api.service.ServiceRequest;
+import io.vertx.ext.web.api.service.ServiceResponse;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.function.Supplier;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * Manage the conditional requests over a stored model. The entity tag of the model is derived from its
+ * {@link ModelVersions#VERSION} and the last modified date from its {@link ModelVersions#LAST_UPDATE_TS}, and they are
+ * used to answer with not modified to the conditional GET requests ({@code If-None-Match} and
+ * {@code If-Modified-Since}) and to check the precondition of the modifications ({@code If-Match}).
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class ConditionalRequest {
+
+  /**
+   * The code of the error when the precondition of a modification fails.
+   */
+  public static final String PRECONDITION_FAILED = "precondition_failed";
+
+  /**
+   * The headers of the request.
+   */
+  protected final MultiMap headers;
+
+  /**
+   * The version of the model of the request.
+   */
+  protected Long version;
+
+  /**
+   * The last update time stamp of the model of the request.
+   */
+  protected Long lastUpdateTs;
+
+  /**
+   * Create the conditional request.
+   *
+   * @param request to check.
+   */
+  public ConditionalRequest(final ServiceRequest request) {
+
+    this.headers = request == null ? null : request.getHeaders();
+
+  }
+
+  /**
+   * Return the entity tag of a model.
+   *
+   * @param version of the model.
+   *
+   * @return the entity tag of the model.
+   */
+  public static String etag(final long version) {
+
+    return "\"" + version + "\"";
+
+  }
+
+  /**
+   * Return the last modified date of a model.
+   *
+   * @param lastUpdateTs the last update time stamp of the model.
+   *
+   * @return the HTTP date when the model has been modified.
+   */
+  public static String lastModified(final long lastUpdateTs) {
+
+    return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochSecond(lastUpdateTs).atOffset(ZoneOffset.UTC));
+
+  }
+
+  /**
+   * Add the headers with the entity tag and the last modified date into a response.
+   *
+   * @param response     to add the headers.
+   * @param version      of the model.
+   * @param lastUpdateTs the last update time stamp of the model, or {@code null} if it is not known.
+   *
+   * @return the response with the headers.
+   */
+  public static ServiceResponse addValidators(final ServiceResponse response, final long version,
+      final Long lastUpdateTs) {
+
+    response.putHeader(HttpHeaders.ETAG.toString(), etag(version));
+    if (lastUpdateTs != null) {
+
+      response.putHeader(HttpHeaders.LAST_MODIFIED.toString(), lastModified(lastUpdateTs));
+    }
+    return response;
+
+  }
+
+  /**
+   * Return the value of a header of the request.
+   *
+   * @param name of the header.
+   *
+   * @return the value of the header or {@code null} if it is not defined.
+   */
+  protected String header(final CharSequence name) {
+
+    return this.headers == null ? null : this.headers.get(name);
+
+  }
+
+  /**
+   * Check if a list of entity tags contains the tag of the model.
+   *
+   * @param tags    the list of entity tags.
+   * @param version of the model.
+   * @param weak    is {@code true} if the weak entity tags has to be considered.
+   *
+   * @return {@code true} if the tag of the model is on the list.
+   */
+  protected static boolean containsTag(final String tags, final long version, final boolean weak) {
+
+    final var etag = etag(version);
+    for (final var element : tags.split(",")) {
+
+      var tag = element.trim();
+      if ("*".equals(tag)) {
+
+        return true;
+
+      } else if (tag.startsWith("W/")) {
+
+        if (!weak) {
+
+          continue;
+        }
+        tag = tag.substring(2);
+      }
+      if (etag.equals(tag)) {
+
+        return true;
+      }
+    }
+    return false;
+
+  }
+
+  /**
+   * Check if the request is a conditional GET.
+   *
+   * @return {@code true} if the request has the {@code If-None-Match} or the {@code If-Modified-Since} header.
+   */
+  public boolean isConditionalGet() {
+
+    return this.header(HttpHeaders.IF_NONE_MATCH) != null || this.header(HttpHeaders.IF_MODIFIED_SINCE) != null;
+
+  }
+
+  /**
+   * Check if the model has not been modified since the version that the client has.
+   *
+   * @param version      of the model.
+   * @param lastUpdateTs the last update time stamp of the model, or {@code null} if it is not known.
+   *
+   * @return {@code true} if the model has not been modified.
+   */
+  public boolean isNotModified(final long version, final Long lastUpdateTs) {
+
+    final var ifNoneMatch = this.header(HttpHeaders.IF_NONE_MATCH);
+    if (ifNoneMatch != null) {
+
+      return containsTag(ifNoneMatch, version, true);
+    }
+
+    final var ifModifiedSince = this.header(HttpHeaders.IF_MODIFIED_SINCE);
+    if (ifModifiedSince != null && lastUpdateTs != null) {
+
+      try {
+
+        final var since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME);
+        return lastUpdateTs <= since.toEpochSecond();
+
+      } catch (final DateTimeParseException ignored) {
+        // An invalid date has to be ignored
+      }
+    }
+
+    return false;
+
+  }
+
+  /**
+   * Check if the precondition of a modification is satisfied.
+   *
+   * @param version of the model.
+   *
+   * @return {@code true} if the request does not have the {@code If-Match} header or if it contains the entity tag of
+   *         the model.
+   */
+  public boolean isPreconditionSatisfied(final long version) {
+
+    final var ifMatch = this.header(HttpHeaders.IF_MATCH);
+    return ifMatch == null || containsTag(ifMatch, version, false);
+
+  }
+
+  /**
+   * Return the version of the model that the client expects to modify.
+   *
+   * @return the version of the only strong entity tag of the {@code If-Match} header, or {@code null} if the header is
+   *         not defined or it does not contain only one strong entity tag.
+   */
+  public Long expectedVersion() {
+
+    final var ifMatch = this.header(HttpHeaders.IF_MATCH);
+    if (ifMatch != null) {
+
+      final var tag = ifMatch.trim();
+      if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+
+        try {
+
+          return Long.parseLong(tag.substring(1, tag.length() - 1));
+
+        } catch (final NumberFormatException ignored) {
+          // It is not the tag of a model
+        }
+      }
+    }
+
+    return null;
+
+  }
+
+  /**
+   * Answer with not modified if the client has the current version of the model, or retrieve the model otherwise. If
+   * the request is not conditional the model is retrieved without check the version.
+   *
+   * @param version       provider of the future with the {@link ModelVersions#VERSION} and the
+   *                      {@link ModelVersions#LAST_UPDATE_TS} of the model.
+   * @param resultHandler to inform of the response.
+   * @param retrieve      the action to retrieve the model.
+   */
+  public void retrieveIfModified(final Supplier<Future<JsonObject>> version,
+      final Handler<AsyncResult<ServiceResponse>> resultHandler, final Runnable retrieve) {
+
+    if (this.isConditionalGet()) {
+
+      version.get().onComplete(search -> {
+
+        final var found = search.result();
+        if (search.succeeded() && found != null) {
+
+          final var current = ModelVersions.versionOf(found);
+          final var ts = found.getLong(ModelVersions.LAST_UPDATE_TS);
+          if (this.isNotModified(current, ts)) {
+
+            resultHandler.handle(Future.succeededFuture(addValidators(
+                new ServiceResponse().setStatusCode(Status.NOT_MODIFIED.getStatusCode()), current, ts)));
+            return;
+          }
+        }
+        retrieve.run();
+      });
+
+    } else {
+
+      retrieve.run();
+    }
+
+  }
+
+  /**
+   * Store the version of a found model and remove it from the model, so it can be converted to the model.
+   *
+   * @param search the future found model, with its {@link ModelVersions#VERSION}.
+   *
+   * @return the future found model without its version.
+   */
+  public Future<JsonObject> capture(final Future<JsonObject> search) {
+
+    return search.map(found -> {
+
+      if (found != null) {
+
+        this.version = ModelVersions.versionOf(found);
+        this.lastUpdateTs = found.getLong(ModelVersions.LAST_UPDATE_TS);
+      }
+      return ModelVersions.withoutVersion(found);
+
+    });
+
+  }
+
+  /**
+   * Return a handler that checks the {@code If-Match} precondition over the version of the captured model before
+   * inform the handler. If the precondition fails it answers with a precondition failed and the handler is not
+   * informed.
+   *
+   * @param handler       to inform of the found model.
+   * @param resultHandler to inform of the response if the precondition fails.
+   * @param <T>           type of model.
+   *
+   * @return the handler that checks the precondition.
+   *
+   * @see #capture(Future)
+   */
+  public <T> Handler<AsyncResult<T>> checkPrecondition(final Handler<AsyncResult<T>> handler,
+      final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
+    return search -> {
+
+      if (search.succeeded() && search.result() != null && this.version != null
+          && !this.isPreconditionSatisfied(this.version)) {
+
+        preconditionFailed(resultHandler);
+
+      } else {
+
+        handler.handle(search);
+      }
+    };
+
+  }
+
+  /**
+   * Return a handler that answers with a precondition failed if the write of the model has failed because it has been
+   * modified since the version defined on the {@code If-Match} header. The search of the model is checked before the
+   * modification, but only the write conditioned to the expected version avoids to lose the concurrent modifications.
+   *
+   * @param handler       to inform of the write result.
+   * @param resultHandler to inform of the response if the precondition fails.
+   * @param <T>           type of the write result.
+   *
+   * @return the handler that checks the precondition of the write.
+   *
+   * @see #expectedVersion()
+   * @see ModelVersions#isModified(Throwable)
+   */
+  public <T> Handler<AsyncResult<T>> checkWritten(final Handler<AsyncResult<T>> handler,
+      final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
+    return write -> {
+
+      if (write.failed() && ModelVersions.isModified(write.cause())) {
+
+        preconditionFailed(resultHandler);
+
+      } else {
+
+        handler.handle(write);
+      }
+    };
+
+  }
+
+  /**
+   * Answer with a precondition failed because the model has been modified since the version defined on the
+   * {@code If-Match} header.
+   *
+   * @param resultHandler to inform of the response.
+   */
+  protected static void preconditionFailed(final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
+    ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.PRECONDITION_FAILED, PRECONDITION_FAILED,
+        "The model has been modified since the version defined on the If-Match header.");
+
+  }
+
+  /**
+   * Return a handler that adds the entity tag and the last modified date into the successful responses of the model
+   * that has been captured.
+   *
+   * @param resultHandler to inform of the response.
+   *
+   * @return the handler that adds the headers into the response.
+   *
+   * @see #capture(Future)
+   */
+  public Handler<AsyncResult<ServiceResponse>> wrap(final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
+    return result -> {
+
+      final var response = result.result();
+      if (result.succeeded() && response != null && this.version != null
+          && response.getStatusCode() == Status.OK.getStatusCode()) {
+
+        addValidators(response, this.version, this.lastUpdateTs);
+      }
+      resultHandler.handle(result);
+    };
+
+  }
+
+}
@@ -0,0 +1,238 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api;
+
+import eu.internetofus.wenet_task_manager.metrics.MetricsRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeSet;
+
+/**
+ * Count how many times each shape of the queries of the pages, the fields and operators of the filter with the fields of
+ * the sort, is searched, so the indexes can be tuned to the searches that are really done. The shapes do not contain
+ * the searched values, so the number of counters is bounded, and when there are too many shapes the rest are counted
+ * on only one counter.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class PageQueries {
+
+  /**
+   * The name of the metric with the number of searches of each query shape.
+   */
+  public static final String SHAPES_METRIC = "http.server.page.queries";
+
+  /**
+   * The default maximum number of shapes to count individually.
+   */
+  public static final int DEFAULT_MAX_SHAPES = 200;
+
+  /**
+   * The shape used when there are too many shapes to count individually.
+   */
+  public static final String OTHER_SHAPE = "other";
+
+  /**
+   * The maximum number of shapes to count individually.
+   */
+  protected int maxShapes;
+
+  /**
+   * The registry where the searched shapes are counted.
+   */
+  protected MeterRegistry registry;
+
+  /**
+   * The counters of the shapes that have been searched.
+   */
+  protected Map<String, Counter> shapes = new HashMap<>();
+
+  /**
+   * The counter of the searches whose shape is not counted individually.
+   */
+  protected Counter other;
+
+  /**
+   * Create the queries with the default values.
+   */
+  public PageQueries() {
+
+    this(DEFAULT_MAX_SHAPES, MetricsRegistry.get());
+
+  }
+
+  /**
+   * Create the queries.
+   *
+   * @param maxShapes maximum number of shapes to count individually.
+   * @param registry  where the searched shapes are counted.
+   */
+  public PageQueries(final int maxShapes, final MeterRegistry registry) {
+
+    this.maxShapes = Math.max(0, maxShapes);
+    this.registry = registry;
+    this.other = Counter.builder(SHAPES_METRIC).tag("operation", OTHER_SHAPE).tag("filter", OTHER_SHAPE)
+        .tag("sort", OTHER_SHAPE).register(registry);
+
+  }
+
+  /**
+   * Create the queries with a configuration.
+   *
+   * @param conf with the {@code maxShapes}, or {@code null} to use the default values.
+   *
+   * @return the queries with the configuration.
+   */
+  public static PageQueries create(final JsonObject conf) {
+
+    final var config = conf == null ? new JsonObject() : conf;
+    return new PageQueries(config.getInteger("maxShapes", DEFAULT_MAX_SHAPES), MetricsRegistry.get());
+
+  }
+
+  /**
+   * Obtain the key of a shape.
+   *
+   * @param page        name of the searched page.
+   * @param filterShape shape of the filter of the search.
+   * @param sortShape   shape of the sort of the search.
+   *
+   * @return the key of the shape.
+   */
+  public static String keyOf(final String page, final String filterShape, final String sortShape) {
+
+    return new JsonArray().add(page).add(filterShape).add(sortShape).encode();
+
+  }
+
+  /**
+   * Count the search of a page.
+   *
+   * @param page  name of the searched page.
+   * @param query of the search.
+   * @param sort  of the search.
+   */
+  public void count(final String page, final JsonObject query, final JsonObject sort) {
+
+    final var filterShape = shapeOf(query);
+    final var sortShape = sortShapeOf(sort);
+    final var key = keyOf(page, filterShape, sortShape);
+    Counter counter = null;
+    synchronized (this) {
+
+      counter = this.shapes.get(key);
+      if (counter == null) {
+
+        if (this.shapes.size() >= this.maxShapes) {
+
+          counter = this.other;
+
+        } else {
+
+          counter = Counter.builder(SHAPES_METRIC).tag("operation", page).tag("filter", filterShape)
+              .tag("sort", sortShape).register(this.registry);
+          this.shapes.put(key, counter);
+        }
+      }
+    }
+    counter.increment();
+
+  }
+
+  /**
+   * Obtain the shape of a query, that is the fields and the operators used on them, without their values.
+   *
+   * @param query to get the shape.
+   *
+   * @return the shape of the query.
+   */
+  public static String shapeOf(final JsonObject query) {
+
+    final var shape = new StringBuilder();
+    if (query != null) {
+
+      for (final var field : query.fieldNames()) {
+
+        if (shape.length() > 0) {
+
+          shape.append(',');
+        }
+        shape.append(field);
+        final var value = query.getValue(field);
+        if (value instanceof JsonObject) {
+
+          final var operators = new TreeSet<String>();
+          for (final var operator : ((JsonObject) value).fieldNames()) {
+
+            if (operator.startsWith("$")) {
+
+              operators.add(operator);
+            }
+          }
+          shape.append(':').append(operators.isEmpty() ? "eq" : String.join("", operators));
+
+        } else if (value instanceof JsonArray) {
+
+          final var elements = new StringJoiner(";", "[", "]");
+          for (final var element : (JsonArray) value) {
+
+            elements.add(element instanceof JsonObject ? shapeOf((JsonObject) element) : "eq");
+          }
+          shape.append(elements);
+
+        } else {
+
+          shape.append(":eq");
+        }
+      }
+    }
+    return shape.toString();
+
+  }
+
+  /**
+   * Obtain the shape of a sort, that is the fields and the direction to sort them.
+   *
+   * @param sort to get the shape.
+   *
+   * @return the shape of the sort.
+   */
+  public static String sortShapeOf(final JsonObject sort) {
+
+    final var shape = new StringJoiner(",");
+    if (sort != null) {
+
+      for (final var field : sort.fieldNames()) {
+
+        final var direction = sort.getValue(field);
+        shape.add(field + (direction instanceof Number && ((Number) direction).intValue() < 0 ? ":desc" : ":asc"));
+      }
+    }
+    return shape.toString();
+
+  }
+
+}
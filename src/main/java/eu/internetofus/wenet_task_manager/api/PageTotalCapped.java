@@ -0,0 +1,43 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api;
+
+import eu.internetofus.common.model.Model;
+import eu.internetofus.common.model.ReflectionModel;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Contains the marker of a page whose total has been estimated counting until a maximum.
+ *
+ * @see eu.internetofus.wenet_task_manager.persistence.PageTotals#TOTAL_CAPPED
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Schema(title = "PageTotalCapped", description = "The marker of a page whose 'estimated' total has reached the maximum number of models to count")
+public class PageTotalCapped extends ReflectionModel implements Model {
+
+  /**
+   * This is {@code true} if the total has been capped.
+   */
+  @Schema(description = "This is 'true' when the 'estimated' total has reached the maximum number of models to count, so the total is a lower bound and more models can match the query. It is not defined when the total is exact.", example = "true", nullable = true)
+  public Boolean totalCapped;
+
+}
@@ -0,0 +1,268 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api;
+
+import eu.internetofus.wenet_task_manager.metrics.MetricsRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.ext.web.api.service.ServiceResponse;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the phases spent by a resource to reply a request. The durations are added to the {@code Server-Timing}
+ * header of the response and recorded on the {@link MetricsRegistry} by operation and phase.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class ServerTiming {
+
+  /**
+   * The name of the HTTP header with the timing information.
+   */
+  public static final String HEADER = "Server-Timing";
+
+  /**
+   * The name of the timer with the duration of the phases.
+   */
+  public static final String PHASES_METRIC = "http.server.phases";
+
+  /**
+   * The phase where the OpenAPI validation is done.
+   */
+  public static final String VALIDATION = "validation";
+
+  /**
+   * The phase where the resource interacts with the database.
+   */
+  public static final String PERSISTENCE = "persistence";
+
+  /**
+   * The phase where the resource interacts with other WeNet components.
+   */
+  public static final String REMOTE_LOOKUP = "remote-lookup";
+
+  /**
+   * The phase where the response is encoded.
+   */
+  public static final String SERIALIZATION = "serialization";
+
+  /**
+   * The time spent by the resource, since it receives the request until it replies.
+   */
+  public static final String RESOURCE = "resource";
+
+  /**
+   * The total time spent by the API to reply the request.
+   */
+  public static final String TOTAL = "total";
+
+  /**
+   * The operation that is measured.
+   */
+  protected String operation;
+
+  /**
+   * The time when the measure has started.
+   */
+  protected long startTime;
+
+  /**
+   * The accumulated duration, in nanoseconds, of the finished phases.
+   */
+  protected Map<String, Long> durations = new LinkedHashMap<>();
+
+  /**
+   * The time when started the phases that are not finished.
+   */
+  protected Map<String, Long> started = new LinkedHashMap<>();
+
+  /**
+   * Start to measure an operation.
+   *
+   * @param operation identifier of the OpenAPI operation to measure.
+   */
+  public ServerTiming(final String operation) {
+
+    this.operation = operation;
+    this.startTime = System.nanoTime();
+
+  }
+
+  /**
+   * Mark the start of a phase.
+   *
+   * @param phase that starts.
+   *
+   * @return this timing.
+   */
+  public ServerTiming start(final String phase) {
+
+    this.started.putIfAbsent(phase, System.nanoTime());
+    return this;
+
+  }
+
+  /**
+   * Mark the end of a phase. If the phase is not started nothing happens.
+   *
+   * @param phase that ends.
+   *
+   * @return this timing.
+   */
+  public ServerTiming end(final String phase) {
+
+    final var phaseStartTime = this.started.remove(phase);
+    if (phaseStartTime != null) {
+
+      this.durations.merge(phase, System.nanoTime() - phaseStartTime, Long::sum);
+    }
+    return this;
+
+  }
+
+  /**
+   * Start a phase and finish it when the handler is called.
+   *
+   * @param phase   to measure.
+   * @param handler to call when the phase has finished.
+   * @param <T>     type of the result.
+   *
+   * @return the handler that finish the phase.
+   */
+  public <T> Handler<AsyncResult<T>> measure(final String phase, final Handler<AsyncResult<T>> handler) {
+
+    this.start(phase);
+    return result -> {
+
+      this.end(phase);
+      handler.handle(result);
+    };
+
+  }
+
+  /**
+   * Start a phase before calling a handler.
+   *
+   * @param phase   to start.
+   * @param handler to call.
+   * @param <T>     type of the result.
+   *
+   * @return the handler that start the phase.
+   */
+  public <T> Handler<AsyncResult<T>> starting(final String phase, final Handler<AsyncResult<T>> handler) {
+
+    return result -> {
+
+      this.start(phase);
+      handler.handle(result);
+    };
+
+  }
+
+  /**
+   * Finish a phase before doing an action.
+   *
+   * @param phase  to finish.
+   * @param action to do.
+   *
+   * @return the action that finish the phase.
+   */
+  public Runnable ending(final String phase, final Runnable action) {
+
+    return () -> {
+
+      this.end(phase);
+      action.run();
+    };
+
+  }
+
+  /**
+   * Return a handler that add the timing information to the response before send it.
+   *
+   * @param resultHandler to inform of the response.
+   *
+   * @return the handler that add the timing information.
+   */
+  public Handler<AsyncResult<ServiceResponse>> wrap(final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
+    return result -> {
+
+      if (result.succeeded() && result.result() != null) {
+
+        result.result().putHeader(HEADER, this.finish());
+      }
+      resultHandler.handle(result);
+
+    };
+
+  }
+
+  /**
+   * Finish all the started phases, record them and return the value for the {@link #HEADER}.
+   *
+   * @return the value of the header.
+   */
+  protected String finish() {
+
+    for (final var phase : this.started.keySet().toArray(new String[0])) {
+
+      this.end(phase);
+    }
+    this.durations.put(RESOURCE, System.nanoTime() - this.startTime);
+
+    final var registry = MetricsRegistry.get();
+    final var value = new StringBuilder();
+    for (final var entry : this.durations.entrySet()) {
+
+      final var phase = entry.getKey();
+      final long duration = entry.getValue();
+      Timer.builder(PHASES_METRIC).tag("operation", this.operation).tag("phase", phase).register(registry)
+          .record(duration, TimeUnit.NANOSECONDS);
+      append(value, phase, duration);
+    }
+    return value.toString();
+
+  }
+
+  /**
+   * Append the duration of a phase to a {@link #HEADER} value.
+   *
+   * @param value    of the header.
+   * @param phase    name of the phase.
+   * @param duration of the phase in nanoseconds.
+   */
+  public static void append(final StringBuilder value, final String phase, final long duration) {
+
+    if (value.length() > 0) {
+
+      value.append(", ");
+    }
+    value.append(phase).append(";dur=")
+        .append(String.format(Locale.ROOT, "%.3f", duration / (double) TimeUnit.MILLISECONDS.toNanos(1)));
+
+  }
+
+}
@@ -26,16 +26,11 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
-import io.vertx.core.Vertx;
-import io.vertx.core.buffer.Buffer;
-import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.api.service.ServiceRequest;
 import io.vertx.ext.web.api.service.ServiceResponse;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.util.stream.Collectors;
 import javax.ws.rs.core.Response.Status;
+import org.tinylog.Logger;
 
 /**
  * Resource to provide the help about the API.
@@ -56,6 +51,11 @@ public class HelpResource implements Help {
    */
   public static final String OPENA_API_RESOURCE = "wenet-task_manager-openapi.yaml";
 
+  /**
+   * The OpenAPI description that is loaded when the resource is created.
+   */
+  protected final Future<OpenApiDocument> openApi;
+
   /**
    * Create a new version resource.
    *
@@ -71,6 +71,19 @@ public class HelpResource implements Help {
     this.info.softwareVersion = conf.getString("softwareVersion", "Undefined");
     this.info.vendor = conf.getString("vendor", "UDT-IA, IIIA-CSIC");
     this.info.license = conf.getString("license", "Apache v2");
+    this.openApi = apiVerticle.getVertx().executeBlocking((Handler<Promise<OpenApiDocument>>) promise -> {
+
+      try {
+
+        promise.complete(OpenApiDocument.load(OPENA_API_RESOURCE));
+
+      } catch (final Throwable cause) {
+
+        Logger.error(cause, "Cannot load the OpenAPI description.");
+        promise.fail(cause);
+      }
+
+    });
 
   }
 
@@ -90,20 +103,7 @@ public class HelpResource implements Help {
   @Override
   public void getOpenApi(final ServiceRequest context, final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
-    Vertx.vertx().executeBlocking((Handler<Promise<String>>) promise -> {
-
-      try {
-
-        final var in = this.getClass().getClassLoader().getResourceAsStream(OPENA_API_RESOURCE);
-        final var openapi = new BufferedReader(new InputStreamReader(in)).lines().collect(Collectors.joining("\n"));
-        promise.complete(openapi);
-
-      } catch (final Throwable cause) {
-
-        promise.fail(cause);
-      }
-
-    }, res -> {
+    this.openApi.onComplete(res -> {
 
       if (res.failed()) {
 
@@ -112,10 +112,7 @@ public class HelpResource implements Help {
 
       } else {
 
-        final String openapi = res.result();
-        resultHandler.handle(Future.succeededFuture(new ServiceResponse().setStatusCode(Status.OK.getStatusCode())
-            .putHeader(HttpHeaders.CONTENT_TYPE.toString(), "application/yaml").setPayload(Buffer.buffer(openapi))));
-
+        resultHandler.handle(Future.succeededFuture(res.result().response(context.getHeaders())));
       }
     });
 
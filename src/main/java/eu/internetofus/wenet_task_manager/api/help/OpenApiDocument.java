@@ -0,0 +1,242 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api.help;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.ext.web.api.service.ServiceResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * The OpenAPI description of the API. It is loaded only once and it is served with an ETag, that allows to the
+ * clients to do conditional requests, and it is pre-compressed with gzip for the clients that accept it.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class OpenApiDocument {
+
+  /**
+   * The type of the content of the document.
+   */
+  public static final String CONTENT_TYPE = "application/yaml";
+
+  /**
+   * The encoding used to compress the document.
+   */
+  public static final String GZIP = "gzip";
+
+  /**
+   * The value of the cache control header.
+   */
+  public static final String CACHE_CONTROL = "public, max-age=3600, must-revalidate";
+
+  /**
+   * The content of the document.
+   */
+  protected final Buffer content;
+
+  /**
+   * The content of the document compressed with gzip.
+   */
+  protected final Buffer gzipContent;
+
+  /**
+   * The entity tag of the document.
+   */
+  protected final String etag;
+
+  /**
+   * The entity tag of the document compressed with gzip.
+   */
+  protected final String gzipEtag;
+
+  /**
+   * Create the document.
+   *
+   * @param content of the document.
+   *
+   * @throws IOException if can not compress the document.
+   */
+  public OpenApiDocument(final Buffer content) throws IOException {
+
+    this.content = content;
+    final var bytes = new ByteArrayOutputStream();
+    try (var gzip = new GZIPOutputStream(bytes)) {
+
+      gzip.write(content.getBytes());
+    }
+    this.gzipContent = Buffer.buffer(bytes.toByteArray());
+    final var hash = hash(content);
+    this.etag = "\"" + hash + "\"";
+    this.gzipEtag = "\"" + hash + "-" + GZIP + "\"";
+
+  }
+
+  /**
+   * Load the document from a resource.
+   *
+   * @param resource name of the resource with the document.
+   *
+   * @return the loaded document.
+   *
+   * @throws IOException if can not load the document.
+   */
+  public static OpenApiDocument load(final String resource) throws IOException {
+
+    try (var in = OpenApiDocument.class.getClassLoader().getResourceAsStream(resource)) {
+
+      if (in == null) {
+
+        throw new FileNotFoundException("Not found the resource " + resource);
+      }
+      return new OpenApiDocument(Buffer.buffer(in.readAllBytes()));
+    }
+
+  }
+
+  /**
+   * Calculate the hash of a content.
+   *
+   * @param content to calculate the hash.
+   *
+   * @return the hash of the content.
+   */
+  protected static String hash(final Buffer content) {
+
+    try {
+
+      final var digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes());
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+
+    } catch (final NoSuchAlgorithmException cause) {
+
+      return Integer.toHexString(content.hashCode());
+    }
+
+  }
+
+  /**
+   * Return the entity tag of the document.
+   *
+   * @return the entity tag of the document.
+   */
+  public String getEtag() {
+
+    return this.etag;
+
+  }
+
+  /**
+   * Create the response to a request of the document.
+   *
+   * @param headers of the request.
+   *
+   * @return the response to the request.
+   */
+  public ServiceResponse response(final MultiMap headers) {
+
+    final var gzip = acceptsGzip(headers);
+    final var etag = gzip ? this.gzipEtag : this.etag;
+    final var response = new ServiceResponse().putHeader(HttpHeaders.ETAG.toString(), etag)
+        .putHeader(HttpHeaders.CACHE_CONTROL.toString(), CACHE_CONTROL)
+        .putHeader(HttpHeaders.VARY.toString(), HttpHeaders.ACCEPT_ENCODING.toString());
+    if (this.isNotModified(headers)) {
+
+      return response.setStatusCode(Status.NOT_MODIFIED.getStatusCode());
+
+    } else {
+
+      response.setStatusCode(Status.OK.getStatusCode()).putHeader(HttpHeaders.CONTENT_TYPE.toString(), CONTENT_TYPE);
+      if (gzip) {
+
+        return response.putHeader(HttpHeaders.CONTENT_ENCODING.toString(), GZIP).setPayload(this.gzipContent);
+
+      } else {
+
+        return response.setPayload(this.content);
+      }
+    }
+
+  }
+
+  /**
+   * Check if the client accepts the document compressed with gzip.
+   *
+   * @param headers of the request.
+   *
+   * @return {@code true} if the client accepts gzip.
+   */
+  protected static boolean acceptsGzip(final MultiMap headers) {
+
+    final var accept = headers == null ? null : headers.get(HttpHeaders.ACCEPT_ENCODING);
+    if (accept != null) {
+
+      for (final var element : accept.split(",")) {
+
+        final var parts = element.trim().split(";");
+        if (GZIP.equalsIgnoreCase(parts[0].trim())) {
+
+          return parts.length < 2 || !parts[1].replaceAll("\\s", "").matches("q=0(\\.0*)?");
+        }
+      }
+    }
+    return false;
+
+  }
+
+  /**
+   * Check if the client already has the document.
+   *
+   * @param headers of the request.
+   *
+   * @return {@code true} if the document has not changed.
+   */
+  protected boolean isNotModified(final MultiMap headers) {
+
+    final var ifNoneMatch = headers == null ? null : headers.get(HttpHeaders.IF_NONE_MATCH);
+    if (ifNoneMatch != null) {
+
+      for (final var element : ifNoneMatch.split(",")) {
+
+        var tag = element.trim();
+        if (tag.startsWith("W/")) {
+
+          tag = tag.substring(2);
+        }
+        if ("*".equals(tag) || this.etag.equals(tag) || this.gzipEtag.equals(tag)) {
+
+          return true;
+        }
+      }
+    }
+    return false;
+
+  }
+
+}
@@ -23,6 +23,7 @@ package eu.internetofus.wenet_task_manager.api.messages;
 import eu.internetofus.common.components.models.Message;
 import eu.internetofus.common.components.models.Task;
 import eu.internetofus.common.model.ErrorMessage;
+import eu.internetofus.wenet_task_manager.api.PageTotalCapped;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.Explode;
@@ -63,6 +64,16 @@ public interface Messages {
    */
   String ADDRESS = "wenet_task_manager.api.messages";
 
+  /**
+   * The path to wait for the new messages.
+   */
+  String POLL_PATH = "/poll";
+
+  /**
+   * The maximum seconds that a poll waits for a message. It is less than the timeout of the event bus replies.
+   */
+  int MAX_POLL_TIMEOUT = 25;
+
   /**
    * Called when want to get the information of some tasks.
    *
@@ -113,6 +124,7 @@ public interface Messages {
    * @param order                   of the tasks to return.
    * @param offset                  index of the first task to return.
    * @param limit                   number maximum of tasks to return.
+   * @param total                   the mode to calculate the total of the page.
    * @param request                 of the query.
    * @param resultHandler           to inform of the response.
    */
@@ -120,7 +132,7 @@ public interface Messages {
   @GET
   @Produces(MediaType.APPLICATION_JSON)
   @Operation(summary = "Search for some messages", description = "Allow to get a page of messages with the specified query parameters.")
-  @ApiResponse(responseCode = "200", description = "The page with the matching messages", content = @Content(schema = @Schema(implementation = MessagesPage.class)))
+  @ApiResponse(responseCode = "200", description = "The page with the matching messages", content = @Content(schema = @Schema(allOf = { MessagesPage.class, PageTotalCapped.class })))
   @ApiResponse(responseCode = "400", description = "If any of the search pattern is not valid", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
   void retrieveMessagesPage(
       @QueryParam(value = "appId") @Parameter(description = "An application identifier to be equals on the task where are the messages to return. You can use a Perl compatible regular expressions (PCRE) that has to match the application identifier of the tasks if you write between '/'. For example to get the messages on the tasks for the applications '1' and '2' you must pass as 'appId' '/^[1|2]$/'.", example = "1", required = false) String appId,
@@ -149,6 +161,59 @@ public interface Messages {
       @QueryParam(value = "order") @Parameter(description = "The order in witch the messages have to be returned. For each field it has be separated by a ',' and each field can start with '+' (or without it) to order on ascending order, or with the prefix '-' to do on descendant order.", example = "goal.name,-goal.description,+appId", required = false, style = ParameterStyle.FORM, explode = Explode.FALSE) String order,
       @DefaultValue("0") @QueryParam(value = "offset") @Parameter(description = "The index of the first message to return.", example = "4", required = false) int offset,
       @DefaultValue("10") @QueryParam(value = "limit") @Parameter(description = "The number maximum of messages to return", example = "100", required = false) int limit,
+      @QueryParam(value = "total") @Parameter(description = "The mode to calculate the total of the page. The 'exact' mode counts all the matching messages, 'estimated' counts until a maximum, marking the page with 'totalCapped' when it is reached, or uses the collection metadata when there is no filter, 'none' does not count and the total is the index after the last message of the page plus one if there are more, and 'cached' reuses the exact total of the same query for some seconds.", example = "estimated", required = false, schema = @Schema(type = "string", allowableValues = { "exact", "estimated", "none", "cached" }, defaultValue = "exact")) String total,
+      @Parameter(hidden = true, required = false) ServiceRequest request,
+      @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
+
+  /**
+   * Called when want to get the messages received by an user.
+   *
+   * @param receiverId    identifier of the user that has received the messages.
+   * @param appId         identifier of the application of the messages to
+   *                      return.
+   * @param label         of the messages to return.
+   * @param after         cursor returned on the previous page.
+   * @param limit         number maximum of messages to return.
+   * @param request       of the query.
+   * @param resultHandler to inform of the response.
+   */
+  @GET
+  @Path("/inbox")
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(summary = "Obtain the messages received by an user", description = "Allow to get the messages received by an user, from the newest to the oldest. To obtain the next page pass the returned 'next' as the 'after' parameter.")
+  @ApiResponse(responseCode = "200", description = "The page with the received messages", content = @Content(schema = @Schema(implementation = InboxPage.class)))
+  @ApiResponse(responseCode = "400", description = "If the cursor is not valid", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
+  void retrieveInbox(
+      @QueryParam(value = "receiverId") @Parameter(description = "The identifier of the user that has received the messages.", example = "1e346fd440", required = true) String receiverId,
+      @QueryParam(value = "appId") @Parameter(description = "The identifier of the application of the messages to return.", example = "1", required = false) String appId,
+      @QueryParam(value = "label") @Parameter(description = "The label of the messages to return.", example = "accept", required = false) String label,
+      @QueryParam(value = "after") @Parameter(description = "The cursor returned as 'next' on the previous page.", example = "WzE2ODUwMDAwMDAsImFiYyJd", required = false) String after,
+      @DefaultValue("10") @QueryParam(value = "limit") @Parameter(description = "The number maximum of messages to return", example = "100", required = false) int limit,
+      @Parameter(hidden = true, required = false) ServiceRequest request,
+      @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
+
+  /**
+   * Called when want to wait for the new messages received by an user.
+   *
+   * @param receiverId    identifier of the user that receives the messages.
+   * @param appId         identifier of the application of the messages to
+   *                      return.
+   * @param lastEventId   identifier returned by the previous poll.
+   * @param timeout       seconds to wait for a message.
+   * @param request       of the query.
+   * @param resultHandler to inform of the response.
+   */
+  @GET
+  @Path(POLL_PATH)
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(summary = "Wait for the new messages received by an user", description = "Allow to wait until an user receives a message or the timeout elapses. The messages received since the previous poll are returned immediately if the 'lastEventId' returned by the previous poll is passed.")
+  @ApiResponse(responseCode = "200", description = "The new messages received by the user", content = @Content(schema = @Schema(implementation = MessagesPoll.class)))
+  @ApiResponse(responseCode = "400", description = "If the receiver is not defined", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
+  void pollMessages(
+      @QueryParam(value = "receiverId") @Parameter(description = "The identifier of the user that receives the messages.", example = "1e346fd440", required = true) String receiverId,
+      @QueryParam(value = "appId") @Parameter(description = "The identifier of the application of the messages to return.", example = "1", required = false) String appId,
+      @QueryParam(value = "lastEventId") @Parameter(description = "The 'lastEventId' returned by the previous poll.", example = "1685000000000000", required = false) Long lastEventId,
+      @DefaultValue("20") @QueryParam(value = "timeout") @Parameter(description = "The seconds to wait for a message, up to 25.", example = "20", required = false) int timeout,
       @Parameter(hidden = true, required = false) ServiceRequest request,
       @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
 
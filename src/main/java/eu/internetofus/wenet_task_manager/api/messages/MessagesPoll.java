@@ -0,0 +1,50 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api.messages;
+
+import eu.internetofus.common.components.models.Message;
+import eu.internetofus.common.model.Model;
+import eu.internetofus.common.model.ReflectionModel;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+
+/**
+ * Contains the new messages received by an user while it was polling.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Schema(title = "MessagesPoll", description = "Contains the new messages received by an user while it was polling")
+public class MessagesPoll extends ReflectionModel implements Model {
+
+  /**
+   * The received messages.
+   */
+  @ArraySchema(schema = @Schema(ref = "https://raw.githubusercontent.com/InternetOfUs/components-documentation/MODELS_2.4.0/sources/wenet-models-openapi.yaml#/components/schemas/Message"), arraySchema = @Schema(description = "The new messages, or an empty list if the poll has timed out"))
+  public List<Message> messages;
+
+  /**
+   * The identifier to pass on the next poll.
+   */
+  @Schema(description = "The identifier to pass as 'lastEventId' on the next poll, so the messages received between the polls are not lost.", example = "1685000000000000")
+  public Long lastEventId;
+
+}
@@ -19,10 +19,14 @@
  */
 package eu.internetofus.wenet_task_manager.api.messages;
 
+import eu.internetofus.common.model.Model;
 import eu.internetofus.common.model.ValidationErrorException;
 import eu.internetofus.common.vertx.ServiceRequests;
 import eu.internetofus.common.vertx.ServiceResponseHandlers;
+import eu.internetofus.wenet_task_manager.api.PageQueries;
+import eu.internetofus.wenet_task_manager.api.ServerTiming;
 import eu.internetofus.wenet_task_manager.api.tasks.Tasks;
+import eu.internetofus.wenet_task_manager.events.ReceiverSubscriptions;
 import eu.internetofus.wenet_task_manager.persistence.TasksRepository;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
@@ -44,6 +48,16 @@ public class MessagesResource implements Messages {
    */
   protected Vertx vertx;
 
+  /**
+   * The index of the receivers that are polling for new messages.
+   */
+  protected ReceiverSubscriptions subscriptions;
+
+  /**
+   * The counters of the shapes of the searched pages.
+   */
+  protected PageQueries queries;
+
   /**
    * Create a new instance to provide the services of the {@link Tasks}.
    *
@@ -51,7 +65,34 @@ public class MessagesResource implements Messages {
    */
   public MessagesResource(final Vertx vertx) {
 
+    this(vertx, new ReceiverSubscriptions(vertx, ReceiverSubscriptions.DEFAULT_RETENTION));
+
+  }
+
+  /**
+   * Create a new instance to provide the services of the {@link Tasks}.
+   *
+   * @param vertx         where resource is defined.
+   * @param subscriptions index of the receivers that are polling for new messages.
+   */
+  public MessagesResource(final Vertx vertx, final ReceiverSubscriptions subscriptions) {
+
+    this(vertx, subscriptions, new PageQueries());
+
+  }
+
+  /**
+   * Create a new instance to provide the services of the {@link Tasks}.
+   *
+   * @param vertx         where resource is defined.
+   * @param subscriptions index of the receivers that are polling for new messages.
+   * @param queries       the counters of the shapes of the searched pages.
+   */
+  public MessagesResource(final Vertx vertx, final ReceiverSubscriptions subscriptions, final PageQueries queries) {
+
     this.vertx = vertx;
+    this.subscriptions = subscriptions;
+    this.queries = queries;
 
   }
 
@@ -64,10 +105,13 @@ public class MessagesResource implements Messages {
       Long taskUpdateTo, Boolean hasCloseTs, Long closeFrom, Long closeTo, String taskId, String transactionId,
       String transactionLabel, String actioneerId, Long transactionCreationFrom, Long transactionCreationTo,
       Long transactionUpdateFrom, Long transactionUpdateTo, String receiverId, String label, String orderValue,
-      int offset, int limit, ServiceRequest request, Handler<AsyncResult<ServiceResponse>> resultHandler) {
+      int offset, int limit, String total, ServiceRequest request,
+      Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
-    var goalKeywords = ServiceRequests.extractQueryArray(goalKeywordsValue);
-    var order = ServiceRequests.extractQueryArray(orderValue);
+    final var timing = new ServerTiming("retrieveMessagesPage");
+    final var timedHandler = timing.wrap(resultHandler);
+    final var goalKeywords = ServiceRequests.extractQueryArray(goalKeywordsValue);
+    final var order = ServiceRequests.extractQueryArray(orderValue);
     final var query = TasksRepository.createMessagesPageQuery(appId, requesterId, taskTypeId, goalName, goalDescription,
         goalKeywords, taskCreationFrom, taskCreationTo, taskUpdateFrom, taskUpdateTo, hasCloseTs, closeFrom, closeTo,
         taskId, transactionId, transactionLabel, actioneerId, transactionCreationFrom, transactionCreationTo,
@@ -76,28 +120,96 @@ public class MessagesResource implements Messages {
     try {
 
       final var sort = TasksRepository.createMessagesPageSort(order);
-      TasksRepository.createProxy(this.vertx).retrieveMessagesPage(query, sort, offset, limit).onComplete(retrieve -> {
+      this.queries.count("messages", query, sort);
+      TasksRepository.createProxy(this.vertx).retrieveMessagesPage(query, sort, offset, limit, total)
+          .onComplete(timing.measure(ServerTiming.PERSISTENCE, retrieve -> {
 
-        if (retrieve.failed()) {
+            if (retrieve.failed()) {
 
-          final var cause = retrieve.cause();
-          Logger.debug(cause, "GET /messages with {} => Retrieve error", query);
-          ServiceResponseHandlers.responseFailedWith(resultHandler, Status.BAD_REQUEST, cause);
+              final var cause = retrieve.cause();
+              Logger.debug(cause, "GET /messages with {} => Retrieve error", query);
+              ServiceResponseHandlers.responseFailedWith(timedHandler, Status.BAD_REQUEST, cause);
 
-        } else {
+            } else {
 
-          final var tasksPage = retrieve.result();
-          Logger.debug("GET /messages with {} => {}.", query, tasksPage);
-          ServiceResponseHandlers.responseOk(resultHandler, tasksPage);
-        }
+              final var tasksPage = retrieve.result();
+              Logger.debug("GET /messages with {} => {}.", query, tasksPage);
+              timing.start(ServerTiming.SERIALIZATION);
+              ServiceResponseHandlers.responseOk(timedHandler, tasksPage);
+            }
 
-      });
+          }));
 
     } catch (final ValidationErrorException error) {
 
       Logger.debug(error, "GET /messages with {} => Retrieve error", query);
-      ServiceResponseHandlers.responseFailedWith(resultHandler, Status.BAD_REQUEST, error);
+      ServiceResponseHandlers.responseFailedWith(timedHandler, Status.BAD_REQUEST, error);
+
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void retrieveInbox(final String receiverId, final String appId, final String label, final String after,
+      final int limit, final ServiceRequest request, final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
+    final var timing = new ServerTiming("retrieveInbox");
+    final var timedHandler = timing.wrap(resultHandler);
+    TasksRepository.createProxy(this.vertx).retrieveInboxPage(receiverId, appId, label, after, limit)
+        .onComplete(timing.measure(ServerTiming.PERSISTENCE, retrieve -> {
+
+          if (retrieve.failed()) {
+
+            final var cause = retrieve.cause();
+            Logger.debug(cause, "GET /messages/inbox of {} => Retrieve error", receiverId);
+            ServiceResponseHandlers.responseFailedWith(timedHandler, Status.BAD_REQUEST, cause);
+
+          } else {
 
+            final var page = retrieve.result();
+            Logger.debug("GET /messages/inbox of {} => {}.", receiverId, page);
+            timing.start(ServerTiming.SERIALIZATION);
+            ServiceResponseHandlers.responseOk(timedHandler, page);
+          }
+
+        }));
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void pollMessages(final String receiverId, final String appId, final Long lastEventId, final int timeout,
+      final ServiceRequest request, final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
+    if (receiverId == null || receiverId.isBlank()) {
+
+      ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.BAD_REQUEST, "bad_receiverId",
+          "You must define the receiver of the messages to poll.");
+
+    } else {
+
+      final var seconds = Math.max(0, Math.min(timeout, MAX_POLL_TIMEOUT));
+      this.subscriptions.poll(receiverId, appId, lastEventId, seconds * 1000L).onComplete(poll -> {
+
+        final var messages = Model.fromJsonObject(poll.result(), MessagesPoll.class);
+        if (messages == null) {
+
+          Logger.debug("GET /messages/poll of {} => Bad polled messages {}", receiverId, poll.result());
+          ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.BAD_REQUEST, "bad_messages",
+              "The polled messages are not valid.");
+
+        } else {
+
+          Logger.debug("GET /messages/poll of {} => {}.", receiverId, messages);
+          ServiceResponseHandlers.responseOk(resultHandler, messages);
+        }
+
+      });
     }
+
   }
 }
@@ -0,0 +1,70 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api.metrics;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.ext.web.api.service.ServiceRequest;
+import io.vertx.ext.web.api.service.ServiceResponse;
+import io.vertx.ext.web.api.service.WebApiServiceGen;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Resource to obtain the metrics of the component.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Path(Metrics.PATH)
+@Tag(name = "Other")
+@WebApiServiceGen
+public interface Metrics {
+
+  /**
+   * The path to the metrics resource.
+   */
+  String PATH = "/metrics";
+
+  /**
+   * The address of this service.
+   */
+  String ADDRESS = "wenet_task_manager.api.metrics";
+
+  /**
+   * Called when want to obtain the metrics of the component.
+   *
+   * @param context       of the request.
+   * @param resultHandler to inform of the response.
+   */
+  @GET
+  @Operation(summary = "Get the metrics of the component", description = "Return the metrics of the HTTP server, the event bus, the web client and the JVM in the Prometheus text format")
+  @ApiResponse(responseCode = "200", description = "The current metrics")
+  @Produces(MediaType.TEXT_PLAIN)
+  void getMetrics(@Parameter(hidden = true, required = false) ServiceRequest context,
+      @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
+
+}
@@ -0,0 +1,59 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api.metrics;
+
+import eu.internetofus.wenet_task_manager.metrics.MetricsRegistry;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.ext.web.api.service.ServiceRequest;
+import io.vertx.ext.web.api.service.ServiceResponse;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * Resource to provide the metrics of the component.
+ *
+ * @see Metrics
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class MetricsResource implements Metrics {
+
+  /**
+   * The content type of the Prometheus text format.
+   */
+  public static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void getMetrics(final ServiceRequest context, final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
+    final var metrics = MetricsRegistry.scrape();
+    resultHandler.handle(Future.succeededFuture(new ServiceResponse().setStatusCode(Status.OK.getStatusCode())
+        .putHeader(HttpHeaders.CONTENT_TYPE.toString(), PROMETHEUS_CONTENT_TYPE).setPayload(Buffer.buffer(metrics))));
+
+  }
+
+}
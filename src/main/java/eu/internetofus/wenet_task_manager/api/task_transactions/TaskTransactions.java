@@ -21,6 +21,7 @@ package eu.internetofus.wenet_task_manager.api.task_transactions;
 
 import eu.internetofus.common.components.models.Task;
 import eu.internetofus.common.model.ErrorMessage;
+import eu.internetofus.wenet_task_manager.api.PageTotalCapped;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.Explode;
@@ -107,6 +108,7 @@ public interface TaskTransactions {
    * @param order            of the tasks to return.
    * @param offset           index of the first task to return.
    * @param limit            number maximum of tasks to return.
+   * @param total            the mode to calculate the total of the page.
    * @param request          of the query.
    * @param resultHandler    to inform of the response.
    */
@@ -114,7 +116,7 @@ public interface TaskTransactions {
   @GET
   @Produces(MediaType.APPLICATION_JSON)
   @Operation(summary = "Search for some transactions", description = "Allow to get a page of transactions with the specified query parameters.")
-  @ApiResponse(responseCode = "200", description = "The page with the matching transactions", content = @Content(schema = @Schema(implementation = TaskTransactionsPage.class)))
+  @ApiResponse(responseCode = "200", description = "The page with the matching transactions", content = @Content(schema = @Schema(allOf = { TaskTransactionsPage.class, PageTotalCapped.class })))
   @ApiResponse(responseCode = "400", description = "If any of the search pattern is not valid", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
   void retrieveTaskTransactionsPage(
       @QueryParam(value = "appId") @Parameter(description = "An application identifier to be equals on the task where are the transactions to return. You can use a Perl compatible regular expressions (PCRE) that has to match the application identifier of the tasks if you write between '/'. For example to get the transactions on the tasks for the applications '1' and '2' you must pass as 'appId' '/^[1|2]$/'.", example = "1", required = false) String appId,
@@ -141,6 +143,7 @@ public interface TaskTransactions {
       @QueryParam(value = "order") @Parameter(description = "The order in witch the task transactions have to be returned. For each field it has be separated by a ',' and each field can start with '+' (or without it) to order on ascending order, or with the prefix '-' to do on descendant order.", example = "goal.name,-goal.description,+appId", required = false, style = ParameterStyle.FORM, explode = Explode.FALSE) String order,
       @DefaultValue("0") @QueryParam(value = "offset") @Parameter(description = "The index of the first transaction to return.", example = "4", required = false) int offset,
       @DefaultValue("10") @QueryParam(value = "limit") @Parameter(description = "The number maximum of transactions to return", example = "100", required = false) int limit,
+      @QueryParam(value = "total") @Parameter(description = "The mode to calculate the total of the page. The 'exact' mode counts all the matching transactions, 'estimated' counts until a maximum, marking the page with 'totalCapped' when it is reached, or uses the collection metadata when there is no filter, 'none' does not count and the total is the index after the last transaction of the page plus one if there are more, and 'cached' reuses the exact total of the same query for some seconds.", example = "estimated", required = false, schema = @Schema(type = "string", allowableValues = { "exact", "estimated", "none", "cached" }, defaultValue = "exact")) String total,
       @Parameter(hidden = true, required = false) ServiceRequest request,
       @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
 
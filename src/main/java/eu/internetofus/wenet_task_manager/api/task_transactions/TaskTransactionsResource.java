@@ -22,6 +22,8 @@ package eu.internetofus.wenet_task_manager.api.task_transactions;
 import eu.internetofus.common.model.ValidationErrorException;
 import eu.internetofus.common.vertx.ServiceRequests;
 import eu.internetofus.common.vertx.ServiceResponseHandlers;
+import eu.internetofus.wenet_task_manager.api.PageQueries;
+import eu.internetofus.wenet_task_manager.api.ServerTiming;
 import eu.internetofus.wenet_task_manager.api.tasks.Tasks;
 import eu.internetofus.wenet_task_manager.persistence.TasksRepository;
 import io.vertx.core.AsyncResult;
@@ -44,6 +46,11 @@ public class TaskTransactionsResource implements TaskTransactions {
    */
   protected Vertx vertx;
 
+  /**
+   * The counters of the shapes of the searched pages.
+   */
+  protected PageQueries queries;
+
   /**
    * Create a new instance to provide the services of the {@link Tasks}.
    *
@@ -51,7 +58,20 @@ public class TaskTransactionsResource implements TaskTransactions {
    */
   public TaskTransactionsResource(final Vertx vertx) {
 
+    this(vertx, new PageQueries());
+
+  }
+
+  /**
+   * Create a new instance to provide the services of the {@link Tasks}.
+   *
+   * @param vertx   where resource is defined.
+   * @param queries the counters of the shapes of the searched pages.
+   */
+  public TaskTransactionsResource(final Vertx vertx, final PageQueries queries) {
+
     this.vertx = vertx;
+    this.queries = queries;
 
   }
 
@@ -64,9 +84,11 @@ public class TaskTransactionsResource implements TaskTransactions {
       final Long taskCreationTo, final Long taskUpdateFrom, final Long taskUpdateTo, final Boolean hasCloseTs,
       final Long closeFrom, final Long closeTo, final String taskId, final String id, final String label,
       final String actioneerId, final Long creationFrom, final Long creationTo, final Long updateFrom,
-      final Long updateTo, final String orderValue, final int offset, final int limit, final ServiceRequest request,
-      final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+      final Long updateTo, final String orderValue, final int offset, final int limit, final String total,
+      final ServiceRequest request, final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
+    final var timing = new ServerTiming("retrieveTaskTransactionsPage");
+    final var timedHandler = timing.wrap(resultHandler);
     final var goalKeywords = ServiceRequests.extractQueryArray(goalKeywordsValue);
     final var order = ServiceRequests.extractQueryArray(orderValue);
     final var query = TasksRepository.createTaskTransactionsPageQuery(appId, requesterId, taskTypeId, goalName,
@@ -76,28 +98,30 @@ public class TaskTransactionsResource implements TaskTransactions {
     try {
 
       final var sort = TasksRepository.createTaskTransactionsPageSort(order);
-      TasksRepository.createProxy(this.vertx).retrieveTaskTransactionsPage(query, sort, offset, limit)
-          .onComplete(retrieve -> {
+      this.queries.count("taskTransactions", query, sort);
+      TasksRepository.createProxy(this.vertx).retrieveTaskTransactionsPage(query, sort, offset, limit, total)
+          .onComplete(timing.measure(ServerTiming.PERSISTENCE, retrieve -> {
 
             if (retrieve.failed()) {
 
               final var cause = retrieve.cause();
               Logger.debug(cause, "GET /taskTransactions with {} => Retrieve error", query);
-              ServiceResponseHandlers.responseFailedWith(resultHandler, Status.BAD_REQUEST, cause);
+              ServiceResponseHandlers.responseFailedWith(timedHandler, Status.BAD_REQUEST, cause);
 
             } else {
 
               final var tasksPage = retrieve.result();
               Logger.debug("GET /taskTransactions with {} => {}.", query, tasksPage);
-              ServiceResponseHandlers.responseOk(resultHandler, tasksPage);
+              timing.start(ServerTiming.SERIALIZATION);
+              ServiceResponseHandlers.responseOk(timedHandler, tasksPage);
             }
 
-          });
+          }));
 
     } catch (final ValidationErrorException error) {
 
       Logger.debug(error, "GET /taskTransactions with {} => Retrieve error", query);
-      ServiceResponseHandlers.responseFailedWith(resultHandler, Status.BAD_REQUEST, error);
+      ServiceResponseHandlers.responseFailedWith(timedHandler, Status.BAD_REQUEST, error);
 
     }
   }
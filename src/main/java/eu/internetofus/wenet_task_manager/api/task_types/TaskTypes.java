@@ -102,6 +102,7 @@ public interface TaskTypes {
   @Produces(MediaType.APPLICATION_JSON)
   @Operation(summary = "Return a task type associated to the identifier", description = "Allow to get a task type associated to an identifier")
   @ApiResponse(responseCode = "200", description = "The task type associated to the identifier", content = @Content(schema = @Schema(ref = "https://raw.githubusercontent.com/InternetOfUs/components-documentation/MODELS_2.4.0/sources/wenet-models-openapi.yaml#/components/schemas/TaskType")))
+  @ApiResponse(responseCode = "304", description = "The task type has not been modified since the version defined on the If-None-Match or If-Modified-Since headers")
   @ApiResponse(responseCode = "404", description = "Not found task type", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
   void retrieveTaskType(
       @PathParam("taskTypeId") @Parameter(description = "The identifier of the task type to get", example = "15837028-645a-4a55-9aaf-ceb846439eba") String taskTypeId,
@@ -116,6 +117,7 @@ public interface TaskTypes {
    *                      types.
    * @param keywords      the patterns to match with the keywords of the task
    *                      types.
+   * @param q             the text to search on the task types.
    * @param order         to return the found task types.
    * @param offset        index of the first task type to return.
    * @param limit         number maximum of task types to return.
@@ -131,6 +133,7 @@ public interface TaskTypes {
       @QueryParam(value = "name") @Parameter(description = "A name to be equals on the task types to return. You can use a Perl compatible regular expressions (PCRE) that has to match the name of the task types to return if you write between '/'. For example to get the task types with a name with the word 'eat' you must pass as 'name' '/.*eat.*/'", example = "/.*eat.*/", required = false) String name,
       @QueryParam(value = "description") @Parameter(description = "A description to be equals on the task types to return. You can use a Perl compatible regular expressions (PCRE) that has to match the description of the task types to return if you write between '/'. For example to get the task types with a description with the word 'eat' you must pass as 'description' '/.*eat.*/'", example = "/.*eat.*/", required = false) String description,
       @QueryParam(value = "keywords") @Parameter(description = "A set of keywords to be defined on the task types to be returned. For each keyword is separated by a ',' and each field keyword can be between '/' to use a Perl compatible regular expressions (PCRE) instead the exact value.", example = "key1,/.*eat.*/,key3", required = false, style = ParameterStyle.FORM, explode = Explode.FALSE) String keywords,
+      @QueryParam(value = "q") @Parameter(description = "A text to search on the name, keywords and description of the task types to return. The task types that contain any of the words of the text are returned, and if the order is not defined they are ordered by their relevance, where the words on the name are more relevant than the ones on the keywords, and these more than the ones on the description. You can write a phrase between double quotes to match the task types that contain it, and a word with the prefix '-' to exclude the task types that contain it.", example = "eat \"pizza night\" -vegan", required = false) String q,
       @QueryParam(value = "order") @Parameter(description = "The order in witch the task types has to be returned. For each field it has be separated by a ',' and each field can start with '+' (or without it) to order on ascending order, or with the prefix '-' to do on descendant order.", example = "name,-description", required = false, style = ParameterStyle.FORM, explode = Explode.FALSE) String order,
       @DefaultValue("0") @QueryParam(value = "offset") @Parameter(description = "The index of the first task type to return.", example = "4", required = false) int offset,
       @DefaultValue("10") @QueryParam(value = "limit") @Parameter(description = "The number maximum of task types to return", example = "100", required = false) int limit,
@@ -154,6 +157,7 @@ public interface TaskTypes {
   @ApiResponse(responseCode = "200", description = "The updated task type", content = @Content(schema = @Schema(ref = "https://raw.githubusercontent.com/InternetOfUs/components-documentation/MODELS_2.4.0/sources/wenet-models-openapi.yaml#/components/schemas/TaskType")))
   @ApiResponse(responseCode = "400", description = "Bad task type", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
   @ApiResponse(responseCode = "404", description = "Not found task type", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
+  @ApiResponse(responseCode = "412", description = "The task type has been modified since the version defined on the If-Match header", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
   void updateTaskType(
       @PathParam("taskTypeId") @Parameter(description = "The identifier of the task type to update", example = "15837028-645a-4a55-9aaf-ceb846439eba") String taskTypeId,
       @Parameter(hidden = true, required = false) JsonObject body,
@@ -177,6 +181,7 @@ public interface TaskTypes {
   @ApiResponse(responseCode = "200", description = "The merged task type", content = @Content(schema = @Schema(ref = "https://raw.githubusercontent.com/InternetOfUs/components-documentation/MODELS_2.4.0/sources/wenet-models-openapi.yaml#/components/schemas/TaskType")))
   @ApiResponse(responseCode = "400", description = "Bad task type", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
   @ApiResponse(responseCode = "404", description = "Not found task type", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
+  @ApiResponse(responseCode = "412", description = "The task type has been modified since the version defined on the If-Match header", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
   void mergeTaskType(
       @PathParam("taskTypeId") @Parameter(description = "The identifier of the task type to merge", example = "15837028-645a-4a55-9aaf-ceb846439eba") String taskTypeId,
       @Parameter(hidden = true, required = false) JsonObject body,
@@ -24,15 +24,19 @@ import eu.internetofus.common.components.WeNetModelContext;
 import eu.internetofus.common.components.WeNetValidateContext;
 import eu.internetofus.common.components.models.ProtocolNorm;
 import eu.internetofus.common.components.models.TaskType;
+import eu.internetofus.common.model.Model;
 import eu.internetofus.common.model.ValidationErrorException;
 import eu.internetofus.common.vertx.ModelFieldContext;
 import eu.internetofus.common.vertx.ModelResources;
 import eu.internetofus.common.vertx.ServiceContext;
 import eu.internetofus.common.vertx.ServiceRequests;
 import eu.internetofus.common.vertx.ServiceResponseHandlers;
+import eu.internetofus.wenet_task_manager.api.ConditionalRequest;
 import eu.internetofus.wenet_task_manager.api.tasks.Tasks;
 import eu.internetofus.wenet_task_manager.persistence.TaskTypesRepository;
+import eu.internetofus.wenet_task_manager.persistence.TextSearch;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
@@ -88,11 +92,33 @@ public class TaskTypesResource implements TaskTypes {
   public void retrieveTaskType(final String taskTypeId, final ServiceRequest request,
       final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
-    final var model = this.createTaskTypeContext();
-    model.id = taskTypeId;
-    final var context = new ServiceContext(request, resultHandler);
-    ModelResources.retrieveModel(model, (id, handler) -> this.typesRepository.searchTaskType(id).onComplete(handler),
-        context);
+    final var conditional = new ConditionalRequest(request);
+    final var conditionalHandler = conditional.wrap(resultHandler);
+    conditional.retrieveIfModified(() -> this.typesRepository.searchTaskTypeVersion(taskTypeId),
+        conditionalHandler, () -> {
+
+          final var model = this.createTaskTypeContext();
+          model.id = taskTypeId;
+          final var context = new ServiceContext(request, conditionalHandler);
+          ModelResources.retrieveModel(model,
+              (id, handler) -> this.searchTaskType(id, conditional).onComplete(handler),
+              context);
+        });
+
+  }
+
+  /**
+   * Search for a task type and capture its version on a conditional request.
+   *
+   * @param id          identifier of the task type to search.
+   * @param conditional request where the version of the task type is captured.
+   *
+   * @return the future found task type.
+   */
+  protected Future<TaskType> searchTaskType(final String id, final ConditionalRequest conditional) {
+
+    return Model.fromFutureJsonObject(conditional.capture(this.typesRepository.searchTaskTypeObject(id)),
+        TaskType.class);
 
   }
 
@@ -117,12 +143,17 @@ public class TaskTypesResource implements TaskTypes {
   public void updateTaskType(final String taskTypeId, final JsonObject body, final ServiceRequest request,
       final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
+    final var conditional = new ConditionalRequest(request);
     final var model = this.createTaskTypeContext();
     model.id = taskTypeId;
     final var context = new ServiceContext(request, resultHandler);
     ModelResources.updateModel(body, model,
-        (id, handler) -> this.typesRepository.searchTaskType(id).onComplete(handler),
-        (taskType, handler) -> this.typesRepository.updateTaskType(taskType).onComplete(handler), context);
+        (id, handler) -> this.searchTaskType(id, conditional)
+            .onComplete(conditional.checkPrecondition(handler, resultHandler)),
+        (taskType, handler) -> this.typesRepository
+            .updateTaskType(model.target, taskType, conditional.expectedVersion())
+            .onComplete(conditional.checkWritten(handler, resultHandler)),
+        context);
 
   }
 
@@ -145,12 +176,12 @@ public class TaskTypesResource implements TaskTypes {
    */
   @Override
   public void retrieveTaskTypesPage(final String name, final String description, final String keywordsValue,
-      final String orderValue, final int offset, final int limit, final ServiceRequest request,
+      final String q, final String orderValue, final int offset, final int limit, final ServiceRequest request,
       final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
     final var keywords = ServiceRequests.extractQueryArray(keywordsValue);
     final var order = ServiceRequests.extractQueryArray(orderValue);
-    final var query = TaskTypesRepository.createTaskTypesPageQuery(name, description, keywords);
+    final var query = TextSearch.withText(TaskTypesRepository.createTaskTypesPageQuery(name, description, keywords), q);
 
     try {
 
@@ -188,11 +219,17 @@ public class TaskTypesResource implements TaskTypes {
   public void mergeTaskType(final String taskTypeId, final JsonObject body, final ServiceRequest request,
       final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
+    final var conditional = new ConditionalRequest(request);
     final var model = this.createTaskTypeContext();
     model.id = taskTypeId;
     final var context = new ServiceContext(request, resultHandler);
-    ModelResources.mergeModel(body, model, (id, handler) -> this.typesRepository.searchTaskType(id).onComplete(handler),
-        (taskType, handler) -> this.typesRepository.updateTaskType(taskType).onComplete(handler), context);
+    ModelResources.mergeModel(body, model,
+        (id, handler) -> this.searchTaskType(id, conditional)
+            .onComplete(conditional.checkPrecondition(handler, resultHandler)),
+        (taskType, handler) -> this.typesRepository
+            .updateTaskType(model.target, taskType, conditional.expectedVersion())
+            .onComplete(conditional.checkWritten(handler, resultHandler)),
+        context);
 
   }
 
@@ -227,8 +264,9 @@ public class TaskTypesResource implements TaskTypes {
     final var element = this.createTaskTypeNormsContext(taskTypeId);
     ModelResources.createModelFieldElement(body, element,
         (id, handler) -> this.typesRepository.searchTaskType(id).onComplete(handler), type -> type.norms,
-        (type, norms) -> type.norms = norms,
-        (type, handler) -> this.typesRepository.updateTaskType(type).onComplete(handler), context);
+        (type, norms) -> type.norms = norms, (type, handler) -> this.typesRepository
+            .addTaskTypeNorm(taskTypeId, type.norms.get(type.norms.size() - 1)).onComplete(handler),
+        context);
 
   }
 
@@ -244,8 +282,9 @@ public class TaskTypesResource implements TaskTypes {
     element.id = index;
     ModelResources.updateModelFieldElement(body, element,
         (id, handler) -> this.typesRepository.searchTaskType(id).onComplete(handler), type -> type.norms,
-        ModelResources.searchElementByIndex(),
-        (type, handler) -> this.typesRepository.updateTaskType(type).onComplete(handler), context);
+        ModelResources.searchElementByIndex(), (type, handler) -> this.typesRepository
+            .setTaskTypeNorm(taskTypeId, index, type.norms.size(), type.norms.get(index)).onComplete(handler),
+        context);
 
   }
 
@@ -261,8 +300,9 @@ public class TaskTypesResource implements TaskTypes {
     element.id = index;
     ModelResources.mergeModelFieldElement(body, element,
         (id, handler) -> this.typesRepository.searchTaskType(id).onComplete(handler), type -> type.norms,
-        ModelResources.searchElementByIndex(),
-        (type, handler) -> this.typesRepository.updateTaskType(type).onComplete(handler), context);
+        ModelResources.searchElementByIndex(), (type, handler) -> this.typesRepository
+            .setTaskTypeNorm(taskTypeId, index, type.norms.size(), type.norms.get(index)).onComplete(handler),
+        context);
 
   }
 
@@ -279,8 +319,9 @@ public class TaskTypesResource implements TaskTypes {
 
     ModelResources.deleteModelFieldElement(element,
         (id, handler) -> this.typesRepository.searchTaskType(id).onComplete(handler), type -> type.norms,
-        ModelResources.searchElementByIndex(),
-        (type, handler) -> this.typesRepository.updateTaskType(type).onComplete(handler), context);
+        ModelResources.searchElementByIndex(), (type, handler) -> this.typesRepository
+            .removeTaskTypeNorm(taskTypeId, index, type.norms.size() + 1).onComplete(handler),
+        context);
   }
 
   /**
@@ -0,0 +1,71 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api.tasks;
+
+import eu.internetofus.common.model.Model;
+import eu.internetofus.common.model.ReflectionModel;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * The number of events of the tasks of an application and type in a day.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Schema(title = "TaskCounter", description = "The number of events of the tasks of an application and type in a day.")
+public class TaskCounter extends ReflectionModel implements Model {
+
+  /**
+   * The identifier of the application of the tasks.
+   */
+  @Schema(description = "The identifier of the application of the counted tasks.", example = "1")
+  public String appId;
+
+  /**
+   * The identifier of the type of the tasks.
+   */
+  @Schema(description = "The identifier of the type of the counted tasks.", example = "1")
+  public String taskTypeId;
+
+  /**
+   * The name of the counter.
+   */
+  @Schema(description = "The name of the counter.", allowableValues = { "created", "closed", "transactions", "messages" }, example = "transactions")
+  public String counter;
+
+  /**
+   * The start of the day of the counter.
+   */
+  @Schema(description = "The difference, measured in seconds, between the start of the day (UTC) of the counted events and midnight, January 1, 1970 UTC.", example = "1571616000")
+  public long day;
+
+  /**
+   * The label of the transactions or receiver of the messages.
+   */
+  @Schema(description = "The label of the counted transactions, the identifier of the receiver of the counted messages, or empty for the created and closed tasks.", example = "volunteerForTask")
+  public String key;
+
+  /**
+   * The number of events.
+   */
+  @Schema(description = "The number of counted events.", example = "24")
+  public long count;
+
+}
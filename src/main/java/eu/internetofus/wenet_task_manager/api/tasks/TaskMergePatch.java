@@ -0,0 +1,134 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api.tasks;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Convert the patches of a task that can be merged by the database into the fields to set. Only the patches that
+ * modify the close time or the name and description of the goal can be validated without the stored task, so any
+ * other patch has to be merged and validated over the stored task.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TaskMergePatch {
+
+  /**
+   * Hide the constructor of an utility class.
+   */
+  private TaskMergePatch() {
+
+  }
+
+  /**
+   * Obtain the fields to set on the stored task to merge a patch.
+   *
+   * @param patch to merge into the task.
+   *
+   * @return the fields to set, with the path of the field as key, or {@code null} if the patch can not be merged by the
+   *         database.
+   */
+  public static JsonObject toSet(final JsonObject patch) {
+
+    if (patch == null || patch.isEmpty()) {
+
+      return null;
+    }
+
+    final var set = new JsonObject();
+    for (final var field : patch.fieldNames()) {
+
+      final var value = patch.getValue(field);
+      if ("closeTs".equals(field) && isTimeStamp(value)) {
+
+        set.put("closeTs", ((Number) value).longValue());
+
+      } else if ("goal".equals(field) && value instanceof JsonObject) {
+
+        if (!addGoal((JsonObject) value, set)) {
+
+          return null;
+        }
+
+      } else if (value != null) {
+
+        return null;
+      }
+    }
+
+    if (set.isEmpty()) {
+
+      return null;
+
+    } else {
+
+      return set;
+    }
+
+  }
+
+  /**
+   * Check if a value is a valid time stamp.
+   *
+   * @param value to check.
+   *
+   * @return {@code true} if the value is a positive integer number.
+   */
+  private static boolean isTimeStamp(final Object value) {
+
+    return (value instanceof Long || value instanceof Integer) && ((Number) value).longValue() >= 0L;
+
+  }
+
+  /**
+   * Add the fields of the goal to set.
+   *
+   * @param goal patch of the goal.
+   * @param set  the fields to set.
+   *
+   * @return {@code true} if the goal can be merged by the database.
+   */
+  private static boolean addGoal(final JsonObject goal, final JsonObject set) {
+
+    for (final var field : goal.fieldNames()) {
+
+      final var value = goal.getValue(field);
+      if (value == null) {
+
+        continue;
+
+      } else if (!(value instanceof String) || !"name".equals(field) && !"description".equals(field)) {
+
+        return false;
+      }
+
+      final var text = ((String) value).trim();
+      if ("name".equals(field) && text.isEmpty()) {
+
+        return false;
+      }
+      set.put("goal." + field, text);
+    }
+    return true;
+
+  }
+
+}
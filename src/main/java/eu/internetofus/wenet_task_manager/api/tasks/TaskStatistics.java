@@ -0,0 +1,50 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api.tasks;
+
+import eu.internetofus.common.model.Model;
+import eu.internetofus.common.model.ReflectionModel;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.vertx.core.json.JsonObject;
+import java.util.List;
+
+/**
+ * Contains the pre-aggregated counters of the tasks.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Schema(title = "TaskStatistics", description = "Contains the pre-aggregated counters of the tasks.")
+public class TaskStatistics extends ReflectionModel implements Model {
+
+  /**
+   * The sum of the found counters.
+   */
+  @Schema(type = "object", description = "The sum of the found counters for each counter name.", example = "{\"created\":10,\"closed\":4,\"transactions\":25,\"messages\":40}")
+  public JsonObject totals;
+
+  /**
+   * The found counters.
+   */
+  @ArraySchema(schema = @Schema(implementation = TaskCounter.class), arraySchema = @Schema(description = "The counters that match the query, sorted by day."))
+  public List<TaskCounter> counters;
+
+}
@@ -23,6 +23,7 @@ package eu.internetofus.wenet_task_manager.api.tasks;
 import eu.internetofus.common.components.models.Task;
 import eu.internetofus.common.components.task_manager.TasksPage;
 import eu.internetofus.common.model.ErrorMessage;
+import eu.internetofus.wenet_task_manager.api.PageTotalCapped;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.Explode;
@@ -82,6 +83,11 @@ public interface Tasks {
    */
   String MESSAGES_PATH = "/messages";
 
+  /**
+   * The path to the task statistics resource.
+   */
+  String STATISTICS_PATH = "/statistics";
+
   /**
    * Called when want to create a task.
    *
@@ -112,6 +118,7 @@ public interface Tasks {
   @Produces(MediaType.APPLICATION_JSON)
   @Operation(summary = "Return a task", description = "Allow to get a task with an specific identifier")
   @ApiResponse(responseCode = "200", description = "The task associated to the identifier", content = @Content(schema = @Schema(ref = "https://raw.githubusercontent.com/InternetOfUs/components-documentation/MODELS_2.4.0/sources/wenet-models-openapi.yaml#/components/schemas/Task")))
+  @ApiResponse(responseCode = "304", description = "The task has not been modified since the version defined on the If-None-Match or If-Modified-Since headers")
   @ApiResponse(responseCode = "404", description = "Not found task", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
   void retrieveTask(
       @PathParam("taskId") @Parameter(description = "The identifier of the task to get", example = "15837028-645a-4a55-9aaf-ceb846439eba") String taskId,
@@ -129,6 +136,7 @@ public interface Tasks {
    *                        return.
    * @param goalDescription pattern to match with the goal description of the
    *                        tasks to return.
+   * @param q               text to search on the goal of the tasks to return.
    * @param creationFrom    minimal creation time stamp of the tasks to return.
    * @param creationTo      maximal creation time stamp of the tasks to return.
    * @param updateFrom      minimal update time stamp of the tasks to return.
@@ -140,13 +148,14 @@ public interface Tasks {
    * @param order           of the tasks to return.
    * @param offset          index of the first task to return.
    * @param limit           number maximum of tasks to return.
+   * @param total           the mode to calculate the total of the page.
    * @param request         of the query.
    * @param resultHandler   to inform of the response.
    */
   @GET
   @Produces(MediaType.APPLICATION_JSON)
   @Operation(summary = "Search for some tasks", description = "Allow to get a page of task with the specified query parameters.")
-  @ApiResponse(responseCode = "200", description = "The page with the matching tasks", content = @Content(schema = @Schema(implementation = TasksPage.class)))
+  @ApiResponse(responseCode = "200", description = "The page with the matching tasks", content = @Content(schema = @Schema(allOf = { TasksPage.class, PageTotalCapped.class })))
   @ApiResponse(responseCode = "400", description = "If any of the search pattern is not valid", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
   void retrieveTasksPage(
       @QueryParam(value = "appId") @Parameter(description = "An application identifier to be equals on the tasks to return. You can use a Perl compatible regular expressions (PCRE) that has to match the application identifier of the tasks to return if you write between '/'. For example to get the tasks for the applications '1' and '2' you must pass as 'appId' '/^[1|2]$/'.", example = "1", required = false) String appId,
@@ -154,6 +163,7 @@ public interface Tasks {
       @QueryParam(value = "taskTypeId") @Parameter(description = "A task type identifier to be equals on the tasks to return. You can use a Perl compatible regular expressions (PCRE) that has to match the task type identifier of the tasks to return if you write between '/'. For example to get the tasks for the types '1' and '2' you must pass as 'taskTypeId' '/^[1|2]$/'.", example = "1e346fd440", required = false) String taskTypeId,
       @QueryParam(value = "goalName") @Parameter(description = "A goal name to be equals on the tasks to return. You can use a Perl compatible regular expressions (PCRE) that has to match the goal name of the tasks to return if you write between '/'. For example to get the tasks with a goal name with the word 'eat' you must pass as 'goalName' '/.*eat.*/'", example = "/.*eat.*/", required = false) String goalName,
       @QueryParam(value = "goalDescription") @Parameter(description = "A goal description to be equals on the tasks to return. You can use a Perl compatible regular expressions (PCRE) that has to match the goal description of the tasks to return if you write between '/'. For example to get the tasks with a goal description with the word 'eat' you must pass as 'goalDescription' '/.*eat.*/'", example = "/.*eat.*/", required = false) String goalDescription,
+      @QueryParam(value = "q") @Parameter(description = "A text to search on the goal name and description of the tasks to return. The tasks that contain any of the words of the text are returned, and if the order is not defined they are ordered by their relevance, where the words on the goal name are more relevant than the ones on the description. You can write a phrase between double quotes to match the tasks that contain it, and a word with the prefix '-' to exclude the tasks that contain it.", example = "eat \"pizza night\" -vegan", required = false) String q,
       @QueryParam(value = "creationFrom") @Parameter(description = "The difference, measured in seconds, between the minimum creation time stamp of the task and midnight, January 1, 1970 UTC.", example = "1457166440", required = false) Long creationFrom,
       @QueryParam(value = "creationTo") @Parameter(description = "The difference, measured in seconds, between the maximum creation time stamp of the task and midnight, January 1, 1970 UTC.", example = "1571664406", required = false) Long creationTo,
       @QueryParam(value = "updateFrom") @Parameter(description = "The difference, measured in seconds, between the minimum update time stamp of the task and midnight, January 1, 1970 UTC.", example = "1457166440", required = false) Long updateFrom,
@@ -164,6 +174,7 @@ public interface Tasks {
       @QueryParam(value = "order") @Parameter(description = "The order in witch the tasks have to be returned. For each field it has be separated by a ',' and each field can start with '+' (or without it) to order on ascending order, or with the prefix '-' to do on descendant order.", example = "goal.name,-goal.description,+appId", required = false, style = ParameterStyle.FORM, explode = Explode.FALSE) String order,
       @DefaultValue("0") @QueryParam(value = "offset") @Parameter(description = "The index of the first task to return.", example = "4", required = false) int offset,
       @DefaultValue("10") @QueryParam(value = "limit") @Parameter(description = "The number maximum of tasks to return", example = "100", required = false) int limit,
+      @QueryParam(value = "total") @Parameter(description = "The mode to calculate the total of the page. The 'exact' mode counts all the matching tasks, 'estimated' counts until a maximum, marking the page with 'totalCapped' when it is reached, or uses the collection metadata when there is no filter, 'none' does not count and the total is the index after the last task of the page plus one if there are more, and 'cached' reuses the exact total of the same query for some seconds.", example = "estimated", required = false, schema = @Schema(type = "string", allowableValues = { "exact", "estimated", "none", "cached" }, defaultValue = "exact")) String total,
       @Parameter(hidden = true, required = false) ServiceRequest request,
       @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
 
@@ -184,6 +195,7 @@ public interface Tasks {
   @ApiResponse(responseCode = "200", description = "The updated task", content = @Content(schema = @Schema(ref = "https://raw.githubusercontent.com/InternetOfUs/components-documentation/MODELS_2.4.0/sources/wenet-models-openapi.yaml#/components/schemas/Task")))
   @ApiResponse(responseCode = "400", description = "Bad task", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
   @ApiResponse(responseCode = "404", description = "Not found task", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
+  @ApiResponse(responseCode = "412", description = "The task has been modified since the version defined on the If-Match header", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
   void updateTask(
       @PathParam("taskId") @Parameter(description = "The identifier of the task to update", example = "15837028-645a-4a55-9aaf-ceb846439eba") String taskId,
       @Parameter(hidden = true, required = false) JsonObject body,
@@ -207,6 +219,7 @@ public interface Tasks {
   @ApiResponse(responseCode = "200", description = "The merged task", content = @Content(schema = @Schema(ref = "https://raw.githubusercontent.com/InternetOfUs/components-documentation/MODELS_2.4.0/sources/wenet-models-openapi.yaml#/components/schemas/Task")))
   @ApiResponse(responseCode = "400", description = "Bad task", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
   @ApiResponse(responseCode = "404", description = "Not found task", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
+  @ApiResponse(responseCode = "412", description = "The task has been modified since the version defined on the If-Match header", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
   void mergeTask(
       @PathParam("taskId") @Parameter(description = "The identifier of the task to merge", example = "15837028-645a-4a55-9aaf-ceb846439eba") String taskId,
       @Parameter(hidden = true, required = false) JsonObject body,
@@ -340,4 +353,34 @@ public interface Tasks {
       @Parameter(hidden = true, required = false) ServiceRequest request,
       @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
 
+  /**
+   * Called when want to get the pre-aggregated counters of the tasks.
+   *
+   * @param appId         identifier of the application of the tasks.
+   * @param taskTypeId    identifier of the type of the tasks.
+   * @param counter       name of the counters to return.
+   * @param key           label of the transactions or receiver of the messages.
+   * @param from          minimal time stamp of the days to return.
+   * @param to            maximal time stamp of the days to return.
+   * @param limit         number maximum of counters to return.
+   * @param request       of the query.
+   * @param resultHandler to inform of the response.
+   */
+  @GET
+  @Path(STATISTICS_PATH)
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(summary = "Obtain the statistics of the tasks", description = "Return the counters, for each application, task type and day, of the created and closed tasks, of the transactions for each label and of the messages for each receiver. The counters are updated when the tasks change, so they are obtained without visiting the tasks.")
+  @ApiResponse(responseCode = "200", description = "The counters that match the query", content = @Content(schema = @Schema(implementation = TaskStatistics.class)))
+  @ApiResponse(responseCode = "400", description = "If any of the query parameters is not valid", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
+  void retrieveTaskStatistics(
+      @QueryParam(value = "appId") @Parameter(description = "The identifier of the application of the counted tasks.", example = "1", required = false) String appId,
+      @QueryParam(value = "taskTypeId") @Parameter(description = "The identifier of the type of the counted tasks.", example = "1", required = false) String taskTypeId,
+      @QueryParam(value = "counter") @Parameter(description = "The name of the counters to return.", example = "transactions", required = false, schema = @Schema(type = "string", allowableValues = { "created", "closed", "transactions", "messages" })) String counter,
+      @QueryParam(value = "key") @Parameter(description = "The label of the counted transactions or the identifier of the receiver of the counted messages.", example = "volunteerForTask", required = false) String key,
+      @QueryParam(value = "from") @Parameter(description = "The difference, measured in seconds, between the minimum time of the days to return and midnight, January 1, 1970 UTC.", example = "1457166440", required = false) Long from,
+      @QueryParam(value = "to") @Parameter(description = "The difference, measured in seconds, between the maximum time of the days to return and midnight, January 1, 1970 UTC.", example = "1571664406", required = false) Long to,
+      @DefaultValue("1000") @QueryParam(value = "limit") @Parameter(description = "The number maximum of counters to return", example = "100", required = false) int limit,
+      @Parameter(hidden = true, required = false) ServiceRequest request,
+      @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
+
 }
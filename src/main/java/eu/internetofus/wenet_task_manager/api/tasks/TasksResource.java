@@ -34,8 +34,13 @@ import eu.internetofus.common.vertx.ModelResources;
 import eu.internetofus.common.vertx.ServiceContext;
 import eu.internetofus.common.vertx.ServiceRequests;
 import eu.internetofus.common.vertx.ServiceResponseHandlers;
+import eu.internetofus.wenet_task_manager.api.ConditionalRequest;
+import eu.internetofus.wenet_task_manager.api.PageQueries;
+import eu.internetofus.wenet_task_manager.api.ServerTiming;
 import eu.internetofus.wenet_task_manager.persistence.TasksRepository;
+import eu.internetofus.wenet_task_manager.persistence.TextSearch;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
@@ -56,6 +61,16 @@ public class TasksResource implements Tasks {
    */
   protected Vertx vertx;
 
+  /**
+   * This is {@code true} if the patches that can be validated without the stored task are merged by the database.
+   */
+  protected boolean serverMerge;
+
+  /**
+   * The counters of the shapes of the searched pages.
+   */
+  protected PageQueries queries;
+
   /**
    * Create a new instance to provide the services of the {@link Tasks}.
    *
@@ -63,7 +78,34 @@ public class TasksResource implements Tasks {
    */
   public TasksResource(final Vertx vertx) {
 
+    this(vertx, false);
+  }
+
+  /**
+   * Create a new instance to provide the services of the {@link Tasks}.
+   *
+   * @param vertx       where resource is defined.
+   * @param serverMerge is {@code true} if the patches that can be validated without the stored task are merged by the
+   *                    database.
+   */
+  public TasksResource(final Vertx vertx, final boolean serverMerge) {
+
+    this(vertx, serverMerge, new PageQueries());
+  }
+
+  /**
+   * Create a new instance to provide the services of the {@link Tasks}.
+   *
+   * @param vertx       where resource is defined.
+   * @param serverMerge is {@code true} if the patches that can be validated without the stored task are merged by the
+   *                    database.
+   * @param queries     the counters of the shapes of the searched pages.
+   */
+  public TasksResource(final Vertx vertx, final boolean serverMerge, final PageQueries queries) {
+
     this.vertx = vertx;
+    this.serverMerge = serverMerge;
+    this.queries = queries;
   }
 
   /**
@@ -106,11 +148,35 @@ public class TasksResource implements Tasks {
   public void retrieveTask(final String taskId, final ServiceRequest request,
       final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
-    final var model = this.createTaskContext();
-    model.id = taskId;
-    final var context = new ServiceContext(request, resultHandler);
-    ModelResources.retrieveModel(model,
-        (id, hanlder) -> TasksRepository.createProxy(this.vertx).searchTask(id).onComplete(hanlder), context);
+    final var timing = new ServerTiming("retrieveTask");
+    final var conditional = new ConditionalRequest(request);
+    final var timedHandler = conditional.wrap(timing.wrap(resultHandler));
+    final var repository = TasksRepository.createProxy(this.vertx);
+    conditional.retrieveIfModified(() -> repository.searchTaskVersion(taskId), timedHandler, () -> {
+
+      final var model = this.createTaskContext();
+      model.id = taskId;
+      final var context = new ServiceContext(request, timedHandler);
+      ModelResources.retrieveModel(model,
+          (id, hanlder) -> this.searchTask(id, conditional).onComplete(timing.measure(ServerTiming.PERSISTENCE,
+              timing.starting(ServerTiming.SERIALIZATION, hanlder))),
+          context);
+    });
+
+  }
+
+  /**
+   * Search for a task and capture its version on a conditional request.
+   *
+   * @param id          identifier of the task to search.
+   * @param conditional request where the version of the task is captured.
+   *
+   * @return the future found task.
+   */
+  protected Future<Task> searchTask(final String id, final ConditionalRequest conditional) {
+
+    return Model.fromFutureJsonObject(conditional.capture(TasksRepository.createProxy(this.vertx).searchTaskObject(id)),
+        Task.class);
 
   }
 
@@ -121,9 +187,26 @@ public class TasksResource implements Tasks {
   public void createTask(final JsonObject body, final ServiceRequest request,
       final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
+    final var timing = new ServerTiming("createTask");
+    this.createTask(body, request, timing, timing.wrap(resultHandler));
+
+  }
+
+  /**
+   * Create a task measuring the time spent on each phase.
+   *
+   * @param body          of the task to create.
+   * @param request       of the operation.
+   * @param timing        to measure the phases.
+   * @param resultHandler to inform of the response.
+   */
+  protected void createTask(final JsonObject body, final ServiceRequest request, final ServerTiming timing,
+      final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
     if (body.getString("communityId", null) == null) {
 
-      App.getOrCreateDefaultCommunityFor(body.getString("appId"), this.vertx).onComplete(search -> {
+      App.getOrCreateDefaultCommunityFor(body.getString("appId"), this.vertx)
+          .onComplete(timing.measure(ServerTiming.REMOTE_LOOKUP, search -> {
 
         final var community = search.result();
         if (community == null) {
@@ -134,39 +217,45 @@ public class TasksResource implements Tasks {
         } else {
 
           body.put("communityId", community.id);
-          this.createTask(body, request, resultHandler);
+          this.createTask(body, request, timing, resultHandler);
         }
 
-      });
+      }));
 
     } else {
 
       final var model = this.createTaskContext();
       final var context = new ServiceContext(request, resultHandler);
-      ModelResources.createModelChain(body, model,
-          (task, handler) -> TasksRepository.createProxy(this.vertx).storeTask(task).onComplete(handler), context,
-          () -> {
+      timing.start(ServerTiming.REMOTE_LOOKUP);
+      ModelResources.createModelChain(body, model, (task, handler) -> {
 
-            ServiceResponseHandlers.responseWith(resultHandler, Status.CREATED, model.value);
+        timing.end(ServerTiming.REMOTE_LOOKUP);
+        TasksRepository.createProxy(this.vertx).storeTask(task)
+            .onComplete(timing.measure(ServerTiming.PERSISTENCE, handler));
 
-            Logger.debug("Created task {}", model.value);
-            WeNetInteractionProtocolEngine.createProxy(this.vertx).createdTask(model.value).onComplete(sent -> {
+      }, context, () -> {
 
-              if (sent.failed()) {
+        timing.start(ServerTiming.SERIALIZATION);
+        ServiceResponseHandlers.responseWith(resultHandler, Status.CREATED, model.value);
 
-                final var cause = sent.cause();
-                Logger.debug(cause,
-                    "The interaction protocol engine does not accepted to process the creation of the task {}",
-                    model.value);
+        Logger.debug("Created task {}", model.value);
+        WeNetInteractionProtocolEngine.createProxy(this.vertx).createdTask(model.value).onComplete(sent -> {
 
-              } else {
+          if (sent.failed()) {
 
-                Logger.debug("The interaction protocol engine accepted to process the creation of the task {}",
-                    model.value);
+            final var cause = sent.cause();
+            Logger.debug(cause,
+                "The interaction protocol engine does not accepted to process the creation of the task {}",
+                model.value);
 
-              }
-            });
-          });
+          } else {
+
+            Logger.debug("The interaction protocol engine accepted to process the creation of the task {}",
+                model.value);
+
+          }
+        });
+      });
     }
   }
 
@@ -177,12 +266,23 @@ public class TasksResource implements Tasks {
   public void updateTask(final String taskId, final JsonObject body, final ServiceRequest request,
       final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
+    final var timing = new ServerTiming("updateTask");
+    final var conditional = new ConditionalRequest(request);
+    final var timedHandler = timing.wrap(resultHandler);
     final var model = this.createTaskContext();
     model.id = taskId;
-    final var context = new ServiceContext(request, resultHandler);
+    final var context = new ServiceContext(request, timedHandler);
     ModelResources.updateModel(body, model,
-        (id, hanlder) -> TasksRepository.createProxy(this.vertx).searchTask(id).onComplete(hanlder),
-        (task, handler) -> TasksRepository.createProxy(this.vertx).updateTask(task).onComplete(handler), context);
+        (id, hanlder) -> this.searchTask(id, conditional)
+            .onComplete(timing.measure(ServerTiming.PERSISTENCE, conditional.checkPrecondition(
+                timing.starting(ServerTiming.REMOTE_LOOKUP, hanlder), timedHandler))),
+        (task, handler) -> {
+
+          timing.end(ServerTiming.REMOTE_LOOKUP);
+          TasksRepository.createProxy(this.vertx).updateTask(model.target, task, conditional.expectedVersion())
+              .onComplete(timing.measure(ServerTiming.PERSISTENCE, conditional.checkWritten(handler, timedHandler)));
+
+        }, context);
 
   }
 
@@ -193,12 +293,79 @@ public class TasksResource implements Tasks {
   public void mergeTask(final String taskId, final JsonObject body, final ServiceRequest request,
       final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
+    final var timing = new ServerTiming("mergeTask");
+    final var conditional = new ConditionalRequest(request);
+    final var timedHandler = timing.wrap(resultHandler);
+    final var version = conditional.expectedVersion();
+    final var set = this.serverMerge && version != null ? TaskMergePatch.toSet(body) : null;
+    if (set != null) {
+
+      this.mergeTaskOnServer(taskId, set, conditional, timing, timedHandler);
+      return;
+    }
     final var model = this.createTaskContext();
     model.id = taskId;
-    final var context = new ServiceContext(request, resultHandler);
+    final var context = new ServiceContext(request, timedHandler);
     ModelResources.mergeModel(body, model,
-        (id, hanlder) -> TasksRepository.createProxy(this.vertx).searchTask(id).onComplete(hanlder),
-        (task, handler) -> TasksRepository.createProxy(this.vertx).updateTask(task).onComplete(handler), context);
+        (id, hanlder) -> this.searchTask(id, conditional)
+            .onComplete(timing.measure(ServerTiming.PERSISTENCE, conditional.checkPrecondition(
+                timing.starting(ServerTiming.REMOTE_LOOKUP, hanlder), timedHandler))),
+        (task, handler) -> {
+
+          timing.end(ServerTiming.REMOTE_LOOKUP);
+          TasksRepository.createProxy(this.vertx).updateTask(model.target, task, conditional.expectedVersion())
+              .onComplete(timing.measure(ServerTiming.PERSISTENCE, conditional.checkWritten(handler, timedHandler)));
+
+        }, context);
+
+  }
+
+  /**
+   * Merge a patch into a task with one call to the database, that only modifies the task if it has not been modified
+   * since the version defined on the {@code If-Match} header.
+   *
+   * @param taskId        identifier of the task to merge.
+   * @param set           the fields to set on the task.
+   * @param conditional   request with the version of the task that the client has.
+   * @param timing        to measure the time spent on the merge.
+   * @param resultHandler to inform of the response.
+   */
+  protected void mergeTaskOnServer(final String taskId, final JsonObject set, final ConditionalRequest conditional,
+      final ServerTiming timing, final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
+    final var repository = TasksRepository.createProxy(this.vertx);
+    timing.start(ServerTiming.PERSISTENCE);
+    final var merging = conditional.capture(repository.mergeTaskObject(taskId, conditional.expectedVersion(), set));
+    merging.map(object -> object == null ? null : Model.fromJsonObject(object, Task.class)).onComplete(merge -> {
+
+      timing.end(ServerTiming.PERSISTENCE);
+      final var merged = merge.result();
+      if (merge.failed()) {
+
+        ServiceResponseHandlers.responseFailedWith(resultHandler, Status.BAD_REQUEST, merge.cause());
+
+      } else if (merged != null) {
+
+        ServiceResponseHandlers.responseOk(conditional.wrap(resultHandler), merged);
+
+      } else {
+
+        repository.searchTaskVersion(taskId).onComplete(search -> {
+
+          if (search.failed() || search.result() == null) {
+
+            ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.NOT_FOUND, "not_found_task",
+                "Does not exist a task associated to '" + taskId + "'.");
+
+          } else {
+
+            ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.PRECONDITION_FAILED,
+                ConditionalRequest.PRECONDITION_FAILED,
+                "The model has been modified since the version defined on the If-Match header.");
+          }
+        });
+      }
+    });
 
   }
 
@@ -209,14 +376,18 @@ public class TasksResource implements Tasks {
   public void deleteTask(final String taskId, final ServiceRequest request,
       final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
+    final var timing = new ServerTiming("deleteTask");
     final var model = this.createTaskContext();
     model.id = taskId;
-    final var context = new ServiceContext(request, resultHandler);
+    final var context = new ServiceContext(request, timing.wrap(resultHandler));
     ModelResources.deleteModel(model, (taskToDeleteId, deletter) -> {
       {
 
+        timing.start(ServerTiming.PERSISTENCE);
         TasksRepository.createProxy(this.vertx).deleteTask(taskToDeleteId).map(result -> {
 
+          timing.end(ServerTiming.PERSISTENCE);
+
           final var profileManager = WeNetProfileManager.createProxy(this.vertx);
           final var interactionProtocolEngine = WeNetInteractionProtocolEngine.createProxy(this.vertx);
           profileManager.taskDeleted(taskToDeleteId).onComplete(profileManagerNotified -> {
@@ -253,44 +424,48 @@ public class TasksResource implements Tasks {
   public void doTaskTransaction(final JsonObject body, final ServiceRequest request,
       final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
+    final var timing = new ServerTiming("doTaskTransaction");
+    final var timedHandler = timing.wrap(resultHandler);
     final var taskTransaction = Model.fromJsonObject(body, TaskTransaction.class);
     if (taskTransaction == null) {
 
       Logger.debug("The {} is not a valid TaskTransaction.", body);
-      ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.BAD_REQUEST, "bad_task_transaction",
+      ServiceResponseHandlers.responseWithErrorMessage(timedHandler, Status.BAD_REQUEST, "bad_task_transaction",
           "The task transaction is not right.");
 
     } else {
 
-      taskTransaction.validate(new WeNetValidateContext("bad_task_transaction", this.vertx)).onComplete(validation -> {
+      taskTransaction.validate(new WeNetValidateContext("bad_task_transaction", this.vertx))
+          .onComplete(timing.measure(ServerTiming.REMOTE_LOOKUP, validation -> {
 
-        if (validation.failed()) {
+            if (validation.failed()) {
 
-          final var cause = validation.cause();
-          Logger.debug(cause, "The {} is not valid.", taskTransaction);
-          ServiceResponseHandlers.responseFailedWith(resultHandler, Status.BAD_REQUEST, cause);
+              final var cause = validation.cause();
+              Logger.debug(cause, "The {} is not valid.", taskTransaction);
+              ServiceResponseHandlers.responseFailedWith(timedHandler, Status.BAD_REQUEST, cause);
 
-        } else {
+            } else {
 
-          ServiceResponseHandlers.responseWith(resultHandler, Status.ACCEPTED, taskTransaction);
-          WeNetInteractionProtocolEngine.createProxy(this.vertx).doTransaction(taskTransaction).onComplete(send -> {
+              timing.start(ServerTiming.SERIALIZATION);
+              ServiceResponseHandlers.responseWith(timedHandler, Status.ACCEPTED, taskTransaction);
+              WeNetInteractionProtocolEngine.createProxy(this.vertx).doTransaction(taskTransaction).onComplete(send -> {
 
-            if (send.failed()) {
+                if (send.failed()) {
 
-              final var cause = send.cause();
-              Logger.trace(cause, "The interaction protocol engine does not accepted to do the transaction {}",
-                  taskTransaction);
+                  final var cause = send.cause();
+                  Logger.trace(cause, "The interaction protocol engine does not accepted to do the transaction {}",
+                      taskTransaction);
 
-            } else {
+                } else {
 
-              Logger.trace("The interaction protocol engine accepted to do the transaction {} ", taskTransaction);
+                  Logger.trace("The interaction protocol engine accepted to do the transaction {} ", taskTransaction);
 
-            }
+                }
 
-          });
-        }
+              });
+            }
 
-      });
+          }));
     }
 
   }
@@ -300,39 +475,45 @@ public class TasksResource implements Tasks {
    */
   @Override
   public void retrieveTasksPage(final String appId, final String requesterId, final String taskTypeId,
-      final String goalName, final String goalDescription, final Long creationFrom, final Long creationTo,
-      final Long updateFrom, final Long updateTo, final Boolean hasCloseTs, final Long closeFrom, final Long closeTo,
-      final String orderValue, final int offset, final int limit, final ServiceRequest context,
-      final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+      final String goalName, final String goalDescription, final String q, final Long creationFrom,
+      final Long creationTo, final Long updateFrom, final Long updateTo, final Boolean hasCloseTs, final Long closeFrom,
+      final Long closeTo, final String orderValue, final int offset, final int limit, final String total,
+      final ServiceRequest context, final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
+    final var timing = new ServerTiming("retrieveTasksPage");
+    final var timedHandler = timing.wrap(resultHandler);
     final var order = ServiceRequests.extractQueryArray(orderValue);
     final var query = TasksRepository.createTasksPageQuery(appId, requesterId, taskTypeId, goalName, goalDescription,
         creationFrom, creationTo, updateFrom, updateTo, hasCloseTs, closeFrom, closeTo);
+    TextSearch.withText(query, q);
 
     try {
 
       final var sort = TasksRepository.createTasksPageSort(order);
-      TasksRepository.createProxy(this.vertx).retrieveTasksPage(query, sort, offset, limit, retrieve -> {
+      this.queries.count("tasks", query, sort);
+      TasksRepository.createProxy(this.vertx).retrieveTasksPage(query, sort, offset, limit, total,
+          timing.measure(ServerTiming.PERSISTENCE, retrieve -> {
 
-        if (retrieve.failed()) {
+            if (retrieve.failed()) {
 
-          final var cause = retrieve.cause();
-          Logger.debug(cause, "GET /tasks with {} => Retrieve error", query);
-          ServiceResponseHandlers.responseFailedWith(resultHandler, Status.BAD_REQUEST, cause);
+              final var cause = retrieve.cause();
+              Logger.debug(cause, "GET /tasks with {} => Retrieve error", query);
+              ServiceResponseHandlers.responseFailedWith(timedHandler, Status.BAD_REQUEST, cause);
 
-        } else {
+            } else {
 
-          final var tasksPage = retrieve.result();
-          Logger.debug("GET /tasks with {} => {}.", query, tasksPage);
-          ServiceResponseHandlers.responseOk(resultHandler, tasksPage);
-        }
+              final var tasksPage = retrieve.result();
+              Logger.debug("GET /tasks with {} => {}.", query, tasksPage);
+              timing.start(ServerTiming.SERIALIZATION);
+              ServiceResponseHandlers.responseOk(timedHandler, tasksPage);
+            }
 
-      });
+          }));
 
     } catch (final ValidationErrorException error) {
 
       Logger.debug(error, "GET /tasks with {} => Retrieve error", query);
-      ServiceResponseHandlers.responseFailedWith(resultHandler, Status.BAD_REQUEST, error);
+      ServiceResponseHandlers.responseFailedWith(timedHandler, Status.BAD_REQUEST, error);
 
     }
 
@@ -345,31 +526,34 @@ public class TasksResource implements Tasks {
   public void addTransactionIntoTask(final String taskId, final JsonObject body, final ServiceRequest request,
       final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
+    final var timing = new ServerTiming("addTransactionIntoTask");
+    final var timedHandler = timing.wrap(resultHandler);
     final var transactionModel = this.createTaskTransactionContext();
-    final var context = new ServiceContext(request, resultHandler);
+    final var context = new ServiceContext(request, timedHandler);
 
     ModelResources.toModel(body, transactionModel, context, () -> {
 
       if (transactionModel.source.taskId != null && !taskId.equals(transactionModel.source.taskId)) {
 
         Logger.debug("POST /tasks/{}/transactions with {} => BAD REQUEST", taskId, transactionModel.source);
-        ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.BAD_REQUEST, "bad_task_id",
+        ServiceResponseHandlers.responseWithErrorMessage(timedHandler, Status.BAD_REQUEST, "bad_task_id",
             "The identifier of the transaction task not match the identifier of the task to add it");
 
       } else {
 
         transactionModel.source.taskId = taskId;
-        ModelResources.validate(transactionModel, context, () -> {
+        timing.start(ServerTiming.REMOTE_LOOKUP);
+        ModelResources.validate(transactionModel, context, timing.ending(ServerTiming.REMOTE_LOOKUP, () -> {
 
           TasksRepository.createProxy(this.vertx).addTransactionIntoTask(taskId, transactionModel.source)
-              .onComplete(added -> {
+              .onComplete(timing.measure(ServerTiming.PERSISTENCE, added -> {
 
                 if (added.failed()) {
 
                   final var cause = added.cause();
                   Logger.debug(cause, "POST /tasks/{}/transactions with {} => NOT FOUND", taskId,
                       transactionModel.source);
-                  ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.NOT_FOUND, "not_found_task",
+                  ServiceResponseHandlers.responseWithErrorMessage(timedHandler, Status.NOT_FOUND, "not_found_task",
                       "Not found task to add the transaction");
 
                 } else {
@@ -377,13 +561,14 @@ public class TasksResource implements Tasks {
                   final var result = added.result();
                   Logger.debug(" \"POST /tasks/{}/transactions with {} => CREATED {}.", taskId, transactionModel.source,
                       result);
-                  ServiceResponseHandlers.responseWith(resultHandler, Status.CREATED, result);
+                  timing.start(ServerTiming.SERIALIZATION);
+                  ServiceResponseHandlers.responseWith(timedHandler, Status.CREATED, result);
 
                 }
 
-              });
+              }));
 
-        });
+        }));
       }
 
     });
@@ -396,21 +581,25 @@ public class TasksResource implements Tasks {
   public void addMessageIntoTransaction(final String taskId, final String taskTransactionId, final JsonObject body,
       final ServiceRequest request, final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
+    final var timing = new ServerTiming("addMessageIntoTransaction");
+    final var timedHandler = timing.wrap(resultHandler);
     final var messageModel = this.createMessageContext();
-    final var context = new ServiceContext(request, resultHandler);
+    final var context = new ServiceContext(request, timedHandler);
     ModelResources.toModel(body, messageModel, context, () -> {
 
-      ModelResources.validate(messageModel, context, () -> {
+      timing.start(ServerTiming.REMOTE_LOOKUP);
+      ModelResources.validate(messageModel, context, timing.ending(ServerTiming.REMOTE_LOOKUP, () -> {
 
         TasksRepository.createProxy(this.vertx)
-            .addMessageIntoTransaction(taskId, taskTransactionId, messageModel.source).onComplete(added -> {
+            .addMessageIntoTransaction(taskId, taskTransactionId, messageModel.source)
+            .onComplete(timing.measure(ServerTiming.PERSISTENCE, added -> {
 
               if (added.failed()) {
 
                 final var cause = added.cause();
                 Logger.debug(cause, "POST /tasks/{}/transactions/{}/messages with {} => NOT FOUND", taskId,
                     taskTransactionId, messageModel.source);
-                ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.NOT_FOUND,
+                ServiceResponseHandlers.responseWithErrorMessage(timedHandler, Status.NOT_FOUND,
                     "undefined_task_or_transaction",
                     "Not found task where is the transaction or not found the transaction in it to add the message");
 
@@ -419,13 +608,14 @@ public class TasksResource implements Tasks {
                 final var result = added.result();
                 Logger.debug(" \"POST /tasks/{}/transactions/{}/messages with {} => CREATED {}.", taskId,
                     taskTransactionId, messageModel.source, result);
-                ServiceResponseHandlers.responseWith(resultHandler, Status.CREATED, result);
+                timing.start(ServerTiming.SERIALIZATION);
+                ServiceResponseHandlers.responseWith(timedHandler, Status.CREATED, result);
 
               }
 
-            });
+            }));
 
-      });
+      }));
 
     });
   }
@@ -437,11 +627,13 @@ public class TasksResource implements Tasks {
   public void retrieveTaskTransaction(final String taskId, final String transactionId, final ServiceRequest request,
       final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
+    final var timing = new ServerTiming("retrieveTaskTransaction");
     final var model = this.createTaskContext();
     model.id = taskId;
-    final var context = new ServiceContext(request, resultHandler);
-    ModelResources.retrieveModelChain(model,
-        (id, hanlder) -> TasksRepository.createProxy(this.vertx).searchTask(id).onComplete(hanlder), context, () -> {
+    final var context = new ServiceContext(request, timing.wrap(resultHandler));
+    ModelResources.retrieveModelChain(model, (id, hanlder) -> TasksRepository.createProxy(this.vertx).searchTask(id)
+        .onComplete(timing.measure(ServerTiming.PERSISTENCE, timing.starting(ServerTiming.SERIALIZATION, hanlder))),
+        context, () -> {
 
           if (model.target.transactions != null) {
 
@@ -475,11 +667,43 @@ public class TasksResource implements Tasks {
   public void isTaskDefined(final String taskId, final ServiceRequest request,
       final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
+    final var timing = new ServerTiming("isTaskDefined");
     final var model = this.createTaskContext();
     model.id = taskId;
-    final var context = new ServiceContext(request, resultHandler);
-    ModelResources.checkModelExist(model,
-        (modelId, handler) -> TasksRepository.createProxy(this.vertx).searchTask(modelId).onComplete(handler), context);
+    final var context = new ServiceContext(request, timing.wrap(resultHandler));
+    ModelResources.checkModelExist(model, (modelId, handler) -> TasksRepository.createProxy(this.vertx)
+        .searchTask(modelId).onComplete(timing.measure(ServerTiming.PERSISTENCE, handler)), context);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void retrieveTaskStatistics(final String appId, final String taskTypeId, final String counter,
+      final String key, final Long from, final Long to, final int limit, final ServiceRequest request,
+      final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
+    final var timing = new ServerTiming("retrieveTaskStatistics");
+    final var timedHandler = timing.wrap(resultHandler);
+    TasksRepository.createProxy(this.vertx).retrieveTaskStatistics(appId, taskTypeId, counter, key, from, to, limit,
+        timing.measure(ServerTiming.PERSISTENCE, retrieve -> {
+
+          if (retrieve.failed()) {
+
+            final var cause = retrieve.cause();
+            Logger.debug(cause, "GET /tasks/statistics => Retrieve error");
+            ServiceResponseHandlers.responseFailedWith(timedHandler, Status.BAD_REQUEST, cause);
+
+          } else {
+
+            final var statistics = retrieve.result();
+            Logger.debug("GET /tasks/statistics => {}.", statistics);
+            timing.start(ServerTiming.SERIALIZATION);
+            ServiceResponseHandlers.responseOk(timedHandler, statistics);
+          }
+
+        }));
 
   }
 
@@ -0,0 +1,350 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.events;
+
+import eu.internetofus.common.model.TimeManager;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The in-memory index of the receivers that are polling for new messages. The {@link TaskEvents#MESSAGE_ADDED} events
+ * are indexed by the receiver of the message, and the polls of the receiver are parked until a message for it arrives
+ * or the timeout elapses, so the idle receivers do not query the database. The messages that arrive between two polls
+ * of a receiver are buffered while the receiver has polled in the last retention seconds.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class ReceiverSubscriptions {
+
+  /**
+   * The default seconds that the messages of a receiver are buffered after its last poll.
+   */
+  public static final long DEFAULT_RETENTION = 60L;
+
+  /**
+   * The maximum number of messages to buffer for each receiver.
+   */
+  public static final int MAX_BUFFERED_MESSAGES = 100;
+
+  /**
+   * The state of a receiver that has polled.
+   */
+  protected static class Receiver {
+
+    /**
+     * The last message events of the receiver.
+     */
+    protected ArrayDeque<JsonObject> events = new ArrayDeque<>();
+
+    /**
+     * The polls that are waiting for a message.
+     */
+    protected List<Waiter> waiters = new ArrayList<>();
+
+    /**
+     * The time of the last poll of the receiver.
+     */
+    protected long lastPollTs;
+
+  }
+
+  /**
+   * A poll that is waiting for a message.
+   */
+  protected static class Waiter {
+
+    /**
+     * The identifier of the application of the messages to return, or {@code null} to return any message.
+     */
+    protected String appId;
+
+    /**
+     * The identifier of the last event received by the poll.
+     */
+    protected long lastEventId;
+
+    /**
+     * The promise to complete with the messages.
+     */
+    protected Promise<JsonObject> promise;
+
+    /**
+     * The identifier of the timer that completes the poll without messages.
+     */
+    protected long timer;
+
+  }
+
+  /**
+   * The event bus where the events are published.
+   */
+  protected Vertx vertx;
+
+  /**
+   * The seconds that the messages of a receiver are buffered after its last poll.
+   */
+  protected long retention;
+
+  /**
+   * The receivers that have polled, by identifier.
+   */
+  protected Map<String, Receiver> receivers = new HashMap<>();
+
+  /**
+   * The consumer of the events, or {@code null} if it is not listening.
+   */
+  protected MessageConsumer<JsonObject> consumer;
+
+  /**
+   * The timer to remove the receivers that have not polled in the retention time.
+   */
+  protected long evictTimer = -1;
+
+  /**
+   * Create the index.
+   *
+   * @param vertx     event bus where the events are published.
+   * @param retention seconds that the messages of a receiver are buffered after its last poll.
+   */
+  public ReceiverSubscriptions(final Vertx vertx, final long retention) {
+
+    this.vertx = vertx;
+    this.retention = Math.max(1L, retention);
+
+  }
+
+  /**
+   * Start to receive the events if it is not listening yet.
+   */
+  protected synchronized void ensureListening() {
+
+    if (this.consumer == null) {
+
+      this.consumer = this.vertx.eventBus().consumer(TaskEvents.ADDRESS, message -> this.dispatch(message.body()));
+      this.evictTimer = this.vertx.setPeriodic(this.retention * 1000L, id -> this.evictExpired());
+    }
+
+  }
+
+  /**
+   * Stop to receive the events and complete the parked polls without messages.
+   *
+   * @return the future that will inform when the index is closed.
+   */
+  public Future<Void> close() {
+
+    final var waiters = new ArrayList<Waiter>();
+    Future<Void> future = Future.succeededFuture();
+    synchronized (this) {
+
+      if (this.consumer != null) {
+
+        future = this.consumer.unregister();
+        this.consumer = null;
+        this.vertx.cancelTimer(this.evictTimer);
+        this.evictTimer = -1;
+      }
+      for (final var receiver : this.receivers.values()) {
+
+        waiters.addAll(receiver.waiters);
+      }
+      this.receivers.clear();
+    }
+    for (final var waiter : waiters) {
+
+      this.complete(waiter, new ArrayList<>());
+    }
+    return future;
+
+  }
+
+  /**
+   * Wait for the messages of a receiver. If there are buffered messages after the last event identifier, they are
+   * returned immediately, otherwise the poll waits until a message arrives or the timeout elapses.
+   *
+   * @param receiverId  identifier of the receiver of the messages.
+   * @param appId       identifier of the application of the messages, or {@code null} to return any message.
+   * @param lastEventId identifier of the last event returned to the receiver, or {@code null} to wait for new messages.
+   * @param timeout     milliseconds to wait for a message.
+   *
+   * @return the future with the {@code messages} received by the receiver and the {@code lastEventId} to use on the
+   *         next poll.
+   */
+  public Future<JsonObject> poll(final String receiverId, final String appId, final Long lastEventId,
+      final long timeout) {
+
+    this.ensureListening();
+    final var waiter = new Waiter();
+    waiter.appId = appId;
+    waiter.promise = Promise.promise();
+    final List<JsonObject> found;
+    synchronized (this) {
+
+      final var receiver = this.receivers.computeIfAbsent(receiverId, id -> new Receiver());
+      receiver.lastPollTs = TimeManager.now();
+      waiter.lastEventId = lastEventId != null ? lastEventId
+          : receiver.events.isEmpty() ? 0L : receiver.events.getLast().getLong("id");
+      found = this.select(receiver, waiter);
+      if (found.isEmpty() && timeout > 0) {
+
+        receiver.waiters.add(waiter);
+        waiter.timer = this.vertx.setTimer(timeout, id -> {
+
+          synchronized (this) {
+
+            receiver.lastPollTs = TimeManager.now();
+            if (!receiver.waiters.remove(waiter)) {
+
+              return;
+            }
+          }
+          this.complete(waiter, new ArrayList<>());
+
+        });
+        return waiter.promise.future();
+      }
+    }
+    this.complete(waiter, found);
+    return waiter.promise.future();
+
+  }
+
+  /**
+   * Select the buffered events of a receiver that are for a poll.
+   *
+   * @param receiver to select the events.
+   * @param waiter   to select the events.
+   *
+   * @return the events for the poll.
+   */
+  protected List<JsonObject> select(final Receiver receiver, final Waiter waiter) {
+
+    final var found = new ArrayList<JsonObject>();
+    for (final var event : receiver.events) {
+
+      if (event.getLong("id", 0L) > waiter.lastEventId
+          && (waiter.appId == null || waiter.appId.equals(event.getString("appId")))) {
+
+        found.add(event);
+      }
+    }
+    return found;
+
+  }
+
+  /**
+   * Complete a poll.
+   *
+   * @param waiter to complete.
+   * @param events with the messages to return.
+   */
+  protected void complete(final Waiter waiter, final List<JsonObject> events) {
+
+    var lastEventId = waiter.lastEventId;
+    final var messages = new JsonArray();
+    for (final var event : events) {
+
+      messages.add(event.getValue("message"));
+      lastEventId = Math.max(lastEventId, event.getLong("id", 0L));
+    }
+    waiter.promise.tryComplete(new JsonObject().put("lastEventId", lastEventId).put("messages", messages));
+
+  }
+
+  /**
+   * Index a message event and complete the polls of its receiver.
+   *
+   * @param event to dispatch.
+   */
+  public void dispatch(final JsonObject event) {
+
+    if (!TaskEvents.MESSAGE_ADDED.equals(event.getString("type"))) {
+
+      return;
+    }
+    final var message = event.getJsonObject("message");
+    final var receiverId = message == null ? null : message.getString("receiverId");
+    final var completed = new ArrayList<Waiter>();
+    synchronized (this) {
+
+      final var receiver = receiverId == null ? null : this.receivers.get(receiverId);
+      if (receiver == null) {
+
+        return;
+      }
+      receiver.events.addLast(event);
+      while (receiver.events.size() > MAX_BUFFERED_MESSAGES) {
+
+        receiver.events.removeFirst();
+      }
+      for (final var iter = receiver.waiters.iterator(); iter.hasNext();) {
+
+        final var waiter = iter.next();
+        if (waiter.appId == null || waiter.appId.equals(event.getString("appId"))) {
+
+          iter.remove();
+          completed.add(waiter);
+        }
+      }
+      if (!completed.isEmpty()) {
+
+        receiver.lastPollTs = TimeManager.now();
+      }
+    }
+    for (final var waiter : completed) {
+
+      this.vertx.cancelTimer(waiter.timer);
+      this.complete(waiter, List.of(event));
+    }
+
+  }
+
+  /**
+   * Remove the receivers that are not waiting and have not polled in the retention time.
+   */
+  public synchronized void evictExpired() {
+
+    final var limit = TimeManager.now() - this.retention;
+    this.receivers.values().removeIf(receiver -> receiver.waiters.isEmpty() && receiver.lastPollTs < limit);
+
+  }
+
+  /**
+   * Return the number of receivers on the index.
+   *
+   * @return the number of receivers that have polled in the retention time.
+   */
+  public synchronized int getReceiversCount() {
+
+    return this.receivers.size();
+
+  }
+
+}
@@ -0,0 +1,263 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.events;
+
+import eu.internetofus.common.model.TimeManager;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The component that publishes the events of the tasks into the event bus. Each event has an identifier that grows
+ * monotonically, so it can be used as the token to resume a feed of events.
+ *
+ * @see TaskEventsFeed
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TaskEvents {
+
+  /**
+   * The address of the event bus where the events are published.
+   */
+  public static final String ADDRESS = "wenet_task_manager.events";
+
+  /**
+   * The type of the event published when a task is created.
+   */
+  public static final String TASK_CREATED = "taskCreated";
+
+  /**
+   * The type of the event published when a task is updated.
+   */
+  public static final String TASK_UPDATED = "taskUpdated";
+
+  /**
+   * The type of the event published when a task is closed.
+   */
+  public static final String TASK_CLOSED = "taskClosed";
+
+  /**
+   * The type of the event published when the deadline of a task is reached.
+   */
+  public static final String TASK_EXPIRED = "taskExpired";
+
+  /**
+   * The type of the event published when a transaction is added into a task.
+   */
+  public static final String TRANSACTION_ADDED = "transactionAdded";
+
+  /**
+   * The type of the event published when a message is added into a transaction.
+   */
+  public static final String MESSAGE_ADDED = "messageAdded";
+
+  /**
+   * The type of the event sent when some events are lost between the resume token and the events of the feed.
+   */
+  public static final String GAP = "gap";
+
+  /**
+   * The types of the events that can be published.
+   */
+  public static final List<String> TYPES = List.of(TASK_CREATED, TASK_UPDATED, TASK_CLOSED, TASK_EXPIRED,
+      TRANSACTION_ADDED, MESSAGE_ADDED);
+
+  /**
+   * The source of events that publishes the changes done by the repository.
+   */
+  public static final String REPOSITORY_SOURCE = "repository";
+
+  /**
+   * The source of events that publishes the changes obtained from the change stream of the database.
+   */
+  public static final String CHANGE_STREAM_SOURCE = "changeStream";
+
+  /**
+   * The last identifier assigned to an event.
+   */
+  protected static final AtomicLong SEQUENCE = new AtomicLong();
+
+  /**
+   * The event bus where the events are published.
+   */
+  protected Vertx vertx;
+
+  /**
+   * This is {@code true} if the events have to be published.
+   */
+  protected boolean enabled;
+
+  /**
+   * Create the component to publish events.
+   *
+   * @param vertx   event bus where the events are published.
+   * @param enabled is {@code true} if the events have to be published.
+   */
+  public TaskEvents(final Vertx vertx, final boolean enabled) {
+
+    this.vertx = vertx;
+    this.enabled = enabled;
+
+  }
+
+  /**
+   * Check if the events are published.
+   *
+   * @return {@code true} if the events are published.
+   */
+  public boolean isEnabled() {
+
+    return this.enabled;
+  }
+
+  /**
+   * Obtain the identifier for a new event. The identifier is the number of microseconds since the epoch, or the next
+   * value if it has been already used, so it grows monotonically between restarts.
+   *
+   * @return the identifier for the next event.
+   */
+  public static long nextId() {
+
+    final var now = System.currentTimeMillis() * 1000L;
+    return SEQUENCE.updateAndGet(last -> Math.max(last + 1, now));
+  }
+
+  /**
+   * Create an event of a task.
+   *
+   * @param type    of the event.
+   * @param taskId  identifier of the task.
+   * @param task    with the attributes used to filter the event.
+   * @param field   name of the field where the payload is stored, or {@code null} if the event does not have payload.
+   * @param payload of the event.
+   *
+   * @return the created event.
+   */
+  public static JsonObject createEvent(final String type, final String taskId, final JsonObject task,
+      final String field, final Object payload) {
+
+    final var event = new JsonObject().put("id", nextId()).put("type", type).put("taskId", taskId);
+    if (task != null) {
+
+      event.put("appId", task.getString("appId")).put("taskTypeId", task.getString("taskTypeId")).put("requesterId",
+          task.getString("requesterId"));
+    }
+    if (field != null && payload != null) {
+
+      event.put(field, payload);
+    }
+    return event.put("ts", TimeManager.now());
+
+  }
+
+  /**
+   * Publish an event of a task.
+   *
+   * @param type    of the event.
+   * @param taskId  identifier of the task.
+   * @param task    with the attributes used to filter the event.
+   * @param field   name of the field where the payload is stored, or {@code null} if the event does not have payload.
+   * @param payload of the event.
+   *
+   * @see #createEvent(String, String, JsonObject, String, Object)
+   */
+  public void publish(final String type, final String taskId, final JsonObject task, final String field,
+      final Object payload) {
+
+    if (this.enabled) {
+
+      this.vertx.eventBus().publish(ADDRESS, createEvent(type, taskId, task, field, payload));
+    }
+
+  }
+
+  /**
+   * Create the filter of the events.
+   *
+   * @param appId       identifier of the application of the tasks, or {@code null} to match any application.
+   * @param taskTypeId  identifier of the type of the tasks, or {@code null} to match any type.
+   * @param requesterId identifier of the requester of the tasks, or {@code null} to match any requester.
+   * @param types       of the events to match, or {@code null} to match any type of event.
+   *
+   * @return the filter of the events.
+   *
+   * @throws IllegalArgumentException if any of the types is not valid.
+   */
+  public static JsonObject createFilter(final String appId, final String taskTypeId, final String requesterId,
+      final List<String> types) {
+
+    final var filter = new JsonObject();
+    if (appId != null) {
+
+      filter.put("appId", appId);
+    }
+    if (taskTypeId != null) {
+
+      filter.put("taskTypeId", taskTypeId);
+    }
+    if (requesterId != null) {
+
+      filter.put("requesterId", requesterId);
+    }
+    if (types != null && !types.isEmpty()) {
+
+      for (final var type : types) {
+
+        if (!TYPES.contains(type)) {
+
+          throw new IllegalArgumentException("Unknown event type '" + type + "', it has to be one of " + TYPES);
+        }
+      }
+      filter.put("types", new JsonArray(types));
+    }
+    return filter;
+
+  }
+
+  /**
+   * Check if an event matches a filter.
+   *
+   * @param event  to check.
+   * @param filter to match.
+   *
+   * @return {@code true} if the event matches the filter.
+   *
+   * @see #createFilter(String, String, String, List)
+   */
+  public static boolean matches(final JsonObject event, final JsonObject filter) {
+
+    for (final var key : List.of("appId", "taskTypeId", "requesterId")) {
+
+      final var value = filter.getString(key);
+      if (value != null && !value.equals(event.getString(key))) {
+
+        return false;
+      }
+    }
+    final var types = filter.getJsonArray("types");
+    return types == null || types.contains(event.getString("type"));
+
+  }
+
+}
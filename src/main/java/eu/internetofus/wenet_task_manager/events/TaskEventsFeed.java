@@ -0,0 +1,252 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.events;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.tinylog.Logger;
+
+/**
+ * The feed that receives the events published on the {@link TaskEvents#ADDRESS} and dispatches them to the
+ * subscribers that match their filters. The last events are kept on a buffer, so a subscriber can resume the feed from
+ * the identifier of the last event that it has received.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TaskEventsFeed {
+
+  /**
+   * The default number of events to maintain on the buffer.
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 1000;
+
+  /**
+   * The maximum number of events to maintain on the buffer.
+   */
+  protected int bufferSize;
+
+  /**
+   * The last events received by the feed, sorted by identifier.
+   */
+  protected ArrayDeque<JsonObject> buffer = new ArrayDeque<>();
+
+  /**
+   * The identifier of the last event that has been removed from the buffer, or {@code -1} if none has been removed.
+   */
+  protected long lastEvictedId = -1;
+
+  /**
+   * The subscribers of the feed, with their filters.
+   */
+  protected Map<Long, Subscriber> subscribers = new LinkedHashMap<>();
+
+  /**
+   * The identifier for the next subscriber.
+   */
+  protected long nextSubscriberId = 0;
+
+  /**
+   * The consumer of the events.
+   */
+  protected MessageConsumer<JsonObject> consumer;
+
+  /**
+   * A subscriber to the feed.
+   */
+  protected static class Subscriber {
+
+    /**
+     * The filter of the events to send.
+     */
+    protected JsonObject filter;
+
+    /**
+     * The handler of the events.
+     */
+    protected Handler<JsonObject> handler;
+
+  }
+
+  /**
+   * Create a new feed.
+   *
+   * @param bufferSize maximum number of events to maintain to resume the feed.
+   */
+  public TaskEventsFeed(final int bufferSize) {
+
+    this.bufferSize = Math.max(0, bufferSize);
+
+  }
+
+  /**
+   * Start to receive the events published on the event bus.
+   *
+   * @param vertx event bus where the events are published.
+   *
+   * @return the future that will inform when the feed is listening.
+   */
+  public Future<Void> listen(final Vertx vertx) {
+
+    final Promise<Void> promise = Promise.promise();
+    this.consumer = vertx.eventBus().consumer(TaskEvents.ADDRESS, message -> this.dispatch(message.body()));
+    this.consumer.completionHandler(promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Stop to receive the events.
+   *
+   * @return the future that will inform when the feed is closed.
+   */
+  public Future<Void> close() {
+
+    if (this.consumer == null) {
+
+      return Future.succeededFuture();
+
+    } else {
+
+      final var future = this.consumer.unregister();
+      this.consumer = null;
+      return future;
+    }
+
+  }
+
+  /**
+   * Send an event to the subscribers that match it, and store it on the buffer.
+   *
+   * @param event to dispatch.
+   */
+  public void dispatch(final JsonObject event) {
+
+    final var handlers = new ArrayList<Handler<JsonObject>>();
+    synchronized (this) {
+
+      if (this.bufferSize > 0) {
+
+        this.buffer.addLast(event);
+        while (this.buffer.size() > this.bufferSize) {
+
+          this.lastEvictedId = this.buffer.removeFirst().getLong("id", -1L);
+        }
+
+      } else {
+
+        this.lastEvictedId = event.getLong("id", -1L);
+      }
+      for (final var subscriber : this.subscribers.values()) {
+
+        if (TaskEvents.matches(event, subscriber.filter)) {
+
+          handlers.add(subscriber.handler);
+        }
+      }
+    }
+    for (final var handler : handlers) {
+
+      try {
+
+        handler.handle(event);
+
+      } catch (final Throwable cause) {
+
+        Logger.trace(cause, "Cannot send the event {}", event);
+      }
+    }
+
+  }
+
+  /**
+   * Subscribe to the feed. If the identifier of the last received event is defined, the buffered events after it are
+   * sent before the new ones. If some of the events after it are not buffered any more, a {@link TaskEvents#GAP}
+   * event is sent first.
+   *
+   * @param filter      of the events to receive.
+   * @param lastEventId identifier of the last event received by the subscriber, or {@code null} to receive only the
+   *                    new events.
+   * @param handler     of the events.
+   *
+   * @return the identifier of the subscription.
+   *
+   * @see TaskEvents#createFilter(String, String, String, java.util.List)
+   */
+  public synchronized long subscribe(final JsonObject filter, final Long lastEventId,
+      final Handler<JsonObject> handler) {
+
+    if (lastEventId != null) {
+
+      if (lastEventId < this.lastEvictedId) {
+
+        handler.handle(new JsonObject().put("id", this.lastEvictedId).put("type", TaskEvents.GAP).put("from",
+            lastEventId));
+      }
+      for (final var event : this.buffer) {
+
+        if (event.getLong("id", -1L) > lastEventId && TaskEvents.matches(event, filter)) {
+
+          handler.handle(event);
+        }
+      }
+    }
+    final var subscriber = new Subscriber();
+    subscriber.filter = filter;
+    subscriber.handler = handler;
+    final var id = this.nextSubscriberId++;
+    this.subscribers.put(id, subscriber);
+    return id;
+
+  }
+
+  /**
+   * Remove a subscription of the feed.
+   *
+   * @param id identifier of the subscription to remove.
+   *
+   * @return {@code true} if the subscription has been removed.
+   */
+  public synchronized boolean unsubscribe(final long id) {
+
+    return this.subscribers.remove(id) != null;
+
+  }
+
+  /**
+   * Return the number of subscribers to the feed.
+   *
+   * @return the number of subscribers.
+   */
+  public synchronized int getSubscribersCount() {
+
+    return this.subscribers.size();
+
+  }
+
+}
@@ -0,0 +1,279 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.events;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import java.util.Arrays;
+import java.util.List;
+import org.tinylog.Logger;
+
+/**
+ * Handler that streams the events of the tasks as server-sent events. The requests to other paths are passed to the
+ * next handler. The events can be filtered by the {@code appId}, {@code taskTypeId}, {@code requesterId} and
+ * {@code types} query parameters, and the feed is resumed from the {@code Last-Event-ID} header or the
+ * {@code lastEventId} query parameter. The stream of a client that does not read the events as fast as they are sent
+ * is ended, thus the client has to resume the feed.
+ *
+ * @see TaskEventsFeed
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TaskEventsHandler implements Handler<RoutingContext> {
+
+  /**
+   * The path where the events are streamed.
+   */
+  public static final String PATH = "/tasks/events";
+
+  /**
+   * The header used by the clients to resume the feed.
+   */
+  public static final String LAST_EVENT_ID = "Last-Event-ID";
+
+  /**
+   * The default milliseconds between the comments sent to maintain the connection alive.
+   */
+  public static final long DEFAULT_KEEP_ALIVE = 15000L;
+
+  /**
+   * The event bus used to schedule the keep alive.
+   */
+  protected Vertx vertx;
+
+  /**
+   * The feed with the events to stream.
+   */
+  protected TaskEventsFeed feed;
+
+  /**
+   * The milliseconds between the comments sent to maintain the connection alive.
+   */
+  protected long keepAlive;
+
+  /**
+   * Create the handler.
+   *
+   * @param vertx     event bus used to schedule the keep alive.
+   * @param feed      with the events to stream.
+   * @param keepAlive milliseconds between the comments sent to maintain the connection alive.
+   */
+  public TaskEventsHandler(final Vertx vertx, final TaskEventsFeed feed, final long keepAlive) {
+
+    this.vertx = vertx;
+    this.feed = feed;
+    this.keepAlive = keepAlive;
+
+  }
+
+  /**
+   * Convert an event to a server-sent event frame.
+   *
+   * @param event to convert.
+   *
+   * @return the frame with the event.
+   */
+  public static String toFrame(final JsonObject event) {
+
+    return "id: " + event.getValue("id") + "\nevent: " + event.getString("type") + "\ndata: " + event.encode()
+        + "\n\n";
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void handle(final RoutingContext context) {
+
+    final var request = context.request();
+    if (request.method() != HttpMethod.GET || !PATH.equals(request.path())) {
+
+      context.next();
+      return;
+    }
+
+    JsonObject filter = null;
+    Long lastEventId = null;
+    try {
+
+      List<String> types = null;
+      final var typesParam = request.getParam("types");
+      if (typesParam != null && !typesParam.isBlank()) {
+
+        types = Arrays.asList(typesParam.split("\\s*,\\s*"));
+      }
+      filter = TaskEvents.createFilter(request.getParam("appId"), request.getParam("taskTypeId"),
+          request.getParam("requesterId"), types);
+      var lastEventIdParam = request.getHeader(LAST_EVENT_ID);
+      if (lastEventIdParam == null) {
+
+        lastEventIdParam = request.getParam("lastEventId");
+      }
+      if (lastEventIdParam != null) {
+
+        lastEventId = Long.parseLong(lastEventIdParam.trim());
+      }
+
+    } catch (final IllegalArgumentException badParameter) {
+
+      final var error = new JsonObject().put("code", "bad_events_parameter").put("message",
+          badParameter.getMessage());
+      context.response().setStatusCode(400).putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+          .end(error.encode());
+      return;
+    }
+
+    final var response = context.response();
+    response.setChunked(true).putHeader(HttpHeaders.CONTENT_TYPE, "text/event-stream")
+        .putHeader(HttpHeaders.CACHE_CONTROL, "no-cache")
+        .putHeader(HttpHeaders.CONTENT_ENCODING, HttpHeaders.IDENTITY);
+    response.write(": connected\n\n");
+    final var stream = new EventsStream(this.vertx, this.feed, response);
+    stream.subscription = this.feed.subscribe(filter, lastEventId, stream::send);
+    if (stream.released) {
+
+      this.feed.unsubscribe(stream.subscription);
+
+    } else {
+
+      stream.timer = this.vertx.setPeriodic(this.keepAlive, id -> stream.keepAlive());
+      response.closeHandler(any -> stream.release());
+      response.exceptionHandler(error -> stream.release());
+    }
+
+  }
+
+  /**
+   * The stream of the events sent to a client. If the client does not read the events as fast as they are sent, the
+   * write queue of the response becomes full, and the stream is ended instead of buffering more events. The client
+   * can reconnect with the identifier of the last event that has received to resume the feed.
+   */
+  static class EventsStream {
+
+    /**
+     * The event bus used to schedule the keep alive.
+     */
+    protected Vertx vertx;
+
+    /**
+     * The feed with the events to stream.
+     */
+    protected TaskEventsFeed feed;
+
+    /**
+     * The response where the events are written.
+     */
+    protected HttpServerResponse response;
+
+    /**
+     * The identifier of the subscription to the feed.
+     */
+    protected long subscription = -1L;
+
+    /**
+     * The identifier of the timer that maintains the connection alive.
+     */
+    protected long timer = -1L;
+
+    /**
+     * This is {@code true} if the stream has been released.
+     */
+    protected boolean released;
+
+    /**
+     * Create the stream.
+     *
+     * @param vertx    event bus used to schedule the keep alive.
+     * @param feed     with the events to stream.
+     * @param response where the events are written.
+     */
+    EventsStream(final Vertx vertx, final TaskEventsFeed feed, final HttpServerResponse response) {
+
+      this.vertx = vertx;
+      this.feed = feed;
+      this.response = response;
+
+    }
+
+    /**
+     * Send an event to the client, or end the stream if the client is too slow to receive it.
+     *
+     * @param event to send.
+     */
+    void send(final JsonObject event) {
+
+      if (!this.released) {
+
+        if (this.response.writeQueueFull()) {
+
+          Logger.debug("Ending the events stream of a slow client before the event {}", event.getValue("id"));
+          this.release();
+          this.response.end();
+
+        } else {
+
+          this.response.write(toFrame(event));
+        }
+      }
+
+    }
+
+    /**
+     * Send a comment to maintain the connection alive, if the client has received the previous data.
+     */
+    void keepAlive() {
+
+      if (!this.released && !this.response.writeQueueFull()) {
+
+        this.response.write(": keep-alive\n\n");
+      }
+
+    }
+
+    /**
+     * Stop to send events to the client.
+     */
+    void release() {
+
+      if (!this.released) {
+
+        this.released = true;
+        if (this.timer != -1L) {
+
+          this.vertx.cancelTimer(this.timer);
+        }
+        if (this.subscription != -1L) {
+
+          this.feed.unsubscribe(this.subscription);
+        }
+      }
+
+    }
+
+  }
+
+}
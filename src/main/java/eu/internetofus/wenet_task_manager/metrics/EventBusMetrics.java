@@ -0,0 +1,244 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.eventbus.DeliveryContext;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the messages that are sent through the event bus. The requests are correlated with their replies using the
+ * reply address, so the time spent by the services (and by the repositories that interact with MongoDB) is measured
+ * by address and action.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class EventBusMetrics {
+
+  /**
+   * The prefix of the addresses used by the event bus to reply.
+   */
+  public static final String REPLY_ADDRESS_PREFIX = "__vertx.";
+
+  /**
+   * The header that contains the action of a service proxy.
+   */
+  public static final String ACTION_HEADER = "action";
+
+  /**
+   * The name of the timer with the request/reply time.
+   */
+  public static final String REQUESTS_METRIC = "vertx.eventbus.requests";
+
+  /**
+   * The name of the counter of sent messages.
+   */
+  public static final String SENT_METRIC = "vertx.eventbus.sent";
+
+  /**
+   * The name of the gauge with the number of requests without reply.
+   */
+  public static final String PENDING_METRIC = "vertx.eventbus.pending";
+
+  /**
+   * The registry where the metrics are stored.
+   */
+  protected MeterRegistry registry;
+
+  /**
+   * The requests that are waiting for a reply.
+   */
+  protected ConcurrentHashMap<String, PendingRequest> pending = new ConcurrentHashMap<>();
+
+  /**
+   * Information of a request that is waiting for a reply.
+   */
+  protected static class PendingRequest {
+
+    /**
+     * The address where the request has been sent.
+     */
+    String address;
+
+    /**
+     * The action of the request.
+     */
+    String action;
+
+    /**
+     * The time when the request has been sent.
+     */
+    long startTime;
+
+  }
+
+  /**
+   * Create the metrics for the event bus.
+   *
+   * @param registry where the metrics will be stored.
+   */
+  public EventBusMetrics(final MeterRegistry registry) {
+
+    this.registry = registry;
+    registry.gaugeMapSize(PENDING_METRIC, Tags.empty(), this.pending);
+
+  }
+
+  /**
+   * Called when a message is sent through the event bus.
+   *
+   * @param context of the sent message.
+   */
+  public void outbound(final DeliveryContext<Object> context) {
+
+    final var message = context.message();
+    final var address = message.address();
+    if (address != null && !address.startsWith(REPLY_ADDRESS_PREFIX)) {
+
+      final var action = actionOf(message.headers().get(ACTION_HEADER));
+      Counter.builder(SENT_METRIC).tag("address", address).tag("action", action).register(this.registry).increment();
+      final var replyAddress = message.replyAddress();
+      if (replyAddress != null) {
+
+        final var request = new PendingRequest();
+        request.address = address;
+        request.action = action;
+        request.startTime = System.nanoTime();
+        this.pending.put(replyAddress, request);
+      }
+    }
+
+    context.next();
+
+  }
+
+  /**
+   * Called when a message is received from the event bus.
+   *
+   * @param context of the received message.
+   */
+  public void inbound(final DeliveryContext<Object> context) {
+
+    final var address = context.message().address();
+    if (address != null && address.startsWith(REPLY_ADDRESS_PREFIX)) {
+
+      final var request = this.pending.remove(address);
+      if (request != null) {
+
+        var outcome = "success";
+        final var body = context.body();
+        if (body instanceof ReplyException) {
+
+          outcome = outcomeOf(((ReplyException) body).failureType());
+        }
+        this.record(request, outcome, System.nanoTime());
+      }
+    }
+
+    context.next();
+
+  }
+
+  /**
+   * Remove the requests that have not been replied after the specified time, and mark them as timeout.
+   *
+   * @param timeout the maximum milliseconds to wait for a reply.
+   */
+  public void evictExpired(final long timeout) {
+
+    final var now = System.nanoTime();
+    final var limit = TimeUnit.MILLISECONDS.toNanos(timeout);
+    for (final var entry : this.pending.entrySet()) {
+
+      final var request = entry.getValue();
+      if (now - request.startTime > limit && this.pending.remove(entry.getKey(), request)) {
+
+        this.record(request, "timeout", now);
+      }
+    }
+
+  }
+
+  /**
+   * Record the time spent by a request.
+   *
+   * @param request that has finished.
+   * @param outcome of the request.
+   * @param endTime time when the request has finished.
+   */
+  protected void record(final PendingRequest request, final String outcome, final long endTime) {
+
+    Timer.builder(REQUESTS_METRIC).tag("address", request.address).tag("action", request.action)
+        .tag("outcome", outcome).register(this.registry).record(endTime - request.startTime, TimeUnit.NANOSECONDS);
+
+  }
+
+  /**
+   * Return the value to use as action tag.
+   *
+   * @param action of the message.
+   *
+   * @return the action or {@code none} if it is not defined.
+   */
+  protected static String actionOf(final String action) {
+
+    if (action == null) {
+
+      return "none";
+
+    } else {
+
+      return action;
+    }
+
+  }
+
+  /**
+   * Return the value to use as outcome tag of a failure.
+   *
+   * @param type of failure.
+   *
+   * @return the outcome associated to the failure.
+   */
+  protected static String outcomeOf(final ReplyFailure type) {
+
+    if (type == ReplyFailure.TIMEOUT) {
+
+      return "timeout";
+
+    } else if (type == ReplyFailure.NO_HANDLERS) {
+
+      return "no_handlers";
+
+    } else {
+
+      return "failure";
+    }
+
+  }
+
+}
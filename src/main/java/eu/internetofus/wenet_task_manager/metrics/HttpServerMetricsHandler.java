@@ -0,0 +1,221 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import eu.internetofus.wenet_task_manager.api.ServerTiming;
+import io.vertx.core.Handler;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.openapi.RouterBuilder;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Handler that measure the time spent to reply the HTTP requests received by the API. The latency histograms are
+ * keyed by the OpenAPI operation identifier and, if it is enabled, the {@link ServerTiming#HEADER} of the response is
+ * completed with the time spent on the validation and the total time.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class HttpServerMetricsHandler implements Handler<RoutingContext> {
+
+  /**
+   * The name of the timer with the time spent to reply a request.
+   */
+  public static final String REQUESTS_METRIC = "http.server.requests";
+
+  /**
+   * The name of the timer with the time spent to validate a request.
+   */
+  public static final String VALIDATION_METRIC = "http.server.validation";
+
+  /**
+   * The name of the gauge with the number of requests that are processing.
+   */
+  public static final String ACTIVE_METRIC = "http.server.active.requests";
+
+  /**
+   * The key of the context where is stored the identifier of the operation.
+   */
+  public static final String OPERATION_KEY = "metrics.operation";
+
+  /**
+   * The key of the context where is stored the time when the request has been received.
+   */
+  protected static final String START_TIME_KEY = "metrics.startTime";
+
+  /**
+   * The key of the context where is stored the time spent validating the request.
+   */
+  protected static final String VALIDATION_TIME_KEY = "metrics.validationTime";
+
+  /**
+   * The registry where the metrics are stored.
+   */
+  protected MeterRegistry registry;
+
+  /**
+   * The number of requests that are processing.
+   */
+  protected AtomicInteger active;
+
+  /**
+   * This is {@code true} if the {@link ServerTiming#HEADER} has to be returned to the client.
+   */
+  protected boolean serverTiming;
+
+  /**
+   * Create the handler.
+   *
+   * @param registry     where the metrics will be stored.
+   * @param serverTiming is {@code true} if the {@link ServerTiming#HEADER} has to be returned to the client.
+   */
+  public HttpServerMetricsHandler(final MeterRegistry registry, final boolean serverTiming) {
+
+    this.registry = registry;
+    this.serverTiming = serverTiming;
+    this.active = registry.gauge(ACTIVE_METRIC, new AtomicInteger());
+
+  }
+
+  /**
+   * Add the handlers to identify the operations and measure the validation time.
+   *
+   * @param routerFactory where the operations are defined.
+   */
+  public void registerOperations(final RouterBuilder routerFactory) {
+
+    for (final var operation : routerFactory.operations()) {
+
+      final var operationId = operation.getOperationId();
+      operation.handler(context -> this.validated(context, operationId));
+    }
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void handle(final RoutingContext context) {
+
+    final long startTime = System.nanoTime();
+    context.put(START_TIME_KEY, startTime);
+    this.active.incrementAndGet();
+    context.addHeadersEndHandler(any -> this.completeServerTiming(context, startTime));
+    context.addBodyEndHandler(any -> {
+
+      this.active.decrementAndGet();
+      Timer.builder(REQUESTS_METRIC).tag("method", context.request().method().name())
+          .tag("operation", this.operationOf(context))
+          .tag("status", String.valueOf(context.response().getStatusCode())).publishPercentileHistogram()
+          .register(this.registry).record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+
+    });
+    context.next();
+
+  }
+
+  /**
+   * Called when the request has been validated and before it is sent to the resource.
+   *
+   * @param context     of the request.
+   * @param operationId identifier of the validated operation.
+   */
+  protected void validated(final RoutingContext context, final String operationId) {
+
+    context.put(OPERATION_KEY, operationId);
+    final Long startTime = context.get(START_TIME_KEY);
+    if (startTime != null) {
+
+      final var validationTime = System.nanoTime() - startTime;
+      context.put(VALIDATION_TIME_KEY, validationTime);
+      Timer.builder(VALIDATION_METRIC).tag("operation", operationId).register(this.registry).record(validationTime,
+          TimeUnit.NANOSECONDS);
+    }
+    context.next();
+
+  }
+
+  /**
+   * Complete or remove the {@link ServerTiming#HEADER} of the response.
+   *
+   * @param context   of the request.
+   * @param startTime time when the request has been received.
+   */
+  protected void completeServerTiming(final RoutingContext context, final long startTime) {
+
+    final var headers = context.response().headers();
+    if (this.serverTiming) {
+
+      final var value = new StringBuilder();
+      final var resourceValue = headers.get(ServerTiming.HEADER);
+      if (resourceValue != null) {
+
+        value.append(resourceValue);
+      }
+      final Long validationTime = context.get(VALIDATION_TIME_KEY);
+      if (validationTime != null) {
+
+        ServerTiming.append(value, ServerTiming.VALIDATION, validationTime);
+      }
+      ServerTiming.append(value, ServerTiming.TOTAL, System.nanoTime() - startTime);
+      headers.set(ServerTiming.HEADER, value.toString());
+
+    } else {
+
+      headers.remove(ServerTiming.HEADER);
+    }
+
+  }
+
+  /**
+   * Return the value to use as operation tag. It is the identifier of the OpenAPI operation or, if the request does
+   * not match any operation, the path template of the route.
+   *
+   * @param context of the request.
+   *
+   * @return the operation tag of the request.
+   */
+  protected String operationOf(final RoutingContext context) {
+
+    final String operationId = context.get(OPERATION_KEY);
+    if (operationId != null) {
+
+      return operationId;
+    }
+
+    final var route = context.currentRoute();
+    if (route != null) {
+
+      final var path = route.getPath();
+      if (path != null) {
+
+        return path;
+      }
+    }
+
+    return "UNKNOWN";
+
+  }
+
+}
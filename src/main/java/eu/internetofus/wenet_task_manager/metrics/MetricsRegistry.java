@@ -0,0 +1,108 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.metrics;
+
+import io.micrometer.core.instrument.binder.jvm.ClassLoaderMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
+import io.micrometer.core.instrument.binder.system.UptimeMetrics;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+/**
+ * The registry where are stored all the metrics of the task manager. All the verticles of the component run on the
+ * same JVM, so the registry is shared between them and it is exported in the Prometheus text format by the
+ * {@link eu.internetofus.wenet_task_manager.api.metrics.Metrics} resource.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class MetricsRegistry {
+
+  /**
+   * The registry to use.
+   */
+  private static PrometheusMeterRegistry registry;
+
+  /**
+   * The metrics of the garbage collector. It is stored because it has to be closed when the registry is closed.
+   */
+  private static JvmGcMetrics gcMetrics;
+
+  /**
+   * Hide the constructor of an utility class.
+   */
+  private MetricsRegistry() {
+
+  }
+
+  /**
+   * Return the registry where the metrics are stored. The first time it is called the registry is created and the JVM
+   * metrics (GC, heap, threads, class loader, processor and uptime) are bound to it.
+   *
+   * @return the registry to store the metrics.
+   */
+  public static synchronized PrometheusMeterRegistry get() {
+
+    if (registry == null) {
+
+      registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+      gcMetrics = new JvmGcMetrics();
+      gcMetrics.bindTo(registry);
+      new JvmMemoryMetrics().bindTo(registry);
+      new JvmThreadMetrics().bindTo(registry);
+      new ClassLoaderMetrics().bindTo(registry);
+      new ProcessorMetrics().bindTo(registry);
+      new UptimeMetrics().bindTo(registry);
+
+    }
+    return registry;
+
+  }
+
+  /**
+   * Return the metrics in the Prometheus text exposition format.
+   *
+   * @return the current values of the metrics.
+   */
+  public static String scrape() {
+
+    return get().scrape();
+
+  }
+
+  /**
+   * Close the registry and release the associated resources.
+   */
+  public static synchronized void close() {
+
+    if (registry != null) {
+
+      gcMetrics.close();
+      gcMetrics = null;
+      registry.close();
+      registry = null;
+    }
+
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import java.util.concurrent.TimeUnit;
+import org.tinylog.Logger;
+
+/**
+ * The verticle that collects the metrics of the event bus and the event loops.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class MetricsVerticle extends AbstractVerticle {
+
+  /**
+   * The name of the timer with the delay to execute a task on an event loop.
+   */
+  public static final String EVENT_LOOP_LAG_METRIC = "vertx.eventloop.lag";
+
+  /**
+   * The timers that has been started.
+   */
+  protected long[] timers = {};
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void start(final Promise<Void> startPromise) throws Exception {
+
+    try {
+
+      final var conf = this.config().getJsonObject("metrics", new JsonObject());
+      final var registry = MetricsRegistry.get();
+
+      final var eventBusMetrics = new EventBusMetrics(registry);
+      final var eventBus = this.vertx.eventBus();
+      eventBus.addOutboundInterceptor(eventBusMetrics::outbound);
+      eventBus.addInboundInterceptor(eventBusMetrics::inbound);
+      final var replyTimeout = conf.getLong("eventBusReplyTimeout", 30000L);
+      final var evictTimer = this.vertx.setPeriodic(replyTimeout,
+          id -> eventBusMetrics.evictExpired(replyTimeout));
+
+      final var lagInterval = conf.getLong("eventLoopLagInterval", 1000L);
+      final var loops = this.vertx.nettyEventLoopGroup();
+      final var lagTimer = this.vertx.setPeriodic(lagInterval, id -> {
+
+        var index = 0;
+        for (final var loop : loops) {
+
+          final var lag = Timer.builder(EVENT_LOOP_LAG_METRIC).tag("loop", String.valueOf(index++)).register(registry);
+          final var submitTime = System.nanoTime();
+          loop.execute(() -> lag.record(System.nanoTime() - submitTime, TimeUnit.NANOSECONDS));
+        }
+
+      });
+      this.timers = new long[] { evictTimer, lagTimer };
+      startPromise.complete();
+
+    } catch (final Throwable cause) {
+
+      Logger.error(cause, "Cannot start the metrics");
+      startPromise.fail(cause);
+
+    }
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void stop() throws Exception {
+
+    for (final var timer : this.timers) {
+
+      this.vertx.cancelTimer(timer);
+    }
+    this.timers = new long[] {};
+
+  }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.Handler;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.impl.HttpContext;
+import io.vertx.ext.web.client.impl.WebClientInternal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interceptor that measure the time spent by the requests done to the other WeNet components.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class WebClientMetricsInterceptor implements Handler<HttpContext<?>> {
+
+  /**
+   * The name of the timer with the time spent on the requests.
+   */
+  public static final String REQUESTS_METRIC = "http.client.requests";
+
+  /**
+   * The key of the context where the start time is stored.
+   */
+  protected static final String START_TIME_KEY = "metrics.startTime";
+
+  /**
+   * The registry where the metrics are stored.
+   */
+  protected MeterRegistry registry;
+
+  /**
+   * Create the interceptor.
+   *
+   * @param registry where the metrics will be stored.
+   */
+  public WebClientMetricsInterceptor(final MeterRegistry registry) {
+
+    this.registry = registry;
+
+  }
+
+  /**
+   * Add the interceptor to a client, if it allows it.
+   *
+   * @param client to measure.
+   * @param registry where the metrics will be stored.
+   */
+  public static void instrument(final WebClient client, final MeterRegistry registry) {
+
+    if (client instanceof WebClientInternal) {
+
+      ((WebClientInternal) client).addInterceptor(new WebClientMetricsInterceptor(registry));
+    }
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void handle(final HttpContext<?> context) {
+
+    switch (context.phase()) {
+    case PREPARE_REQUEST:
+      context.set(START_TIME_KEY, System.nanoTime());
+      break;
+    case DISPATCH_RESPONSE:
+      this.record(context, String.valueOf(context.response().statusCode()));
+      break;
+    case FAILURE:
+      this.record(context, "error");
+      break;
+    default:
+      // Nothing to measure
+    }
+    context.next();
+
+  }
+
+  /**
+   * Record the time spent by a request.
+   *
+   * @param context of the request.
+   * @param status  of the response.
+   */
+  protected void record(final HttpContext<?> context, final String status) {
+
+    final Long startTime = context.get(START_TIME_KEY);
+    if (startTime != null) {
+
+      final var request = context.request();
+      var host = request.host();
+      if (host == null) {
+
+        host = "UNKNOWN";
+      }
+      Timer.builder(REQUESTS_METRIC).tag("method", request.method().name()).tag("host", host).tag("status", status)
+          .register(this.registry).record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+
+  }
+
+}
@@ -0,0 +1,265 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.Objects;
+
+/**
+ * Calculate the update that transforms a stored document into a new one, modifying only the fields that have
+ * changed. The embedded documents are compared field by field, the arrays with the same size element by element, and
+ * the arrays that only add elements at the end are extended with a {@code $push}, so the bytes written are
+ * proportional to the change and not to the size of the document.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class DocumentDiff {
+
+  /**
+   * Hide the constructor of an utility class.
+   */
+  private DocumentDiff() {
+
+  }
+
+  /**
+   * Calculate the update to transform a document into another.
+   *
+   * @param original document that is stored.
+   * @param changed  document to store.
+   *
+   * @return the update with the {@code $set}, {@code $unset} and {@code $push} operators to apply, that is empty if
+   *         the documents are equals.
+   */
+  public static JsonObject diff(final JsonObject original, final JsonObject changed) {
+
+    final var set = new JsonObject();
+    final var unset = new JsonObject();
+    final var push = new JsonObject();
+    diff("", original == null ? new JsonObject() : original, changed == null ? new JsonObject() : changed, set, unset,
+        push);
+    final var update = new JsonObject();
+    if (!set.isEmpty()) {
+
+      update.put("$set", set);
+    }
+    if (!unset.isEmpty()) {
+
+      update.put("$unset", unset);
+    }
+    if (!push.isEmpty()) {
+
+      update.put("$push", push);
+    }
+    return update;
+
+  }
+
+  /**
+   * Apply the fields of a {@code $set} over a document.
+   *
+   * @param document to modify.
+   * @param set      the values to set, with the path of the field as key.
+   *
+   * @return the modified document.
+   */
+  public static JsonObject applySet(final JsonObject document, final JsonObject set) {
+
+    for (final var path : set.fieldNames()) {
+
+      var parent = document;
+      final var fields = path.split("\\.");
+      for (var i = 0; i < fields.length - 1; i++) {
+
+        var child = parent.getValue(fields[i]);
+        if (!(child instanceof JsonObject)) {
+
+          child = new JsonObject();
+          parent.put(fields[i], child);
+        }
+        parent = (JsonObject) child;
+      }
+      parent.put(fields[fields.length - 1], set.getValue(path));
+    }
+    return document;
+
+  }
+
+  /**
+   * Add the changes between two embedded documents.
+   *
+   * @param prefix   of the path to the fields of the documents.
+   * @param original embedded document that is stored.
+   * @param changed  embedded document to store.
+   * @param set      the values of the modified fields.
+   * @param unset    the fields to remove.
+   * @param push     the elements to add at the end of the arrays.
+   */
+  private static void diff(final String prefix, final JsonObject original, final JsonObject changed,
+      final JsonObject set, final JsonObject unset, final JsonObject push) {
+
+    for (final var field : original.fieldNames()) {
+
+      if (original.getValue(field) != null && changed.getValue(field) == null) {
+
+        unset.put(prefix + field, "");
+      }
+    }
+    for (final var field : changed.fieldNames()) {
+
+      final var value = changed.getValue(field);
+      if (value != null) {
+
+        diffValue(prefix + field, original.getValue(field), value, set, unset, push);
+      }
+    }
+
+  }
+
+  /**
+   * Add the changes between two values of a field.
+   *
+   * @param path     to the field.
+   * @param original value that is stored.
+   * @param changed  value to store.
+   * @param set      the values of the modified fields.
+   * @param unset    the fields to remove.
+   * @param push     the elements to add at the end of the arrays.
+   */
+  private static void diffValue(final String path, final Object original, final Object changed, final JsonObject set,
+      final JsonObject unset, final JsonObject push) {
+
+    if (original instanceof JsonObject && changed instanceof JsonObject) {
+
+      diff(path + ".", (JsonObject) original, (JsonObject) changed, set, unset, push);
+
+    } else if (original instanceof JsonArray && changed instanceof JsonArray) {
+
+      diffArray(path, (JsonArray) original, (JsonArray) changed, set, unset, push);
+
+    } else if (!sameValue(original, changed)) {
+
+      set.put(path, changed);
+    }
+
+  }
+
+  /**
+   * Add the changes between two arrays.
+   *
+   * @param path     to the array.
+   * @param original array that is stored.
+   * @param changed  array to store.
+   * @param set      the values of the modified fields.
+   * @param unset    the fields to remove.
+   * @param push     the elements to add at the end of the arrays.
+   */
+  private static void diffArray(final String path, final JsonArray original, final JsonArray changed,
+      final JsonObject set, final JsonObject unset, final JsonObject push) {
+
+    final var originalSize = original.size();
+    final var changedSize = changed.size();
+    if (originalSize == changedSize) {
+
+      for (var i = 0; i < originalSize; i++) {
+
+        final var value = changed.getValue(i);
+        if (value == null) {
+
+          if (original.getValue(i) != null) {
+
+            set.putNull(path + "." + i);
+          }
+
+        } else {
+
+          diffValue(path + "." + i, original.getValue(i), value, set, unset, push);
+        }
+      }
+
+    } else if (originalSize < changedSize && isPrefix(original, changed)) {
+
+      final var added = new JsonArray();
+      for (var i = originalSize; i < changedSize; i++) {
+
+        added.add(changed.getValue(i));
+      }
+      push.put(path, new JsonObject().put("$each", added));
+
+    } else {
+
+      set.put(path, changed);
+    }
+
+  }
+
+  /**
+   * Check if an array starts with the elements of another.
+   *
+   * @param prefix elements that has to be at the start.
+   * @param array  to check.
+   *
+   * @return {@code true} if the array starts with the elements of the prefix.
+   */
+  private static boolean isPrefix(final JsonArray prefix, final JsonArray array) {
+
+    for (var i = 0; i < prefix.size(); i++) {
+
+      if (!sameValue(prefix.getValue(i), array.getValue(i))) {
+
+        return false;
+      }
+    }
+    return true;
+
+  }
+
+  /**
+   * Check if two values are equals, considering equals the numbers with the same value independently of their type.
+   *
+   * @param original value that is stored.
+   * @param changed  value to store.
+   *
+   * @return {@code true} if the values are equals.
+   */
+  private static boolean sameValue(final Object original, final Object changed) {
+
+    if (original instanceof Number && changed instanceof Number) {
+
+      if (original instanceof Double || original instanceof Float || changed instanceof Double
+          || changed instanceof Float) {
+
+        return ((Number) original).doubleValue() == ((Number) changed).doubleValue();
+
+      } else {
+
+        return ((Number) original).longValue() == ((Number) changed).longValue();
+      }
+
+    } else {
+
+      return Objects.equals(original, changed);
+    }
+
+  }
+
+}
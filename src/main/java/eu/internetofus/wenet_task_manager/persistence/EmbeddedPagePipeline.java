@@ -0,0 +1,695 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Build the aggregation pipeline that obtains a page of the transactions of the tasks, or of the messages defined on
+ * these transactions. Instead of unwinding all the transactions and messages of the matching tasks before filtering, it
+ * matches first the tasks, that can use the indexes of the collection, removes with {@code $filter} the transactions
+ * and messages that can not match before unwinding them, and sorts the tasks before unwinding when the order allows
+ * it.
+ *
+ * @see TasksRepositoryImpl#retrieveTaskTransactionsPage(JsonObject, JsonObject, int, int, String,
+ *      io.vertx.core.Handler)
+ * @see TasksRepositoryImpl#retrieveMessagesPage(JsonObject, JsonObject, int, int, String, io.vertx.core.Handler)
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class EmbeddedPagePipeline {
+
+  /**
+   * The field with the transactions of a task.
+   */
+  public static final String TRANSACTIONS = "transactions";
+
+  /**
+   * The field with the messages of a transaction.
+   */
+  public static final String MESSAGES = TRANSACTIONS + ".messages";
+
+  /**
+   * The field with the index of an unwound transaction.
+   */
+  public static final String TRANSACTIONS_INDEX = "transactionsIndex";
+
+  /**
+   * The field with the index of an unwound message.
+   */
+  public static final String MESSAGES_INDEX = "messagesIndex";
+
+  /**
+   * The maximum number of models that can be sorted on memory after unwinding them. If the page ends after this
+   * value the sort may need to use the disk.
+   */
+  public static final int MAX_IN_MEMORY_SORT = 10000;
+
+  /**
+   * The embedded field with the models of the page. It is {@link #TRANSACTIONS} or {@link #MESSAGES}.
+   */
+  protected String embedded;
+
+  /**
+   * The name of the field of the page with the models.
+   */
+  protected String models;
+
+  /**
+   * This is {@code true} if the pipeline has to count the total number of models.
+   */
+  protected boolean countTotal = true;
+
+  /**
+   * The maximum number of models to count, or {@code null} to count all of them.
+   */
+  protected Integer maxTotal;
+
+  /**
+   * The query over the full task documents.
+   */
+  protected JsonObject query;
+
+  /**
+   * The conditions that apply to the transactions.
+   */
+  protected JsonObject transactionQuery = new JsonObject();
+
+  /**
+   * The conditions that apply to the messages, when the models of the page are the messages.
+   */
+  protected JsonObject messageQuery = new JsonObject();
+
+  /**
+   * The conditions that can not be assigned to a level, because they are logical operators.
+   */
+  protected JsonObject operatorQuery = new JsonObject();
+
+  /**
+   * The order of the models.
+   */
+  protected JsonObject order;
+
+  /**
+   * The order of the tasks to use before unwinding, or {@code null} if the models have to be sorted after
+   * unwinding them.
+   */
+  protected JsonObject taskOrder;
+
+  /**
+   * The index of the first model to return.
+   */
+  protected int offset;
+
+  /**
+   * The maximum number of models to return.
+   */
+  protected int limit;
+
+  /**
+   * The order of the indexes that can be used to sort the tasks.
+   */
+  protected List<JsonObject> sortIndexes;
+
+  /**
+   * Create the pipeline.
+   *
+   * @param embedded    the field with the models of the page.
+   * @param models      name of the field of the page with the models.
+   * @param query       that has to satisfy the models.
+   * @param order       of the models to return.
+   * @param offset      index of the first model to return.
+   * @param limit       maximum number of models to return.
+   * @param sortIndexes keys of the indexes of the collection that can be used to sort the tasks.
+   */
+  protected EmbeddedPagePipeline(final String embedded, final String models, final JsonObject query,
+      final JsonObject order, final int offset, final int limit, final List<JsonObject> sortIndexes) {
+
+    this.embedded = embedded;
+    this.models = models;
+    this.query = query == null ? new JsonObject() : query;
+    this.order = order == null ? new JsonObject() : order;
+    this.offset = offset;
+    this.limit = limit;
+    this.sortIndexes = sortIndexes;
+    for (final var field : this.query.fieldNames()) {
+
+      final var condition = this.query.getValue(field);
+      if (field.startsWith("$")) {
+
+        this.operatorQuery.put(field, condition);
+
+      } else if (MESSAGES.equals(this.embedded) && field.startsWith(MESSAGES + ".")) {
+
+        this.messageQuery.put(field, condition);
+
+      } else if (field.startsWith(TRANSACTIONS + ".")) {
+
+        this.transactionQuery.put(field, condition);
+      }
+    }
+    this.taskOrder = this.createTaskOrder();
+
+  }
+
+  /**
+   * Create the pipeline to obtain a page of transactions.
+   *
+   * @param query       that has to satisfy the transactions.
+   * @param order       of the transactions to return.
+   * @param offset      index of the first transaction to return.
+   * @param limit       maximum number of transactions to return.
+   * @param sortIndexes keys of the indexes of the collection that can be used to sort the tasks.
+   *
+   * @return the pipeline to obtain the transactions.
+   */
+  public static EmbeddedPagePipeline forTransactions(final JsonObject query, final JsonObject order, final int offset,
+      final int limit, final List<JsonObject> sortIndexes) {
+
+    return new EmbeddedPagePipeline(TRANSACTIONS, "transactions", query, order, offset, limit, sortIndexes);
+
+  }
+
+  /**
+   * Create the pipeline to obtain a page of messages.
+   *
+   * @param query       that has to satisfy the messages.
+   * @param order       of the messages to return.
+   * @param offset      index of the first message to return.
+   * @param limit       maximum number of messages to return.
+   * @param sortIndexes keys of the indexes of the collection that can be used to sort the tasks.
+   *
+   * @return the pipeline to obtain the messages.
+   */
+  public static EmbeddedPagePipeline forMessages(final JsonObject query, final JsonObject order, final int offset,
+      final int limit, final List<JsonObject> sortIndexes) {
+
+    return new EmbeddedPagePipeline(MESSAGES, "messages", query, order, offset, limit, sortIndexes);
+
+  }
+
+  /**
+   * Return the name of the field of the page with the models.
+   *
+   * @return the name of the models.
+   */
+  public String getModels() {
+
+    return this.models;
+
+  }
+
+  /**
+   * Return the query that has to satisfy the models.
+   *
+   * @return the query of the page.
+   */
+  public JsonObject getQuery() {
+
+    return this.query;
+
+  }
+
+  /**
+   * Change the pipeline to not count the total number of models. In this case the page obtains one more model to know
+   * if there are more models after it.
+   *
+   * @return this pipeline.
+   */
+  public EmbeddedPagePipeline withoutTotal() {
+
+    this.countTotal = false;
+    return this;
+
+  }
+
+  /**
+   * Change the pipeline to stop counting when the total reaches a maximum.
+   *
+   * @param maxTotal maximum number of models to count.
+   *
+   * @return this pipeline.
+   */
+  public EmbeddedPagePipeline withMaxTotal(final int maxTotal) {
+
+    this.maxTotal = maxTotal;
+    return this;
+
+  }
+
+  /**
+   * Create a pipeline that obtains the models from the first one until the end of this page. It is used to obtain the
+   * page from some collections, because the models of each one has to be merged before skipping the offset.
+   *
+   * @return the pipeline to obtain the models until the end of the page.
+   */
+  public EmbeddedPagePipeline fromStart() {
+
+    final var pipeline = new EmbeddedPagePipeline(this.embedded, this.models, this.query, this.order, 0,
+        this.offset + this.limit, this.sortIndexes);
+    pipeline.countTotal = this.countTotal;
+    pipeline.maxTotal = this.maxTotal;
+    return pipeline;
+
+  }
+
+  /**
+   * Return the order that can be applied to the models of the page. It only contains the fields of the models that are
+   * at the start of the order, because the page does not contain the fields of the tasks.
+   *
+   * @return the order of the models.
+   */
+  public JsonObject getModelsOrder() {
+
+    final var modelsOrder = new JsonObject();
+    final var prefix = this.embedded + ".";
+    for (final var field : this.order.fieldNames()) {
+
+      if (!field.startsWith(prefix) || field.startsWith(prefix + "messages.")) {
+
+        break;
+      }
+      modelsOrder.put(field.substring(prefix.length()), this.order.getValue(field));
+    }
+    return modelsOrder;
+
+  }
+
+  /**
+   * Check if the pipeline counts the total number of models.
+   *
+   * @return {@code true} if the total is counted.
+   */
+  public boolean isCountingTotal() {
+
+    return this.countTotal;
+
+  }
+
+  /**
+   * Obtain the order to apply to the tasks before unwinding them. This is possible when the order starts with task
+   * fields and it can only finish with the ascending indexes of the unwound arrays, because the unwind stage maintains
+   * the order of the documents and the arrays.
+   *
+   * @return the order of the tasks or {@code null} if the models have to be sorted after unwinding them.
+   */
+  private JsonObject createTaskOrder() {
+
+    final var taskOrder = new JsonObject();
+    final var fields = new ArrayList<>(this.order.fieldNames());
+    var i = 0;
+    while (i < fields.size() && this.isTaskField(fields.get(i))) {
+
+      final var field = fields.get(i++);
+      taskOrder.put(field, this.order.getValue(field));
+    }
+    final var suffix = MESSAGES.equals(this.embedded) ? List.of(TRANSACTIONS_INDEX, MESSAGES_INDEX)
+        : List.of(TRANSACTIONS_INDEX);
+    for (var j = 0; i < fields.size(); i++, j++) {
+
+      final var field = fields.get(i);
+      if (j >= suffix.size() || !suffix.get(j).equals(field) || !taskOrder.containsKey("_id")
+          || !Integer.valueOf(1).equals(this.order.getInteger(field))) {
+
+        return null;
+      }
+    }
+    return taskOrder;
+
+  }
+
+  /**
+   * Check if a field is defined on the task and not on its transactions or messages.
+   *
+   * @param field to check.
+   *
+   * @return {@code true} if the field is of the task.
+   */
+  private boolean isTaskField(final String field) {
+
+    return !field.equals(TRANSACTIONS_INDEX) && !field.equals(MESSAGES_INDEX) && !field.equals(TRANSACTIONS)
+        && !field.startsWith(TRANSACTIONS + ".") && !field.startsWith("$");
+
+  }
+
+  /**
+   * Check if the tasks are sorted before unwinding the models.
+   *
+   * @return {@code true} if the sort is done before unwinding.
+   */
+  public boolean isSortedBeforeUnwind() {
+
+    return this.taskOrder != null;
+
+  }
+
+  /**
+   * Check if the aggregation may need to use the disk. This happens when the tasks has to be sorted without an index,
+   * or when the models have to be sorted and the page ends after {@link #MAX_IN_MEMORY_SORT}.
+   *
+   * @return {@code true} if the aggregation has to be allowed to use the disk.
+   */
+  public boolean needsDiskUse() {
+
+    if (this.isSortedBeforeUnwind()) {
+
+      return !this.taskOrder.isEmpty() && !this.isSortBackedByIndex();
+
+    } else {
+
+      return (long) this.offset + this.limit > MAX_IN_MEMORY_SORT;
+    }
+
+  }
+
+  /**
+   * Check if the task order is the prefix, in the same or the reverse direction, of one of the sort indexes.
+   *
+   * @return {@code true} if an index can provide the task order.
+   */
+  private boolean isSortBackedByIndex() {
+
+    final var fields = new ArrayList<>(this.taskOrder.fieldNames());
+    for (final var index : this.sortIndexes) {
+
+      final var indexFields = new ArrayList<>(index.fieldNames());
+      if (indexFields.size() >= fields.size() && indexFields.subList(0, fields.size()).equals(fields)) {
+
+        var same = true;
+        var reverse = true;
+        for (final var field : fields) {
+
+          final var direction = this.taskOrder.getValue(field);
+          same &= direction.equals(index.getValue(field));
+          reverse &= direction instanceof Number && index.getValue(field) instanceof Number
+              && ((Number) direction).intValue() == -((Number) index.getValue(field)).intValue();
+        }
+        if (same || reverse) {
+
+          return true;
+        }
+      }
+    }
+    return false;
+
+  }
+
+  /**
+   * Check if it is possible to remove the elements of an array before unwinding it without changing the order of the
+   * models. This happens when the order does not use the index of the array or when the index is only used to sort
+   * the elements of the same parent.
+   *
+   * @param indexField name of the index of the array.
+   * @param parents    the fields that identify the parent of the array that has to be before the index on the order.
+   *
+   * @return {@code true} if the array elements can be filtered.
+   */
+  private boolean canFilterBeforeUnwind(final String indexField, final String... parents) {
+
+    final var fields = new ArrayList<>(this.order.fieldNames());
+    final var index = fields.indexOf(indexField);
+    if (index < 0) {
+
+      return true;
+    }
+    for (final var parent : parents) {
+
+      final var parentIndex = fields.indexOf(parent);
+      if (parentIndex < 0 || parentIndex > index) {
+
+        return false;
+      }
+    }
+    return true;
+
+  }
+
+  /**
+   * Create the stages of the aggregation. When the total is counted, the page and the total are obtained with a
+   * {@code $facet}, otherwise the page is obtained without it, so the aggregation stops after the last model of the
+   * page, and the models are grouped into the result.
+   *
+   * @return the pipeline to obtain the page of models.
+   */
+  public JsonArray build() {
+
+    final var pipeline = new JsonArray();
+    pipeline.add(new JsonObject().put("$match", this.query));
+    if (this.isSortedBeforeUnwind() && !this.taskOrder.isEmpty()) {
+
+      pipeline.add(new JsonObject().put("$sort", this.taskOrder));
+    }
+    if (this.operatorQuery.isEmpty()) {
+
+      pipeline.add(new JsonObject().put("$project", this.createProjection()));
+    }
+
+    final var transactionsFilter = this.createFilter(TRANSACTIONS, "transaction", this.transactionQuery);
+    if (transactionsFilter != null && this.canFilterBeforeUnwind(TRANSACTIONS_INDEX, "_id")) {
+
+      pipeline.add(new JsonObject().put("$addFields", new JsonObject().put(TRANSACTIONS, transactionsFilter)));
+    }
+    pipeline.add(new JsonObject().put("$unwind",
+        new JsonObject().put("path", "$" + TRANSACTIONS).put("includeArrayIndex", TRANSACTIONS_INDEX)));
+    if (!this.transactionQuery.isEmpty()) {
+
+      pipeline.add(new JsonObject().put("$match", this.transactionQuery));
+    }
+
+    if (MESSAGES.equals(this.embedded)) {
+
+      final var messagesFilter = this.createFilter(MESSAGES, "message", this.messageQuery);
+      if (messagesFilter != null && this.canFilterBeforeUnwind(MESSAGES_INDEX, "_id", TRANSACTIONS_INDEX)) {
+
+        pipeline.add(new JsonObject().put("$addFields", new JsonObject().put(MESSAGES, messagesFilter)));
+      }
+      pipeline.add(new JsonObject().put("$unwind",
+          new JsonObject().put("path", "$" + MESSAGES).put("includeArrayIndex", MESSAGES_INDEX)));
+      if (!this.messageQuery.isEmpty()) {
+
+        pipeline.add(new JsonObject().put("$match", this.messageQuery));
+      }
+    }
+    if (!this.operatorQuery.isEmpty()) {
+
+      pipeline.add(new JsonObject().put("$match", this.operatorQuery));
+    }
+
+    final var page = new JsonArray();
+    if (!this.isSortedBeforeUnwind()) {
+
+      page.add(new JsonObject().put("$sort", this.order));
+    }
+    page.add(new JsonObject().put("$skip", this.offset));
+    page.add(new JsonObject().put("$limit", this.countTotal ? this.limit : this.limit + 1));
+    page.add(new JsonObject().put("$replaceRoot", new JsonObject().put("newRoot", "$" + this.embedded)));
+    if (this.countTotal) {
+
+      final var total = new JsonArray();
+      if (this.maxTotal != null) {
+
+        total.add(new JsonObject().put("$limit", this.maxTotal));
+      }
+      total.add(new JsonObject().put("$count", "count"));
+      pipeline.add(new JsonObject().put("$facet", new JsonObject().put("total", total).put(this.models, page)));
+
+    } else {
+
+      pipeline.addAll(page);
+      pipeline.add(new JsonObject().put("$group",
+          new JsonObject().putNull("_id").put(this.models, new JsonObject().put("$push", "$$ROOT"))));
+    }
+
+    return pipeline;
+
+  }
+
+  /**
+   * Create the projection of the fields that are necessary after matching the tasks. Thus the unwound documents only
+   * contains the models and the fields that are used to filter or sort them.
+   *
+   * @return the projection to apply to the tasks.
+   */
+  private JsonObject createProjection() {
+
+    final var projection = new JsonObject().put(this.embedded, 1);
+    final var fields = new ArrayList<>(this.transactionQuery.fieldNames());
+    if (!this.isSortedBeforeUnwind()) {
+
+      fields.addAll(this.order.fieldNames());
+    }
+    for (final var field : fields) {
+
+      if (!field.equals(TRANSACTIONS_INDEX) && !field.equals(MESSAGES_INDEX) && !field.equals(this.embedded)
+          && !field.startsWith(this.embedded + ".")) {
+
+        projection.put(field, 1);
+      }
+    }
+    return projection;
+
+  }
+
+  /**
+   * Create the expression to remove the elements of an array that can not satisfy the conditions. It only uses the
+   * conditions that can be converted to an expression, because the unwound elements are matched again with all the
+   * conditions.
+   *
+   * @param arrayField the field with the array to filter.
+   * @param variable   name of the variable of the elements of the array.
+   * @param conditions to satisfy by the elements of the array.
+   *
+   * @return the filter expression or {@code null} if none of the conditions can be converted to an expression.
+   */
+  protected JsonObject createFilter(final String arrayField, final String variable, final JsonObject conditions) {
+
+    final var expressions = new JsonArray();
+    for (final var field : conditions.fieldNames()) {
+
+      final var name = field.substring(arrayField.length() + 1);
+      if (!name.contains(".") && !name.startsWith("$")) {
+
+        final var expression = toExpression("$$" + variable + "." + name, conditions.getValue(field));
+        if (expression != null) {
+
+          expressions.add(expression);
+        }
+      }
+    }
+    if (expressions.isEmpty()) {
+
+      return null;
+
+    } else {
+
+      return new JsonObject().put("$filter", new JsonObject().put("input", "$" + arrayField).put("as", variable)
+          .put("cond", new JsonObject().put("$and", expressions)));
+    }
+
+  }
+
+  /**
+   * Convert a query condition over a scalar field into an aggregation expression.
+   *
+   * @param field     reference to the field on the expression.
+   * @param condition of the query.
+   *
+   * @return the expression or {@code null} if the condition can not be converted.
+   */
+  static JsonObject toExpression(final String field, final Object condition) {
+
+    if (condition instanceof String || condition instanceof Number || condition instanceof Boolean) {
+
+      return new JsonObject().put("$eq", new JsonArray().add(field).add(condition));
+
+    } else if (condition instanceof JsonObject) {
+
+      final var operators = (JsonObject) condition;
+      final var expressions = new JsonArray();
+      for (final var operator : operators.fieldNames()) {
+
+        final var value = operators.getValue(operator);
+        switch (operator) {
+        case "$eq":
+        case "$gt":
+        case "$gte":
+        case "$lt":
+        case "$lte":
+          if (!(value instanceof Number || value instanceof String)) {
+
+            return null;
+          }
+          expressions.add(new JsonObject().put(operator, new JsonArray().add(field).add(value)));
+          break;
+        case "$regex":
+          final var regex = new JsonObject().put("input", field).put("regex", value);
+          final var options = operators.getString("$options");
+          if (options != null) {
+
+            regex.put("options", options);
+          }
+          expressions.add(new JsonObject().put("$eq",
+              new JsonArray().add(new JsonObject().put("$type", field)).add("string")));
+          expressions.add(new JsonObject().put("$regexMatch", regex));
+          break;
+        case "$options":
+          break;
+        default:
+          return null;
+        }
+      }
+      if (expressions.isEmpty()) {
+
+        return null;
+
+      } else if (expressions.size() == 1) {
+
+        return expressions.getJsonObject(0);
+
+      } else {
+
+        return new JsonObject().put("$and", expressions);
+      }
+
+    } else {
+
+      return null;
+    }
+
+  }
+
+  /**
+   * Convert the result of the aggregation to the page of models. If the total is not counted, it is the index after
+   * the last model of the page, plus one if there are more models after the page. The result can have the totals of
+   * some collections, that are summed, and the page is marked as capped if any of them reaches the maximum total.
+   *
+   * @param result of the aggregation or {@code null} if it has not returned any document.
+   *
+   * @return the page with the found models.
+   */
+  public JsonObject toPage(final JsonObject result) {
+
+    final var found = new ArrayList<JsonObject>();
+    Long total = this.countTotal ? 0L : null;
+    var capped = false;
+    if (result != null) {
+
+      final var counted = result.getJsonArray("total", new JsonArray());
+      for (var i = 0; this.countTotal && i < counted.size(); i++) {
+
+        final var count = counted.getJsonObject(i).getLong("count", 0L);
+        total += count;
+        capped |= this.maxTotal != null && count >= this.maxTotal;
+      }
+      final var models = result.getJsonArray(this.models, new JsonArray());
+      for (var i = 0; i < models.size(); i++) {
+
+        found.add(models.getJsonObject(i));
+      }
+    }
+    return PageTotals.markCapped(PageTotals.toPage(this.offset, this.limit, this.models, found, total), capped);
+
+  }
+
+}
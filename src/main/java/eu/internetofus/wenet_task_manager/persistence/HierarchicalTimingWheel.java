@@ -0,0 +1,330 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel to schedule a big number of timeouts with a constant cost. Each level of the wheel has
+ * the same number of buckets, and each bucket of a level covers all the buckets of the level below it. The timeouts
+ * are stored on the lowest level that covers them, and they are moved to the lower levels when the time reaches their
+ * bucket, so the timeouts are never sorted and it is not necessary a timer for each one.
+ *
+ * @param <T> type of the items to schedule.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class HierarchicalTimingWheel<T> {
+
+  /**
+   * The maximum number of levels of the wheel. The timeouts after the time covered by them, or by the levels that do
+   * not overflow the time, are stored on the last bucket of the top level, and they are rescheduled when the time
+   * reaches it.
+   */
+  public static final int MAX_LEVELS = 8;
+
+  /**
+   * A scheduled timeout.
+   *
+   * @param <T> type of the scheduled item.
+   */
+  public static class Timeout<T> {
+
+    /**
+     * The scheduled item.
+     */
+    protected final T item;
+
+    /**
+     * The time when the timeout expires.
+     */
+    protected final long expiration;
+
+    /**
+     * This is {@code true} if the timeout has been cancelled.
+     */
+    protected boolean cancelled;
+
+    /**
+     * Create a timeout.
+     *
+     * @param item       that is scheduled.
+     * @param expiration time when the timeout expires.
+     */
+    protected Timeout(final T item, final long expiration) {
+
+      this.item = item;
+      this.expiration = expiration;
+
+    }
+
+    /**
+     * Return the scheduled item.
+     *
+     * @return the item of the timeout.
+     */
+    public T getItem() {
+
+      return this.item;
+    }
+
+    /**
+     * Return the time when the timeout expires.
+     *
+     * @return the expiration time.
+     */
+    public long getExpiration() {
+
+      return this.expiration;
+    }
+
+    /**
+     * Cancel the timeout, so it will not expire.
+     */
+    public void cancel() {
+
+      this.cancelled = true;
+
+    }
+
+    /**
+     * Check if the timeout has been cancelled.
+     *
+     * @return {@code true} if the timeout is cancelled.
+     */
+    public boolean isCancelled() {
+
+      return this.cancelled;
+    }
+
+  }
+
+  /**
+   * The duration of the buckets of the lowest level.
+   */
+  protected long tick;
+
+  /**
+   * The number of buckets of each level.
+   */
+  protected int wheelSize;
+
+  /**
+   * The time of the current bucket of the lowest level.
+   */
+  protected long currentTime;
+
+  /**
+   * The buckets of each level, from the lowest to the highest.
+   */
+  protected List<ArrayDeque<Timeout<T>>[]> levels = new ArrayList<>();
+
+  /**
+   * The timeouts that have to expire on the next advance.
+   */
+  protected ArrayDeque<Timeout<T>> due = new ArrayDeque<>();
+
+  /**
+   * The number of timeouts that are on the wheel.
+   */
+  protected int size;
+
+  /**
+   * Create a wheel.
+   *
+   * @param tick      duration of the buckets of the lowest level.
+   * @param wheelSize number of buckets of each level.
+   * @param startTime initial time of the wheel.
+   */
+  public HierarchicalTimingWheel(final long tick, final int wheelSize, final long startTime) {
+
+    this.wheelSize = Math.max(2, wheelSize);
+    this.tick = Math.min(Math.max(1L, tick), Long.MAX_VALUE / (4L * this.wheelSize));
+    this.currentTime = startTime - Math.floorMod(startTime, this.tick);
+
+  }
+
+  /**
+   * Return the time of the current bucket of the lowest level.
+   *
+   * @return the current time of the wheel.
+   */
+  public long getCurrentTime() {
+
+    return this.currentTime;
+  }
+
+  /**
+   * Return the number of timeouts that are on the wheel, including the cancelled ones that have not reached their
+   * bucket.
+   *
+   * @return the number of timeouts on the wheel.
+   */
+  public int size() {
+
+    return this.size;
+  }
+
+  /**
+   * Schedule an item. The timeouts that are already expired will expire on the next advance.
+   *
+   * @param item       to schedule.
+   * @param expiration time when the item expires.
+   *
+   * @return the scheduled timeout.
+   */
+  public Timeout<T> schedule(final T item, final long expiration) {
+
+    final var timeout = new Timeout<>(item, expiration);
+    this.place(timeout);
+    this.size++;
+    return timeout;
+
+  }
+
+  /**
+   * Store a timeout on the lowest level that covers it.
+   *
+   * @param timeout to store.
+   */
+  protected void place(final Timeout<T> timeout) {
+
+    final var expiration = timeout.expiration;
+    if (expiration < this.currentTime + this.tick) {
+
+      this.due.addLast(timeout);
+      return;
+    }
+    var levelTick = this.tick;
+    for (var level = 0; level < MAX_LEVELS; level++) {
+
+      final var base = this.currentTime - Math.floorMod(this.currentTime, levelTick);
+      final var interval = levelTick * this.wheelSize;
+      final var top = level == MAX_LEVELS - 1 || interval > Long.MAX_VALUE / (4L * this.wheelSize);
+      if (expiration - base < interval || top) {
+
+        final var bucketTime = Math.min(expiration, base + interval - 1);
+        this.bucketsOf(level)[Math.floorMod(Math.floorDiv(bucketTime, levelTick), this.wheelSize)]
+            .addLast(timeout);
+        return;
+      }
+      levelTick = interval;
+    }
+
+  }
+
+  /**
+   * Obtain the buckets of a level, creating them if they are not defined.
+   *
+   * @param level to obtain the buckets.
+   *
+   * @return the buckets of the level.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  protected ArrayDeque<Timeout<T>>[] bucketsOf(final int level) {
+
+    while (this.levels.size() <= level) {
+
+      final ArrayDeque<Timeout<T>>[] buckets = new ArrayDeque[this.wheelSize];
+      for (var i = 0; i < buckets.length; i++) {
+
+        buckets[i] = new ArrayDeque<>();
+      }
+      this.levels.add(buckets);
+    }
+    return this.levels.get(level);
+
+  }
+
+  /**
+   * Advance the wheel until a time, and expire the timeouts that have been reached.
+   *
+   * @param now     time to advance the wheel.
+   * @param expired handler of the expired items.
+   */
+  public void advance(final long now, final Consumer<Timeout<T>> expired) {
+
+    this.expireDue(expired);
+    if (this.size == 0) {
+
+      this.currentTime = Math.max(this.currentTime, now - Math.floorMod(now, this.tick));
+      return;
+    }
+    while (this.currentTime + this.tick <= now) {
+
+      this.currentTime += this.tick;
+      var levelTick = this.tick;
+      for (var level = 1; level < this.levels.size(); level++) {
+
+        levelTick *= this.wheelSize;
+        if (Math.floorMod(this.currentTime, levelTick) != 0) {
+
+          break;
+        }
+        final var bucket = this.levels.get(level)[Math.floorMod(Math.floorDiv(this.currentTime, levelTick),
+            this.wheelSize)];
+        while (!bucket.isEmpty()) {
+
+          final var timeout = bucket.removeFirst();
+          if (timeout.cancelled) {
+
+            this.size--;
+
+          } else {
+
+            this.place(timeout);
+          }
+        }
+      }
+      final var bucket = this.levels.isEmpty() ? null
+          : this.levels.get(0)[Math.floorMod(Math.floorDiv(this.currentTime, this.tick), this.wheelSize)];
+      while (bucket != null && !bucket.isEmpty()) {
+
+        this.due.addLast(bucket.removeFirst());
+      }
+      this.expireDue(expired);
+    }
+
+  }
+
+  /**
+   * Expire the timeouts that are due.
+   *
+   * @param expired handler of the expired items.
+   */
+  protected void expireDue(final Consumer<Timeout<T>> expired) {
+
+    while (!this.due.isEmpty()) {
+
+      final var timeout = this.due.removeFirst();
+      this.size--;
+      if (!timeout.cancelled) {
+
+        expired.accept(timeout);
+      }
+    }
+
+  }
+
+}
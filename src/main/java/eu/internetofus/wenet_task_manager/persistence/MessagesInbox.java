@@ -0,0 +1,808 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.IndexModel;
+import io.vertx.ext.mongo.IndexOptions;
+import io.vertx.ext.mongo.MongoClient;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import org.tinylog.Logger;
+
+/**
+ * Maintain a denormalised collection with a document for each message of the tasks. It allows to obtain the messages
+ * received by an user with an indexed find instead of an aggregation over all the tasks.
+ *
+ * @see TasksRepositoryImpl
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class MessagesInbox {
+
+  /**
+   * The name of the collection that contains the messages.
+   */
+  public static final String MESSAGES_COLLECTION = "messages";
+
+  /**
+   * The fields of a message.
+   */
+  public static final List<String> MESSAGE_FIELDS = List.of("appId", "receiverId", "label", "attributes");
+
+  /**
+   * The order of the messages on the inbox, from the newest to the oldest.
+   */
+  public static final JsonObject ORDER = new JsonObject().put("_creationTs", -1).put("_id", -1);
+
+  /**
+   * The maximum number of messages to insert at once.
+   */
+  public static final int BULK_SIZE = 1000;
+
+  /**
+   * The separator of the parts of the identifier of an entry.
+   */
+  public static final String ID_SEPARATOR = ":";
+
+  /**
+   * The name of the migration that fills the inbox with the messages of the stored tasks.
+   */
+  public static final String FILL_MIGRATION = MESSAGES_COLLECTION + ".fill";
+
+  /**
+   * The pool of database connections.
+   */
+  protected MongoClient pool;
+
+  /**
+   * The partitions where the tasks are stored.
+   */
+  protected TaskPartitions partitions;
+
+  /**
+   * Create the inbox.
+   *
+   * @param pool       of database connections.
+   * @param partitions where the tasks are stored.
+   */
+  public MessagesInbox(final MongoClient pool, final TaskPartitions partitions) {
+
+    this.pool = pool;
+    this.partitions = partitions;
+
+  }
+
+  /**
+   * Create the indexes of the collection, fill it with the messages of the tasks if it has not been filled, and do the
+   * repairs of the updates that have failed.
+   *
+   * @return the future that will inform if the collection is ready or not.
+   *
+   * @see MigrationMarkers
+   */
+  public Future<Void> migrate() {
+
+    final var indexes = new ArrayList<IndexModel>();
+    indexes.add(new IndexModel(new JsonObject().put("receiverId", 1).put("_creationTs", -1).put("_id", -1),
+        new IndexOptions().background(true)));
+    indexes.add(new IndexModel(new JsonObject().put("receiverId", 1).put("appId", 1).put("_creationTs", -1)
+        .put("_id", -1), new IndexOptions().background(true)));
+    indexes.add(new IndexModel(new JsonObject().put("taskId", 1), new IndexOptions().background(true)));
+    indexes.add(
+        new IndexModel(new JsonObject().put("transactionActioneerId", 1), new IndexOptions().background(true)));
+    return this.pool.createIndexes(MESSAGES_COLLECTION, indexes)
+        .compose(empty -> MigrationMarkers.start(this.pool, FILL_MIGRATION)).compose(marker -> {
+
+          final var filled = MigrationMarkers.isCompleted(marker) ? Future.<Void>succeededFuture() : this.fill(marker);
+          return filled.compose(empty -> this.repair(marker.getJsonArray(MigrationMarkers.PENDING, new JsonArray())));
+        });
+
+  }
+
+  /**
+   * Add into the inbox the messages of the tasks of all the collections, including the archive, that have not been
+   * filled on a previous start.
+   *
+   * @param marker of the fill migration.
+   *
+   * @return the future that will inform when all the messages are added.
+   */
+  protected Future<Void> fill(final JsonObject marker) {
+
+    final var collections = new ArrayList<>(this.partitions.getCollections());
+    collections.add(TaskArchive.ARCHIVE_COLLECTION);
+    var future = Future.<Void>succeededFuture();
+    for (final var collection : collections) {
+
+      if (!MigrationMarkers.isStepDone(marker, collection)) {
+
+        future = future.compose(empty -> this.fillFrom(collection))
+            .compose(empty -> MigrationMarkers.doneStep(this.pool, FILL_MIGRATION, collection));
+      }
+    }
+    return future.compose(empty -> MigrationMarkers.complete(this.pool, FILL_MIGRATION));
+
+  }
+
+  /**
+   * Add into the inbox the messages of all the tasks of a collection. The entries are upserted by their identifier, so
+   * the messages that are already on the inbox are not duplicated, and the entries of the task that have been created
+   * with a random identifier, by a previous version, are removed.
+   *
+   * @param tasksCollection name of the collection with the tasks.
+   *
+   * @return the future that will inform when all the messages are added.
+   */
+  protected Future<Void> fillFrom(final String tasksCollection) {
+
+    final Promise<Void> promise = Promise.promise();
+    final var query = new JsonObject().put("$or",
+        new JsonArray().add(new JsonObject().put("transactions.messages.0", new JsonObject().put("$exists", true)))
+            .add(new JsonObject().put(TaskArchive.COMPRESSED_TRANSACTIONS, new JsonObject().put("$exists", true))));
+    final var options = new FindOptions()
+        .setFields(new JsonObject().put("transactions", 1).put(TaskArchive.COMPRESSED_TRANSACTIONS, 1));
+    final var batch = this.pool.findBatchWithOptions(tasksCollection, query, options);
+    batch.handler(task -> {
+
+      final var taskId = task.getString("_id");
+      final var entries = toEntries(taskId, TaskArchive.fromArchived(task), new HashMap<>());
+      if (!entries.isEmpty()) {
+
+        batch.pause();
+        final var legacy = new JsonObject().put("taskId", taskId).put("_id",
+            new JsonObject().put("$not", new JsonObject().put("$regex", ID_SEPARATOR)));
+        this.pool.removeDocuments(MESSAGES_COLLECTION, legacy).compose(removed -> this.insert(entries))
+            .onComplete(inserted -> {
+
+              if (inserted.failed()) {
+
+                promise.tryFail(inserted.cause());
+
+              } else {
+
+                batch.resume();
+              }
+            });
+      }
+    });
+    batch.endHandler(end -> promise.tryComplete());
+    batch.exceptionHandler(promise::tryFail);
+    return promise.future();
+
+  }
+
+  /**
+   * Do the repairs of the updates of the inbox that have failed.
+   *
+   * @param pending the repairs to do.
+   *
+   * @return the future that will inform when the repairs are done. It always succeeds, the repairs that fail are
+   *         maintained to try them the next time.
+   *
+   * @see #repairOnFailure(Future, JsonObject)
+   */
+  protected Future<Void> repair(final JsonArray pending) {
+
+    var future = Future.<Void>succeededFuture();
+    for (var i = 0; i < pending.size(); i++) {
+
+      final var repair = pending.getValue(i);
+      if (repair instanceof JsonObject) {
+
+        future = future.compose(empty -> this.repair((JsonObject) repair)
+            .compose(repaired -> MigrationMarkers.removePending(this.pool, FILL_MIGRATION, (JsonObject) repair))
+            .otherwise(cause -> {
+
+              Logger.warn(cause, "Cannot repair the messages inbox for {}", repair);
+              return null;
+            }));
+      }
+    }
+    return future;
+
+  }
+
+  /**
+   * Do a repair over the inbox. If the repair has a task identifier the entries of the task are synchronized with the
+   * stored task, or removed if the task does not exist. If the repair has a receiver identifier the tasks with entries
+   * of the receiver are synchronized. Otherwise the entries that match the query of the repair are removed.
+   *
+   * @param repair to do.
+   *
+   * @return the future that will inform when the repair is done.
+   */
+  protected Future<Void> repair(final JsonObject repair) {
+
+    final var taskId = repair.getString("taskId");
+    final var receiverId = repair.getString("receiverId");
+    if (receiverId != null) {
+
+      return this.synchronizeReceiver(receiverId);
+
+    } else if (taskId != null) {
+
+      return this.findTask(taskId).compose(task -> {
+
+        if (task == null) {
+
+          return this.pool.removeDocuments(MESSAGES_COLLECTION, new JsonObject().put("taskId", taskId)).mapEmpty();
+
+        } else {
+
+          return this.synchronize(taskId, task);
+        }
+      });
+
+    } else {
+
+      return this.pool.removeDocuments(MESSAGES_COLLECTION, repair.getJsonObject("remove", new JsonObject()))
+          .mapEmpty();
+    }
+
+  }
+
+  /**
+   * Search for the transactions of a task on its partition or on the archive.
+   *
+   * @param taskId identifier of the task.
+   *
+   * @return the future task with its transactions, or {@code null} if it is not stored.
+   */
+  protected Future<JsonObject> findTask(final String taskId) {
+
+    final var query = new JsonObject().put("_id", taskId);
+    final var fields = new JsonObject().put("transactions", 1).put(TaskArchive.COMPRESSED_TRANSACTIONS, 1);
+    return this.partitions.resolve(taskId).compose(collection -> this.pool.findOne(collection, query, fields))
+        .compose(task -> {
+
+          if (task != null) {
+
+            return Future.succeededFuture(task);
+
+          } else {
+
+            return this.pool.findOne(TaskArchive.ARCHIVE_COLLECTION, query, fields)
+                .map(archived -> archived == null ? null : TaskArchive.fromArchived(archived));
+          }
+        });
+
+  }
+
+  /**
+   * Create the inbox entries of the messages of a task.
+   *
+   * @param taskId       identifier of the task.
+   * @param task         with the messages.
+   * @param creationTses the time stamps of the previous entries of the task by key, to maintain them.
+   *
+   * @return the entries of the messages of the task.
+   *
+   * @see #keyOf(JsonObject)
+   */
+  static List<JsonObject> toEntries(final String taskId, final JsonObject task,
+      final HashMap<String, List<Long>> creationTses) {
+
+    final var entries = new ArrayList<JsonObject>();
+    final var transactions = task.getJsonArray("transactions");
+    for (var i = 0; transactions != null && i < transactions.size(); i++) {
+
+      final var transaction = transactions.getValue(i);
+      if (transaction instanceof JsonObject) {
+
+        final var messages = ((JsonObject) transaction).getJsonArray("messages");
+        for (var j = 0; messages != null && j < messages.size(); j++) {
+
+          final var message = messages.getValue(j);
+          if (message instanceof JsonObject) {
+
+            final var entry = toEntry(taskId, (JsonObject) transaction, (JsonObject) message, j,
+                ((JsonObject) transaction).getLong("_creationTs", 0L));
+            final var previous = creationTses.get(keyOf(entry));
+            if (previous != null && !previous.isEmpty()) {
+
+              entry.put("_creationTs", previous.remove(0));
+            }
+            entries.add(entry);
+          }
+        }
+      }
+    }
+    return entries;
+
+  }
+
+  /**
+   * Create the inbox entry of a message. The identifier of the entry is obtained from the position of the message on
+   * the task, thus the same message has always the same entry.
+   *
+   * @param taskId      identifier of the task of the message.
+   * @param transaction where the message is defined.
+   * @param message     to add to the inbox.
+   * @param index       of the message on the messages of the transaction.
+   * @param creationTs  the time when the message has been added.
+   *
+   * @return the entry of the message.
+   *
+   * @see #idOf(String, Object, int)
+   */
+  static JsonObject toEntry(final String taskId, final JsonObject transaction, final JsonObject message,
+      final int index, final long creationTs) {
+
+    final var transactionId = transaction.getValue("id");
+    final var entry = new JsonObject().put("_id", idOf(taskId, transactionId, index)).put("taskId", taskId)
+        .put("transactionId", transactionId).put("transactionActioneerId", transaction.getValue("actioneerId"));
+    for (final var field : MESSAGE_FIELDS) {
+
+      final var value = message.getValue(field);
+      if (value != null) {
+
+        entry.put(field, value);
+      }
+    }
+    return entry.put("_creationTs", creationTs);
+
+  }
+
+  /**
+   * Obtain the identifier of the entry of a message.
+   *
+   * @param taskId        identifier of the task of the message.
+   * @param transactionId identifier of the transaction of the message.
+   * @param index         of the message on the messages of the transaction.
+   *
+   * @return the identifier of the entry.
+   */
+  static String idOf(final String taskId, final Object transactionId, final int index) {
+
+    return taskId + ID_SEPARATOR + transactionId + ID_SEPARATOR + index;
+
+  }
+
+  /**
+   * Obtain the key that identify the content of an entry, ignoring its identifier and creation time.
+   *
+   * @param entry to get the key.
+   *
+   * @return the key of the entry.
+   */
+  static String keyOf(final JsonObject entry) {
+
+    final var key = new JsonArray().add(entry.getValue("transactionId")).add(entry.getValue("transactionActioneerId"));
+    for (final var field : MESSAGE_FIELDS) {
+
+      key.add(entry.getValue(field));
+    }
+    return key.encode();
+
+  }
+
+  /**
+   * Insert some entries on the inbox. The entries are upserted by their identifier, thus an entry that already exist
+   * is not modified.
+   *
+   * @param entries to insert.
+   *
+   * @return the future that will inform when the entries are inserted.
+   */
+  protected Future<Void> insert(final List<JsonObject> entries) {
+
+    var future = Future.<Void>succeededFuture();
+    for (var start = 0; start < entries.size(); start += BULK_SIZE) {
+
+      final var operations = new ArrayList<BulkOperation>();
+      for (final var entry : entries.subList(start, Math.min(entries.size(), start + BULK_SIZE))) {
+
+        final var fields = entry.copy();
+        final var filter = new JsonObject().put("_id", fields.remove("_id"));
+        operations.add(BulkOperation.createUpdate(filter, new JsonObject().put("$setOnInsert", fields), true, false));
+      }
+      future = future.compose(empty -> this.pool.bulkWrite(MESSAGES_COLLECTION, operations).mapEmpty());
+    }
+    return future;
+
+  }
+
+  /**
+   * Store the repair to do when the inbox can not be updated. The inbox is a copy of the tasks, so the modification of
+   * the task is not undone, and the repair is done the next time that the inbox is migrated.
+   *
+   * @param future of the inbox update.
+   * @param repair to do if the update fails.
+   *
+   * @return a future that always succeed.
+   *
+   * @see #repair(JsonObject)
+   */
+  protected Future<Void> repairOnFailure(final Future<Void> future, final JsonObject repair) {
+
+    return future.recover(cause -> {
+
+      Logger.warn(cause, "Cannot update the messages inbox, {} will be repaired on the next start", repair);
+      return MigrationMarkers.addPending(this.pool, FILL_MIGRATION, repair);
+
+    }).otherwise(cause -> {
+
+      Logger.error(cause, "Cannot store the repair {} of the messages inbox", repair);
+      return null;
+
+    });
+
+  }
+
+  /**
+   * Create the repair that synchronize the entries of a task.
+   *
+   * @param taskId identifier of the task.
+   *
+   * @return the repair of the task.
+   */
+  static JsonObject repairTask(final String taskId) {
+
+    return new JsonObject().put("taskId", taskId);
+
+  }
+
+  /**
+   * Create the repair that synchronize the tasks with entries of a receiver.
+   *
+   * @param receiverId identifier of the receiver.
+   *
+   * @return the repair of the receiver.
+   */
+  static JsonObject repairReceiver(final String receiverId) {
+
+    return new JsonObject().put("receiverId", receiverId);
+
+  }
+
+  /**
+   * Add a message into the inbox.
+   *
+   * @param taskId      identifier of the task where the message is added.
+   * @param transaction where the message is added, as it was before adding the message.
+   * @param message     that has been added.
+   * @param now         the time when the message has been added.
+   *
+   * @return the future that will inform when the inbox is updated.
+   */
+  public Future<Void> addMessage(final String taskId, final JsonObject transaction, final JsonObject message,
+      final long now) {
+
+    final var index = transaction.getJsonArray("messages", new JsonArray()).size();
+    final var entry = toEntry(taskId, transaction, message, index, now);
+    return this.repairOnFailure(this.insert(List.of(entry)), repairTask(taskId));
+
+  }
+
+  /**
+   * Add the messages of a new task.
+   *
+   * @param taskId identifier of the stored task.
+   * @param task   that has been stored.
+   *
+   * @return the future that will inform when the inbox is updated.
+   */
+  public Future<Void> addTask(final String taskId, final JsonObject task) {
+
+    return this.repairOnFailure(this.insert(toEntries(taskId, task, new HashMap<>())), repairTask(taskId));
+
+  }
+
+  /**
+   * Update the messages of a task. The inbox is not modified if the messages of the task have not changed, otherwise
+   * the entries of the task are replaced maintaining the creation time of the messages that already exist.
+   *
+   * @param taskId identifier of the updated task.
+   * @param task   that has been updated.
+   *
+   * @return the future that will inform when the inbox is updated.
+   */
+  public Future<Void> updateTask(final String taskId, final JsonObject task) {
+
+    return this.repairOnFailure(this.synchronize(taskId, task), repairTask(taskId));
+
+  }
+
+  /**
+   * Synchronize the entries of a task with its messages.
+   *
+   * @param taskId identifier of the task.
+   * @param task   with the messages.
+   *
+   * @return the future that will inform when the entries are synchronized.
+   *
+   * @see #updateTask(String, JsonObject)
+   */
+  protected Future<Void> synchronize(final String taskId, final JsonObject task) {
+
+    final var query = new JsonObject().put("taskId", taskId);
+    return this.pool.find(MESSAGES_COLLECTION, query).compose(previous -> {
+
+      final var creationTses = new HashMap<String, List<Long>>();
+      for (final var entry : previous) {
+
+        creationTses.computeIfAbsent(keyOf(entry), key -> new ArrayList<>()).add(entry.getLong("_creationTs", 0L));
+      }
+      final var entries = toEntries(taskId, task, creationTses);
+      if (entries.size() == previous.size() && creationTses.values().stream().allMatch(List::isEmpty)) {
+
+        return Future.succeededFuture();
+
+      } else {
+
+        return this.pool.removeDocuments(MESSAGES_COLLECTION, query).compose(removed -> this.insert(entries));
+      }
+
+    });
+
+  }
+
+  /**
+   * Remove the messages that match a query.
+   *
+   * @param query of the entries to remove.
+   *
+   * @return the future that will inform when the inbox is updated.
+   */
+  private Future<Void> remove(final JsonObject query) {
+
+    return this.repairOnFailure(this.pool.removeDocuments(MESSAGES_COLLECTION, query).mapEmpty(),
+        new JsonObject().put("remove", query));
+
+  }
+
+  /**
+   * Remove the messages of some tasks.
+   *
+   * @param taskIds identifiers of the removed tasks.
+   *
+   * @return the future that will inform when the inbox is updated.
+   */
+  public Future<Void> removeTasks(final JsonArray taskIds) {
+
+    final var query = new JsonObject().put("taskId", new JsonObject().put("$in", taskIds));
+    final var future = this.pool.removeDocuments(MESSAGES_COLLECTION, query).<Void>mapEmpty();
+    return future.recover(cause -> {
+
+      var repaired = Future.<Void>succeededFuture();
+      for (var i = 0; i < taskIds.size(); i++) {
+
+        final var taskId = String.valueOf(taskIds.getValue(i));
+        repaired = repaired.compose(empty -> this.repairOnFailure(Future.failedFuture(cause), repairTask(taskId)));
+      }
+      return repaired;
+    });
+
+  }
+
+  /**
+   * Remove the messages of the transactions done by an user.
+   *
+   * @param actioneerId identifier of the user that has done the removed transactions.
+   *
+   * @return the future that will inform when the inbox is updated.
+   */
+  public Future<Void> removeTransactionsBy(final String actioneerId) {
+
+    return this.remove(new JsonObject().put("transactionActioneerId", actioneerId));
+
+  }
+
+  /**
+   * Remove the messages received by an user. The identifiers of the entries depend on the position of the messages on
+   * their transactions, so the tasks with entries of the receiver are synchronized, instead of removing the entries,
+   * to update the identifiers of the messages that follow the removed ones.
+   *
+   * @param receiverId identifier of the user that has received the removed messages.
+   *
+   * @return the future that will inform when the inbox is updated.
+   *
+   * @see #synchronizeReceiver(String)
+   */
+  public Future<Void> removeReceiver(final String receiverId) {
+
+    return this.repairOnFailure(this.synchronizeReceiver(receiverId), repairReceiver(receiverId));
+
+  }
+
+  /**
+   * Synchronize the entries of the tasks that have entries of a receiver with the stored tasks.
+   *
+   * @param receiverId identifier of the receiver.
+   *
+   * @return the future that will inform when the entries are synchronized.
+   */
+  protected Future<Void> synchronizeReceiver(final String receiverId) {
+
+    final var query = new JsonObject().put("receiverId", receiverId);
+    final var options = new FindOptions().setFields(new JsonObject().put("taskId", 1));
+    return this.pool.findWithOptions(MESSAGES_COLLECTION, query, options).compose(entries -> {
+
+      final var taskIds = new LinkedHashSet<String>();
+      for (final var entry : entries) {
+
+        taskIds.add(entry.getString("taskId"));
+      }
+      var future = Future.<Void>succeededFuture();
+      for (final var taskId : taskIds) {
+
+        future = future.compose(empty -> this.repair(repairTask(taskId)));
+      }
+      return future;
+
+    });
+
+  }
+
+  /**
+   * Create the query to obtain the messages of an inbox.
+   *
+   * @param receiverId identifier of the user that has received the messages.
+   * @param appId      identifier of the application of the messages, or {@code null} for any application.
+   * @param label      of the messages, or {@code null} for any label.
+   * @param after      the cursor of the last returned message, or {@code null} to start from the newest message.
+   *
+   * @return the query to obtain the messages.
+   *
+   * @throws IllegalArgumentException if the cursor is not valid.
+   */
+  static JsonObject createQuery(final String receiverId, final String appId, final String label,
+      final String after) {
+
+    final var query = new JsonObject().put("receiverId", receiverId);
+    if (appId != null) {
+
+      query.put("appId", appId);
+    }
+    if (label != null) {
+
+      query.put("label", label);
+    }
+    if (after != null) {
+
+      final var cursor = decodeCursor(after);
+      final var ts = cursor.getLong(0);
+      final var id = cursor.getString(1);
+      query.put("$or", new JsonArray().add(new JsonObject().put("_creationTs", new JsonObject().put("$lt", ts)))
+          .add(new JsonObject().put("_creationTs", ts).put("_id", new JsonObject().put("$lt", id))));
+    }
+    return query;
+
+  }
+
+  /**
+   * Create the cursor to continue after an entry.
+   *
+   * @param entry the last returned entry.
+   *
+   * @return the cursor to obtain the next entries.
+   */
+  static String encodeCursor(final JsonObject entry) {
+
+    final var cursor = new JsonArray().add(entry.getLong("_creationTs")).add(entry.getString("_id"));
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.encode().getBytes(StandardCharsets.UTF_8));
+
+  }
+
+  /**
+   * Obtain the values of a cursor.
+   *
+   * @param cursor to decode.
+   *
+   * @return the creation time and the identifier of the entry of the cursor.
+   *
+   * @throws IllegalArgumentException if the cursor is not valid.
+   */
+  static JsonArray decodeCursor(final String cursor) {
+
+    try {
+
+      final var decoded = new JsonArray(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+      if (decoded.size() != 2 || !(decoded.getValue(0) instanceof Number) || !(decoded.getValue(1) instanceof String)) {
+
+        throw new IllegalArgumentException("Bad cursor");
+      }
+      return decoded;
+
+    } catch (final RuntimeException cause) {
+
+      throw new IllegalArgumentException("The cursor '" + cursor + "' is not valid.", cause);
+    }
+
+  }
+
+  /**
+   * Obtain a page of the messages received by an user, from the newest to the oldest.
+   *
+   * @param receiverId identifier of the user that has received the messages.
+   * @param appId      identifier of the application of the messages, or {@code null} for any application.
+   * @param label      of the messages, or {@code null} for any label.
+   * @param after      the cursor of the last returned message, or {@code null} to start from the newest message.
+   * @param limit      maximum number of messages to return.
+   *
+   * @return the future with the page of messages and the cursor to obtain the next page.
+   */
+  public Future<JsonObject> retrievePage(final String receiverId, final String appId, final String label,
+      final String after, final int limit) {
+
+    final JsonObject query;
+    try {
+
+      query = createQuery(receiverId, appId, label, after);
+
+    } catch (final IllegalArgumentException cause) {
+
+      return Future.failedFuture(cause);
+    }
+    final var options = new FindOptions().setSort(ORDER).setLimit(limit + 1);
+    return this.pool.findWithOptions(MESSAGES_COLLECTION, query, options).map(entries -> toPage(entries, limit));
+
+  }
+
+  /**
+   * Convert the found entries to a page of messages.
+   *
+   * @param entries found on the inbox.
+   * @param limit   maximum number of messages of the page.
+   *
+   * @return the page with the messages.
+   */
+  static JsonObject toPage(final List<JsonObject> entries, final int limit) {
+
+    final var page = new JsonObject();
+    final var messages = new JsonArray();
+    for (var i = 0; i < entries.size() && i < limit; i++) {
+
+      final var entry = entries.get(i);
+      final var message = new JsonObject();
+      for (final var field : MESSAGE_FIELDS) {
+
+        final var value = entry.getValue(field);
+        if (value != null) {
+
+          message.put(field, value);
+        }
+      }
+      messages.add(message);
+    }
+    if (!messages.isEmpty()) {
+
+      page.put("messages", messages);
+    }
+    if (entries.size() > limit && limit > 0) {
+
+      page.put("next", encodeCursor(entries.get(limit - 1)));
+    }
+    return page;
+
+  }
+
+}
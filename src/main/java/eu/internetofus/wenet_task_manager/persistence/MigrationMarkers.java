@@ -0,0 +1,178 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import eu.internetofus.common.model.TimeManager;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.UpdateOptions;
+
+/**
+ * The markers of the migrations that fill a collection from the stored tasks. A marker is created when a migration
+ * starts, with the time when it is started for the first time, and it is completed when all the documents have been
+ * filled, so a migration that has been interrupted is done again the next time that the component is started. The
+ * marker can also store the steps of the migration that have been done, to resume it from them, and the repairs that
+ * are pending to do over the migrated collection.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class MigrationMarkers {
+
+  /**
+   * The name of the collection with the markers of the migrations.
+   */
+  public static final String MIGRATIONS_COLLECTION = "migrations";
+
+  /**
+   * The field with the time when a migration has been started for the first time.
+   */
+  public static final String START_TS = "startTs";
+
+  /**
+   * The field with the time when a migration has been completed.
+   */
+  public static final String COMPLETED_TS = "completedTs";
+
+  /**
+   * The field with the steps of a migration that have been done.
+   */
+  public static final String STEPS = "steps";
+
+  /**
+   * The field with the repairs that are pending to do over the migrated collection.
+   */
+  public static final String PENDING = "pending";
+
+  /**
+   * Start a migration, or obtain the marker of the migration if it has already been started.
+   *
+   * @param pool to the database.
+   * @param name of the migration.
+   *
+   * @return the future marker of the migration.
+   */
+  public static Future<JsonObject> start(final MongoClient pool, final String name) {
+
+    final var query = new JsonObject().put("_id", name);
+    final var update = new JsonObject().put("$setOnInsert", new JsonObject().put(START_TS, TimeManager.now()));
+    final var options = new UpdateOptions().setUpsert(true).setReturningNewDocument(true);
+    return pool.findOneAndUpdateWithOptions(MIGRATIONS_COLLECTION, query, update, new FindOptions(), options);
+
+  }
+
+  /**
+   * Check if a migration has been completed.
+   *
+   * @param marker of the migration.
+   *
+   * @return {@code true} if the migration has been completed.
+   */
+  public static boolean isCompleted(final JsonObject marker) {
+
+    return marker != null && marker.getValue(COMPLETED_TS) != null;
+
+  }
+
+  /**
+   * Mark a migration as completed.
+   *
+   * @param pool to the database.
+   * @param name of the migration.
+   *
+   * @return the future that will inform when the migration is marked.
+   */
+  public static Future<Void> complete(final MongoClient pool, final String name) {
+
+    final var query = new JsonObject().put("_id", name);
+    final var update = new JsonObject().put("$set", new JsonObject().put(COMPLETED_TS, TimeManager.now()));
+    return pool.updateCollection(MIGRATIONS_COLLECTION, query, update).mapEmpty();
+
+  }
+
+  /**
+   * Check if a step of a migration has been done.
+   *
+   * @param marker of the migration.
+   * @param step   to check.
+   *
+   * @return {@code true} if the step has been done.
+   */
+  public static boolean isStepDone(final JsonObject marker, final String step) {
+
+    final var steps = marker == null ? null : marker.getJsonArray(STEPS);
+    return steps != null && steps.contains(step);
+
+  }
+
+  /**
+   * Mark a step of a migration as done, thus it is not done again if the migration is resumed.
+   *
+   * @param pool to the database.
+   * @param name of the migration.
+   * @param step that has been done.
+   *
+   * @return the future that will inform when the step is marked.
+   */
+  public static Future<Void> doneStep(final MongoClient pool, final String name, final String step) {
+
+    final var query = new JsonObject().put("_id", name);
+    final var update = new JsonObject().put("$addToSet", new JsonObject().put(STEPS, step));
+    return pool.updateCollection(MIGRATIONS_COLLECTION, query, update).mapEmpty();
+
+  }
+
+  /**
+   * Add a repair that has to be done over the collection of a migration.
+   *
+   * @param pool   to the database.
+   * @param name   of the migration.
+   * @param repair to do.
+   *
+   * @return the future that will inform when the repair is added.
+   */
+  public static Future<Void> addPending(final MongoClient pool, final String name, final JsonObject repair) {
+
+    final var query = new JsonObject().put("_id", name);
+    final var update = new JsonObject().put("$addToSet", new JsonObject().put(PENDING, repair));
+    return pool.updateCollection(MIGRATIONS_COLLECTION, query, update).mapEmpty();
+
+  }
+
+  /**
+   * Remove a repair that has been done over the collection of a migration.
+   *
+   * @param pool   to the database.
+   * @param name   of the migration.
+   * @param repair that has been done.
+   *
+   * @return the future that will inform when the repair is removed.
+   */
+  public static Future<Void> removePending(final MongoClient pool, final String name, final JsonObject repair) {
+
+    final var query = new JsonObject().put("_id", name);
+    final var update = new JsonObject().put("$pull", new JsonObject().put(PENDING, repair));
+    return pool.updateCollection(MIGRATIONS_COLLECTION, query, update).mapEmpty();
+
+  }
+
+}
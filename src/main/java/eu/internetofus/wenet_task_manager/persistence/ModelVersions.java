@@ -0,0 +1,268 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import io.vertx.core.Future;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.serviceproxy.ServiceException;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * The versions of the stored models. The version of a model is a counter on its {@code _version} field that is
+ * incremented by any write, so it is independent of the {@code _lastUpdateTs} of the model, and the entity tag of the
+ * model is derived from it. The models that have been stored without this field have the version {@code 0}. The
+ * writes that are conditioned to a version add it into the query, and when they do not match fail with a
+ * {@link ServiceException} with the {@link Status#PRECONDITION_FAILED} code.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class ModelVersions {
+
+  /**
+   * The field with the last update of the models.
+   */
+  public static final String LAST_UPDATE_TS = "_lastUpdateTs";
+
+  /**
+   * The field with the version of the models.
+   */
+  public static final String VERSION = "_version";
+
+  /**
+   * The message of the failure when a model has been modified since the expected version.
+   */
+  public static final String MODIFIED_MESSAGE = "The model has been modified since the expected version.";
+
+  /**
+   * Return the version of a stored model.
+   *
+   * @param model to get the version.
+   *
+   * @return the version of the model, or {@code 0} if it does not have a version.
+   */
+  public static long versionOf(final JsonObject model) {
+
+    final var version = model == null ? null : model.getLong(VERSION);
+    return version == null ? 0L : version;
+
+  }
+
+  /**
+   * Remove the version from a stored model, before it is converted to a model.
+   *
+   * @param model to remove the version.
+   *
+   * @return the model without the version.
+   */
+  public static JsonObject withoutVersion(final JsonObject model) {
+
+    if (model != null) {
+
+      model.remove(VERSION);
+    }
+    return model;
+
+  }
+
+  /**
+   * Add into a query the condition to match only the model with a version.
+   *
+   * @param query    to match the model.
+   * @param expected version of the model, or {@code null} if any version is matched.
+   *
+   * @return the query with the condition of the version.
+   */
+  public static JsonObject withExpected(final JsonObject query, final Long expected) {
+
+    if (expected == null) {
+
+      return query;
+
+    } else if (expected == 0L) {
+
+      return query.put(VERSION, new JsonObject().put("$in", new JsonArray().add(0L).addNull()));
+
+    } else {
+
+      return query.put(VERSION, expected);
+    }
+
+  }
+
+  /**
+   * Check if a query is conditioned to a version of the model.
+   *
+   * @param query to check.
+   *
+   * @return {@code true} if the query has a condition over the version.
+   */
+  public static boolean isConditional(final JsonObject query) {
+
+    return query.containsKey(VERSION);
+
+  }
+
+  /**
+   * Return the expression of an update pipeline that calculates the next version of the updated model.
+   *
+   * @return the expression with the next version of the model.
+   */
+  public static JsonObject nextExpression() {
+
+    final var previous = new JsonObject().put("$ifNull", new JsonArray().add("$" + VERSION).add(0L));
+    return new JsonObject().put("$add", new JsonArray().add(previous).add(1L));
+
+  }
+
+  /**
+   * Return the failure that informs that a model has been modified since the expected version.
+   *
+   * @return the failure of the modified model.
+   */
+  public static ServiceException modified() {
+
+    return new ServiceException(Status.PRECONDITION_FAILED.getStatusCode(), MODIFIED_MESSAGE);
+
+  }
+
+  /**
+   * Check if a write has failed because the model has been modified since the expected version.
+   *
+   * @param cause of the failure.
+   *
+   * @return {@code true} if the model has been modified.
+   */
+  public static boolean isModified(final Throwable cause) {
+
+    return cause instanceof ReplyException
+        && ((ReplyException) cause).failureCode() == Status.PRECONDITION_FAILED.getStatusCode();
+
+  }
+
+  /**
+   * Return the failure of a conditional write that has not matched any model.
+   *
+   * @param pool       to the database.
+   * @param collection where the model is stored.
+   * @param id          identifier of the model.
+   * @param conditional is {@code true} if the write is conditioned to a version of the model.
+   *
+   * @return the failure with the precondition failed if the model exists or with not found otherwise.
+   */
+  public static Future<Void> unmatched(final MongoClient pool, final String collection, final Object id,
+      final boolean conditional) {
+
+    if (!conditional) {
+
+      return Future.failedFuture("Not Found document to update");
+
+    } else {
+
+      return pool.count(collection, new JsonObject().put("_id", id)).compose(count -> {
+
+        if (count != null && count > 0L) {
+
+          return Future.failedFuture(modified());
+
+        } else {
+
+          return Future.failedFuture("Not Found document to update");
+        }
+      });
+    }
+
+  }
+
+  /**
+   * Apply the changes of a model over the stored document.
+   *
+   * @param pool       to the database.
+   * @param collection where the model is stored.
+   * @param query      to match the model, with its identifier and the version to update if any.
+   * @param changes    update with the changed fields, that also increments the version if it is not empty.
+   *
+   * @return the future that will inform when the changes are applied, that fails with a precondition failed if the
+   *         query has the version of the model and it has been modified.
+   */
+  public static Future<Void> updateChanges(final MongoClient pool, final String collection, final JsonObject query,
+      final JsonObject changes) {
+
+    final Future<Long> matched;
+    if (changes.isEmpty()) {
+
+      matched = pool.count(collection, query);
+
+    } else {
+
+      matched = pool.updateCollection(collection, query, withVersion(changes))
+          .map(result -> result == null ? 0L : result.getDocMatched());
+    }
+    return matched.compose(count -> {
+
+      if (count == null || count == 0L) {
+
+        return unmatched(pool, collection, query.getValue("_id"), isConditional(query));
+
+      } else {
+
+        return Future.succeededFuture();
+      }
+    });
+
+  }
+
+  /**
+   * Update a model and increment its version in one call to the database.
+   *
+   * @param pool       to the database.
+   * @param collection where the model is stored.
+   * @param query      to match the model to update.
+   * @param update     to apply over the model.
+   *
+   * @return the future model before the update, or {@code null} if the query does not match any model.
+   */
+  public static Future<JsonObject> findOneAndUpdate(final MongoClient pool, final String collection,
+      final JsonObject query, final JsonObject update) {
+
+    return pool.findOneAndUpdate(collection, query, withVersion(update));
+
+  }
+
+  /**
+   * Return a copy of an update that also increments the version of the model.
+   *
+   * @param update to copy.
+   *
+   * @return the update with the increment of the version.
+   */
+  public static JsonObject withVersion(final JsonObject update) {
+
+    final var copy = update.copy();
+    final var inc = copy.getJsonObject("$inc", new JsonObject());
+    copy.put("$inc", inc.put(VERSION, 1L));
+    return copy;
+
+  }
+
+}
@@ -0,0 +1,340 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import eu.internetofus.common.model.TimeManager;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.CountOptions;
+import io.vertx.ext.mongo.MongoClient;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calculate the total number of models that match the query of a page. The exact total requires to visit all the
+ * matching documents, so the pages can ask for an estimated total, a cached total or no total at all. When the
+ * estimated total reaches the maximum count the page is marked with {@link #TOTAL_CAPPED}.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class PageTotals {
+
+  /**
+   * The mode to count all the documents that match the query.
+   */
+  public static final String EXACT = "exact";
+
+  /**
+   * The mode to use the collection metadata when there is no query, or to count until the maximum count otherwise.
+   */
+  public static final String ESTIMATED = "estimated";
+
+  /**
+   * The mode to not count the documents. The total is the index after the last returned model, plus one if there are
+   * more models after the page.
+   */
+  public static final String NONE = "none";
+
+  /**
+   * The mode to reuse the exact total calculated for the same query until it expires.
+   */
+  public static final String CACHED = "cached";
+
+  /**
+   * The modes that can be used to calculate the total.
+   */
+  public static final List<String> MODES = List.of(EXACT, ESTIMATED, NONE, CACHED);
+
+  /**
+   * The field of a page that is {@code true} when its total has been estimated counting until the maximum count, thus
+   * more models can match the query than the total.
+   */
+  public static final String TOTAL_CAPPED = "totalCapped";
+
+  /**
+   * The default maximum number of documents to count when the total is estimated.
+   */
+  public static final int DEFAULT_MAX_COUNT = 10000;
+
+  /**
+   * The default seconds that a cached total is valid.
+   */
+  public static final long DEFAULT_CACHE_TIMEOUT = 60;
+
+  /**
+   * The maximum number of totals to cache.
+   */
+  public static final int MAX_CACHED_TOTALS = 1000;
+
+  /**
+   * The maximum number of documents to count when the total is estimated.
+   */
+  protected int maxCount;
+
+  /**
+   * The seconds that a cached total is valid.
+   */
+  protected long cacheTimeout;
+
+  /**
+   * The cached totals with the time when they expire, from the least to the most recently used.
+   */
+  protected Map<String, long[]> cache = new LinkedHashMap<>(16, 0.75f, true) {
+
+    /**
+     * Serialization identifier.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, long[]> eldest) {
+
+      return this.size() > MAX_CACHED_TOTALS;
+    }
+
+  };
+
+  /**
+   * Create the totals with the configuration.
+   *
+   * @param conf with the {@code maxCount} and the {@code cacheTimeout}, or {@code null} to use the default values.
+   */
+  public PageTotals(final JsonObject conf) {
+
+    final var config = conf == null ? new JsonObject() : conf;
+    this.maxCount = config.getInteger("maxCount", DEFAULT_MAX_COUNT);
+    this.cacheTimeout = config.getLong("cacheTimeout", DEFAULT_CACHE_TIMEOUT);
+
+  }
+
+  /**
+   * Return the maximum number of documents to count when the total is estimated.
+   *
+   * @return the maximum count.
+   */
+  public int getMaxCount() {
+
+    return this.maxCount;
+
+  }
+
+  /**
+   * Obtain the mode to calculate a total.
+   *
+   * @param total the name of the mode or {@code null} to use the exact total.
+   *
+   * @return the mode to calculate the total.
+   *
+   * @throws IllegalArgumentException if the mode is not one of the {@link #MODES}.
+   */
+  public static String modeOf(final String total) throws IllegalArgumentException {
+
+    if (total == null) {
+
+      return EXACT;
+
+    } else if (MODES.contains(total)) {
+
+      return total;
+
+    } else {
+
+      throw new IllegalArgumentException("The total '" + total + "' is not one of " + MODES + ".");
+    }
+
+  }
+
+  /**
+   * Obtain the key to cache the total of a query.
+   *
+   * @param collection where the query is done.
+   * @param models     name of the models that are counted.
+   * @param query      to count.
+   *
+   * @return the key of the cached total.
+   */
+  public static String keyOf(final String collection, final String models, final JsonObject query) {
+
+    return new JsonArray().add(collection).add(models).add(query == null ? new JsonObject() : query).encode();
+
+  }
+
+  /**
+   * Return the cached total of a key.
+   *
+   * @param key of the total.
+   *
+   * @return the cached total or {@code null} if it is not cached or it has expired.
+   */
+  public synchronized Long getCached(final String key) {
+
+    final var cached = this.cache.get(key);
+    if (cached == null) {
+
+      return null;
+
+    } else if (cached[1] < TimeManager.now()) {
+
+      this.cache.remove(key);
+      return null;
+
+    } else {
+
+      return cached[0];
+    }
+
+  }
+
+  /**
+   * Store the total of a key.
+   *
+   * @param key   of the total.
+   * @param total to cache.
+   */
+  public synchronized void putCached(final String key, final long total) {
+
+    this.cache.put(key, new long[] { total, TimeManager.now() + this.cacheTimeout });
+
+  }
+
+  /**
+   * Count the documents of a collection that match a query.
+   *
+   * @param pool       of database connections.
+   * @param collection where the documents are.
+   * @param query      to match.
+   * @param mode       to calculate the total.
+   *
+   * @return the future total, or {@code null} if the mode is {@link #NONE}.
+   */
+  public Future<Long> count(final MongoClient pool, final String collection, final JsonObject query,
+      final String mode) {
+
+    final var filter = query == null ? new JsonObject() : query;
+    switch (mode) {
+    case NONE:
+      return Future.succeededFuture();
+    case ESTIMATED:
+      if (filter.isEmpty()) {
+
+        return pool.runCommand("count", new JsonObject().put("count", collection))
+            .map(result -> result.getLong("n", 0L));
+
+      } else {
+
+        return pool.countWithOptions(collection, filter, new CountOptions().setLimit(this.maxCount));
+      }
+    case CACHED:
+      final var key = keyOf(collection, "documents", filter);
+      final var cached = this.getCached(key);
+      if (cached != null) {
+
+        return Future.succeededFuture(cached);
+
+      } else {
+
+        return pool.count(collection, filter).onSuccess(total -> this.putCached(key, total));
+      }
+    default:
+      return pool.count(collection, filter);
+    }
+
+  }
+
+  /**
+   * Check if a total has been counted until the maximum count, thus it is a lower bound of the matching documents.
+   *
+   * @param query that has been counted.
+   * @param mode  that has been used to calculate the total.
+   * @param total that has been calculated.
+   *
+   * @return {@code true} if the total has been capped by the maximum count.
+   *
+   * @see #count(MongoClient, String, JsonObject, String)
+   */
+  public boolean isCapped(final JsonObject query, final String mode, final Long total) {
+
+    return ESTIMATED.equals(mode) && query != null && !query.isEmpty() && total != null && total >= this.maxCount;
+
+  }
+
+  /**
+   * Mark the total of a page as capped by the maximum count.
+   *
+   * @param page   to mark.
+   * @param capped is {@code true} if the total of the page has been capped.
+   *
+   * @return the page.
+   *
+   * @see #TOTAL_CAPPED
+   */
+  public static JsonObject markCapped(final JsonObject page, final boolean capped) {
+
+    if (capped) {
+
+      page.put(TOTAL_CAPPED, true);
+    }
+    return page;
+
+  }
+
+  /**
+   * Create a page with the found models.
+   *
+   * @param offset index of the first model of the page.
+   * @param limit  maximum number of models of the page.
+   * @param models name of the field with the models.
+   * @param found  the models that has been found, that can contain one more than the limit.
+   * @param total  number of models that match the query, or {@code null} to use the index after the found models.
+   *
+   * @return the page with the models.
+   */
+  public static JsonObject toPage(final int offset, final int limit, final String models, final List<JsonObject> found,
+      final Long total) {
+
+    final var page = new JsonObject().put("offset", offset);
+    if (total != null) {
+
+      page.put("total", total);
+
+    } else {
+
+      page.put("total", (long) offset + found.size());
+    }
+    final var values = new JsonArray();
+    for (var i = 0; i < found.size() && i < limit; i++) {
+
+      values.add(found.get(i));
+    }
+    if (!values.isEmpty()) {
+
+      page.put(models, values);
+    }
+    return page;
+
+  }
+
+}
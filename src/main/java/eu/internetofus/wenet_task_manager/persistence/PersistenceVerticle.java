@@ -21,7 +21,10 @@
 package eu.internetofus.wenet_task_manager.persistence;
 
 import eu.internetofus.common.vertx.AbstractPersistenceVerticle;
+import eu.internetofus.wenet_task_manager.events.TaskEvents;
 import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import org.tinylog.Logger;
 
 /**
  * The verticle that provide the persistence services.
@@ -30,14 +33,46 @@ import io.vertx.core.Future;
  */
 public class PersistenceVerticle extends AbstractPersistenceVerticle {
 
+  /**
+   * The source that publishes the events from the change stream, or {@code null} if the events are published by the
+   * repository.
+   */
+  protected TaskChangeStreamSource changeStream;
+
   /**
    * {@inheritDoc}
    */
   @Override
   protected Future<Void> registerRepositoriesFor(final String schemaVersion) {
 
-    var future = TasksRepository.register(this.vertx, this.pool,schemaVersion);
-    future = future.compose(map -> TaskTypesRepository.register(this.vertx, this.pool,schemaVersion));
+    final var eventsConf = this.config().getJsonObject("events", new JsonObject());
+    final var persistenceConf = this.config().getJsonObject("persistence", new JsonObject());
+    final var partitionsConf = persistenceConf.getJsonObject("partitions");
+    var source = eventsConf.getString("source", TaskEvents.REPOSITORY_SOURCE);
+    if (TaskEvents.CHANGE_STREAM_SOURCE.equals(source) && partitionsConf != null
+        && partitionsConf.getBoolean("enabled", true)) {
+
+      Logger.warn("The change stream only watches the tasks collection, so the events are published by the repository");
+      source = TaskEvents.REPOSITORY_SOURCE;
+    }
+    final var events = new TaskEvents(this.vertx, TaskEvents.REPOSITORY_SOURCE.equals(source));
+    var future = TasksRepository.register(this.vertx, this.pool, schemaVersion,
+        persistenceConf.getJsonObject("pageTotals"), events, this.config().getJsonObject("expiry"),
+        this.config().getJsonObject("archive"), partitionsConf,
+        ReadPreferenceRouter.create(this.vertx, this.pool, persistenceConf));
+    future = future.compose(map -> TaskTypesRepository.register(this.vertx, this.pool, schemaVersion,
+        persistenceConf.getJsonObject("taskTypesIndex")));
+    if (TaskEvents.CHANGE_STREAM_SOURCE.equals(source)) {
+
+      future = future.onSuccess(empty -> {
+
+        this.changeStream = new TaskChangeStreamSource(this.vertx, this.pool, new TaskEvents(this.vertx, true),
+            eventsConf.getInteger("batchSize", TaskChangeStreamSource.DEFAULT_BATCH_SIZE));
+        this.changeStream.start();
+        Logger.info("Publishing the task events from the change stream");
+
+      });
+    }
     return future;
   }
 
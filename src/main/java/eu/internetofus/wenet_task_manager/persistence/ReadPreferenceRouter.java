@@ -0,0 +1,305 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.MongoClient;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.tinylog.Logger;
+
+/**
+ * The component that selects the pool of database connections to use for each read. The pages, that are heavy
+ * aggregations that can be stale a little time, are read with the read preference configured on the
+ * {@code persistence.reads.pages}, while the searches by identifier are always done on the primary. The tasks that are
+ * modified by a client have to be returned on the pages that it asks after the modification, so the pages are read
+ * from the primary during some milliseconds after a write on a task of the same application or requester. The writes
+ * are tracked only by this instance, so a page asked to another instance, or after the replication lag is over the
+ * configured milliseconds, can be stale.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class ReadPreferenceRouter {
+
+  /**
+   * The read preference to read from the primary.
+   */
+  public static final String PRIMARY = "primary";
+
+  /**
+   * The default milliseconds after a write when the pages are read from the primary.
+   */
+  public static final long DEFAULT_PRIMARY_AFTER_WRITE = 1000L;
+
+  /**
+   * The name of the shared pool to read the pages.
+   */
+  public static final String PAGES_POOL_NAME = "wenet_task_manager.pages";
+
+  /**
+   * The fields of the tasks that define the scope of the writes.
+   */
+  public static final String[] WRITE_SCOPES = { "appId", "requesterId" };
+
+  /**
+   * The maximum number of scopes that are tracked as recently written.
+   */
+  public static final int MAX_TRACKED_WRITES = 10000;
+
+  /**
+   * The pool to read from the primary.
+   */
+  protected MongoClient primary;
+
+  /**
+   * The pool to read the pages.
+   */
+  protected MongoClient pages;
+
+  /**
+   * The milliseconds after a write when the pages are read from the primary.
+   */
+  protected long primaryAfterWrite;
+
+  /**
+   * The time, in milliseconds, of the last write on any task.
+   */
+  protected volatile long lastWrite = 0L;
+
+  /**
+   * The time, in milliseconds, of the last write that can modify tasks of any scope.
+   */
+  protected volatile long lastUnscopedWrite = 0L;
+
+  /**
+   * The time, in milliseconds, of the last write on each scope.
+   */
+  protected Map<String, Long> scopedWrites = new ConcurrentHashMap<>();
+
+  /**
+   * Create a router that reads everything from a pool.
+   *
+   * @param pool of database connections.
+   */
+  public ReadPreferenceRouter(final MongoClient pool) {
+
+    this(pool, pool, 0L);
+
+  }
+
+  /**
+   * Create the router.
+   *
+   * @param primary           pool to read from the primary.
+   * @param pages             pool to read the pages.
+   * @param primaryAfterWrite milliseconds after a write when the pages are read from the primary.
+   */
+  public ReadPreferenceRouter(final MongoClient primary, final MongoClient pages, final long primaryAfterWrite) {
+
+    this.primary = primary;
+    this.pages = pages;
+    this.primaryAfterWrite = primaryAfterWrite;
+
+  }
+
+  /**
+   * Create the router defined on the persistence configuration.
+   *
+   * @param vertx   event bus to use.
+   * @param primary pool to read from the primary.
+   * @param conf    configuration of the persistence, with the read preferences on the field {@code reads}.
+   *
+   * @return the router to use.
+   */
+  public static ReadPreferenceRouter create(final Vertx vertx, final MongoClient primary, final JsonObject conf) {
+
+    final var persistence = conf == null ? new JsonObject() : conf;
+    final var reads = persistence.getJsonObject("reads", new JsonObject());
+    final var pages = reads.getString("pages", PRIMARY);
+    if (PRIMARY.equals(pages)) {
+
+      return new ReadPreferenceRouter(primary);
+
+    } else {
+
+      final var pagesConf = persistence.copy();
+      pagesConf.remove("reads");
+      pagesConf.put("readPreference", pages);
+      Logger.info("Reading the pages with the read preference {}", pages);
+      return new ReadPreferenceRouter(primary, MongoClient.createShared(vertx, pagesConf, PAGES_POOL_NAME),
+          Math.max(0L, reads.getLong("primaryAfterWrite", DEFAULT_PRIMARY_AFTER_WRITE)));
+    }
+
+  }
+
+  /**
+   * Return the pool to read from the primary.
+   *
+   * @return the pool to read from the primary.
+   */
+  public MongoClient forPrimary() {
+
+    return this.primary;
+
+  }
+
+  /**
+   * Return the pool to read a page that can contain any task. It is the primary during some time after any write.
+   *
+   * @return the pool to read the pages.
+   */
+  public MongoClient forPages() {
+
+    return this.forPages(null);
+
+  }
+
+  /**
+   * Return the pool to read a page. It is the primary during some time after a write on a task that can match the
+   * query, this is a task of the same application or requester, or any task if the query is not scoped by them.
+   *
+   * @param query to match the tasks of the page.
+   *
+   * @return the pool to read the pages.
+   */
+  public MongoClient forPages(final JsonObject query) {
+
+    if (this.pages == this.primary) {
+
+      return this.pages;
+    }
+
+    final var now = System.currentTimeMillis();
+    if (this.isRecent(now, this.lastUnscopedWrite)) {
+
+      return this.primary;
+    }
+
+    var scoped = false;
+    for (final var scope : WRITE_SCOPES) {
+
+      final var value = query == null ? null : query.getValue(scope);
+      if (value instanceof String) {
+
+        scoped = true;
+        if (this.isRecent(now, this.scopedWrites.get(scopeKey(scope, value)))) {
+
+          return this.primary;
+        }
+      }
+    }
+
+    if (!scoped && this.isRecent(now, this.lastWrite)) {
+
+      return this.primary;
+
+    } else {
+
+      return this.pages;
+    }
+
+  }
+
+  /**
+   * Mark that some documents of any scope have been written, so the following pages are read from the primary.
+   */
+  public void markWritten() {
+
+    final var now = System.currentTimeMillis();
+    this.lastWrite = now;
+    this.lastUnscopedWrite = now;
+
+  }
+
+  /**
+   * Mark that a task has been written, so the following pages of its application or requester are read from the
+   * primary. If the task does not have all the scopes it is marked as a write of any scope.
+   *
+   * @param task that has been written.
+   */
+  public void markWritten(final JsonObject task) {
+
+    if (this.pages == this.primary) {
+
+      return;
+    }
+
+    final var now = System.currentTimeMillis();
+    var scoped = task != null;
+    for (final var scope : WRITE_SCOPES) {
+
+      scoped = scoped && task.getValue(scope) instanceof String;
+    }
+    this.lastWrite = now;
+    if (!scoped) {
+
+      this.lastUnscopedWrite = now;
+
+    } else {
+
+      for (final var scope : WRITE_SCOPES) {
+
+        this.scopedWrites.put(scopeKey(scope, task.getValue(scope)), now);
+      }
+    }
+    if (this.scopedWrites.size() > MAX_TRACKED_WRITES) {
+
+      this.scopedWrites.values().removeIf(written -> !this.isRecent(now, written));
+      if (this.scopedWrites.size() > MAX_TRACKED_WRITES) {
+
+        // too many scopes written at the same time, so any page is read from the primary
+        this.scopedWrites.clear();
+        this.lastUnscopedWrite = now;
+      }
+    }
+
+  }
+
+  /**
+   * Check if a write has been done during the milliseconds that the pages are read from the primary.
+   *
+   * @param now     the current time in milliseconds.
+   * @param written the time of the write, or {@code null} if it has not been written.
+   *
+   * @return {@code true} if the write is recent.
+   */
+  protected boolean isRecent(final long now, final Long written) {
+
+    return written != null && now - written < this.primaryAfterWrite;
+
+  }
+
+  /**
+   * Return the key to track the writes of a scope.
+   *
+   * @param scope field of the task that define the scope.
+   * @param value of the field.
+   *
+   * @return the key of the scope.
+   */
+  protected static String scopeKey(final String scope, final Object value) {
+
+    return scope + ":" + value;
+
+  }
+
+}
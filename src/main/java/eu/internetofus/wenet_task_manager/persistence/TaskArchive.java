@@ -0,0 +1,726 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import eu.internetofus.common.model.TimeManager;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.IndexModel;
+import io.vertx.ext.mongo.IndexOptions;
+import io.vertx.ext.mongo.MongoClient;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.tinylog.Logger;
+
+/**
+ * The cold storage of the tasks. The tasks that have been closed for longer than a configured age are never modified
+ * again, so they are moved from the tasks collection into an archive collection, where the transactions can be
+ * compressed into a binary blob. The repository looks for a task on the archive when it is not found on the tasks
+ * collection, and the pages of tasks only include the archive when they ask for the closed tasks.
+ *
+ * @see TaskPartitions
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TaskArchive {
+
+  /**
+   * The name of the collection with the archived tasks.
+   */
+  public static final String ARCHIVE_COLLECTION = "tasksArchive";
+
+  /**
+   * The default seconds that a task has to be closed before it is archived.
+   */
+  public static final long DEFAULT_AGE = 2592000L;
+
+  /**
+   * The default milliseconds between the checks of the tasks to archive.
+   */
+  public static final long DEFAULT_PERIOD = 3600000L;
+
+  /**
+   * The default maximum number of tasks to move on each batch.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 100;
+
+  /**
+   * The field of an archived task with the compressed transactions.
+   */
+  public static final String COMPRESSED_TRANSACTIONS = "_transactions";
+
+  /**
+   * The field of an archived task with the identifiers of the actioneers of the transactions.
+   */
+  public static final String ACTIONEER_IDS = "_actioneerIds";
+
+  /**
+   * The field of an archived task with the identifiers of the receivers of the messages of the transactions.
+   */
+  public static final String RECEIVER_IDS = "_receiverIds";
+
+  /**
+   * The field of an archived task with the time when it has been archived.
+   */
+  public static final String ARCHIVED_TS = "_archivedTs";
+
+  /**
+   * The event bus to use.
+   */
+  protected Vertx vertx;
+
+  /**
+   * The pool of database connections.
+   */
+  protected MongoClient pool;
+
+  /**
+   * The router of the tasks into the collections where they are stored.
+   */
+  protected TaskPartitions partitions;
+
+  /**
+   * The seconds that a task has to be closed before it is archived.
+   */
+  protected long age = DEFAULT_AGE;
+
+  /**
+   * The maximum number of tasks to move on each batch.
+   */
+  protected int batchSize = DEFAULT_BATCH_SIZE;
+
+  /**
+   * This is {@code true} if the transactions of the archived tasks have to be compressed.
+   */
+  protected boolean compress = true;
+
+  /**
+   * The timer that checks the tasks to archive.
+   */
+  protected long timer = -1;
+
+  /**
+   * This is {@code true} if the tasks are being archived.
+   */
+  protected boolean archiving = false;
+
+  /**
+   * Create the archive.
+   *
+   * @param vertx event bus to use.
+   * @param pool  of database connections.
+   */
+  public TaskArchive(final Vertx vertx, final MongoClient pool) {
+
+    this(vertx, pool, new TaskPartitions(pool));
+
+  }
+
+  /**
+   * Create the archive.
+   *
+   * @param vertx      event bus to use.
+   * @param pool       of database connections.
+   * @param partitions router of the tasks into the collections where they are stored.
+   */
+  public TaskArchive(final Vertx vertx, final MongoClient pool, final TaskPartitions partitions) {
+
+    this.vertx = vertx;
+    this.pool = pool;
+    this.partitions = partitions;
+
+  }
+
+  /**
+   * Check if a query over the tasks can match archived tasks. This happens when it asks for the closed tasks or for the
+   * tasks closed on a range of time stamps, from or before any time.
+   *
+   * @param query over the tasks.
+   *
+   * @return {@code true} if the archive has to be included when the query is done.
+   */
+  public static boolean includes(final JsonObject query) {
+
+    if (query == null) {
+
+      return false;
+    }
+    final var closeTs = query.getValue("closeTs");
+    if (closeTs instanceof JsonObject) {
+
+      final var condition = (JsonObject) closeTs;
+      if (condition.containsKey("$exists")) {
+
+        return Boolean.TRUE.equals(condition.getValue("$exists"));
+
+      } else {
+
+        return condition.containsKey("$lte") || condition.containsKey("$lt") || condition.containsKey("$gte")
+            || condition.containsKey("$gt") || condition.containsKey("$eq") || condition.containsKey("$in");
+      }
+
+    } else {
+
+      return closeTs instanceof Number;
+    }
+
+  }
+
+  /**
+   * Convert a query over the tasks to the query over the archived documents that can contain them. The conditions over
+   * the transactions are removed, because the archived transactions can be compressed, and the conditions over the
+   * actioneer or the receiver of the messages are replaced by the identifiers stored on the archived documents. The
+   * documents archived without the receivers always match the receiver.
+   *
+   * @param query over the tasks.
+   *
+   * @return the query over the archived documents.
+   */
+  public static JsonObject archivedQuery(final JsonObject query) {
+
+    final var archivedQuery = new JsonObject();
+    if (query != null) {
+
+      for (final var field : query.fieldNames()) {
+
+        if (!field.startsWith("$") && !field.equals("transactions") && !field.startsWith("transactions.")) {
+
+          archivedQuery.put(field, query.getValue(field));
+        }
+      }
+      final var actioneerId = query.getValue("transactions.actioneerId");
+      if (actioneerId instanceof String) {
+
+        archivedQuery.put(ACTIONEER_IDS, actioneerId);
+      }
+      final var receiverId = query.getValue("transactions.messages.receiverId");
+      if (receiverId instanceof String) {
+
+        archivedQuery.put(RECEIVER_IDS, new JsonObject().put("$in", new JsonArray().add(receiverId).addNull()));
+      }
+    }
+    return archivedQuery;
+
+  }
+
+  /**
+   * Create the stages of an aggregation over the archive that replace its documents by some archived tasks with their
+   * transactions decompressed. Thus the stages to search over the tasks can be applied after them. The archive must
+   * contain at least one document, that is true if the tasks are obtained from it.
+   *
+   * @param archived the documents of the archive with the tasks.
+   *
+   * @return the stages that return the archived tasks.
+   */
+  public static JsonArray unarchiveStages(final List<JsonObject> archived) {
+
+    final var tasks = new JsonArray();
+    for (final var document : archived) {
+
+      tasks.add(fromArchived(document.copy()));
+    }
+    return new JsonArray().add(new JsonObject().put("$limit", 1))
+        .add(new JsonObject().put("$project",
+            new JsonObject().put("_id", 0).put("tasks", new JsonObject().put("$literal", tasks))))
+        .add(new JsonObject().put("$unwind", "$tasks"))
+        .add(new JsonObject().put("$replaceRoot", new JsonObject().put("newRoot", "$tasks")));
+
+  }
+
+  /**
+   * Return the maximum number of tasks to process on each batch.
+   *
+   * @return the size of the batches of the archive.
+   */
+  public int getBatchSize() {
+
+    return this.batchSize;
+
+  }
+
+  /**
+   * Compress a value.
+   *
+   * @param value to compress.
+   *
+   * @return the compressed value.
+   */
+  public static byte[] compress(final JsonArray value) {
+
+    final var output = new ByteArrayOutputStream();
+    try (var gzip = new GZIPOutputStream(output)) {
+
+      gzip.write(value.toBuffer().getBytes());
+
+    } catch (final IOException cause) {
+
+      throw new IllegalStateException(cause);
+    }
+    return output.toByteArray();
+
+  }
+
+  /**
+   * Decompress a value.
+   *
+   * @param data to decompress.
+   *
+   * @return the decompressed value.
+   */
+  public static JsonArray decompress(final byte[] data) {
+
+    try (var gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+
+      return new JsonArray(new String(gzip.readAllBytes(), StandardCharsets.UTF_8));
+
+    } catch (final IOException cause) {
+
+      throw new IllegalStateException(cause);
+    }
+
+  }
+
+  /**
+   * Convert a task to the document to store on the archive.
+   *
+   * @param task     to archive.
+   * @param compress is {@code true} if the transactions have to be compressed.
+   *
+   * @return the archived document.
+   */
+  public static JsonObject toArchived(final JsonObject task, final boolean compress) {
+
+    final var archived = task.copy();
+    archived.put(ARCHIVED_TS, TimeManager.now());
+    final var transactions = (JsonArray) archived.remove("transactions");
+    final var actioneerIds = new JsonArray();
+    final var receiverIds = new JsonArray();
+    if (transactions != null) {
+
+      for (var i = 0; i < transactions.size(); i++) {
+
+        final var transaction = transactions.getJsonObject(i);
+        final var actioneerId = transaction.getValue("actioneerId");
+        if (actioneerId != null && !actioneerIds.contains(actioneerId)) {
+
+          actioneerIds.add(actioneerId);
+        }
+        for (final var message : transaction.getJsonArray("messages", new JsonArray())) {
+
+          final var receiverId = ((JsonObject) message).getValue("receiverId");
+          if (receiverId != null && !receiverIds.contains(receiverId)) {
+
+            receiverIds.add(receiverId);
+          }
+        }
+      }
+      if (compress) {
+
+        archived.put(COMPRESSED_TRANSACTIONS, new JsonObject().put("$binary", compress(transactions)));
+
+      } else {
+
+        archived.put("transactions", transactions);
+      }
+    }
+    archived.put(ACTIONEER_IDS, actioneerIds);
+    archived.put(RECEIVER_IDS, receiverIds);
+    return archived;
+
+  }
+
+  /**
+   * Convert an archived document to the task that it contains.
+   *
+   * @param archived document of the archive.
+   *
+   * @return the archived task.
+   */
+  public static JsonObject fromArchived(final JsonObject archived) {
+
+    archived.remove(ARCHIVED_TS);
+    archived.remove(ACTIONEER_IDS);
+    archived.remove(RECEIVER_IDS);
+    final var blob = archived.remove(COMPRESSED_TRANSACTIONS);
+    if (blob instanceof JsonObject) {
+
+      archived.put("transactions", decompress(((JsonObject) blob).getBinary("$binary")));
+    }
+    return archived;
+
+  }
+
+  /**
+   * Create the indexes and start to move periodically the closed tasks to the archive.
+   *
+   * @param conf configuration of the archive.
+   *
+   * @return the future that will inform when the archive is started.
+   */
+  public Future<Void> start(final JsonObject conf) {
+
+    final var configuration = conf == null ? new JsonObject() : conf;
+    this.age = configuration.getLong("age", DEFAULT_AGE);
+    this.batchSize = Math.max(1, configuration.getInteger("batchSize", DEFAULT_BATCH_SIZE));
+    this.compress = configuration.getBoolean("compress", true);
+    final var period = Math.max(1L, configuration.getLong("period", DEFAULT_PERIOD));
+    return this.partitions.forEach(this::createIndexes)
+        .compose(empty -> this.pool.createIndexes(ARCHIVE_COLLECTION,
+            List.of(new IndexModel(new JsonObject().put("closeTs", 1), new IndexOptions().background(true)),
+                new IndexModel(new JsonObject().put("requesterId", 1), new IndexOptions().background(true)),
+                new IndexModel(new JsonObject().put(ACTIONEER_IDS, 1), new IndexOptions().background(true)),
+                new IndexModel(new JsonObject().put(RECEIVER_IDS, 1), new IndexOptions().background(true)),
+                TextSearch.createIndex(TasksRepositoryImpl.TEXT_WEIGHTS))))
+        .onSuccess(empty -> {
+
+          this.timer = this.vertx.setPeriodic(period, id -> this.archiveAll());
+          Logger.info("Archiving the tasks closed more than {} seconds ago", this.age);
+
+        });
+
+  }
+
+  /**
+   * Create the index to find the closed tasks of a collection.
+   *
+   * @param collection with tasks.
+   *
+   * @return the future that will inform when the index is created.
+   */
+  public Future<Void> createIndexes(final String collection) {
+
+    return this.pool.createIndexes(collection, List.of(new IndexModel(new JsonObject().put("closeTs", 1),
+        new IndexOptions().name("closeTsIndex").background(true).sparse(true))));
+
+  }
+
+  /**
+   * Stop to move the closed tasks to the archive.
+   */
+  public void stop() {
+
+    if (this.timer != -1) {
+
+      this.vertx.cancelTimer(this.timer);
+      this.timer = -1;
+    }
+
+  }
+
+  /**
+   * Move all the tasks that have been closed for longer than the age to the archive. Nothing is done if the tasks are
+   * already being archived.
+   */
+  protected void archiveAll() {
+
+    synchronized (this) {
+
+      if (this.archiving) {
+
+        return;
+      }
+      this.archiving = true;
+    }
+    this.archiveUntilEmpty(TimeManager.now() - this.age, 0).onComplete(archived -> {
+
+      synchronized (this) {
+
+        this.archiving = false;
+      }
+      if (archived.failed()) {
+
+        Logger.trace(archived.cause(), "Cannot archive the closed tasks");
+
+      } else if (archived.result() > 0) {
+
+        Logger.debug("Archived {} closed tasks", archived.result());
+      }
+
+    });
+
+  }
+
+  /**
+   * Move batches of tasks to the archive until all the tasks closed before a time stamp are archived.
+   *
+   * @param closedBefore time stamp that the tasks have to be closed before to be archived.
+   * @param total        number of tasks already archived.
+   *
+   * @return the future with the number of archived tasks.
+   */
+  protected Future<Integer> archiveUntilEmpty(final long closedBefore, final int total) {
+
+    return this.archive(closedBefore).compose(archived -> {
+
+      if (archived < this.batchSize) {
+
+        return Future.succeededFuture(total + archived);
+
+      } else {
+
+        return this.archiveUntilEmpty(closedBefore, total + archived);
+      }
+
+    });
+
+  }
+
+  /**
+   * Move a batch of tasks closed before a time stamp, from each collection with tasks, to the archive.
+   *
+   * @param closedBefore time stamp that the tasks have to be closed before to be archived.
+   *
+   * @return the future with the number of archived tasks.
+   */
+  public Future<Integer> archive(final long closedBefore) {
+
+    final var archived = new int[] { 0 };
+    return this.partitions.forEach(collection -> this.archive(collection, closedBefore).onSuccess(moved -> {
+
+      archived[0] += moved;
+
+    })).map(empty -> archived[0]);
+
+  }
+
+  /**
+   * Move a batch of tasks closed before a time stamp to the archive. The tasks are first stored on the archive and
+   * after removed from the tasks collection, so a task is never lost when any of the steps fails.
+   *
+   * @param collection   where the tasks are stored.
+   * @param closedBefore time stamp that the tasks have to be closed before to be archived.
+   *
+   * @return the future with the number of archived tasks.
+   */
+  protected Future<Integer> archive(final String collection, final long closedBefore) {
+
+    final var query = new JsonObject().put("closeTs", new JsonObject().put("$lt", closedBefore));
+    final var options = new FindOptions().setSort(new JsonObject().put("closeTs", 1)).setLimit(this.batchSize);
+    return this.pool.findWithOptions(collection, query, options).compose(tasks -> {
+
+      if (tasks.isEmpty()) {
+
+        return Future.succeededFuture(0);
+      }
+      final var operations = new ArrayList<BulkOperation>();
+      final var ids = new JsonArray();
+      for (final var task : tasks) {
+
+        final var id = task.getValue("_id");
+        ids.add(id);
+        operations.add(BulkOperation.createReplace(new JsonObject().put("_id", id), toArchived(task, this.compress),
+            true));
+      }
+      final var remove = query.copy().put("_id", new JsonObject().put("$in", ids));
+      return this.pool.bulkWrite(ARCHIVE_COLLECTION, operations)
+          .compose(written -> this.pool.removeDocuments(collection, remove)).map(removed -> tasks.size());
+
+    });
+
+  }
+
+  /**
+   * Search for an archived task.
+   *
+   * @param id     identifier of the task.
+   * @param fields to return, or {@code null} to return all.
+   *
+   * @return the future archived task, or {@code null} if it is not archived.
+   */
+  public Future<JsonObject> findTask(final String id, final JsonObject fields) {
+
+    return this.pool.findOne(ARCHIVE_COLLECTION, new JsonObject().put("_id", id), fields).map(found -> {
+
+      if (found == null) {
+
+        return null;
+
+      } else {
+
+        return fromArchived(found);
+      }
+    });
+
+  }
+
+  /**
+   * Remove an archived task.
+   *
+   * @param id identifier of the task.
+   *
+   * @return the future with {@code true} if the task has been removed.
+   */
+  public Future<Boolean> removeTask(final String id) {
+
+    return this.pool.removeDocument(ARCHIVE_COLLECTION, new JsonObject().put("_id", id))
+        .map(result -> result != null && result.getRemovedCount() > 0);
+
+  }
+
+  /**
+   * Remove the archived tasks requested by an user.
+   *
+   * @param requesterId identifier of the requester.
+   *
+   * @return the future with the identifiers of the removed tasks.
+   */
+  public Future<JsonArray> removeTasksOf(final String requesterId) {
+
+    final var query = new JsonObject().put("requesterId", requesterId);
+    final var options = new FindOptions().setFields(new JsonObject().put("_id", 1));
+    return this.pool.findWithOptions(ARCHIVE_COLLECTION, query, options).compose(tasks -> {
+
+      final var ids = new JsonArray();
+      for (final var task : tasks) {
+
+        ids.add(task.getValue("_id"));
+      }
+      if (ids.isEmpty()) {
+
+        return Future.succeededFuture(ids);
+
+      } else {
+
+        final var remove = new JsonObject().put("_id", new JsonObject().put("$in", ids));
+        return this.pool.removeDocuments(ARCHIVE_COLLECTION, remove).map(any -> ids);
+      }
+
+    });
+
+  }
+
+  /**
+   * Remove the transactions of an actioneer from the archived tasks. The archived tasks that contains any of these
+   * transactions are decompressed, filtered and stored again.
+   *
+   * @param actioneerId identifier of the actioneer.
+   *
+   * @return the future that will inform when the transactions are removed.
+   */
+  public Future<Void> removeTransactionsBy(final String actioneerId) {
+
+    final var query = new JsonObject().put(ACTIONEER_IDS, actioneerId);
+    return this.rewriteTransactions(query, transaction -> {
+
+      if (actioneerId.equals(transaction.getValue("actioneerId"))) {
+
+        return null;
+
+      } else {
+
+        return transaction;
+      }
+
+    });
+
+  }
+
+  /**
+   * Remove the messages sent to a receiver from the archived tasks. The archived tasks that contains any of these
+   * messages are decompressed, filtered and stored again. The tasks archived before the receivers were stored on the
+   * archive are also checked, and stored again with them.
+   *
+   * @param receiverId identifier of the receiver.
+   *
+   * @return the future that will inform when the messages are removed.
+   */
+  public Future<Void> removeMessagesTo(final String receiverId) {
+
+    final var query = new JsonObject().put("$or",
+        new JsonArray().add(new JsonObject().put(RECEIVER_IDS, receiverId))
+            .add(new JsonObject().put(RECEIVER_IDS, new JsonObject().put("$exists", false))));
+    return this.rewriteTransactions(query, transaction -> {
+
+      final var messages = transaction.getJsonArray("messages");
+      if (messages != null) {
+
+        final var filtered = new JsonArray();
+        for (final var message : messages) {
+
+          if (!receiverId.equals(((JsonObject) message).getValue("receiverId"))) {
+
+            filtered.add(message);
+          }
+        }
+        transaction.put("messages", filtered);
+      }
+      return transaction;
+
+    });
+
+  }
+
+  /**
+   * Store again the archived tasks that match a query after changing their transactions.
+   *
+   * @param query  to match the archived tasks to change.
+   * @param change to apply to each transaction, that returns {@code null} when the transaction has to be removed.
+   *
+   * @return the future that will inform when the archived tasks are stored again.
+   */
+  protected Future<Void> rewriteTransactions(final JsonObject query, final UnaryOperator<JsonObject> change) {
+
+    return this.pool.find(ARCHIVE_COLLECTION, query).compose(found -> {
+
+      final var operations = new ArrayList<BulkOperation>();
+      for (final var archived : found) {
+
+        final var compressed = archived.containsKey(COMPRESSED_TRANSACTIONS);
+        final var archivedTs = archived.getValue(ARCHIVED_TS);
+        final var task = fromArchived(archived);
+        final var transactions = new JsonArray();
+        for (final var transaction : task.getJsonArray("transactions", new JsonArray())) {
+
+          final var changed = change.apply((JsonObject) transaction);
+          if (changed != null) {
+
+            transactions.add(changed);
+          }
+        }
+        task.put("transactions", transactions);
+        final var filtered = toArchived(task, compressed).put(ARCHIVED_TS, archivedTs);
+        operations.add(BulkOperation.createReplace(new JsonObject().put("_id", task.getValue("_id")), filtered));
+      }
+      if (operations.isEmpty()) {
+
+        return Future.succeededFuture();
+
+      } else {
+
+        return this.pool.bulkWrite(ARCHIVE_COLLECTION, operations).mapEmpty();
+      }
+
+    });
+
+  }
+
+}
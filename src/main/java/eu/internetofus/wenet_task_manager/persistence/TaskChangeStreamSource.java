@@ -0,0 +1,220 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import eu.internetofus.wenet_task_manager.events.TaskEvents;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.mongo.MongoClient;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.tinylog.Logger;
+
+/**
+ * The source of events that watches the change stream of the tasks collection, so the events of the changes done by
+ * any instance of the component are published. The change streams are only available when the database is a replica
+ * set, otherwise the events have to be published by the repository.
+ *
+ * @see TaskEvents#CHANGE_STREAM_SOURCE
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TaskChangeStreamSource {
+
+  /**
+   * The default number of changes to obtain on each batch.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 100;
+
+  /**
+   * The milliseconds to wait before watching again the changes when the stream fails.
+   */
+  public static final long RETRY_DELAY = 5000L;
+
+  /**
+   * The pattern of the updated fields when a transaction is added.
+   */
+  protected static final Pattern TRANSACTION_FIELD = Pattern.compile("transactions(\\.\\d+)?");
+
+  /**
+   * The pattern of the updated fields when a message is added.
+   */
+  protected static final Pattern MESSAGE_FIELD = Pattern.compile("transactions\\.(\\d+)\\.messages(\\.\\d+)?");
+
+  /**
+   * The event bus to schedule the retries.
+   */
+  protected Vertx vertx;
+
+  /**
+   * The pool of database connections.
+   */
+  protected MongoClient pool;
+
+  /**
+   * The component to publish the events.
+   */
+  protected TaskEvents events;
+
+  /**
+   * The number of changes to obtain on each batch.
+   */
+  protected int batchSize;
+
+  /**
+   * The stream with the changes.
+   */
+  protected ReadStream<ChangeStreamDocument<JsonObject>> stream;
+
+  /**
+   * Create the source.
+   *
+   * @param vertx     event bus to schedule the retries.
+   * @param pool      of database connections.
+   * @param events    component to publish the events.
+   * @param batchSize number of changes to obtain on each batch.
+   */
+  public TaskChangeStreamSource(final Vertx vertx, final MongoClient pool, final TaskEvents events,
+      final int batchSize) {
+
+    this.vertx = vertx;
+    this.pool = pool;
+    this.events = events;
+    this.batchSize = batchSize;
+
+  }
+
+  /**
+   * Start to watch the changes of the tasks.
+   */
+  public void start() {
+
+    final var pipeline = new JsonArray().add(new JsonObject().put("$match", new JsonObject().put("operationType",
+        new JsonObject().put("$in", new JsonArray().add("insert").add("update").add("replace")))));
+    this.stream = this.pool.watch(TasksRepositoryImpl.TASKS_COLLECTION, pipeline, true, this.batchSize);
+    this.stream.handler(this::publish);
+    this.stream.exceptionHandler(error -> {
+
+      Logger.warn(error, "Cannot watch the changes of the tasks, retrying in {}ms", RETRY_DELAY);
+      this.stream = null;
+      this.vertx.setTimer(RETRY_DELAY, id -> this.start());
+
+    });
+
+  }
+
+  /**
+   * Publish the events of a change.
+   *
+   * @param change to publish.
+   */
+  protected void publish(final ChangeStreamDocument<JsonObject> change) {
+
+    final List<String> updatedFields = new ArrayList<>();
+    final var description = change.getUpdateDescription();
+    if (description != null && description.getUpdatedFields() != null) {
+
+      updatedFields.addAll(description.getUpdatedFields().keySet());
+    }
+    final var operation = change.getOperationType() == null ? null : change.getOperationType().getValue();
+    for (final var event : toEvents(operation, change.getFullDocument(), updatedFields)) {
+
+      this.vertx.eventBus().publish(TaskEvents.ADDRESS, event);
+    }
+
+  }
+
+  /**
+   * Convert a change of a task to the events to publish.
+   *
+   * @param operation     that has changed the task.
+   * @param task          the task after the change.
+   * @param updatedFields the fields that has been updated.
+   *
+   * @return the events of the change.
+   */
+  public static List<JsonObject> toEvents(final String operation, final JsonObject task,
+      final Collection<String> updatedFields) {
+
+    final var events = new ArrayList<JsonObject>();
+    if (task == null) {
+
+      return events;
+    }
+    final var taskId = String.valueOf(task.getValue("_id"));
+    if ("insert".equals(operation)) {
+
+      events.add(TaskEvents.createEvent(TaskEvents.TASK_CREATED, taskId, task, null, null));
+
+    } else if ("replace".equals(operation)) {
+
+      events.add(TaskEvents.createEvent(TaskEvents.TASK_UPDATED, taskId, task, null, null));
+
+    } else if ("update".equals(operation)) {
+
+      final var transactions = task.getJsonArray("transactions", new JsonArray());
+      var updated = false;
+      for (final var field : updatedFields) {
+
+        final var messageMatcher = MESSAGE_FIELD.matcher(field);
+        if (TRANSACTION_FIELD.matcher(field).matches()) {
+
+          if (!transactions.isEmpty()) {
+
+            events.add(TaskEvents.createEvent(TaskEvents.TRANSACTION_ADDED, taskId, task, "transaction",
+                transactions.getValue(transactions.size() - 1)));
+          }
+
+        } else if (messageMatcher.matches()) {
+
+          final var index = Integer.parseInt(messageMatcher.group(1));
+          final var transaction = index < transactions.size() ? transactions.getJsonObject(index) : null;
+          final var messages = transaction == null ? null : transaction.getJsonArray("messages");
+          if (messages != null && !messages.isEmpty()) {
+
+            events.add(TaskEvents.createEvent(TaskEvents.MESSAGE_ADDED, taskId, task, "message",
+                messages.getValue(messages.size() - 1)));
+          }
+
+        } else if ("closeTs".equals(field) && task.getValue("closeTs") != null) {
+
+          events.add(TaskEvents.createEvent(TaskEvents.TASK_CLOSED, taskId, task, null, null));
+
+        } else if (!field.startsWith("transactions.") && !field.startsWith("_")) {
+
+          updated = true;
+        }
+      }
+      if (updated) {
+
+        events.add(TaskEvents.createEvent(TaskEvents.TASK_UPDATED, taskId, task, null, null));
+      }
+    }
+    return events;
+
+  }
+
+}
@@ -0,0 +1,475 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import eu.internetofus.common.components.interaction_protocol_engine.WeNetInteractionProtocolEngine;
+import eu.internetofus.common.components.models.TaskTransaction;
+import eu.internetofus.common.model.TimeManager;
+import eu.internetofus.wenet_task_manager.events.TaskEvents;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.IndexModel;
+import io.vertx.ext.mongo.IndexOptions;
+import io.vertx.ext.mongo.MongoClient;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.tinylog.Logger;
+
+/**
+ * The scheduler that expires the open tasks when the deadline defined on their attributes is reached. The deadlines
+ * are loaded from the database when it starts, and they are maintained on a {@link HierarchicalTimingWheel} that is
+ * advanced each second, so there is not a timer for each task. When a deadline is reached the
+ * {@link TaskEvents#TASK_EXPIRED} event is published, the task is closed if it is configured, and the interaction
+ * protocol engine is notified with a transaction if a label for it is configured.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TaskDeadlineScheduler {
+
+  /**
+   * The default attributes of the tasks that define the deadline.
+   */
+  public static final List<String> DEFAULT_FIELDS = List.of("deadlineTs", "expirationDate");
+
+  /**
+   * The default number of buckets of each level of the wheel.
+   */
+  public static final int DEFAULT_WHEEL_SIZE = 512;
+
+  /**
+   * The milliseconds between the advances of the wheel.
+   */
+  public static final long ADVANCE_PERIOD = 1000L;
+
+  /**
+   * The deadline of a task.
+   */
+  public static class Deadline {
+
+    /**
+     * The identifier of the task.
+     */
+    public String taskId;
+
+    /**
+     * The attribute of the task that defines the deadline.
+     */
+    public String field;
+
+  }
+
+  /**
+   * The event bus to use.
+   */
+  protected Vertx vertx;
+
+  /**
+   * The pool of database connections.
+   */
+  protected MongoClient pool;
+
+  /**
+   * The component to publish the events of the tasks.
+   */
+  protected TaskEvents events;
+
+  /**
+   * The counters of the closed tasks.
+   */
+  protected TaskStatisticsCounters statistics;
+
+  /**
+   * The router of the tasks into the collections where they are stored.
+   */
+  protected TaskPartitions partitions;
+
+  /**
+   * The attributes of the tasks that define the deadline.
+   */
+  protected List<String> fields;
+
+  /**
+   * This is {@code true} if the expired tasks have to be closed.
+   */
+  protected boolean close;
+
+  /**
+   * The label of the transaction to notify the interaction protocol engine, or {@code null} to not notify it.
+   */
+  protected String transactionLabel;
+
+  /**
+   * The wheel with the deadlines of the open tasks.
+   */
+  protected HierarchicalTimingWheel<Deadline> wheel;
+
+  /**
+   * The scheduled deadlines by task identifier.
+   */
+  protected Map<String, HierarchicalTimingWheel.Timeout<Deadline>> scheduled = new HashMap<>();
+
+  /**
+   * The timer that advances the wheel.
+   */
+  protected long timer = -1;
+
+  /**
+   * Create the scheduler.
+   *
+   * @param vertx      event bus to use.
+   * @param pool       of database connections.
+   * @param events     component to publish the events of the tasks.
+   * @param statistics counters of the closed tasks.
+   * @param conf       configuration of the scheduler.
+   */
+  public TaskDeadlineScheduler(final Vertx vertx, final MongoClient pool, final TaskEvents events,
+      final TaskStatisticsCounters statistics, final JsonObject conf) {
+
+    this(vertx, pool, events, statistics, new TaskPartitions(pool), conf);
+
+  }
+
+  /**
+   * Create the scheduler.
+   *
+   * @param vertx      event bus to use.
+   * @param pool       of database connections.
+   * @param events     component to publish the events of the tasks.
+   * @param statistics counters of the closed tasks.
+   * @param partitions router of the tasks into the collections where they are stored.
+   * @param conf       configuration of the scheduler.
+   */
+  public TaskDeadlineScheduler(final Vertx vertx, final MongoClient pool, final TaskEvents events,
+      final TaskStatisticsCounters statistics, final TaskPartitions partitions, final JsonObject conf) {
+
+    this.vertx = vertx;
+    this.pool = pool;
+    this.events = events;
+    this.statistics = statistics;
+    this.partitions = partitions;
+    final var configuration = conf == null ? new JsonObject() : conf;
+    this.fields = new ArrayList<>();
+    for (final var field : configuration.getJsonArray("fields", new JsonArray(DEFAULT_FIELDS))) {
+
+      this.fields.add(String.valueOf(field));
+    }
+    this.close = configuration.getBoolean("close", false);
+    this.transactionLabel = configuration.getString("transactionLabel");
+    if (this.transactionLabel != null && this.transactionLabel.isBlank()) {
+
+      this.transactionLabel = null;
+    }
+    this.wheel = new HierarchicalTimingWheel<>(1L, configuration.getInteger("wheelSize", DEFAULT_WHEEL_SIZE),
+        TimeManager.now());
+
+  }
+
+  /**
+   * Obtain the deadline of a task, that is the minimum time stamp defined on the deadline attributes.
+   *
+   * @param task   to obtain the deadline.
+   * @param fields attributes of the task that define the deadline.
+   *
+   * @return the attribute with the minimum deadline and its value, or {@code null} if the task does not has deadline.
+   */
+  public static JsonObject deadlineOf(final JsonObject task, final List<String> fields) {
+
+    final var attributes = task.getJsonObject("attributes");
+    JsonObject deadline = null;
+    for (var i = 0; attributes != null && i < fields.size(); i++) {
+
+      final var field = fields.get(i);
+      final var value = attributes.getValue(field);
+      if (value instanceof Number && (deadline == null || ((Number) value).longValue() < deadline.getLong("ts"))) {
+
+        deadline = new JsonObject().put("field", field).put("ts", ((Number) value).longValue());
+      }
+    }
+    return deadline;
+
+  }
+
+  /**
+   * Create the indexes over the deadline attributes, load the deadlines of the open tasks and start to advance the
+   * wheel.
+   *
+   * @return the future that will inform when the scheduler is started.
+   */
+  public Future<Void> start() {
+
+    return this.partitions.forEach(this::createIndexes).compose(empty -> this.partitions.forEach(this::seed))
+        .onSuccess(empty -> {
+
+          this.timer = this.vertx.setPeriodic(ADVANCE_PERIOD, id -> this.advance(TimeManager.now()));
+          Logger.info("Scheduled {} task deadlines", this.getScheduledCount());
+
+        });
+
+  }
+
+  /**
+   * Create the indexes over the deadline attributes of a collection.
+   *
+   * @param collection with tasks.
+   *
+   * @return the future that will inform when the indexes are created.
+   */
+  public Future<Void> createIndexes(final String collection) {
+
+    final var indexes = new ArrayList<IndexModel>();
+    for (final var field : this.fields) {
+
+      indexes.add(new IndexModel(new JsonObject().put("attributes." + field, 1),
+          new IndexOptions().background(true).sparse(true)));
+    }
+    return this.pool.createIndexes(collection, indexes);
+
+  }
+
+  /**
+   * Stop to advance the wheel.
+   */
+  public void stop() {
+
+    if (this.timer != -1) {
+
+      this.vertx.cancelTimer(this.timer);
+      this.timer = -1;
+    }
+
+  }
+
+  /**
+   * Schedule the deadlines of the open tasks that are stored on a collection.
+   *
+   * @param collection with tasks.
+   *
+   * @return the future that will inform when all the deadlines are scheduled.
+   */
+  protected Future<Void> seed(final String collection) {
+
+    if (this.fields.isEmpty()) {
+
+      return Future.succeededFuture();
+    }
+    final Promise<Void> promise = Promise.promise();
+    final var deadlines = new JsonArray();
+    final var fieldsToReturn = new JsonObject();
+    for (final var field : this.fields) {
+
+      deadlines.add(new JsonObject().put("attributes." + field, new JsonObject().put("$type", "number")));
+      fieldsToReturn.put("attributes." + field, 1);
+    }
+    final var query = new JsonObject().putNull("closeTs").put("$or", deadlines);
+    final var batch = this.pool.findBatchWithOptions(collection, query, new FindOptions().setFields(fieldsToReturn));
+    batch.handler(task -> this.schedule(String.valueOf(task.getValue("_id")), task));
+    batch.endHandler(end -> promise.tryComplete());
+    batch.exceptionHandler(promise::tryFail);
+    return promise.future();
+
+  }
+
+  /**
+   * Schedule the deadline of a task. Any previous deadline of the task is cancelled, and nothing is scheduled if the
+   * task is closed or it does not have a deadline.
+   *
+   * @param taskId identifier of the task.
+   * @param task   with the attributes that define the deadline.
+   */
+  public synchronized void schedule(final String taskId, final JsonObject task) {
+
+    this.cancel(taskId);
+    final var deadline = task.getValue("closeTs") == null ? deadlineOf(task, this.fields) : null;
+    if (deadline != null) {
+
+      final var item = new Deadline();
+      item.taskId = taskId;
+      item.field = deadline.getString("field");
+      this.scheduled.put(taskId, this.wheel.schedule(item, deadline.getLong("ts")));
+    }
+
+  }
+
+  /**
+   * Cancel the deadline of a task.
+   *
+   * @param taskId identifier of the task.
+   */
+  public synchronized void cancel(final String taskId) {
+
+    final var timeout = this.scheduled.remove(taskId);
+    if (timeout != null) {
+
+      timeout.cancel();
+    }
+
+  }
+
+  /**
+   * Return the number of tasks with a scheduled deadline.
+   *
+   * @return the number of scheduled deadlines.
+   */
+  public synchronized int getScheduledCount() {
+
+    return this.scheduled.size();
+
+  }
+
+  /**
+   * Advance the wheel and expire the tasks whose deadline has been reached.
+   *
+   * @param now current time.
+   */
+  public void advance(final long now) {
+
+    final var expired = new ArrayList<HierarchicalTimingWheel.Timeout<Deadline>>();
+    synchronized (this) {
+
+      this.wheel.advance(now, timeout -> {
+
+        this.scheduled.remove(timeout.getItem().taskId, timeout);
+        expired.add(timeout);
+
+      });
+    }
+    for (final var timeout : expired) {
+
+      this.expire(timeout.getItem(), timeout.getExpiration()).onFailure(
+          cause -> Logger.warn(cause, "Cannot expire the task {}", timeout.getItem().taskId));
+    }
+
+  }
+
+  /**
+   * Expire a task. The task is only expired if it is open and its deadline has not changed, so it is expired once
+   * even if there are more instances of the scheduler.
+   *
+   * @param deadline of the task.
+   * @param ts       time stamp of the deadline.
+   *
+   * @return the future that will inform when the task is expired.
+   */
+  protected Future<Void> expire(final Deadline deadline, final long ts) {
+
+    return this.partitions.resolve(deadline.taskId).compose(collection -> this.expire(collection, deadline, ts));
+
+  }
+
+  /**
+   * Expire a task that is stored on a collection.
+   *
+   * @param collection where the task is stored.
+   * @param deadline   of the task.
+   * @param ts         time stamp of the deadline.
+   *
+   * @return the future that will inform when the task is expired.
+   */
+  protected Future<Void> expire(final String collection, final Deadline deadline, final long ts) {
+
+    final var query = new JsonObject().put("_id", deadline.taskId).putNull("closeTs")
+        .put("attributes." + deadline.field, ts);
+    if (this.close) {
+
+      final var now = TimeManager.now();
+      final var update = new JsonObject().put("$set", new JsonObject().put("closeTs", now).put("_lastUpdateTs", now));
+      return ModelVersions.findOneAndUpdate(this.pool, collection, query, update).compose(open -> {
+
+        if (open == null) {
+
+          return Future.succeededFuture();
+
+        } else {
+
+          open.put("closeTs", now);
+          return this.statistics.closeTask(open, now).onSuccess(empty -> {
+
+            this.events.publish(TaskEvents.TASK_CLOSED, deadline.taskId, open, null, null);
+            this.expired(deadline, ts, open);
+
+          });
+        }
+      });
+
+    } else {
+
+      return this.pool.findOne(collection, query, null).map(open -> {
+
+        if (open != null) {
+
+          this.expired(deadline, ts, open);
+        }
+        return null;
+      });
+    }
+
+  }
+
+  /**
+   * Called when a task has expired to publish the event and notify the interaction protocol engine.
+   *
+   * @param deadline of the task.
+   * @param ts       time stamp of the deadline.
+   * @param task     that has expired.
+   */
+  protected void expired(final Deadline deadline, final long ts, final JsonObject task) {
+
+    Logger.debug("The task {} has expired at {}", deadline.taskId, ts);
+    final var payload = new JsonObject().put("field", deadline.field).put("ts", ts);
+    this.vertx.eventBus().publish(TaskEvents.ADDRESS,
+        TaskEvents.createEvent(TaskEvents.TASK_EXPIRED, deadline.taskId, task, "deadline", payload));
+    if (this.transactionLabel != null) {
+
+      final var transaction = new TaskTransaction();
+      transaction.taskId = deadline.taskId;
+      transaction.label = this.transactionLabel;
+      transaction.actioneerId = task.getString("requesterId");
+      transaction.attributes = payload;
+      this.notifyEngine(transaction);
+    }
+
+  }
+
+  /**
+   * Notify the interaction protocol engine that a task has expired.
+   *
+   * @param transaction to notify.
+   */
+  protected void notifyEngine(final TaskTransaction transaction) {
+
+    WeNetInteractionProtocolEngine.createProxy(this.vertx).doTransaction(transaction).onComplete(notified -> {
+
+      if (notified.failed()) {
+
+        Logger.trace(notified.cause(), "Cannot notify the interaction protocol engine that the task {} has expired.",
+            transaction.taskId);
+      }
+    });
+
+  }
+
+}
@@ -0,0 +1,657 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import eu.internetofus.common.model.TimeManager;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.MongoClient;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import org.bson.types.ObjectId;
+import org.tinylog.Logger;
+
+/**
+ * The router of the tasks into collections partitioned by the month when they have been created. When the partitions
+ * are enabled the new tasks are stored on the collection of the current month, and the partition of each task is
+ * stored on an index, so the operations over a task are done over its collection. The pages of tasks are only
+ * searched on the partitions that overlap the requested creation range. The tasks stored before enabling the partitions
+ * stay on the {@link TasksRepositoryImpl#TASKS_COLLECTION}, that is always used as one more partition.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TaskPartitions {
+
+  /**
+   * The name of the collection with the partition of each task.
+   */
+  public static final String PARTITIONS_COLLECTION = "taskPartitions";
+
+  /**
+   * The prefix of the name of the partitions.
+   */
+  public static final String PARTITION_PREFIX = TasksRepositoryImpl.TASKS_COLLECTION + "_";
+
+  /**
+   * The pattern that match the name of the partitions.
+   */
+  public static final Pattern PARTITION_PATTERN = Pattern.compile(PARTITION_PREFIX + "\\d{6}");
+
+  /**
+   * The format of the month of the partitions.
+   */
+  public static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+
+  /**
+   * The seconds before the start of a partition that can have a task created on it. A task can be stored on the
+   * partition of the previous month when it is created at the same time that the month changes.
+   */
+  public static final long CREATION_SLACK = 60L;
+
+  /**
+   * The default maximum number of partitions of the tasks to maintain in memory.
+   */
+  public static final int DEFAULT_CACHE_SIZE = 10000;
+
+  /**
+   * The pool of database connections.
+   */
+  protected MongoClient pool;
+
+  /**
+   * This is {@code true} if the tasks are stored on partitions.
+   */
+  protected boolean enabled = false;
+
+  /**
+   * The maximum number of partitions of the tasks to maintain in memory.
+   */
+  protected int cacheSize = DEFAULT_CACHE_SIZE;
+
+  /**
+   * The known partitions sorted by month.
+   */
+  protected TreeSet<String> partitions = new TreeSet<>();
+
+  /**
+   * The last resolved partitions of the tasks.
+   */
+  protected Map<String, String> cache = new LinkedHashMap<>(16, 0.75f, true) {
+
+    /**
+     * Serialization identifier.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+
+      return this.size() > TaskPartitions.this.cacheSize;
+    }
+
+  };
+
+  /**
+   * Create the router that stores all the tasks on the {@link TasksRepositoryImpl#TASKS_COLLECTION}, until it is
+   * started with the partitions enabled.
+   *
+   * @param pool of database connections.
+   */
+  public TaskPartitions(final MongoClient pool) {
+
+    this.pool = pool;
+
+  }
+
+  /**
+   * Return the partition of the tasks created at a time.
+   *
+   * @param ts time stamp, in seconds, when the task has been created.
+   *
+   * @return the name of the partition.
+   */
+  public static String partitionOf(final long ts) {
+
+    return PARTITION_PREFIX + LocalDateTime.ofEpochSecond(ts, 0, ZoneOffset.UTC).format(MONTH_FORMAT);
+
+  }
+
+  /**
+   * Return the time stamp when a partition starts.
+   *
+   * @param partition name of the partition.
+   *
+   * @return the time stamp, in seconds, of the start of the month of the partition.
+   */
+  public static long startOf(final String partition) {
+
+    final var month = Integer.parseInt(partition.substring(PARTITION_PREFIX.length()));
+    return LocalDateTime.of(month / 100, month % 100, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+
+  }
+
+  /**
+   * Return the time stamp when a partition ends.
+   *
+   * @param partition name of the partition.
+   *
+   * @return the time stamp, in seconds, of the start of the month after the partition.
+   */
+  public static long endOf(final String partition) {
+
+    return LocalDateTime.ofEpochSecond(startOf(partition), 0, ZoneOffset.UTC).plusMonths(1)
+        .toEpochSecond(ZoneOffset.UTC);
+
+  }
+
+  /**
+   * Compare two tasks with the order of a query.
+   *
+   * @param order  to use, where each field is associated to {@code 1} for an ascending order and {@code -1} for a
+   *               descending order.
+   * @param first  task to compare.
+   * @param second task to compare.
+   *
+   * @return a negative value, zero or positive value if the first task is before, equals or after the second one.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public static int compare(final JsonObject order, final JsonObject first, final JsonObject second) {
+
+    for (final var field : order.fieldNames()) {
+
+      final var value1 = valueOf(first, field);
+      final var value2 = valueOf(second, field);
+      var result = 0;
+      if (value1 == null || value2 == null) {
+
+        result = value1 == null ? value2 == null ? 0 : -1 : 1;
+
+      } else if (value1 instanceof Number && value2 instanceof Number) {
+
+        result = Double.compare(((Number) value1).doubleValue(), ((Number) value2).doubleValue());
+
+      } else if (value1 instanceof Comparable && value1.getClass().equals(value2.getClass())) {
+
+        result = ((Comparable) value1).compareTo(value2);
+
+      } else {
+
+        result = String.valueOf(value1).compareTo(String.valueOf(value2));
+      }
+      if (result != 0) {
+
+        final var direction = order.getValue(field);
+        return direction instanceof Number && ((Number) direction).intValue() < 0 ? -result : result;
+      }
+    }
+    return 0;
+
+  }
+
+  /**
+   * Obtain the value of a field, that can be a path separated by dots.
+   *
+   * @param document to get the value.
+   * @param field    path to the value.
+   *
+   * @return the value of the field, or {@code null} if it is not defined.
+   */
+  private static Object valueOf(final JsonObject document, final String field) {
+
+    Object value = document;
+    for (final var name : field.split("\\.")) {
+
+      if (!(value instanceof JsonObject)) {
+
+        return null;
+      }
+      value = ((JsonObject) value).getValue(name);
+    }
+    return value;
+
+  }
+
+  /**
+   * Merge the tasks found on some collections. If a task is on more than one collection, because it has been found
+   * while it was moved between them, it is only added once.
+   *
+   * @param order   of the tasks, or {@code null} to put the tasks of each collection after the previous one.
+   * @param sources tasks found on each collection, sorted by the order.
+   * @param offset  index of the first task to return.
+   * @param max     maximum number of tasks to return.
+   *
+   * @return the merged tasks.
+   */
+  public static List<JsonObject> merge(final JsonObject order, final List<List<JsonObject>> sources, final int offset,
+      final int max) {
+
+    final var ids = new HashSet<Object>();
+    final var merged = new ArrayList<JsonObject>();
+    final var indexes = new int[sources.size()];
+    var skip = offset;
+    while (merged.size() < max) {
+
+      var selected = -1;
+      for (var i = 0; i < indexes.length; i++) {
+
+        if (indexes[i] < sources.get(i).size() && (selected < 0 || order != null
+            && compare(order, sources.get(i).get(indexes[i]), sources.get(selected).get(indexes[selected])) < 0)) {
+
+          selected = i;
+        }
+      }
+      if (selected < 0) {
+
+        break;
+      }
+      final var next = sources.get(selected).get(indexes[selected]++);
+      if (next.getValue("_id") == null || ids.add(next.getValue("_id"))) {
+
+        if (skip > 0) {
+
+          skip--;
+
+        } else {
+
+          merged.add(next);
+        }
+      }
+    }
+    return merged;
+
+  }
+
+  /**
+   * Return the projection with the fields that are necessary to merge the tasks found on some collections.
+   *
+   * @param order  of the tasks, or {@code null} if they are not sorted.
+   * @param fields to add into the projection, or {@code null} if no one is necessary.
+   *
+   * @return the projection with the identifier and the fields of the order.
+   *
+   * @see #merge(JsonObject, List, int, int)
+   */
+  public static JsonObject keysProjection(final JsonObject order, final JsonObject fields) {
+
+    final var projection = fields == null ? new JsonObject() : fields.copy();
+    projection.put("_id", 1);
+    if (order != null) {
+
+      for (final var field : order.fieldNames()) {
+
+        if (!projection.containsKey(field)) {
+
+          projection.put(field, 1);
+        }
+      }
+    }
+    return projection;
+
+  }
+
+  /**
+   * Sort the tasks in the order of some identifiers. If a task is found more than once only the first one is used.
+   *
+   * @param keys  with the identifiers of the tasks in the order to return them.
+   * @param tasks to sort.
+   *
+   * @return the tasks in the order of the identifiers, without the identifiers that are not found.
+   */
+  public static List<JsonObject> sortByIds(final List<JsonObject> keys, final List<JsonObject> tasks) {
+
+    final var found = new LinkedHashMap<Object, JsonObject>();
+    for (final var task : tasks) {
+
+      found.putIfAbsent(task.getValue("_id"), task);
+    }
+    final var sorted = new ArrayList<JsonObject>();
+    for (final var key : keys) {
+
+      final var task = found.get(key.getValue("_id"));
+      if (task != null) {
+
+        sorted.add(task);
+      }
+    }
+    return sorted;
+
+  }
+
+  /**
+   * Check if the tasks are stored on partitions.
+   *
+   * @return {@code true} if the tasks are partitioned.
+   */
+  public boolean isEnabled() {
+
+    return this.enabled;
+
+  }
+
+  /**
+   * Enable the partitions, if the configuration does not disable them, and load the existing partitions.
+   *
+   * @param conf configuration of the partitions.
+   *
+   * @return the future that will inform when the partitions are loaded.
+   */
+  public Future<Void> start(final JsonObject conf) {
+
+    final var configuration = conf == null ? new JsonObject() : conf;
+    this.cacheSize = Math.max(0, configuration.getInteger("cacheSize", DEFAULT_CACHE_SIZE));
+    if (!configuration.getBoolean("enabled", true)) {
+
+      return Future.succeededFuture();
+    }
+    return this.pool.getCollections().map(collections -> {
+
+      synchronized (this) {
+
+        for (final var collection : collections) {
+
+          if (PARTITION_PATTERN.matcher(collection).matches()) {
+
+            this.partitions.add(collection);
+          }
+        }
+        this.enabled = true;
+      }
+      Logger.info("Storing the tasks on monthly partitions, {} defined", this.partitions.size());
+      return null;
+    });
+
+  }
+
+  /**
+   * Return all the collections where the tasks can be stored.
+   *
+   * @return the collections with tasks, starting with the collection with the tasks stored before the partitions.
+   */
+  public synchronized List<String> getCollections() {
+
+    final var collections = new ArrayList<String>();
+    collections.add(TasksRepositoryImpl.TASKS_COLLECTION);
+    collections.addAll(this.partitions);
+    return collections;
+
+  }
+
+  /**
+   * Return the collections that can contain the tasks that match a query. If the query has a range over the creation
+   * time, only the partitions that overlap it are returned.
+   *
+   * @param query to match the tasks.
+   *
+   * @return the collections that can contain tasks that match the query.
+   */
+  public synchronized List<String> collectionsFor(final JsonObject query) {
+
+    final var collections = new ArrayList<String>();
+    collections.add(TasksRepositoryImpl.TASKS_COLLECTION);
+    var from = Long.MIN_VALUE;
+    var to = Long.MAX_VALUE;
+    final var creation = query == null ? null : query.getValue("_creationTs");
+    if (creation instanceof Number) {
+
+      from = ((Number) creation).longValue();
+      to = from;
+
+    } else if (creation instanceof JsonObject) {
+
+      final var range = (JsonObject) creation;
+      for (final var operator : List.of("$gte", "$gt")) {
+
+        if (range.getValue(operator) instanceof Number) {
+
+          from = Math.max(from, ((Number) range.getValue(operator)).longValue());
+        }
+      }
+      for (final var operator : List.of("$lte", "$lt")) {
+
+        if (range.getValue(operator) instanceof Number) {
+
+          to = Math.min(to, ((Number) range.getValue(operator)).longValue());
+        }
+      }
+    }
+    for (final var partition : this.partitions) {
+
+      if (startOf(partition) <= to && (from == Long.MIN_VALUE || endOf(partition) + CREATION_SLACK > from)) {
+
+        collections.add(partition);
+      }
+    }
+    return collections;
+
+  }
+
+  /**
+   * Store a new task on its collection. When the partitions are enabled and the task can not be stored, its partition
+   * is removed from the index, so the identifier can be used again.
+   *
+   * @param task        to store.
+   * @param initializer function to prepare a partition that is used by first time, for example to create its indexes.
+   * @param writer      function to store the task on the collection.
+   * @param <T>         type of the stored task.
+   *
+   * @return the future stored task.
+   *
+   * @see #prepareCollectionFor(JsonObject, Function)
+   */
+  public <T> Future<T> store(final JsonObject task, final Function<String, Future<Void>> initializer,
+      final Function<String, Future<T>> writer) {
+
+    return this.prepareCollectionFor(task, initializer).compose(collection -> {
+
+      final var id = task.getValue("_id");
+      return writer.apply(collection).recover(cause -> {
+
+        if (id == null) {
+
+          return Future.failedFuture(cause);
+
+        } else {
+
+          Logger.trace(cause, "Cannot store the task {}, so its partition is removed", id);
+          return this.unregister(new JsonArray().add(String.valueOf(id)))
+              .transform(unregistered -> Future.failedFuture(cause));
+        }
+
+      });
+    });
+
+  }
+
+  /**
+   * Prepare the collection where a new task has to be stored. When the partitions are enabled, the task receives an
+   * identifier, if it does not have one, and its partition is registered on the index before it is stored. The
+   * registration fails if the identifier is already used by another task, on the partitions or on the
+   * {@link TasksRepositoryImpl#TASKS_COLLECTION}. The registration is not removed if the task is not stored, so use
+   * {@link #store(JsonObject, Function, Function)} to store the task.
+   *
+   * @param task        to store.
+   * @param initializer function to prepare a partition that is used by first time, for example to create its indexes.
+   *
+   * @return the future collection where the task has to be stored.
+   */
+  public Future<String> prepareCollectionFor(final JsonObject task,
+      final Function<String, Future<Void>> initializer) {
+
+    if (!this.enabled) {
+
+      return Future.succeededFuture(TasksRepositoryImpl.TASKS_COLLECTION);
+    }
+    final var partition = partitionOf(TimeManager.now());
+    Future<Void> initialized = Future.succeededFuture();
+    synchronized (this) {
+
+      if (!this.partitions.contains(partition)) {
+
+        initialized = initializer.apply(partition).onSuccess(empty -> {
+
+          synchronized (this) {
+
+            this.partitions.add(partition);
+          }
+        });
+      }
+    }
+    if (task.getValue("_id") == null) {
+
+      task.put("_id", new ObjectId().toHexString());
+
+    } else {
+
+      // the tasks stored before the partitions are not on the index
+      final var query = new JsonObject().put("_id", task.getValue("_id"));
+      initialized = initialized.compose(empty -> this.pool
+          .findOne(TasksRepositoryImpl.TASKS_COLLECTION, query, new JsonObject().put("_id", 1)).compose(found -> {
+
+            if (found == null) {
+
+              return Future.succeededFuture();
+
+            } else {
+
+              return Future.failedFuture("Already exist a task with the identifier " + query.getValue("_id"));
+            }
+          }));
+    }
+    final var id = String.valueOf(task.getValue("_id"));
+    final var entry = new JsonObject().put("_id", id).put("partition", partition);
+    return initialized.compose(empty -> this.pool.insert(PARTITIONS_COLLECTION, entry)).map(inserted -> {
+
+      this.cache(id, partition);
+      return partition;
+    });
+
+  }
+
+  /**
+   * Store the partition of a task on the cache.
+   *
+   * @param id        identifier of the task.
+   * @param partition where the task is stored.
+   */
+  protected synchronized void cache(final String id, final String partition) {
+
+    if (this.cacheSize > 0) {
+
+      this.cache.put(id, partition);
+    }
+
+  }
+
+  /**
+   * Obtain the collection where a task is stored.
+   *
+   * @param id identifier of the task.
+   *
+   * @return the future collection of the task, that is the {@link TasksRepositoryImpl#TASKS_COLLECTION} if the task is
+   *         not on any partition.
+   */
+  public Future<String> resolve(final String id) {
+
+    if (!this.enabled) {
+
+      return Future.succeededFuture(TasksRepositoryImpl.TASKS_COLLECTION);
+    }
+    synchronized (this) {
+
+      final var cached = this.cache.get(id);
+      if (cached != null) {
+
+        return Future.succeededFuture(cached);
+      }
+    }
+    return this.pool.findOne(PARTITIONS_COLLECTION, new JsonObject().put("_id", id), null).map(found -> {
+
+      final var partition = found == null ? null : found.getString("partition");
+      if (partition == null) {
+
+        return TasksRepositoryImpl.TASKS_COLLECTION;
+
+      } else {
+
+        this.cache(id, partition);
+        return partition;
+      }
+    });
+
+  }
+
+  /**
+   * Remove the partitions of some tasks from the index.
+   *
+   * @param ids identifiers of the removed tasks.
+   *
+   * @return the future that will inform when the partitions are removed.
+   */
+  public Future<Void> unregister(final JsonArray ids) {
+
+    if (!this.enabled || ids.isEmpty()) {
+
+      return Future.succeededFuture();
+    }
+    synchronized (this) {
+
+      for (final var id : ids) {
+
+        this.cache.remove(String.valueOf(id));
+      }
+    }
+    final var query = new JsonObject().put("_id", new JsonObject().put("$in", ids));
+    return this.pool.removeDocuments(PARTITIONS_COLLECTION, query).mapEmpty();
+
+  }
+
+  /**
+   * Do an operation over all the collections with tasks, one after the other.
+   *
+   * @param operation to do over each collection.
+   *
+   * @return the future that will inform when the operation is done over all the collections.
+   */
+  public Future<Void> forEach(final Function<String, Future<?>> operation) {
+
+    Future<Void> future = Future.succeededFuture();
+    for (final var collection : this.getCollections()) {
+
+      future = future.compose(empty -> operation.apply(collection).mapEmpty());
+    }
+    return future;
+
+  }
+
+}
@@ -0,0 +1,595 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import eu.internetofus.common.model.TimeManager;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.BulkWriteOptions;
+import io.vertx.ext.mongo.IndexModel;
+import io.vertx.ext.mongo.IndexOptions;
+import io.vertx.ext.mongo.MongoClient;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import org.tinylog.Logger;
+
+/**
+ * Maintain the pre-aggregated counters of the tasks. For each application, task type and day there is a counter of the
+ * created and closed tasks, of the added transactions for each label and of the added messages for each receiver. The
+ * counters are incremented when the tasks are modified, so the statistics are obtained without visiting the tasks.
+ * The counters are not decremented when the tasks are deleted, because they count the events of each day. The day of
+ * an event is always obtained from the time stamps stored on the task, so the counters calculated from the stored tasks
+ * are the same as the ones incremented when the tasks are modified.
+ *
+ * @see TasksRepositoryImpl
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TaskStatisticsCounters {
+
+  /**
+   * The name of the collection that contains the counters.
+   */
+  public static final String STATISTICS_COLLECTION = "taskStatistics";
+
+  /**
+   * The counter of the created tasks.
+   */
+  public static final String CREATED = "created";
+
+  /**
+   * The counter of the closed tasks.
+   */
+  public static final String CLOSED = "closed";
+
+  /**
+   * The counter of the added transactions for each label.
+   */
+  public static final String TRANSACTIONS = "transactions";
+
+  /**
+   * The counter of the added messages for each receiver.
+   */
+  public static final String MESSAGES = "messages";
+
+  /**
+   * The names of the counters.
+   */
+  public static final List<String> COUNTERS = List.of(CREATED, CLOSED, TRANSACTIONS, MESSAGES);
+
+  /**
+   * The fields that identify a counter.
+   */
+  public static final List<String> KEY_FIELDS = List.of("appId", "taskTypeId", "counter", "day", "key");
+
+  /**
+   * The seconds of a day.
+   */
+  public static final long SECONDS_OF_DAY = 86400L;
+
+  /**
+   * The name of the migration that fills the counters from the stored tasks.
+   */
+  public static final String FILL_MIGRATION = STATISTICS_COLLECTION + ".fill";
+
+  /**
+   * The field of a counter with the events counted when the counters are filled from the stored tasks. The filled
+   * events are replaced each time that the fill is done, so an interrupted fill can be done again.
+   */
+  public static final String FILLED = "filled";
+
+  /**
+   * The pool of database connections.
+   */
+  protected MongoClient pool;
+
+  /**
+   * Create the counters.
+   *
+   * @param pool of database connections.
+   */
+  public TaskStatisticsCounters(final MongoClient pool) {
+
+    this.pool = pool;
+
+  }
+
+  /**
+   * Create the indexes of the counters and, if the fill of the counters has not been completed, calculate them from the
+   * stored tasks. The fill only counts the events that happen before the fill is started for the first time, because
+   * the following ones are incremented when they happen.
+   *
+   * @param tasksCollection name of the collection with the tasks.
+   *
+   * @return the future that will inform when the counters are ready.
+   *
+   * @see MigrationMarkers
+   */
+  public Future<Void> migrate(final String tasksCollection) {
+
+    final var key = new JsonObject();
+    for (final var field : KEY_FIELDS) {
+
+      key.put(field, 1);
+    }
+    final var indexes = new ArrayList<IndexModel>();
+    indexes.add(new IndexModel(key, new IndexOptions().unique(true).background(true)));
+    indexes.add(new IndexModel(new JsonObject().put("counter", 1).put("day", 1), new IndexOptions().background(true)));
+    return this.pool.createIndexes(STATISTICS_COLLECTION, indexes)
+        .compose(empty -> MigrationMarkers.start(this.pool, FILL_MIGRATION)).compose(marker -> {
+
+          if (MigrationMarkers.isCompleted(marker)) {
+
+            return Future.succeededFuture();
+
+          } else {
+
+            return this.fillFrom(tasksCollection, marker.getLong(MigrationMarkers.START_TS, TimeManager.now()))
+                .compose(empty -> MigrationMarkers.complete(this.pool, FILL_MIGRATION));
+          }
+        });
+
+  }
+
+  /**
+   * Calculate the counters of all the stored tasks.
+   *
+   * @param tasksCollection name of the collection with the tasks.
+   * @param before          time when the fill has been started. Only the events that happen before it are counted.
+   *
+   * @return the future that will inform when the counters are calculated.
+   */
+  protected Future<Void> fillFrom(final String tasksCollection, final long before) {
+
+    var future = Future.<Void>succeededFuture();
+    for (final var counter : COUNTERS) {
+
+      final var pipeline = createFillPipeline(counter, before);
+      future = future.compose(empty -> {
+
+        final Promise<Void> promise = Promise.promise();
+        this.pool.aggregate(tasksCollection, pipeline).handler(ignored -> {
+        }).endHandler(end -> promise.tryComplete()).exceptionHandler(promise::tryFail);
+        return promise.future();
+
+      });
+    }
+    return future;
+
+  }
+
+  /**
+   * Create the aggregation that calculates a counter from the stored tasks and merges it into the counters.
+   *
+   * @param counter to calculate.
+   * @param before  time when the fill has been started. Only the events that happen before it are counted.
+   *
+   * @return the pipeline to calculate the counter.
+   */
+  static JsonArray createFillPipeline(final String counter, final long before) {
+
+    final var pipeline = new JsonArray();
+    String ts = null;
+    String key = null;
+    switch (counter) {
+    case CLOSED:
+      pipeline.add(new JsonObject().put("$match", new JsonObject().put("closeTs", new JsonObject().put("$ne", null))));
+      ts = "$closeTs";
+      break;
+    case TRANSACTIONS:
+      pipeline.add(new JsonObject().put("$unwind", "$transactions"));
+      ts = "$transactions._creationTs";
+      key = "$transactions.label";
+      break;
+    case MESSAGES:
+      pipeline.add(new JsonObject().put("$unwind", "$transactions"));
+      pipeline.add(new JsonObject().put("$unwind", "$transactions.messages"));
+      ts = "$transactions._creationTs";
+      key = "$transactions.messages.receiverId";
+      break;
+    default:
+      break;
+    }
+    // The same time stamps that are used when the events are counted on the tasks modifications
+    var time = new JsonObject().put("$ifNull", new JsonArray().add("$_creationTs").add(0L));
+    if (ts != null) {
+
+      time = new JsonObject().put("$ifNull", new JsonArray().add(ts).add(time));
+    }
+    pipeline.add(new JsonObject().put("$set", new JsonObject().put("_ts", time)));
+    pipeline.add(new JsonObject().put("$match", new JsonObject().put("_ts", new JsonObject().put("$lt", before))));
+    final var day = new JsonObject().put("$subtract", new JsonArray().add("$_ts")
+        .add(new JsonObject().put("$mod", new JsonArray().add("$_ts").add(SECONDS_OF_DAY))));
+    final var group = new JsonObject().put("appId", ifEmpty("$appId")).put("taskTypeId", ifEmpty("$taskTypeId"))
+        .put("counter", new JsonObject().put("$literal", counter)).put("day", day)
+        .put("key", key == null ? "" : ifEmpty(key));
+    pipeline.add(new JsonObject().put("$group",
+        new JsonObject().put("_id", group).put("count", new JsonObject().put("$sum", 1))));
+    final var project = new JsonObject().put("_id", 0).put(FILLED, "$count");
+    for (final var field : KEY_FIELDS) {
+
+      project.put(field, "$_id." + field);
+    }
+    pipeline.add(new JsonObject().put("$project", project));
+    final var merge = new JsonArray()
+        .add(new JsonObject().put("$set", new JsonObject().put(FILLED, "$$new." + FILLED)));
+    pipeline.add(new JsonObject().put("$merge", new JsonObject().put("into", STATISTICS_COLLECTION)
+        .put("on", new JsonArray(new ArrayList<>(KEY_FIELDS))).put("whenMatched", merge)
+        .put("whenNotMatched", "insert")));
+    return pipeline;
+
+  }
+
+  /**
+   * Create the expression that replace a {@code null} value by an empty string.
+   *
+   * @param field reference to the field.
+   *
+   * @return the expression to obtain the value or an empty string.
+   */
+  private static JsonObject ifEmpty(final String field) {
+
+    return new JsonObject().put("$ifNull", new JsonArray().add(field).add(""));
+
+  }
+
+  /**
+   * Obtain the time stamp of the start of the day (in UTC) of a time stamp.
+   *
+   * @param ts the difference, measured in seconds, between the time and midnight, January 1, 1970 UTC.
+   *
+   * @return the time stamp of the start of the day.
+   */
+  public static long dayOf(final long ts) {
+
+    return Math.floorDiv(ts, SECONDS_OF_DAY) * SECONDS_OF_DAY;
+
+  }
+
+  /**
+   * Create the identifier of a counter.
+   *
+   * @param task    where the counted event happens.
+   * @param counter name of the counter.
+   * @param ts      time of the event.
+   * @param key     of the counter, or {@code null} if the counter does not have a key.
+   *
+   * @return the identifier of the counter.
+   */
+  static JsonObject counterOf(final JsonObject task, final String counter, final long ts, final String key) {
+
+    return new JsonObject().put("appId", task.getString("appId", ""))
+        .put("taskTypeId", task.getString("taskTypeId", "")).put("counter", counter).put("day", dayOf(ts))
+        .put("key", key == null ? "" : key);
+
+  }
+
+  /**
+   * Increment some counters.
+   *
+   * @param counters identifiers of the counters to increment. If a counter is repeated, it is incremented once for
+   *                 each occurrence.
+   *
+   * @return the future that will inform when the counters are incremented.
+   */
+  protected Future<Void> increment(final List<JsonObject> counters) {
+
+    final var increments = new LinkedHashMap<JsonObject, Integer>();
+    for (final var counter : counters) {
+
+      increments.merge(counter, 1, Integer::sum);
+    }
+    if (increments.isEmpty()) {
+
+      return Future.succeededFuture();
+    }
+    final var operations = new ArrayList<BulkOperation>();
+    for (final var increment : increments.entrySet()) {
+
+      final var update = new JsonObject().put("$inc", new JsonObject().put("count", increment.getValue()));
+      operations.add(BulkOperation.createUpdate(increment.getKey(), update, true, false));
+    }
+    return this.pool.bulkWriteWithOptions(STATISTICS_COLLECTION, operations, new BulkWriteOptions(false))
+        .mapEmpty();
+
+  }
+
+  /**
+   * Log when the counters can not be updated. The counters are a summary of the tasks, so the modification of the
+   * task is not undone.
+   *
+   * @param future    of the counters update.
+   * @param operation that is counted.
+   * @param id        of the modified task.
+   *
+   * @return a future that always succeed.
+   */
+  private Future<Void> logFailure(final Future<Void> future, final String operation, final Object id) {
+
+    return future.otherwise(cause -> {
+
+      Logger.warn(cause, "Cannot count {} for the task {}", operation, id);
+      return null;
+
+    });
+
+  }
+
+  /**
+   * Count a new task, and its transactions and messages.
+   *
+   * @param task that has been stored.
+   *
+   * @return the future that will inform when the counters are updated.
+   */
+  public Future<Void> addTask(final JsonObject task) {
+
+    final var counters = new ArrayList<JsonObject>();
+    counters.add(counterOf(task, CREATED, task.getLong("_creationTs", 0L), null));
+    final var closeTs = task.getLong("closeTs");
+    if (closeTs != null) {
+
+      counters.add(counterOf(task, CLOSED, closeTs, null));
+    }
+    final var transactions = task.getJsonArray("transactions");
+    for (var i = 0; transactions != null && i < transactions.size(); i++) {
+
+      final var transaction = transactions.getValue(i);
+      if (transaction instanceof JsonObject) {
+
+        this.addTransactionCounters(task, (JsonObject) transaction, counters);
+      }
+    }
+    return this.logFailure(this.increment(counters), "the creation", task.getValue("id"));
+
+  }
+
+  /**
+   * Add the counters of a transaction and its messages.
+   *
+   * @param task        where the transaction is.
+   * @param transaction to count.
+   * @param counters    to add the transaction counters.
+   */
+  private void addTransactionCounters(final JsonObject task, final JsonObject transaction,
+      final List<JsonObject> counters) {
+
+    final var ts = transactionTs(task, transaction);
+    counters.add(counterOf(task, TRANSACTIONS, ts, transaction.getString("label")));
+    final var messages = transaction.getJsonArray("messages");
+    for (var i = 0; messages != null && i < messages.size(); i++) {
+
+      final var message = messages.getValue(i);
+      if (message instanceof JsonObject) {
+
+        counters.add(counterOf(task, MESSAGES, ts, ((JsonObject) message).getString("receiverId")));
+      }
+    }
+
+  }
+
+  /**
+   * Obtain the time when a transaction has been added into a task.
+   *
+   * @param task        where the transaction is.
+   * @param transaction to get the time.
+   *
+   * @return the creation time of the transaction, or the one of the task if it is not defined.
+   */
+  static long transactionTs(final JsonObject task, final JsonObject transaction) {
+
+    final var ts = transaction == null ? null : transaction.getLong("_creationTs");
+    return ts != null ? ts : task.getLong("_creationTs", 0L);
+
+  }
+
+  /**
+   * Count a closed task.
+   *
+   * @param task    that has been closed.
+   * @param closeTs time when the task is closed.
+   *
+   * @return the future that will inform when the counters are updated.
+   */
+  public Future<Void> closeTask(final JsonObject task, final long closeTs) {
+
+    return this.logFailure(this.increment(List.of(counterOf(task, CLOSED, closeTs, null))), "the close",
+        task.getValue("_id"));
+
+  }
+
+  /**
+   * Count a transaction added into a task.
+   *
+   * @param task        where the transaction is added.
+   * @param transaction that has been added.
+   *
+   * @return the future that will inform when the counters are updated.
+   */
+  public Future<Void> addTransaction(final JsonObject task, final JsonObject transaction) {
+
+    final var counters = new ArrayList<JsonObject>();
+    this.addTransactionCounters(task, transaction, counters);
+    return this.logFailure(this.increment(counters), "a transaction", task.getValue("_id"));
+
+  }
+
+  /**
+   * Count a message added into a transaction. The message is counted on the day that the transaction is added, as when
+   * the counters are filled from the stored tasks, because the messages do not have their own time stamp.
+   *
+   * @param task        where the message is added.
+   * @param transaction where the message is added.
+   * @param message     that has been added.
+   *
+   * @return the future that will inform when the counters are updated.
+   */
+  public Future<Void> addMessage(final JsonObject task, final JsonObject transaction, final JsonObject message) {
+
+    final var ts = transactionTs(task, transaction);
+    return this.logFailure(this.increment(List.of(counterOf(task, MESSAGES, ts, message.getString("receiverId")))),
+        "a message", task.getValue("_id"));
+
+  }
+
+  /**
+   * Create the query to obtain some counters.
+   *
+   * @param appId      application of the counters, or {@code null} for any application.
+   * @param taskTypeId task type of the counters, or {@code null} for any type.
+   * @param counter    name of the counters, or {@code null} for any counter.
+   * @param key        of the counters, or {@code null} for any key.
+   * @param from       minimum time of the days to count, or {@code null} to not limit it.
+   * @param to         maximum time of the days to count, or {@code null} to not limit it.
+   *
+   * @return the query of the counters.
+   */
+  static JsonObject createQuery(final String appId, final String taskTypeId, final String counter, final String key,
+      final Long from, final Long to) {
+
+    final var query = new JsonObject();
+    if (appId != null) {
+
+      query.put("appId", appId);
+    }
+    if (taskTypeId != null) {
+
+      query.put("taskTypeId", taskTypeId);
+    }
+    if (counter != null) {
+
+      query.put("counter", counter);
+    }
+    if (key != null) {
+
+      query.put("key", key);
+    }
+    final var day = new JsonObject();
+    if (from != null) {
+
+      day.put("$gte", dayOf(from));
+    }
+    if (to != null) {
+
+      day.put("$lte", to);
+    }
+    if (!day.isEmpty()) {
+
+      query.put("day", day);
+    }
+    return query;
+
+  }
+
+  /**
+   * Obtain the counters that match a query.
+   *
+   * @param appId      application of the counters, or {@code null} for any application.
+   * @param taskTypeId task type of the counters, or {@code null} for any type.
+   * @param counter    name of the counters, or {@code null} for any counter.
+   * @param key        of the counters, or {@code null} for any key.
+   * @param from       minimum time of the days to count, or {@code null} to not limit it.
+   * @param to         maximum time of the days to count, or {@code null} to not limit it.
+   * @param limit      maximum number of counters to return, or {@code 0} to return all.
+   *
+   * @return the future statistics with the found counters and the totals of all the counters that match the query.
+   */
+  public Future<JsonObject> retrieve(final String appId, final String taskTypeId, final String counter,
+      final String key, final Long from, final Long to, final int limit) {
+
+    final var query = createQuery(appId, taskTypeId, counter, key, from, to);
+    final Promise<JsonObject> promise = Promise.promise();
+    this.pool.aggregate(STATISTICS_COLLECTION, createRetrievePipeline(query, limit)).handler(promise::tryComplete)
+        .endHandler(end -> promise.tryComplete(new JsonObject())).exceptionHandler(promise::tryFail);
+    return promise.future().map(TaskStatisticsCounters::toStatistics);
+
+  }
+
+  /**
+   * Create the aggregation that obtains the counters that match a query and, in the same call, the totals of all the
+   * counters that match it, and not only of the returned ones.
+   *
+   * @param query of the counters.
+   * @param limit maximum number of counters to return, or {@code 0} to return all.
+   *
+   * @return the pipeline to retrieve the counters.
+   */
+  static JsonArray createRetrievePipeline(final JsonObject query, final int limit) {
+
+    final var count = new JsonObject().put("$add",
+        new JsonArray().add(new JsonObject().put("$ifNull", new JsonArray().add("$count").add(0L)))
+            .add(new JsonObject().put("$ifNull", new JsonArray().add("$" + FILLED).add(0L))));
+    final var counters = new JsonArray().add(new JsonObject().put("$sort",
+        new JsonObject().put("day", 1).put("counter", 1).put("appId", 1).put("taskTypeId", 1).put("key", 1)));
+    if (limit > 0) {
+
+      counters.add(new JsonObject().put("$limit", limit));
+    }
+    counters.add(new JsonObject().put("$project", new JsonObject().put("_id", 0).put(FILLED, 0)));
+    final var totals = new JsonArray().add(new JsonObject().put("$group",
+        new JsonObject().put("_id", "$counter").put("count", new JsonObject().put("$sum", "$count"))));
+    return new JsonArray().add(new JsonObject().put("$match", query))
+        .add(new JsonObject().put("$set", new JsonObject().put("count", count)))
+        .add(new JsonObject().put("$facet", new JsonObject().put("counters", counters).put("totals", totals)));
+
+  }
+
+  /**
+   * Create the statistics with the result of the aggregation that retrieves the counters.
+   *
+   * @param result of the aggregation, with the found counters and the totals of each counter.
+   *
+   * @return the statistics with the counters and the sum of each counter.
+   *
+   * @see #createRetrievePipeline(JsonObject, int)
+   */
+  static JsonObject toStatistics(final JsonObject result) {
+
+    final var totals = new JsonObject();
+    for (final var name : COUNTERS) {
+
+      totals.put(name, 0L);
+    }
+    final var groups = result.getJsonArray("totals", new JsonArray());
+    for (var i = 0; i < groups.size(); i++) {
+
+      final var group = groups.getJsonObject(i);
+      final var name = group.getString("_id");
+      if (name != null) {
+
+        totals.put(name, totals.getLong(name, 0L) + group.getLong("count", 0L));
+      }
+    }
+    final var statistics = new JsonObject().put("totals", totals);
+    final var counters = result.getJsonArray("counters");
+    if (counters != null && !counters.isEmpty()) {
+
+      statistics.put("counters", counters);
+    }
+    return statistics;
+
+  }
+
+}
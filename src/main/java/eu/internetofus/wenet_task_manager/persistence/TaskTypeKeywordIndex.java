@@ -0,0 +1,507 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The task types maintained in memory with an inverted index of their keywords, so the pages of task types that only
+ * filter by keywords are answered without querying the database. Each keyword is associated to the task types that
+ * have it, and each prefix of the keywords, up to a size, is associated to the keywords that start with it, so the
+ * regular expressions that start with a literal prefix only check the keywords with this prefix.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TaskTypeKeywordIndex {
+
+  /**
+   * The default size of the keyword prefixes to index.
+   */
+  public static final int DEFAULT_GRAM_SIZE = 3;
+
+  /**
+   * The fields that the index can use to sort the task types.
+   */
+  public static final Set<String> SORT_FIELDS = Set.of("name", "description");
+
+  /**
+   * The characters of a regular expression that are not literals.
+   */
+  protected static final String REGEX_META_CHARACTERS = "\\^$.|?*+()[]{}";
+
+  /**
+   * The maximum size of the indexed keyword prefixes.
+   */
+  protected int gramSize;
+
+  /**
+   * This is {@code true} when all the task types of the database have been loaded.
+   */
+  protected boolean loaded = false;
+
+  /**
+   * The task types by its identifier, on the order that they have been loaded.
+   */
+  protected Map<String, JsonObject> taskTypes = new LinkedHashMap<>();
+
+  /**
+   * The identifiers of the task types that have each keyword.
+   */
+  protected Map<String, Set<String>> keywords = new HashMap<>();
+
+  /**
+   * The keywords that start with each prefix.
+   */
+  protected Map<String, Set<String>> grams = new HashMap<>();
+
+  /**
+   * Create the index.
+   *
+   * @param gramSize maximum size of the keyword prefixes to index.
+   */
+  public TaskTypeKeywordIndex(final int gramSize) {
+
+    this.gramSize = Math.max(1, gramSize);
+
+  }
+
+  /**
+   * Replace all the indexed task types.
+   *
+   * @param taskTypes to index, with the identifier on the field {@code id}.
+   */
+  public synchronized void load(final Collection<JsonObject> taskTypes) {
+
+    this.taskTypes.clear();
+    this.keywords.clear();
+    this.grams.clear();
+    for (final var taskType : taskTypes) {
+
+      this.put(taskType);
+    }
+    this.loaded = true;
+
+  }
+
+  /**
+   * Check if the index has loaded the task types.
+   *
+   * @return {@code true} if the index can answer the queries.
+   */
+  public synchronized boolean isLoaded() {
+
+    return this.loaded;
+
+  }
+
+  /**
+   * Add or replace a task type of the index.
+   *
+   * @param taskType to index, with the identifier on the field {@code id}.
+   */
+  public synchronized void put(final JsonObject taskType) {
+
+    final var id = taskType.getString("id");
+    this.unindex(this.taskTypes.get(id));
+    this.taskTypes.put(id, taskType);
+    for (final var keyword : keywordsOf(taskType)) {
+
+      this.keywords.computeIfAbsent(keyword, key -> new LinkedHashSet<>()).add(id);
+      for (var size = 1; size <= this.gramSize && size <= keyword.length(); size++) {
+
+        this.grams.computeIfAbsent(keyword.substring(0, size), key -> new LinkedHashSet<>()).add(keyword);
+      }
+    }
+
+  }
+
+  /**
+   * Remove a task type of the index.
+   *
+   * @param id identifier of the task type to remove.
+   */
+  public synchronized void remove(final String id) {
+
+    this.unindex(this.taskTypes.remove(id));
+
+  }
+
+  /**
+   * Remove the keywords of a task type from the index.
+   *
+   * @param taskType to remove, or {@code null} if it is not indexed.
+   */
+  private void unindex(final JsonObject taskType) {
+
+    if (taskType != null) {
+
+      final var id = taskType.getString("id");
+      for (final var keyword : keywordsOf(taskType)) {
+
+        final var ids = this.keywords.get(keyword);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+
+          this.keywords.remove(keyword);
+          for (var size = 1; size <= this.gramSize && size <= keyword.length(); size++) {
+
+            final var gram = keyword.substring(0, size);
+            final var withGram = this.grams.get(gram);
+            if (withGram != null && withGram.remove(keyword) && withGram.isEmpty()) {
+
+              this.grams.remove(gram);
+            }
+          }
+        }
+      }
+    }
+
+  }
+
+  /**
+   * Obtain the keywords of a task type.
+   *
+   * @param taskType to get the keywords.
+   *
+   * @return the keywords of the task type.
+   */
+  protected static Set<String> keywordsOf(final JsonObject taskType) {
+
+    final var keywords = new LinkedHashSet<String>();
+    final var values = taskType.getValue("keywords");
+    if (values instanceof JsonArray) {
+
+      for (final var value : (JsonArray) values) {
+
+        if (value instanceof String) {
+
+          keywords.add((String) value);
+        }
+      }
+    }
+    return keywords;
+
+  }
+
+  /**
+   * Return the keywords that start with a prefix.
+   *
+   * @param prefix of the keywords.
+   *
+   * @return the keywords that start with the prefix.
+   */
+  public synchronized Set<String> keywordsWithPrefix(final String prefix) {
+
+    final var keywords = new LinkedHashSet<String>();
+    if (prefix.isEmpty()) {
+
+      keywords.addAll(this.keywords.keySet());
+
+    } else {
+
+      final var gram = prefix.length() > this.gramSize ? prefix.substring(0, this.gramSize) : prefix;
+      for (final var keyword : this.grams.getOrDefault(gram, Set.of())) {
+
+        if (keyword.startsWith(prefix)) {
+
+          keywords.add(keyword);
+        }
+      }
+    }
+    return keywords;
+
+  }
+
+  /**
+   * Return the page of task types that match a query, if the index can answer it.
+   *
+   * @param query  to match the task types.
+   * @param order  of the task types.
+   * @param offset index of the first task type to return.
+   * @param limit  maximum number of task types to return.
+   *
+   * @return the page with the task types, or {@code null} if the index can not answer the query.
+   */
+  public synchronized JsonObject retrievePage(final JsonObject query, final JsonObject order, final int offset,
+      final int limit) {
+
+    if (!this.loaded || order != null && !SORT_FIELDS.containsAll(order.fieldNames())) {
+
+      return null;
+    }
+    final var ids = this.match(query);
+    if (ids == null) {
+
+      return null;
+    }
+    final var found = new ArrayList<JsonObject>();
+    for (final var taskType : this.taskTypes.values()) {
+
+      if (ids.contains(taskType.getString("id"))) {
+
+        found.add(taskType);
+      }
+    }
+    if (order != null && !order.isEmpty()) {
+
+      found.sort((first, second) -> TaskPartitions.compare(order, first, second));
+    }
+    final var page = new ArrayList<JsonObject>();
+    for (var i = Math.max(0, offset); i < found.size() && page.size() < limit; i++) {
+
+      page.add(found.get(i).copy());
+    }
+    return PageTotals.toPage(offset, limit, "taskTypes", page, (long) found.size());
+
+  }
+
+  /**
+   * Return the identifiers of the task types that match a query.
+   *
+   * @param query to match.
+   *
+   * @return the identifiers of the matching task types, or {@code null} if the index can not answer the query.
+   */
+  protected Set<String> match(final JsonObject query) {
+
+    Set<String> ids = new LinkedHashSet<>(this.taskTypes.keySet());
+    if (query == null) {
+
+      return ids;
+    }
+    for (final var field : query.fieldNames()) {
+
+      final var value = query.getValue(field);
+      Set<String> matched = null;
+      if ("keywords".equals(field)) {
+
+        matched = this.matchKeywords(value);
+
+      } else if ("$and".equals(field) && value instanceof JsonArray) {
+
+        matched = new LinkedHashSet<>(ids);
+        for (final var condition : (JsonArray) value) {
+
+          final var conditionIds = condition instanceof JsonObject ? this.match((JsonObject) condition) : null;
+          if (conditionIds == null) {
+
+            return null;
+          }
+          matched.retainAll(conditionIds);
+        }
+      }
+      if (matched == null) {
+
+        return null;
+      }
+      ids.retainAll(matched);
+    }
+    return ids;
+
+  }
+
+  /**
+   * Return the identifiers of the task types that have the keywords that match a condition.
+   *
+   * @param condition over the keywords.
+   *
+   * @return the identifiers of the matching task types, or {@code null} if the index can not answer the condition.
+   */
+  protected Set<String> matchKeywords(final Object condition) {
+
+    if (condition instanceof String) {
+
+      return new LinkedHashSet<>(this.keywords.getOrDefault(condition, Set.of()));
+
+    } else if (condition instanceof JsonObject) {
+
+      final var operators = (JsonObject) condition;
+      if (operators.containsKey("$regex")) {
+
+        return this.matchRegex(operators);
+
+      } else if (operators.size() == 1 && operators.getValue("$elemMatch") instanceof JsonObject) {
+
+        return this.matchRegex(operators.getJsonObject("$elemMatch"));
+
+      } else if (operators.size() == 1 && operators.getValue("$all") instanceof JsonArray) {
+
+        Set<String> ids = null;
+        for (final var element : operators.getJsonArray("$all")) {
+
+          final var elementIds = element instanceof JsonObject && ((JsonObject) element).containsKey("$regex") ? null
+              : this.matchKeywords(element);
+          if (elementIds == null) {
+
+            return null;
+
+          } else if (ids == null) {
+
+            ids = elementIds;
+
+          } else {
+
+            ids.retainAll(elementIds);
+          }
+        }
+        return ids == null ? new LinkedHashSet<>() : ids;
+
+      } else if (operators.size() == 1 && operators.getValue("$in") instanceof JsonArray) {
+
+        final var ids = new LinkedHashSet<String>();
+        for (final var element : operators.getJsonArray("$in")) {
+
+          final var elementIds = element instanceof String ? this.matchKeywords(element) : null;
+          if (elementIds == null) {
+
+            return null;
+          }
+          ids.addAll(elementIds);
+        }
+        return ids;
+      }
+    }
+    return null;
+
+  }
+
+  /**
+   * Return the identifiers of the task types that have a keyword that match a regular expression.
+   *
+   * @param regex condition with the {@code $regex} and the optional {@code $options}.
+   *
+   * @return the identifiers of the matching task types, or {@code null} if the index can not answer the condition.
+   */
+  protected Set<String> matchRegex(final JsonObject regex) {
+
+    final var pattern = compile(regex);
+    if (pattern == null) {
+
+      return null;
+    }
+    var candidates = this.keywords.keySet();
+    if ((pattern.flags() & (Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.COMMENTS)) == 0) {
+
+      candidates = this.keywordsWithPrefix(literalPrefixOf(pattern.pattern()));
+    }
+    final var ids = new LinkedHashSet<String>();
+    for (final var keyword : candidates) {
+
+      if (pattern.matcher(keyword).find()) {
+
+        ids.addAll(this.keywords.get(keyword));
+      }
+    }
+    return ids;
+
+  }
+
+  /**
+   * Compile a regular expression condition of the database.
+   *
+   * @param regex condition with the {@code $regex} and the optional {@code $options}.
+   *
+   * @return the compiled pattern, or {@code null} if it can not be compiled.
+   */
+  protected static Pattern compile(final JsonObject regex) {
+
+    if (regex.size() > 2 || !(regex.getValue("$regex") instanceof String)
+        || regex.size() == 2 && !(regex.getValue("$options") instanceof String)) {
+
+      return null;
+    }
+    var flags = 0;
+    for (final var option : regex.getString("$options", "").toCharArray()) {
+
+      switch (option) {
+      case 'i':
+        flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        break;
+      case 'm':
+        flags |= Pattern.MULTILINE;
+        break;
+      case 's':
+        flags |= Pattern.DOTALL;
+        break;
+      case 'x':
+        flags |= Pattern.COMMENTS;
+        break;
+      default:
+        return null;
+      }
+    }
+    try {
+
+      return Pattern.compile(regex.getString("$regex"), flags);
+
+    } catch (final PatternSyntaxException error) {
+
+      return null;
+    }
+
+  }
+
+  /**
+   * Obtain the literal prefix that any value that match an anchored regular expression has to start with.
+   *
+   * @param regex to get the prefix.
+   *
+   * @return the literal prefix, or an empty string if the regular expression is not anchored or does not start with a
+   *         literal.
+   */
+  protected static String literalPrefixOf(final String regex) {
+
+    final var prefix = new StringBuilder();
+    if (regex.startsWith("^")) {
+
+      for (var i = 1; i < regex.length(); i++) {
+
+        final var character = regex.charAt(i);
+        if (REGEX_META_CHARACTERS.indexOf(character) > -1) {
+
+          if (prefix.length() > 0 && (character == '?' || character == '*' || character == '{' || character == '|')) {
+
+            prefix.setLength(prefix.length() - 1);
+          }
+          break;
+        }
+        prefix.append(character);
+      }
+      if (regex.indexOf('|') > -1) {
+
+        prefix.setLength(0);
+      }
+    }
+    return prefix.toString();
+
+  }
+
+}
@@ -22,6 +22,7 @@ package eu.internetofus.wenet_task_manager.persistence;
 
 import eu.internetofus.common.model.Model;
 import eu.internetofus.common.model.ValidationErrorException;
+import eu.internetofus.common.components.models.ProtocolNorm;
 import eu.internetofus.common.components.models.TaskType;
 import eu.internetofus.common.components.task_manager.TaskTypesPage;
 import eu.internetofus.common.vertx.ModelsPageContext;
@@ -70,14 +71,18 @@ public interface TaskTypesRepository {
    * @param vertx   that contains the event bus to use.
    * @param pool    to create the database connections.
    * @param version of the schemas.
+   * @param index   configuration of the index with the keywords of the task types, or {@code null} to search always
+   *                the task types on the database.
    *
    * @return the future that inform when the repository will be registered or not.
    */
-  static Future<Void> register(final Vertx vertx, final MongoClient pool, final String version) {
+  static Future<Void> register(final Vertx vertx, final MongoClient pool, final String version,
+      final JsonObject index) {
 
     final var repository = new TaskTypesRepositoryImpl(vertx, pool, version);
     new ServiceBinder(vertx).setAddress(TaskTypesRepository.ADDRESS).register(TaskTypesRepository.class, repository);
-    return repository.migrateDocumentsToCurrentVersions();
+    return repository.migrateDocumentsToCurrentVersions().compose(empty -> repository.createIndexes())
+        .compose(empty -> repository.startKeywordIndex(index));
 
   }
 
@@ -91,9 +96,25 @@ public interface TaskTypesRepository {
   @GenIgnore
   default Future<TaskType> searchTaskType(final String id) {
 
-    Promise<JsonObject> promise = Promise.promise();
+    return Model.fromFutureJsonObject(this.searchTaskTypeObject(id).map(ModelVersions::withoutVersion),
+        TaskType.class);
+
+  }
+
+  /**
+   * Search for the stored object of the task type with the specified identifier, that also has the
+   * {@link ModelVersions#VERSION} of the task type.
+   *
+   * @param id identifier of the task type to search.
+   *
+   * @return the future found object of the task type.
+   */
+  @GenIgnore
+  default Future<JsonObject> searchTaskTypeObject(final String id) {
+
+    final Promise<JsonObject> promise = Promise.promise();
     this.searchTaskType(id, promise);
-    return Model.fromFutureJsonObject(promise.future(), TaskType.class);
+    return promise.future();
 
   }
 
@@ -105,6 +126,31 @@ public interface TaskTypesRepository {
    */
   void searchTaskType(String id, Handler<AsyncResult<JsonObject>> searchHandler);
 
+  /**
+   * Search for the version of a task type. It only obtains the {@link ModelVersions#VERSION} and the
+   * {@link TaskType#_lastUpdateTs} of the task type, so it is cheaper than obtain the full task type.
+   *
+   * @param id identifier of the task type to search.
+   *
+   * @return the future with the version and the time stamp of the last update of the task type.
+   */
+  @GenIgnore
+  default Future<JsonObject> searchTaskTypeVersion(final String id) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.searchTaskTypeVersion(id, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Search for the version of a task type.
+   *
+   * @param id            identifier of the task type to search.
+   * @param searchHandler handler to manage the search.
+   */
+  void searchTaskTypeVersion(String id, Handler<AsyncResult<JsonObject>> searchHandler);
+
   /**
    * Store a task type.
    *
@@ -169,6 +215,156 @@ public interface TaskTypesRepository {
    */
   void updateTaskType(JsonObject taskType, Handler<AsyncResult<Void>> updateHandler);
 
+  /**
+   * Update a task type writing only the fields that have changed from the stored one, if it has not been modified since
+   * the version that the client has.
+   *
+   * @param original        the task type that is stored, or {@code null} to write all the fields of the task type.
+   * @param taskType        to update.
+   * @param expectedVersion the version of the task type that the client has, or {@code null} if the update is not
+   *                        conditional.
+   *
+   * @return the future update result, that fails with a precondition failed if the task type has been modified.
+   *
+   * @see ModelVersions#isModified(Throwable)
+   */
+  @GenIgnore
+  default Future<Void> updateTaskType(final TaskType original, final TaskType taskType,
+      final Long expectedVersion) {
+
+    if (original == null) {
+
+      return this.updateTaskType(taskType);
+    }
+
+    final var originalObject = original.toJsonObjectWithEmptyValues();
+    final var object = taskType.toJsonObjectWithEmptyValues();
+    if (originalObject == null || object == null) {
+
+      return Future.failedFuture("The taskType can not converted to JSON.");
+
+    } else {
+
+      final Promise<Void> promise = Promise.promise();
+      this.updateChangedTaskType(originalObject, object, expectedVersion, promise);
+      return promise.future();
+    }
+
+  }
+
+  /**
+   * Update a task type writing only the fields that have changed from the stored one.
+   *
+   * @param original        the task type that is stored.
+   * @param taskType        to update.
+   * @param expectedVersion the version of the task type that the client has, or {@code null} if the update is not
+   *                        conditional.
+   * @param updateHandler   handler to manage the update result.
+   */
+  void updateChangedTaskType(JsonObject original, JsonObject taskType, Long expectedVersion,
+      Handler<AsyncResult<Void>> updateHandler);
+
+  /**
+   * Add a norm at the end of the norms of a task type.
+   *
+   * @param taskTypeId identifier of the task type.
+   * @param norm       to add.
+   *
+   * @return the future add result.
+   */
+  @GenIgnore
+  default Future<Void> addTaskTypeNorm(final String taskTypeId, final ProtocolNorm norm) {
+
+    final var object = norm.toJsonObject();
+    if (object == null) {
+
+      return Future.failedFuture("The norm can not converted to JSON.");
+
+    } else {
+
+      final Promise<Void> promise = Promise.promise();
+      this.addTaskTypeNorm(taskTypeId, object, promise);
+      return promise.future();
+    }
+
+  }
+
+  /**
+   * Add a norm at the end of the norms of a task type.
+   *
+   * @param taskTypeId identifier of the task type.
+   * @param norm       to add.
+   * @param addHandler handler to manage the add result.
+   */
+  void addTaskTypeNorm(String taskTypeId, JsonObject norm, Handler<AsyncResult<Void>> addHandler);
+
+  /**
+   * Replace a norm of a task type if the number of norms has not changed.
+   *
+   * @param taskTypeId identifier of the task type.
+   * @param index      of the norm to replace.
+   * @param size       number of norms of the task type.
+   * @param norm       to set.
+   *
+   * @return the future set result.
+   */
+  @GenIgnore
+  default Future<Void> setTaskTypeNorm(final String taskTypeId, final int index, final int size,
+      final ProtocolNorm norm) {
+
+    final var object = norm.toJsonObject();
+    if (object == null) {
+
+      return Future.failedFuture("The norm can not converted to JSON.");
+
+    } else {
+
+      final Promise<Void> promise = Promise.promise();
+      this.setTaskTypeNorm(taskTypeId, index, size, object, promise);
+      return promise.future();
+    }
+
+  }
+
+  /**
+   * Replace a norm of a task type if the number of norms has not changed.
+   *
+   * @param taskTypeId identifier of the task type.
+   * @param index      of the norm to replace.
+   * @param size       number of norms of the task type.
+   * @param norm       to set.
+   * @param setHandler handler to manage the set result.
+   */
+  void setTaskTypeNorm(String taskTypeId, int index, int size, JsonObject norm, Handler<AsyncResult<Void>> setHandler);
+
+  /**
+   * Remove a norm of a task type if the number of norms has not changed.
+   *
+   * @param taskTypeId identifier of the task type.
+   * @param index      of the norm to remove.
+   * @param size       number of norms of the task type.
+   *
+   * @return the future remove result.
+   */
+  @GenIgnore
+  default Future<Void> removeTaskTypeNorm(final String taskTypeId, final int index, final int size) {
+
+    final Promise<Void> promise = Promise.promise();
+    this.removeTaskTypeNorm(taskTypeId, index, size, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Remove a norm of a task type if the number of norms has not changed.
+   *
+   * @param taskTypeId    identifier of the task type.
+   * @param index         of the norm to remove.
+   * @param size          number of norms of the task type.
+   * @param removeHandler handler to manage the remove result.
+   */
+  void removeTaskTypeNorm(String taskTypeId, int index, int size, Handler<AsyncResult<Void>> removeHandler);
+
   /**
    * Delete a task type.
    *
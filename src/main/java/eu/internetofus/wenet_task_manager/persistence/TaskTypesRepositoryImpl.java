@@ -31,7 +31,10 @@ import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.mongo.FindOptions;
 import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.MongoClientUpdateResult;
 import io.vertx.ext.mongo.UpdateOptions;
+import java.util.List;
+import org.tinylog.Logger;
 
 /**
  * Implementation of the {@link TaskTypesRepository}.
@@ -45,11 +48,33 @@ public class TaskTypesRepositoryImpl extends Repository implements TaskTypesRepo
    */
   public static final String TASK_TYPES_COLLECTION = "taskTypes";
 
+  /**
+   * The weights of the fields of the task types that are used on the text search.
+   */
+  public static final JsonObject TEXT_WEIGHTS = new JsonObject().put("name", 10).put("keywords", 5).put("description",
+      1);
+
+  /**
+   * The address where the identifiers of the changed task types are published, so any instance of the repository
+   * refreshes them on its keyword index.
+   */
+  public static final String KEYWORD_INDEX_ADDRESS = "wenet_task_manager.persistence.taskTypes.changed";
+
+  /**
+   * The default milliseconds between the reloads of all the task types of the keyword index.
+   */
+  public static final long DEFAULT_KEYWORD_INDEX_RELOAD_PERIOD = 300000L;
+
   /**
    * The path to the file that contains an array of the default task types to
    */
   public static final String DEFAULT_TASK_TYPE_RESOURCE_PREFIX = "eu/internetofus/wenet_task_manager/persistence/DefaultTaskType_";
 
+  /**
+   * The index with the keywords of the task types, or {@code null} if the pages are always searched on the database.
+   */
+  protected TaskTypeKeywordIndex keywordIndex;
+
   /**
    * Create a new service.
    *
@@ -77,6 +102,19 @@ public class TaskTypesRepositoryImpl extends Repository implements TaskTypesRepo
 
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void searchTaskTypeVersion(final String id, final Handler<AsyncResult<JsonObject>> searchHandler) {
+
+    final var query = new JsonObject().put("_id", id);
+    final var fields = new JsonObject().put("_id", 0).put(ModelVersions.LAST_UPDATE_TS, 1).put(ModelVersions.VERSION,
+        1);
+    this.findOneDocument(TASK_TYPES_COLLECTION, query, fields, found -> found).onComplete(searchHandler);
+
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -93,7 +131,7 @@ public class TaskTypesRepositoryImpl extends Repository implements TaskTypesRepo
       final var _id = (String) stored.remove("_id");
       return stored.put("id", _id);
 
-    }).onComplete(storeHandler);
+    }).compose(stored -> this.indexChanged(stored.getString("id")).map(stored)).onComplete(storeHandler);
 
   }
 
@@ -103,9 +141,146 @@ public class TaskTypesRepositoryImpl extends Repository implements TaskTypesRepo
   @Override
   public void updateTaskType(final JsonObject taskType, final Handler<AsyncResult<Void>> updateHandler) {
 
-    final var id = taskType.remove("id");
+    final var id = (String) taskType.remove("id");
     final var query = new JsonObject().put("_id", id);
-    this.updateOneDocument(TASK_TYPES_COLLECTION, query, taskType).onComplete(updateHandler);
+    final var update = new JsonObject().put("$set", taskType);
+    ModelVersions.updateChanges(this.pool, TASK_TYPES_COLLECTION, query, update)
+        .compose(empty -> this.indexChanged(id)).onComplete(updateHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void updateChangedTaskType(final JsonObject original, final JsonObject taskType,
+      final Long expectedVersion, final Handler<AsyncResult<Void>> updateHandler) {
+
+    final var id = (String) taskType.remove("id");
+    original.remove("id");
+    final var query = ModelVersions.withExpected(new JsonObject().put("_id", id), expectedVersion);
+    final var changes = DocumentDiff.diff(original, taskType);
+    ModelVersions.updateChanges(this.pool, TASK_TYPES_COLLECTION, query, changes)
+        .compose(empty -> this.indexChanged(id)).onComplete(updateHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void addTaskTypeNorm(final String taskTypeId, final JsonObject norm,
+      final Handler<AsyncResult<Void>> addHandler) {
+
+    final var query = new JsonObject().put("_id", taskTypeId);
+    final var norms = new JsonObject().put("$concatArrays", new JsonArray()
+        .add(new JsonObject().put("$ifNull", new JsonArray().add("$norms").add(new JsonArray())))
+        .add(new JsonObject().put("$literal", new JsonArray().add(norm))));
+    final var pipeline = new JsonArray().add(new JsonObject().put("$set",
+        new JsonObject().put("norms", norms).put(ModelVersions.LAST_UPDATE_TS, TimeManager.now())
+            .put(ModelVersions.VERSION, ModelVersions.nextExpression())));
+    this.updateNorms(query, pipeline).compose(empty -> this.indexChanged(taskTypeId)).onComplete(addHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setTaskTypeNorm(final String taskTypeId, final int index, final int size, final JsonObject norm,
+      final Handler<AsyncResult<Void>> setHandler) {
+
+    if (index < 0 || index >= size) {
+
+      setHandler.handle(Future.failedFuture("The index of the norm is out of the bounds of the norms."));
+      return;
+    }
+
+    final var query = createNormsQuery(taskTypeId, size);
+    final var head = index == 0 ? new JsonArray()
+        : new JsonObject().put("$slice", new JsonArray().add("$norms").add(index));
+    final var tail = new JsonObject().put("$slice", new JsonArray().add("$norms").add(index + 1).add(size));
+    final var norms = new JsonObject().put("$concatArrays",
+        new JsonArray().add(head).add(new JsonObject().put("$literal", new JsonArray().add(norm))).add(tail));
+    final var pipeline = new JsonArray().add(new JsonObject().put("$set",
+        new JsonObject().put("norms", norms).put(ModelVersions.LAST_UPDATE_TS, TimeManager.now())
+            .put(ModelVersions.VERSION, ModelVersions.nextExpression())));
+    this.updateNorms(query, pipeline).compose(empty -> this.indexChanged(taskTypeId)).onComplete(setHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void removeTaskTypeNorm(final String taskTypeId, final int index, final int size,
+      final Handler<AsyncResult<Void>> removeHandler) {
+
+    if (index < 0 || index >= size) {
+
+      removeHandler.handle(Future.failedFuture("The index of the norm is out of the bounds of the norms."));
+      return;
+    }
+
+    final var query = createNormsQuery(taskTypeId, size);
+    final var head = index == 0 ? new JsonArray()
+        : new JsonObject().put("$slice", new JsonArray().add("$norms").add(index));
+    final var tail = new JsonObject().put("$slice", new JsonArray().add("$norms").add(index + 1).add(size));
+    final var norms = new JsonObject().put("$concatArrays", new JsonArray().add(head).add(tail));
+    final var pipeline = new JsonArray().add(new JsonObject().put("$set",
+        new JsonObject().put("norms", norms).put(ModelVersions.LAST_UPDATE_TS, TimeManager.now())
+            .put(ModelVersions.VERSION, ModelVersions.nextExpression())));
+    this.updateNorms(query, pipeline).compose(empty -> this.indexChanged(taskTypeId)).onComplete(removeHandler);
+
+  }
+
+  /**
+   * Create the query to match a task type only if its norms has not been added or removed, so the norm on an index is
+   * the one that the client has modified.
+   *
+   * @param taskTypeId identifier of the task type.
+   * @param size       number of norms of the task type.
+   *
+   * @return the query to match the task type.
+   */
+  protected static JsonObject createNormsQuery(final String taskTypeId, final int size) {
+
+    return new JsonObject().put("_id", taskTypeId).put("norms", new JsonObject().put("$size", size));
+
+  }
+
+  /**
+   * Update the norms of a task type with a pipeline.
+   *
+   * @param query    to match the task type.
+   * @param pipeline to update the norms.
+   *
+   * @return the future that will inform when the norms are updated.
+   */
+  protected Future<Void> updateNorms(final JsonObject query, final JsonArray pipeline) {
+
+    return this.pool.updateCollection(TASK_TYPES_COLLECTION, query, pipeline)
+        .compose(TaskTypesRepositoryImpl::checkNormsUpdated);
+
+  }
+
+  /**
+   * Check that an update of the norms has matched the task type.
+   *
+   * @param result of the update.
+   *
+   * @return the future that fails if the task type is not defined or its norms has been modified.
+   */
+  protected static Future<Void> checkNormsUpdated(final MongoClientUpdateResult result) {
+
+    if (result == null || result.getDocMatched() == 0L) {
+
+      return Future.failedFuture("Not found task type or its norms has been modified.");
+
+    } else {
+
+      return Future.succeededFuture();
+    }
 
   }
 
@@ -116,7 +291,8 @@ public class TaskTypesRepositoryImpl extends Repository implements TaskTypesRepo
   public void deleteTaskType(final String id, final Handler<AsyncResult<Void>> deleteHandler) {
 
     final var query = new JsonObject().put("_id", id);
-    this.deleteOneDocument(TASK_TYPES_COLLECTION, query).onComplete(deleteHandler);
+    this.deleteOneDocument(TASK_TYPES_COLLECTION, query).compose(empty -> this.indexChanged(id))
+        .onComplete(deleteHandler);
 
   }
 
@@ -127,12 +303,136 @@ public class TaskTypesRepositoryImpl extends Repository implements TaskTypesRepo
   public void retrieveTaskTypesPage(final JsonObject query, final JsonObject order, final int offset, final int limit,
       final Handler<AsyncResult<JsonObject>> searchHandler) {
 
+    if (this.keywordIndex != null) {
+
+      final var page = this.keywordIndex.retrievePage(query, order, offset, limit);
+      if (page != null) {
+
+        searchHandler.handle(Future.succeededFuture(page));
+        return;
+      }
+    }
+
     final var options = new FindOptions();
-    options.setSort(order);
+    if (TextSearch.isTextSearch(query)) {
+
+      options.setFields(TextSearch.scoreProjection());
+      options.setSort(TextSearch.sortOf(order));
+
+    } else {
+
+      options.setSort(order);
+    }
     options.setSkip(offset);
     options.setLimit(limit);
-    this.searchPageObject(TASK_TYPES_COLLECTION, query, options, "taskTypes",
-        taskType -> taskType.put("id", taskType.remove("_id"))).onComplete(searchHandler);
+    this.searchPageObject(TASK_TYPES_COLLECTION, query, options, "taskTypes", taskType -> {
+
+      taskType.remove(TextSearch.SCORE);
+      taskType.remove(ModelVersions.VERSION);
+      taskType.put("id", taskType.remove("_id"));
+
+    }).onComplete(searchHandler);
+
+  }
+
+  /**
+   * Start to maintain the task types in memory with the index of their keywords.
+   *
+   * @param conf with the {@code enabled}, the {@code gramSize} and the {@code reloadPeriod} of the index, or
+   *             {@code null} to search always the task types on the database.
+   *
+   * @return the future that will inform when the task types have been loaded.
+   */
+  public Future<Void> startKeywordIndex(final JsonObject conf) {
+
+    if (conf == null || !conf.getBoolean("enabled", true)) {
+
+      return Future.succeededFuture();
+    }
+    this.keywordIndex = new TaskTypeKeywordIndex(conf.getInteger("gramSize", TaskTypeKeywordIndex.DEFAULT_GRAM_SIZE));
+    this.vertx.eventBus().<String>consumer(KEYWORD_INDEX_ADDRESS, message -> this.refreshKeywordIndex(message.body()));
+    final var period = conf.getLong("reloadPeriod", DEFAULT_KEYWORD_INDEX_RELOAD_PERIOD);
+    if (period > 0) {
+
+      this.vertx.setPeriodic(period, timer -> this.loadKeywordIndex());
+    }
+    return this.loadKeywordIndex()
+        .onSuccess(empty -> Logger.info("Searching the task types by keywords on the memory"));
+
+  }
+
+  /**
+   * Load all the task types into the keyword index.
+   *
+   * @return the future that will inform when the task types have been loaded.
+   */
+  protected Future<Void> loadKeywordIndex() {
+
+    return this.pool.find(TASK_TYPES_COLLECTION, new JsonObject()).map(taskTypes -> {
+
+      for (final var taskType : taskTypes) {
+
+        ModelVersions.withoutVersion(taskType).put("id", taskType.remove("_id"));
+      }
+      this.keywordIndex.load(taskTypes);
+      return (Void) null;
+
+    }).onFailure(error -> Logger.warn(error, "Cannot load the task types of the keyword index"));
+
+  }
+
+  /**
+   * Refresh a task type of the keyword index with the one stored on the database.
+   *
+   * @param id identifier of the task type to refresh.
+   *
+   * @return the future that will inform when the task type has been refreshed.
+   */
+  protected Future<Void> refreshKeywordIndex(final String id) {
+
+    return this.pool.findOne(TASK_TYPES_COLLECTION, new JsonObject().put("_id", id), null).map(taskType -> {
+
+      if (taskType == null) {
+
+        this.keywordIndex.remove(id);
+
+      } else {
+
+        this.keywordIndex.put(ModelVersions.withoutVersion(taskType).put("id", taskType.remove("_id")));
+      }
+      return (Void) null;
+
+    }).onFailure(error -> Logger.warn(error, "Cannot refresh the task type {} of the keyword index", id));
+
+  }
+
+  /**
+   * Called when a task type has been changed, to refresh it on the keyword index of this repository and publish the
+   * change to the other instances.
+   *
+   * @param id identifier of the changed task type.
+   *
+   * @return the future that will inform when the keyword index has been refreshed.
+   */
+  protected Future<Void> indexChanged(final String id) {
+
+    if (this.keywordIndex == null) {
+
+      return Future.succeededFuture();
+    }
+    return this.refreshKeywordIndex(id).otherwiseEmpty()
+        .onComplete(refreshed -> this.vertx.eventBus().publish(KEYWORD_INDEX_ADDRESS, id));
+
+  }
+
+  /**
+   * Create the indexes of the task types.
+   *
+   * @return the future that will inform if the indexes are created or not.
+   */
+  public Future<Void> createIndexes() {
+
+    return this.pool.createIndexes(TASK_TYPES_COLLECTION, List.of(TextSearch.createIndex(TEXT_WEIGHTS)));
 
   }
 
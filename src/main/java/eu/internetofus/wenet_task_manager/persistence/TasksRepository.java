@@ -28,8 +28,11 @@ import eu.internetofus.common.model.Model;
 import eu.internetofus.common.model.ValidationErrorException;
 import eu.internetofus.common.vertx.QueryBuilder;
 import eu.internetofus.common.vertx.Repository;
+import eu.internetofus.wenet_task_manager.api.messages.InboxPage;
 import eu.internetofus.wenet_task_manager.api.messages.MessagesPage;
 import eu.internetofus.wenet_task_manager.api.task_transactions.TaskTransactionsPage;
+import eu.internetofus.wenet_task_manager.api.tasks.TaskStatistics;
+import eu.internetofus.wenet_task_manager.events.TaskEvents;
 import io.vertx.codegen.annotations.GenIgnore;
 import io.vertx.codegen.annotations.ProxyGen;
 import io.vertx.core.AsyncResult;
@@ -72,17 +75,42 @@ public interface TasksRepository {
   /**
    * Register this service.
    *
-   * @param vertx   that contains the event bus to use.
-   * @param pool    to create the database connections.
-   * @param version of the schemas.
+   * @param vertx      that contains the event bus to use.
+   * @param pool       to create the database connections.
+   * @param version    of the schemas.
+   * @param pageTotals configuration of the totals of the pages.
+   * @param events     component to publish the events of the tasks.
+   * @param expiry     configuration of the expiration of the tasks, or {@code null} if the tasks do not expire.
+   * @param archive    configuration of the archive of the closed tasks, or {@code null} if the tasks are not archived.
+   * @param partitions configuration of the monthly partitions of the tasks, or {@code null} if the tasks are not
+   *                   partitioned.
+   * @param reads      router of the reads to the pools with the configured read preferences.
    *
    * @return the future that inform when the repository will be registered or not.
    */
-  static Future<Void> register(final Vertx vertx, final MongoClient pool, final String version) {
+  static Future<Void> register(final Vertx vertx, final MongoClient pool, final String version,
+      final JsonObject pageTotals, final TaskEvents events, final JsonObject expiry, final JsonObject archive,
+      final JsonObject partitions, final ReadPreferenceRouter reads) {
 
-    final var repository = new TasksRepositoryImpl(vertx, pool, version);
+    final var repository = new TasksRepositoryImpl(vertx, pool, version, pageTotals, events);
+    repository.routeReads(reads);
     new ServiceBinder(vertx).setAddress(TasksRepository.ADDRESS).register(TasksRepository.class, repository);
-    return repository.migrateDocumentsToCurrentVersions();
+    var future = repository.migrateDocumentsToCurrentVersions();
+    if (partitions != null) {
+
+      future = future.compose(empty -> repository.enablePartitions(partitions));
+    }
+    future = future.compose(empty -> repository.migrateInbox());
+    if (expiry != null && expiry.getBoolean("enabled", false)) {
+
+      final var deadlines = repository.enableDeadlines(expiry);
+      future = future.compose(empty -> deadlines.start());
+    }
+    if (archive != null && archive.getBoolean("enabled", false)) {
+
+      future = future.compose(empty -> repository.getArchive().start(archive));
+    }
+    return future;
 
   }
 
@@ -96,9 +124,24 @@ public interface TasksRepository {
   @GenIgnore
   default Future<Task> searchTask(final String id) {
 
+    return Model.fromFutureJsonObject(this.searchTaskObject(id).map(ModelVersions::withoutVersion), Task.class);
+
+  }
+
+  /**
+   * Search for the stored object of the task with the specified identifier, that also has the
+   * {@link ModelVersions#VERSION} of the task.
+   *
+   * @param id identifier of the task to search.
+   *
+   * @return the future found object of the task.
+   */
+  @GenIgnore
+  default Future<JsonObject> searchTaskObject(final String id) {
+
     final Promise<JsonObject> promise = Promise.promise();
     this.searchTask(id, promise);
-    return Model.fromFutureJsonObject(promise.future(), Task.class);
+    return promise.future();
 
   }
 
@@ -110,6 +153,31 @@ public interface TasksRepository {
    */
   void searchTask(String id, Handler<AsyncResult<JsonObject>> searchHandler);
 
+  /**
+   * Search for the version of a task. It only obtains the {@link ModelVersions#VERSION} and the
+   * {@link Task#_lastUpdateTs} of the task, so it is cheaper than obtain the full task.
+   *
+   * @param id identifier of the task to search.
+   *
+   * @return the future with the version and the time stamp of the last update of the task.
+   */
+  @GenIgnore
+  default Future<JsonObject> searchTaskVersion(final String id) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.searchTaskVersion(id, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Search for the version of a task.
+   *
+   * @param id            identifier of the task to search.
+   * @param searchHandler handler to manage the search.
+   */
+  void searchTaskVersion(String id, Handler<AsyncResult<JsonObject>> searchHandler);
+
   /**
    * Store a task.
    *
@@ -166,6 +234,119 @@ public interface TasksRepository {
    */
   void updateTask(JsonObject task, Handler<AsyncResult<Void>> updateHandler);
 
+  /**
+   * Update a task writing only the fields that have changed from the stored one.
+   *
+   * @param original the task that is stored, or {@code null} to write all the fields of the task.
+   * @param task     to update.
+   *
+   * @return the future update result.
+   */
+  @GenIgnore
+  default Future<Void> updateTask(final Task original, @NotNull final Task task) {
+
+    return this.updateTask(original, task, null);
+
+  }
+
+  /**
+   * Update a task writing only the fields that have changed from the stored one, if it has not been modified since the
+   * version that the client has.
+   *
+   * @param original        the task that is stored, or {@code null} to write all the fields of the task.
+   * @param task            to update.
+   * @param expectedVersion the version of the task that the client has, or {@code null} if the update is not
+   *                        conditional.
+   *
+   * @return the future update result, that fails with a precondition failed if the task has been modified.
+   *
+   * @see ModelVersions#isModified(Throwable)
+   */
+  @GenIgnore
+  default Future<Void> updateTask(final Task original, @NotNull final Task task, final Long expectedVersion) {
+
+    if (original == null) {
+
+      return this.updateTask(task);
+    }
+
+    final var originalObject = original.toJsonObjectWithEmptyValues();
+    final var object = task.toJsonObjectWithEmptyValues();
+    if (originalObject == null || object == null) {
+
+      return Future.failedFuture("The task can not converted to JSON.");
+
+    } else {
+
+      final Promise<Void> promise = Promise.promise();
+      this.updateChangedTask(originalObject, object, expectedVersion, promise);
+      return promise.future();
+    }
+
+  }
+
+  /**
+   * Update a task writing only the fields that have changed from the stored one.
+   *
+   * @param original        the task that is stored.
+   * @param task            to update.
+   * @param expectedVersion the version of the task that the client has, or {@code null} if the update is not
+   *                        conditional.
+   * @param updateHandler   handler to manage the update result.
+   */
+  void updateChangedTask(JsonObject original, JsonObject task, Long expectedVersion,
+      Handler<AsyncResult<Void>> updateHandler);
+
+  /**
+   * Merge some fields into a task, in one call to the database, if it has not been modified since the version that the
+   * client has.
+   *
+   * @param id      identifier of the task to merge.
+   * @param version of the task that the client has.
+   * @param set     the fields to set on the task, with the path of the field as key.
+   *
+   * @return the future merged task, or {@code null} if the task is not defined or it has been modified.
+   */
+  @GenIgnore
+  default Future<Task> mergeTask(@NotNull final String id, final long version, @NotNull final JsonObject set) {
+
+    return this.mergeTaskObject(id, version, set)
+        .map(merged -> merged == null ? null : Model.fromJsonObject(ModelVersions.withoutVersion(merged), Task.class));
+
+  }
+
+  /**
+   * Merge some fields into a task, in one call to the database, if it has not been modified since the version that the
+   * client has.
+   *
+   * @param id      identifier of the task to merge.
+   * @param version of the task that the client has.
+   * @param set     the fields to set on the task, with the path of the field as key.
+   *
+   * @return the future merged object of the task, with its {@link ModelVersions#VERSION}, or {@code null} if the task
+   *         is not defined or it has been modified.
+   */
+  @GenIgnore
+  default Future<JsonObject> mergeTaskObject(@NotNull final String id, final long version,
+      @NotNull final JsonObject set) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.mergeTask(id, version, set, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Merge some fields into a task if it has not been modified since the version that the client has.
+   *
+   * @param id           identifier of the task to merge.
+   * @param version      of the task that the client has.
+   * @param set          the fields to set on the task, with the path of the field as key.
+   * @param mergeHandler handler to manage the merged task, that is {@code null} if the task is not defined or it has
+   *                     been modified.
+   */
+  void mergeTask(String id, long version, JsonObject set, Handler<AsyncResult<JsonObject>> mergeHandler);
+
   /**
    * Delete a task.
    *
@@ -287,8 +468,29 @@ public interface TasksRepository {
   default Future<TasksPage> retrieveTasksPage(final JsonObject query, final JsonObject order, final int offset,
       final int limit) {
 
+    return this.retrieveTasksPage(query, order, offset, limit, (String) null);
+
+  }
+
+  /**
+   * Obtain the tasks that satisfies a query.
+   *
+   * @param query  that define the tasks to add into the page.
+   * @param order  in witch has to return the tasks.
+   * @param offset index of the first task to return.
+   * @param limit  number maximum of tasks to return.
+   * @param total  mode to calculate the total of the page, or {@code null} to calculate the exact total.
+   *
+   * @return the future found page.
+   *
+   * @see PageTotals
+   */
+  @GenIgnore
+  default Future<TasksPage> retrieveTasksPage(final JsonObject query, final JsonObject order, final int offset,
+      final int limit, final String total) {
+
     final Promise<JsonObject> promise = Promise.promise();
-    this.retrieveTasksPage(query, order, offset, limit, promise);
+    this.retrieveTasksPage(query, order, offset, limit, total, promise);
     return Model.fromFutureJsonObject(promise.future(), TasksPage.class);
 
   }
@@ -300,9 +502,10 @@ public interface TasksRepository {
    * @param order         in witch has to return the tasks.
    * @param offset        index of the first task to return.
    * @param limit         number maximum of tasks to return.
+   * @param total         mode to calculate the total of the page, or {@code null} to calculate the exact total.
    * @param searchHandler handler to manage the search.
    */
-  void retrieveTasksPage(JsonObject query, JsonObject order, int offset, int limit,
+  void retrieveTasksPage(JsonObject query, JsonObject order, int offset, int limit, String total,
       Handler<AsyncResult<JsonObject>> searchHandler);
 
   /**
@@ -375,8 +578,29 @@ public interface TasksRepository {
   default Future<TaskTransactionsPage> retrieveTaskTransactionsPage(final JsonObject query, final JsonObject order,
       final int offset, final int limit) {
 
+    return this.retrieveTaskTransactionsPage(query, order, offset, limit, (String) null);
+
+  }
+
+  /**
+   * Obtain the task transactions that satisfies a query.
+   *
+   * @param query  that define the task transactions to add into the page.
+   * @param order  in witch has to return the task transactions.
+   * @param offset index of the first task transaction to return.
+   * @param limit  number maximum of task transactions to return.
+   * @param total  mode to calculate the total of the page, or {@code null} to calculate the exact total.
+   *
+   * @return the future found page.
+   *
+   * @see PageTotals
+   */
+  @GenIgnore
+  default Future<TaskTransactionsPage> retrieveTaskTransactionsPage(final JsonObject query, final JsonObject order,
+      final int offset, final int limit, final String total) {
+
     final Promise<JsonObject> promise = Promise.promise();
-    this.retrieveTaskTransactionsPage(query, order, offset, limit, promise);
+    this.retrieveTaskTransactionsPage(query, order, offset, limit, total, promise);
     return Model.fromFutureJsonObject(promise.future(), TaskTransactionsPage.class);
 
   }
@@ -388,9 +612,10 @@ public interface TasksRepository {
    * @param order         in witch has to return the task transactions.
    * @param offset        index of the first task transaction to return.
    * @param limit         number maximum of task transactions to return.
+   * @param total         mode to calculate the total of the page, or {@code null} to calculate the exact total.
    * @param searchHandler handler to manage the search.
    */
-  void retrieveTaskTransactionsPage(JsonObject query, JsonObject order, int offset, int limit,
+  void retrieveTaskTransactionsPage(JsonObject query, JsonObject order, int offset, int limit, String total,
       Handler<AsyncResult<JsonObject>> searchHandler);
 
   /**
@@ -549,8 +774,29 @@ public interface TasksRepository {
   default Future<MessagesPage> retrieveMessagesPage(final JsonObject query, final JsonObject order, final int offset,
       final int limit) {
 
+    return this.retrieveMessagesPage(query, order, offset, limit, (String) null);
+
+  }
+
+  /**
+   * Obtain the messages that satisfies a query.
+   *
+   * @param query  that define the messages to add into the page.
+   * @param order  in witch has to return the messages.
+   * @param offset index of the first message to return.
+   * @param limit  number maximum of messages to return.
+   * @param total  mode to calculate the total of the page, or {@code null} to calculate the exact total.
+   *
+   * @return the future found page.
+   *
+   * @see PageTotals
+   */
+  @GenIgnore
+  default Future<MessagesPage> retrieveMessagesPage(final JsonObject query, final JsonObject order, final int offset,
+      final int limit, final String total) {
+
     final Promise<JsonObject> promise = Promise.promise();
-    this.retrieveMessagesPage(query, order, offset, limit, promise);
+    this.retrieveMessagesPage(query, order, offset, limit, total, promise);
     return Model.fromFutureJsonObject(promise.future(), MessagesPage.class);
 
   }
@@ -562,11 +808,92 @@ public interface TasksRepository {
    * @param order         in witch has to return the messages.
    * @param offset        index of the first message to return.
    * @param limit         number maximum of messages to return.
+   * @param total         mode to calculate the total of the page, or {@code null} to calculate the exact total.
    * @param searchHandler handler to manage the search.
    */
-  void retrieveMessagesPage(JsonObject query, JsonObject order, int offset, int limit,
+  void retrieveMessagesPage(JsonObject query, JsonObject order, int offset, int limit, String total,
       Handler<AsyncResult<JsonObject>> searchHandler);
 
+  /**
+   * Obtain a page of the messages received by an user, from the newest to the
+   * oldest.
+   *
+   * @param receiverId identifier of the user that has received the messages.
+   * @param appId      identifier of the application of the messages, or
+   *                   {@code null} for any application.
+   * @param label      of the messages, or {@code null} for any label.
+   * @param after      the cursor returned on the previous page, or {@code null}
+   *                   to start from the newest message.
+   * @param limit      number maximum of messages to return.
+   *
+   * @return the future found page.
+   */
+  @GenIgnore
+  default Future<InboxPage> retrieveInboxPage(final String receiverId, final String appId, final String label,
+      final String after, final int limit) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.retrieveInboxPage(receiverId, appId, label, after, limit, promise);
+    return Model.fromFutureJsonObject(promise.future(), InboxPage.class);
+
+  }
+
+  /**
+   * Obtain a page of the messages received by an user.
+   *
+   * @param receiverId    identifier of the user that has received the messages.
+   * @param appId         identifier of the application of the messages.
+   * @param label         of the messages.
+   * @param after         the cursor returned on the previous page.
+   * @param limit         number maximum of messages to return.
+   * @param searchHandler handler to manage the search.
+   */
+  void retrieveInboxPage(String receiverId, String appId, String label, String after, int limit,
+      Handler<AsyncResult<JsonObject>> searchHandler);
+
+  /**
+   * Obtain the pre-aggregated counters of the tasks.
+   *
+   * @param appId      identifier of the application of the tasks, or
+   *                   {@code null} for any application.
+   * @param taskTypeId identifier of the type of the tasks, or {@code null} for
+   *                   any type.
+   * @param counter    name of the counters, or {@code null} for any counter.
+   * @param key        label of the transactions or receiver of the messages to
+   *                   count, or {@code null} for any key.
+   * @param from       minimum time stamp of the days to count, or {@code null}
+   *                   to not limit it.
+   * @param to         maximum time stamp of the days to count, or {@code null}
+   *                   to not limit it.
+   * @param limit      number maximum of counters to return.
+   *
+   * @return the future found statistics.
+   */
+  @GenIgnore
+  default Future<TaskStatistics> retrieveTaskStatistics(final String appId, final String taskTypeId,
+      final String counter, final String key, final Long from, final Long to, final int limit) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.retrieveTaskStatistics(appId, taskTypeId, counter, key, from, to, limit, promise);
+    return Model.fromFutureJsonObject(promise.future(), TaskStatistics.class);
+
+  }
+
+  /**
+   * Obtain the pre-aggregated counters of the tasks.
+   *
+   * @param appId         identifier of the application of the tasks.
+   * @param taskTypeId    identifier of the type of the tasks.
+   * @param counter       name of the counters.
+   * @param key           label of the transactions or receiver of the messages.
+   * @param from          minimum time stamp of the days to count.
+   * @param to            maximum time stamp of the days to count.
+   * @param limit         number maximum of counters to return.
+   * @param searchHandler handler to manage the search.
+   */
+  void retrieveTaskStatistics(String appId, String taskTypeId, String counter, String key, Long from, Long to,
+      int limit, Handler<AsyncResult<JsonObject>> searchHandler);
+
   /**
    * Create the query to ask about some messages.
    *
@@ -23,17 +23,25 @@ package eu.internetofus.wenet_task_manager.persistence;
 import eu.internetofus.common.components.models.Task;
 import eu.internetofus.common.model.TimeManager;
 import eu.internetofus.common.vertx.Repository;
+import eu.internetofus.wenet_task_manager.events.TaskEvents;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.AggregateOptions;
 import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.IndexModel;
+import io.vertx.ext.mongo.IndexOptions;
 import io.vertx.ext.mongo.MongoClient;
 import io.vertx.ext.mongo.UpdateOptions;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Function;
 
 /**
  * Implementation of the {@link TasksRepository}.
@@ -47,6 +55,63 @@ public class TasksRepositoryImpl extends Repository implements TasksRepository {
    */
   public static final String TASKS_COLLECTION = "tasks";
 
+  /**
+   * The keys of the indexes that can be used to sort the tasks.
+   */
+  public static final List<JsonObject> SORT_INDEXES = List.of(new JsonObject().put("_creationTs", 1).put("_id", 1),
+      new JsonObject().put("appId", 1).put("_creationTs", 1).put("_id", 1));
+
+  /**
+   * The keys of the indexes used to match the tasks that contains some transactions or messages.
+   */
+  public static final List<JsonObject> MATCH_INDEXES = List.of(new JsonObject().put("requesterId", 1),
+      new JsonObject().put("transactions.messages.receiverId", 1));
+
+  /**
+   * The weights of the fields of the tasks that are used on the text search.
+   */
+  public static final JsonObject TEXT_WEIGHTS = new JsonObject().put("goal.name", 10).put("goal.description", 1);
+
+  /**
+   * The inbox with the messages of the tasks.
+   */
+  protected MessagesInbox inbox;
+
+  /**
+   * The pre-aggregated counters of the tasks.
+   */
+  protected TaskStatisticsCounters statistics;
+
+  /**
+   * The component to calculate the totals of the pages.
+   */
+  protected PageTotals totals;
+
+  /**
+   * The component to publish the events of the tasks.
+   */
+  protected TaskEvents events;
+
+  /**
+   * The scheduler of the deadlines of the tasks, or {@code null} if the tasks do not expire.
+   */
+  protected TaskDeadlineScheduler deadlines;
+
+  /**
+   * The archive with the tasks that have been closed for a long time.
+   */
+  protected TaskArchive archive;
+
+  /**
+   * The router of the tasks into the collections where they are stored.
+   */
+  protected TaskPartitions partitions;
+
+  /**
+   * The router of the reads to the pools with the configured read preferences.
+   */
+  protected ReadPreferenceRouter reads;
+
   /**
    * Create a new service.
    *
@@ -56,7 +121,45 @@ public class TasksRepositoryImpl extends Repository implements TasksRepository {
    */
   public TasksRepositoryImpl(final Vertx vertx, final MongoClient pool, final String version) {
 
+    this(vertx, pool, version, null);
+
+  }
+
+  /**
+   * Create a new service.
+   *
+   * @param vertx      event bus to use.
+   * @param pool       to create the connections.
+   * @param version    of the schemas.
+   * @param pageTotals configuration of the totals of the pages.
+   */
+  public TasksRepositoryImpl(final Vertx vertx, final MongoClient pool, final String version,
+      final JsonObject pageTotals) {
+
+    this(vertx, pool, version, pageTotals, new TaskEvents(vertx, true));
+
+  }
+
+  /**
+   * Create a new service.
+   *
+   * @param vertx      event bus to use.
+   * @param pool       to create the connections.
+   * @param version    of the schemas.
+   * @param pageTotals configuration of the totals of the pages.
+   * @param events     component to publish the events of the tasks.
+   */
+  public TasksRepositoryImpl(final Vertx vertx, final MongoClient pool, final String version,
+      final JsonObject pageTotals, final TaskEvents events) {
+
     super(vertx, pool, version);
+    this.partitions = new TaskPartitions(pool);
+    this.inbox = new MessagesInbox(pool, this.partitions);
+    this.statistics = new TaskStatisticsCounters(pool);
+    this.totals = new PageTotals(pageTotals);
+    this.events = events;
+    this.archive = new TaskArchive(vertx, pool, this.partitions);
+    this.reads = new ReadPreferenceRouter(pool);
 
   }
 
@@ -67,10 +170,51 @@ public class TasksRepositoryImpl extends Repository implements TasksRepository {
   public void searchTask(final String id, final Handler<AsyncResult<JsonObject>> searchHandler) {
 
     final var query = new JsonObject().put("_id", id);
-    this.findOneDocument(TASKS_COLLECTION, query, null, found -> {
-      final var _id = (String) found.remove("_id");
-      return found.put("id", _id);
-    }).onComplete(searchHandler);
+    this.partitions.resolve(id).compose(collection -> this.findOneDocument(collection, query, null, found -> found))
+        .recover(cause -> this.searchArchivedTask(id, null, cause)).map(found -> {
+          final var _id = (String) found.remove("_id");
+          return found.put("id", _id);
+        }).onComplete(searchHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void searchTaskVersion(final String id, final Handler<AsyncResult<JsonObject>> searchHandler) {
+
+    final var query = new JsonObject().put("_id", id);
+    final var fields = new JsonObject().put("_id", 0).put(ModelVersions.LAST_UPDATE_TS, 1).put(ModelVersions.VERSION,
+        1);
+    this.partitions.resolve(id).compose(collection -> this.findOneDocument(collection, query, fields, found -> found))
+        .recover(cause -> this.searchArchivedTask(id, fields, cause)).onComplete(searchHandler);
+
+  }
+
+  /**
+   * Search for a task on the archive when it is not found on the tasks collection.
+   *
+   * @param id     identifier of the task.
+   * @param fields to return, or {@code null} to return all.
+   * @param cause  why the task is not found on the tasks collection.
+   *
+   * @return the future archived task, that fails with the cause if the task is not archived.
+   */
+  protected Future<JsonObject> searchArchivedTask(final String id, final JsonObject fields, final Throwable cause) {
+
+    return this.archive.findTask(id, fields).compose(archived -> {
+
+      if (archived == null) {
+
+        return Future.failedFuture(cause);
+
+      } else {
+
+        return Future.succeededFuture(archived);
+      }
+
+    }, error -> Future.failedFuture(cause));
 
   }
 
@@ -85,12 +229,20 @@ public class TasksRepositoryImpl extends Repository implements TasksRepository {
 
       task.put("_id", id);
     }
-    this.storeOneDocument(TASKS_COLLECTION, task, stored -> {
+    this.partitions.store(task, this::initializePartition,
+        collection -> this.storeOneDocument(collection, task, stored -> {
+
+          final var _id = (String) stored.remove("_id");
+          return stored.put("id", _id);
+
+        })).compose(stored -> this.inbox.addTask(stored.getString("id"), stored).map(stored))
+        .compose(stored -> this.statistics.addTask(stored).map(stored))
+        .onSuccess(stored -> {
 
-      final var _id = (String) stored.remove("_id");
-      return stored.put("id", _id);
+          this.events.publish(TaskEvents.TASK_CREATED, stored.getString("id"), stored, null, null);
+          this.scheduleDeadline(stored.getString("id"), stored);
 
-    }).onComplete(storeHandler);
+        }).onComplete(written -> this.reads.markWritten(task)).onComplete(storeHandler);
 
   }
 
@@ -102,7 +254,178 @@ public class TasksRepositoryImpl extends Repository implements TasksRepository {
 
     final var id = task.remove("id");
     final var query = new JsonObject().put("_id", id);
-    this.updateOneDocument(TASKS_COLLECTION, query, task).onComplete(updateHandler);
+    final var update = new JsonObject().put("$set", task);
+    this.updateTaskWith(query, task, task.containsKey("transactions"),
+        collection -> this.updateChanges(collection, query, update)).onComplete(updateHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void updateChangedTask(final JsonObject original, final JsonObject task, final Long expectedVersion,
+      final Handler<AsyncResult<Void>> updateHandler) {
+
+    final var id = task.remove("id");
+    original.remove("id");
+    final var query = ModelVersions.withExpected(new JsonObject().put("_id", id), expectedVersion);
+    final var changes = DocumentDiff.diff(original, task);
+    this.updateTaskWith(query, task, changesField(changes, "transactions"),
+        collection -> this.updateChanges(collection, query, changes))
+        .onComplete(written -> this.reads.markWritten(original)).onComplete(updateHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void mergeTask(final String id, final long version, final JsonObject set,
+      final Handler<AsyncResult<JsonObject>> mergeHandler) {
+
+    final var query = ModelVersions.withExpected(new JsonObject().put("_id", id), version);
+    final var changes = set.copy().put(ModelVersions.LAST_UPDATE_TS, TimeManager.now());
+    final var update = ModelVersions.withVersion(new JsonObject().put("$set", changes));
+    final var options = new UpdateOptions().setReturningNewDocument(false);
+    this.partitions.resolve(id)
+        .compose(collection -> this.pool.findOneAndUpdateWithOptions(collection, query, update, new FindOptions(),
+            options))
+        .compose(original -> {
+
+          if (original == null) {
+
+            return Future.succeededFuture();
+          }
+
+          final var merged = DocumentDiff.applySet(original.copy(), changes);
+          merged.put("id", merged.remove("_id")).put(ModelVersions.VERSION, ModelVersions.versionOf(original) + 1);
+          final var closeTs = changes.getLong("closeTs");
+          Future<Void> future = Future.succeededFuture();
+          if (closeTs != null && original.getValue("closeTs") == null) {
+
+            future = this.statistics.closeTask(original, closeTs)
+                .onSuccess(empty -> this.events.publish(TaskEvents.TASK_CLOSED, id, original, null, null));
+          }
+          return future.map(empty -> {
+
+            this.events.publish(TaskEvents.TASK_UPDATED, id, merged, null, null);
+            this.scheduleDeadline(id, merged);
+            return merged;
+
+          }).onComplete(written -> {
+
+            this.reads.markWritten(original);
+            this.reads.markWritten(merged);
+          });
+
+        }).onComplete(mergeHandler);
+
+  }
+
+  /**
+   * Update a task and the components that depends on it.
+   *
+   * @param query               to match the task to update, with its identifier and the version to update if any.
+   * @param task                with the new values.
+   * @param transactionsChanged is {@code true} if the transactions of the task can be modified.
+   * @param writer              the function to write the task on the collection where it is stored.
+   *
+   * @return the future that will inform when the task is updated.
+   */
+  protected Future<Void> updateTaskWith(final JsonObject query, final JsonObject task,
+      final boolean transactionsChanged, final Function<String, Future<Void>> writer) {
+
+    final var id = query.getValue("_id");
+    return this.partitions.resolve(String.valueOf(id))
+        .compose(collection -> this.countClose(collection, query, task.getLong("closeTs"))
+            .compose(counted -> writer.apply(collection)))
+        .compose(empty -> {
+
+          if (transactionsChanged) {
+
+            return this.inbox.updateTask(String.valueOf(id), task);
+
+          } else {
+
+            return Future.succeededFuture(empty);
+          }
+
+        }).onSuccess(empty -> {
+
+          this.events.publish(TaskEvents.TASK_UPDATED, String.valueOf(id), task, null, null);
+          this.scheduleDeadline(String.valueOf(id), task);
+
+        }).onComplete(written -> this.reads.markWritten(task));
+
+  }
+
+  /**
+   * Apply the changes of a task over the stored document.
+   *
+   * @param collection where the task is stored.
+   * @param query      to match the task.
+   * @param changes    update with the changed fields.
+   *
+   * @return the future that will inform when the changes are applied, that fails with a precondition failed if the
+   *         query has the version of the task and it has been modified.
+   */
+  protected Future<Void> updateChanges(final String collection, final JsonObject query, final JsonObject changes) {
+
+    return ModelVersions.updateChanges(this.pool, collection, query, changes);
+
+  }
+
+  /**
+   * Check if an update modifies a field or any of its sub fields.
+   *
+   * @param changes update to check.
+   * @param field   to check.
+   *
+   * @return {@code true} if the update modifies the field.
+   */
+  protected static boolean changesField(final JsonObject changes, final String field) {
+
+    for (final var operator : changes.fieldNames()) {
+
+      for (final var path : changes.getJsonObject(operator).fieldNames()) {
+
+        if (path.equals(field) || path.startsWith(field + ".")) {
+
+          return true;
+        }
+      }
+    }
+    return false;
+
+  }
+
+  /**
+   * Count a task as closed if it is not closed yet. The close time is set only if the task does not have it, so the
+   * task is counted, and its close event published, once even if it is updated concurrently.
+   *
+   * @param collection where the task is stored.
+   * @param query      to match the task to close, with its identifier and the version to update if any.
+   * @param closeTs    time when the task is closed, or {@code null} if the task is not closed.
+   *
+   * @return the future that will inform when the close is counted.
+   */
+  protected Future<Void> countClose(final String collection, final JsonObject query, final Long closeTs) {
+
+    if (closeTs == null) {
+
+      return Future.succeededFuture();
+
+    } else {
+
+      final var id = query.getValue("_id");
+      final var openQuery = query.copy().putNull("closeTs");
+      final var update = new JsonObject().put("$set", new JsonObject().put("closeTs", closeTs));
+      return this.pool.findOneAndUpdate(collection, openQuery, update)
+          .compose(open -> open == null ? Future.succeededFuture()
+              : this.statistics.closeTask(open, closeTs).onSuccess(
+                  empty -> this.events.publish(TaskEvents.TASK_CLOSED, String.valueOf(id), open, null, null)));
+    }
 
   }
 
@@ -113,7 +436,115 @@ public class TasksRepositoryImpl extends Repository implements TasksRepository {
   public void deleteTask(final String id, final Handler<AsyncResult<Void>> deleteHandler) {
 
     final var query = new JsonObject().put("_id", id);
-    this.deleteOneDocument(TASKS_COLLECTION, query).onComplete(deleteHandler);
+    final var ids = new JsonArray().add(id);
+    this.partitions.resolve(id).compose(collection -> this.deleteOneDocument(collection, query))
+        .recover(cause -> this.archive.removeTask(id).compose(removed -> {
+
+          if (removed) {
+
+            return Future.succeededFuture();
+
+          } else {
+
+            return Future.failedFuture(cause);
+          }
+
+        })).compose(empty -> this.inbox.removeTasks(ids)).compose(empty -> this.partitions.unregister(ids))
+        .onSuccess(empty -> {
+
+          if (this.deadlines != null) {
+
+            this.deadlines.cancel(id);
+          }
+
+        }).onComplete(written -> this.reads.markWritten()).onComplete(deleteHandler);
+
+  }
+
+  /**
+   * Schedule the deadline of a task if the tasks expire.
+   *
+   * @param id   identifier of the task.
+   * @param task with the attributes that define the deadline.
+   */
+  protected void scheduleDeadline(final String id, final JsonObject task) {
+
+    if (this.deadlines != null) {
+
+      this.deadlines.schedule(id, task);
+    }
+
+  }
+
+  /**
+   * Enable the expiration of the tasks when their deadline is reached.
+   *
+   * @param conf configuration of the scheduler of the deadlines.
+   *
+   * @return the scheduler of the deadlines, that has to be started after the migration of the tasks.
+   *
+   * @see TaskDeadlineScheduler#start()
+   */
+  public TaskDeadlineScheduler enableDeadlines(final JsonObject conf) {
+
+    this.deadlines = new TaskDeadlineScheduler(this.vertx, this.pool, this.events, this.statistics, this.partitions,
+        conf);
+    return this.deadlines;
+
+  }
+
+  /**
+   * Enable to store the tasks on monthly partitions.
+   *
+   * @param conf configuration of the partitions.
+   *
+   * @return the future that will inform when the partitions are enabled.
+   *
+   * @see TaskPartitions#start(JsonObject)
+   */
+  public Future<Void> enablePartitions(final JsonObject conf) {
+
+    return this.partitions.start(conf);
+
+  }
+
+  /**
+   * Prepare a partition that is used by first time to store a task.
+   *
+   * @param partition name of the collection to prepare.
+   *
+   * @return the future that will inform when the partition is prepared.
+   */
+  protected Future<Void> initializePartition(final String partition) {
+
+    var future = this.createIndexes(partition).compose(empty -> this.archive.createIndexes(partition));
+    if (this.deadlines != null) {
+
+      future = future.compose(empty -> this.deadlines.createIndexes(partition));
+    }
+    return future;
+
+  }
+
+  /**
+   * Route the reads of the pages to the pools with the configured read preferences.
+   *
+   * @param reads router of the reads.
+   */
+  public void routeReads(final ReadPreferenceRouter reads) {
+
+    this.reads = reads;
+
+  }
+
+  /**
+   * Return the archive with the tasks that have been closed for a long time.
+   *
+   * @return the archive of the tasks.
+   */
+  public TaskArchive getArchive() {
+
+    return this.archive;
 
   }
 
@@ -122,14 +553,182 @@ public class TasksRepositoryImpl extends Repository implements TasksRepository {
    */
   @Override
   public void retrieveTasksPage(final JsonObject query, final JsonObject order, final int offset, final int limit,
-      final Handler<AsyncResult<JsonObject>> searchHandler) {
+      final String total, final Handler<AsyncResult<JsonObject>> searchHandler) {
+
+    try {
+
+      final var mode = PageTotals.modeOf(total);
+      final var options = new FindOptions();
+      if (TextSearch.isTextSearch(query)) {
+
+        options.setFields(TextSearch.scoreProjection());
+        options.setSort(TextSearch.sortOf(order));
+
+      } else {
+
+        options.setSort(order);
+      }
+      options.setSkip(offset);
+      final var collections = this.partitions.collectionsFor(query);
+      if (TaskArchive.includes(query)) {
+
+        collections.add(TaskArchive.ARCHIVE_COLLECTION);
+      }
+      if (collections.size() > 1) {
+
+        this.retrieveTasksPageFromCollections(collections, query, order, offset, limit, mode)
+            .onComplete(searchHandler);
+
+      } else {
+
+        final var pool = this.reads.forPages(query);
+        options.setLimit(PageTotals.NONE.equals(mode) ? limit + 1 : limit);
+        final var found = pool.findWithOptions(TASKS_COLLECTION, query, options);
+        final var counted = this.totals.count(pool, TASKS_COLLECTION, query, mode);
+        CompositeFuture.all(found, counted).map(all -> {
+
+          final var tasks = found.result();
+          for (final var task : tasks) {
+
+            task.put("id", task.remove("_id"));
+            task.remove(TextSearch.SCORE);
+            task.remove(ModelVersions.VERSION);
+          }
+          final var page = PageTotals.toPage(offset, limit, "tasks", tasks, counted.result());
+          return PageTotals.markCapped(page, this.totals.isCapped(query, mode, counted.result()));
+
+        }).onComplete(searchHandler);
+      }
+
+    } catch (final IllegalArgumentException cause) {
+
+      searchHandler.handle(Future.failedFuture(cause));
+    }
+
+  }
+
+  /**
+   * Search for a page of tasks that are on some collections, like the partitions or the archive. The tasks before the
+   * offset are obtained from all the collections and merged in memory, because the page can contain tasks from any of
+   * them. When the page does not start at the first task, only the identifiers and the fields of the order are obtained
+   * to merge them, and after that the tasks of the page are obtained by their identifiers.
+   *
+   * @param collections where the tasks can be stored.
+   * @param query       to match the tasks.
+   * @param order       of the tasks.
+   * @param offset      index of the first task to return.
+   * @param limit       number maximum of tasks to return.
+   * @param mode        to calculate the total of the page.
+   *
+   * @return the future page with the tasks.
+   */
+  @SuppressWarnings("rawtypes")
+  protected Future<JsonObject> retrieveTasksPageFromCollections(final List<String> collections,
+      final JsonObject query, final JsonObject order, final int offset, final int limit, final String mode) {
+
+    final var max = PageTotals.NONE.equals(mode) ? limit + 1 : limit;
+    final var options = new FindOptions().setSort(order).setLimit(offset + max);
+    final var text = TextSearch.isTextSearch(query);
+    if (text) {
+
+      options.setFields(TextSearch.scoreProjection()).setSort(TextSearch.sortOf(order));
+    }
+    final var mergeOrder = text ? TextSearch.mergeOrderOf(order) : order;
+    final var seek = offset > 0;
+    if (seek) {
+
+      options.setFields(TaskPartitions.keysProjection(mergeOrder, options.getFields()));
+    }
+    final var found = new ArrayList<Future<List<JsonObject>>>();
+    final var counted = new ArrayList<Future<Long>>();
+    final var all = new ArrayList<Future>();
+    final var pool = this.reads.forPages(query);
+    for (final var collection : collections) {
+
+      final var tasks = pool.findWithOptions(collection, query, options);
+      found.add(tasks);
+      all.add(tasks);
+      final var count = this.totals.count(pool, collection, query, mode);
+      counted.add(count);
+      all.add(count);
+    }
+    return CompositeFuture.all(all).compose(completed -> {
 
-    final var options = new FindOptions();
-    options.setSort(order);
-    options.setSkip(offset);
-    options.setLimit(limit);
-    this.searchPageObject(TASKS_COLLECTION, query, options, "tasks", task -> task.put("id", task.remove("_id")))
-        .onComplete(searchHandler);
+      final var sources = new ArrayList<List<JsonObject>>();
+      for (final var tasks : found) {
+
+        sources.add(tasks.result());
+      }
+      final var merged = TaskPartitions.merge(mergeOrder, sources, offset, max);
+      if (seek) {
+
+        return this.findTasksByIds(pool, collections, merged);
+
+      } else {
+
+        return Future.succeededFuture(merged);
+      }
+
+    }).map(tasks -> {
+
+      for (final var task : tasks) {
+
+        TaskArchive.fromArchived(task).put("id", task.remove("_id"));
+        task.remove(TextSearch.SCORE);
+        task.remove(ModelVersions.VERSION);
+      }
+      Long pageTotal = 0L;
+      var capped = false;
+      for (final var count : counted) {
+
+        pageTotal = pageTotal == null || count.result() == null ? null : pageTotal + count.result();
+        capped |= this.totals.isCapped(query, mode, count.result());
+      }
+      return PageTotals.markCapped(PageTotals.toPage(offset, limit, "tasks", tasks, pageTotal), capped);
+
+    });
+
+  }
+
+  /**
+   * Obtain the tasks with some identifiers that are on some collections.
+   *
+   * @param pool        to read the tasks.
+   * @param collections where the tasks can be stored.
+   * @param keys        with the identifiers of the tasks to obtain, in the order to return them.
+   *
+   * @return the future tasks in the order of the identifiers.
+   */
+  @SuppressWarnings("rawtypes")
+  protected Future<List<JsonObject>> findTasksByIds(final MongoClient pool, final List<String> collections,
+      final List<JsonObject> keys) {
+
+    if (keys.isEmpty()) {
+
+      return Future.succeededFuture(keys);
+    }
+
+    final var ids = new JsonArray();
+    for (final var key : keys) {
+
+      ids.add(key.getValue("_id"));
+    }
+    final var query = new JsonObject().put("_id", new JsonObject().put("$in", ids));
+    final var found = new ArrayList<Future>();
+    for (final var collection : collections) {
+
+      found.add(pool.find(collection, query));
+    }
+    return CompositeFuture.all(found).map(all -> {
+
+      final var tasks = new ArrayList<JsonObject>();
+      for (var i = 0; i < all.size(); i++) {
+
+        tasks.addAll(all.<List<JsonObject>>resultAt(i));
+      }
+      return TaskPartitions.sortByIds(keys, tasks);
+
+    });
 
   }
 
@@ -141,7 +740,50 @@ public class TasksRepositoryImpl extends Repository implements TasksRepository {
   public Future<Void> migrateDocumentsToCurrentVersions() {
 
     return this.migrateTaskTo_0_6_0()
-        .compose(empty -> this.migrateSchemaVersionOnCollectionTo(this.schemaVersion, TASKS_COLLECTION));
+        .compose(empty -> this.migrateSchemaVersionOnCollectionTo(this.schemaVersion, TASKS_COLLECTION))
+        .compose(empty -> this.createIndexes(TASKS_COLLECTION))
+        .compose(empty -> this.statistics.migrate(TASKS_COLLECTION));
+
+  }
+
+  /**
+   * Migrate the inbox of the messages. It has to be done when the partitions are enabled, because the inbox is filled
+   * with the messages of the tasks of all the partitions and the archive.
+   *
+   * @return the future that will inform if the inbox is ready or not.
+   *
+   * @see MessagesInbox#migrate()
+   */
+  public Future<Void> migrateInbox() {
+
+    return this.inbox.migrate();
+
+  }
+
+  /**
+   * Create the indexes used to search for the tasks and their messages. If the indexes already exist they are not
+   * modified.
+   *
+   * @param collection where the tasks are stored.
+   *
+   * @return the future that will inform if the indexes are created or not.
+   *
+   * @see #SORT_INDEXES
+   * @see #MATCH_INDEXES
+   */
+  protected Future<Void> createIndexes(final String collection) {
+
+    final var indexes = new ArrayList<IndexModel>();
+    for (final var key : SORT_INDEXES) {
+
+      indexes.add(new IndexModel(key, new IndexOptions().background(true)));
+    }
+    for (final var key : MATCH_INDEXES) {
+
+      indexes.add(new IndexModel(key, new IndexOptions().background(true)));
+    }
+    indexes.add(TextSearch.createIndex(TEXT_WEIGHTS));
+    return this.pool.createIndexes(collection, indexes);
 
   }
 
@@ -197,36 +839,42 @@ public class TasksRepositoryImpl extends Repository implements TasksRepository {
     final var update = new JsonObject().put("$set", new JsonObject().put("_lastUpdateTs", now)).put("$push",
         new JsonObject().put("transactions", transaction));
 
-    this.pool.findOneAndUpdate(TASKS_COLLECTION, query, update).compose(task -> {
+    this.partitions.resolve(taskId).compose(collection -> ModelVersions.findOneAndUpdate(this.pool, collection, query,
+        update)
+        .compose(task -> {
 
-      if (task == null) {
+          if (task == null) {
 
-        return Future.failedFuture("Not found task");
+            return Future.failedFuture("Not found task");
 
-      } else {
+          } else {
 
-        final var transactions = task.getJsonArray("transactions", new JsonArray());
-        final var transactionId = String.valueOf(transactions.size());
-        transaction.put("id", transactionId);
-        query.put("transactions", new JsonObject().put("$elemMatch", new JsonObject().put("id", tmpId)));
-        final var update2 = new JsonObject().put("$set", new JsonObject().put("transactions.$.id", transactionId));
-        return this.pool.findOneAndUpdate(TASKS_COLLECTION, query, update2).compose(task2 -> {
+            final var transactions = task.getJsonArray("transactions", new JsonArray());
+            final var transactionId = String.valueOf(transactions.size());
+            transaction.put("id", transactionId);
+            query.put("transactions", new JsonObject().put("$elemMatch", new JsonObject().put("id", tmpId)));
+            final var update2 = new JsonObject().put("$set", new JsonObject().put("transactions.$.id", transactionId));
+            return this.pool.findOneAndUpdate(collection, query, update2).compose(task2 -> {
 
-          if (task2 == null) {
+              if (task2 == null) {
 
-            return Future.failedFuture("Not update task");
+                return Future.failedFuture("Not update task");
 
-          } else {
+              } else {
 
-            return Future.succeededFuture(transaction);
+                final var added = new JsonObject().put("transactions", new JsonArray().add(transaction));
+                return this.inbox.addTask(taskId, added)
+                    .compose(empty -> this.statistics.addTransaction(task, transaction)).map(transaction)
+                    .onSuccess(pushed -> this.events.publish(TaskEvents.TRANSACTION_ADDED, taskId, task,
+                        "transaction", transaction));
 
-          }
+              }
 
-        });
+            }).onComplete(written -> this.reads.markWritten(task));
 
-      }
+          }
 
-    }).onComplete(handler);
+        })).onComplete(handler);
 
   }
 
@@ -241,28 +889,45 @@ public class TasksRepositoryImpl extends Repository implements TasksRepository {
         new JsonObject().put("$elemMatch", new JsonObject().put("id", taskTransactionId).putNull("messages")));
     final var updateNull = new JsonObject().put("$set",
         new JsonObject().put("transactions.$.messages", new JsonArray()));
-    this.pool.findOneAndUpdate(TASKS_COLLECTION, queryNull, updateNull).compose(task -> {
+    this.partitions.resolve(taskId).compose(collection -> this.pool.findOneAndUpdate(collection, queryNull, updateNull)
+        .compose(task -> {
 
-      final var query = new JsonObject().put("_id", taskId).put("transactions",
-          new JsonObject().put("$elemMatch", new JsonObject().put("id", taskTransactionId)));
-      final var now = TimeManager.now();
-      final var update = new JsonObject().put("$push", new JsonObject().put("transactions.$.messages", message))
-          .put("$set", new JsonObject().put("_lastUpdateTs", now).put("transactions.$._lastUpdateTs", now));
-      return this.pool.findOneAndUpdate(TASKS_COLLECTION, query, update);
+          final var query = new JsonObject().put("_id", taskId).put("transactions",
+              new JsonObject().put("$elemMatch", new JsonObject().put("id", taskTransactionId)));
+          final var now = TimeManager.now();
+          final var update = new JsonObject().put("$push", new JsonObject().put("transactions.$.messages", message))
+              .put("$set", new JsonObject().put("_lastUpdateTs", now).put("transactions.$._lastUpdateTs", now));
+          return ModelVersions.findOneAndUpdate(this.pool, collection, query, update).compose(updated -> {
 
-    }).compose(task -> {
+            if (updated == null) {
 
-      if (task == null) {
+              return Future.failedFuture("Not found task or transaction");
 
-        return Future.failedFuture("Not found task or transaction");
+            } else {
 
-      } else {
+              var transaction = new JsonObject().put("id", taskTransactionId);
+              final var transactions = updated.getJsonArray("transactions");
+              for (var i = 0; transactions != null && i < transactions.size(); i++) {
 
-        return Future.succeededFuture(message);
+                final var candidate = transactions.getJsonObject(i);
+                if (candidate != null && taskTransactionId.equals(candidate.getString("id"))) {
 
-      }
+                  transaction = candidate;
+                  break;
+                }
+              }
+              final var target = transaction;
+              return this.inbox.addMessage(taskId, transaction, message, now)
+                  .compose(empty -> this.statistics.addMessage(updated, target, message)).map(message)
+                  .onSuccess(
+                      added -> this.events.publish(TaskEvents.MESSAGE_ADDED, taskId, updated, "message", message))
+                  .onComplete(written -> this.reads.markWritten(updated));
+
+            }
 
-    }).onComplete(handler);
+          });
+
+        })).onComplete(handler);
 
   }
 
@@ -271,9 +936,10 @@ public class TasksRepositoryImpl extends Repository implements TasksRepository {
    */
   @Override
   public void retrieveTaskTransactionsPage(final JsonObject query, final JsonObject order, final int offset,
-      final int limit, final Handler<AsyncResult<JsonObject>> searchHandler) {
+      final int limit, final String total, final Handler<AsyncResult<JsonObject>> searchHandler) {
 
-    this.aggregatePageObject(TASKS_COLLECTION, query, order, offset, limit, "transactions").onComplete(searchHandler);
+    final var pipeline = EmbeddedPagePipeline.forTransactions(query, order, offset, limit, SORT_INDEXES);
+    this.aggregateEmbeddedPage(pipeline, total).onComplete(searchHandler);
 
   }
 
@@ -282,10 +948,209 @@ public class TasksRepositoryImpl extends Repository implements TasksRepository {
    */
   @Override
   public void retrieveMessagesPage(final JsonObject query, final JsonObject order, final int offset, final int limit,
-      final Handler<AsyncResult<JsonObject>> searchHandler) {
+      final String total, final Handler<AsyncResult<JsonObject>> searchHandler) {
 
-    this.aggregatePageObject(TASKS_COLLECTION, query, order, offset, limit, "transactions.messages")
-        .onComplete(searchHandler);
+    final var pipeline = EmbeddedPagePipeline.forMessages(query, order, offset, limit, SORT_INDEXES);
+    this.aggregateEmbeddedPage(pipeline, total).onComplete(searchHandler);
+
+  }
+
+  /**
+   * Obtain a page of the models embedded on the tasks.
+   *
+   * @param pipeline to obtain the page.
+   * @param total    mode to calculate the total of the page.
+   *
+   * @return the future page.
+   *
+   * @see PageTotals
+   */
+  protected Future<JsonObject> aggregateEmbeddedPage(final EmbeddedPagePipeline pipeline, final String total) {
+
+    final String mode;
+    try {
+
+      mode = PageTotals.modeOf(total);
+
+    } catch (final IllegalArgumentException cause) {
+
+      return Future.failedFuture(cause);
+    }
+
+    final var key = PageTotals.keyOf(TASKS_COLLECTION, pipeline.getModels(), pipeline.getQuery());
+    final var cached = PageTotals.CACHED.equals(mode) ? this.totals.getCached(key) : null;
+    if (PageTotals.NONE.equals(mode) || cached != null) {
+
+      pipeline.withoutTotal();
+
+    } else if (PageTotals.ESTIMATED.equals(mode)) {
+
+      pipeline.withMaxTotal(this.totals.getMaxCount());
+    }
+
+    final var collections = this.partitions.collectionsFor(pipeline.getQuery());
+    final var archived = TaskArchive.includes(pipeline.getQuery());
+    final Future<JsonObject> found;
+    if (collections.size() == 1 && !archived) {
+
+      found = this.aggregate(collections.get(0), pipeline).map(pipeline::toPage);
+
+    } else {
+
+      found = this.aggregatePartitions(collections, archived, pipeline);
+    }
+    return found.map(page -> {
+
+      if (cached != null) {
+
+        page.put("total", cached);
+
+      } else if (PageTotals.CACHED.equals(mode)) {
+
+        this.totals.putCached(key, page.getLong("total"));
+      }
+      return page;
+
+    });
+
+  }
+
+  /**
+   * Run the pipeline to obtain a page of embedded models over a collection.
+   *
+   * @param collection where the tasks are stored.
+   * @param pipeline   to run.
+   *
+   * @return the future result of the pipeline, or {@code null} if it has not returned any document.
+   */
+  protected Future<JsonObject> aggregate(final String collection, final EmbeddedPagePipeline pipeline) {
+
+    return this.aggregate(this.reads.forPages(pipeline.getQuery()), collection, pipeline.build(),
+        pipeline.needsDiskUse());
+
+  }
+
+  /**
+   * Run some stages of an aggregation that return at most one document over a collection.
+   *
+   * @param pool       to read the page.
+   * @param collection where the tasks are stored.
+   * @param stages     of the aggregation.
+   * @param diskUse    is {@code true} if the aggregation can use the disk.
+   *
+   * @return the future result of the aggregation, or {@code null} if it has not returned any document.
+   */
+  protected Future<JsonObject> aggregate(final MongoClient pool, final String collection, final JsonArray stages,
+      final boolean diskUse) {
+
+    final var options = new AggregateOptions().setAllowDiskUse(diskUse);
+    final Promise<JsonObject> promise = Promise.promise();
+    final var results = new ArrayList<JsonObject>();
+    pool.aggregateWithOptions(collection, stages, options).exceptionHandler(promise::tryFail)
+        .endHandler(end -> promise.tryComplete(results.isEmpty() ? null : results.get(0))).handler(results::add);
+    return promise.future();
+
+  }
+
+  /**
+   * Run the pipeline to obtain a page of embedded models over the archived tasks. The archived tasks that can match
+   * the pipeline are obtained and their transactions are decompressed, in batches, into the aggregation.
+   *
+   * @param pipeline to run.
+   *
+   * @return the future results of the pipeline over each batch of archived tasks.
+   *
+   * @see TaskArchive#unarchiveStages(List)
+   */
+  @SuppressWarnings("rawtypes")
+  protected Future<List<JsonObject>> aggregateArchive(final EmbeddedPagePipeline pipeline) {
+
+    final var query = TaskArchive.archivedQuery(pipeline.getQuery());
+    final var pool = this.reads.forPages(pipeline.getQuery());
+    return pool.find(TaskArchive.ARCHIVE_COLLECTION, query).compose(archived -> {
+
+      final var found = new ArrayList<Future>();
+      final var batchSize = this.archive.getBatchSize();
+      for (var start = 0; start < archived.size(); start += batchSize) {
+
+        final var batch = archived.subList(start, Math.min(archived.size(), start + batchSize));
+        final var stages = TaskArchive.unarchiveStages(batch).addAll(pipeline.build());
+        found.add(this.aggregate(pool, TaskArchive.ARCHIVE_COLLECTION, stages, pipeline.needsDiskUse()));
+      }
+      return CompositeFuture.all(found).map(all -> {
+
+        final var results = new ArrayList<JsonObject>();
+        for (final var result : found) {
+
+          results.add((JsonObject) result.result());
+        }
+        return results;
+
+      });
+
+    });
+
+  }
+
+  /**
+   * Obtain a page of embedded models from some collections. The models until the end of the page are obtained from
+   * each collection and merged by the order of the models. When the order is over the fields of the tasks, the
+   * models are returned in the order of the collections, that is the order of the creation of the tasks, and the
+   * archived tasks are the last ones. The totals of the collections are kept apart, so the page can detect if any of
+   * them has been capped.
+   *
+   * @param collections where the tasks are stored.
+   * @param archived    is {@code true} if the archived tasks have to be included.
+   * @param pipeline    to obtain the page.
+   *
+   * @return the future page.
+   */
+  @SuppressWarnings("rawtypes")
+  protected Future<JsonObject> aggregatePartitions(final List<String> collections, final boolean archived,
+      final EmbeddedPagePipeline pipeline) {
+
+    final var partial = pipeline.fromStart();
+    final var found = new ArrayList<Future>();
+    for (final var collection : collections) {
+
+      found.add(this.aggregate(collection, partial));
+    }
+    final Future<List<JsonObject>> fromArchive = archived ? this.aggregateArchive(partial)
+        : Future.succeededFuture(List.of());
+    found.add(fromArchive);
+    return CompositeFuture.all(found).map(all -> {
+
+      final var results = new ArrayList<JsonObject>();
+      for (var i = 0; i < collections.size(); i++) {
+
+        results.add((JsonObject) found.get(i).result());
+      }
+      results.addAll(fromArchive.result());
+      final var sources = new ArrayList<List<JsonObject>>();
+      final var totals = new JsonArray();
+      for (final var partialResult : results) {
+
+        final var models = new ArrayList<JsonObject>();
+        if (partialResult != null) {
+
+          totals.addAll(partialResult.getJsonArray("total", new JsonArray()));
+          for (final var model : partialResult.getJsonArray(pipeline.getModels(), new JsonArray())) {
+
+            models.add((JsonObject) model);
+          }
+        }
+        sources.add(models);
+      }
+      final var max = pipeline.isCountingTotal() ? pipeline.limit : pipeline.limit + 1;
+      final var merged = TaskPartitions.merge(pipeline.getModelsOrder(), sources, pipeline.offset, max);
+      final var result = new JsonObject().put(pipeline.getModels(), new JsonArray(new ArrayList<Object>(merged)));
+      if (pipeline.isCountingTotal()) {
+
+        result.put("total", totals);
+      }
+      return pipeline.toPage(result);
+
+    });
 
   }
 
@@ -293,30 +1158,52 @@ public class TasksRepositoryImpl extends Repository implements TasksRepository {
    * {@inheritDoc}
    */
   @Override
-  public void deleteAllTaskWithRequester(final String profileId, final Handler<AsyncResult<JsonArray>> deleteHanndler) {
+  public void retrieveInboxPage(final String receiverId, final String appId, final String label, final String after,
+      final int limit, final Handler<AsyncResult<JsonObject>> searchHandler) {
 
-    final var query = new JsonObject().put("requesterId", profileId);
-    this.pool.find(TASKS_COLLECTION, query).transform(handler -> {
+    this.inbox.retrievePage(receiverId, appId, label, after, limit).onComplete(searchHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void retrieveTaskStatistics(final String appId, final String taskTypeId, final String counter,
+      final String key, final Long from, final Long to, final int limit,
+      final Handler<AsyncResult<JsonObject>> searchHandler) {
 
-      if (handler.failed()) {
+    this.statistics.retrieve(appId, taskTypeId, counter, key, from, to, limit).onComplete(searchHandler);
 
-        return Future.failedFuture(handler.cause());
+  }
 
-      } else {
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void deleteAllTaskWithRequester(final String profileId, final Handler<AsyncResult<JsonArray>> deleteHanndler) {
 
-        final var tasks = handler.result();
-        final var ids = new JsonArray();
-        for (final var task : tasks) {
+    final var query = new JsonObject().put("requesterId", profileId);
+    final var ids = new JsonArray();
+    this.partitions.forEach(collection -> this.pool.find(collection, query).compose(tasks -> {
 
-          final var taskId = task.getString("_id");
-          ids.add(taskId);
-        }
+      final var found = new JsonArray();
+      for (final var task : tasks) {
 
-        final var deleteQuery = new JsonObject().put("_id", new JsonObject().put("$in", ids));
-        return this.pool.removeDocuments(TASKS_COLLECTION, deleteQuery).map(any -> ids);
+        final var taskId = task.getString("_id");
+        found.add(taskId);
       }
+      ids.addAll(found);
+      final var deleteQuery = new JsonObject().put("_id", new JsonObject().put("$in", found));
+      return this.pool.removeDocuments(collection, deleteQuery);
+
+    })).compose(any -> this.archive.removeTasksOf(profileId)).compose(archived -> {
+
+      ids.addAll(archived);
+      return this.inbox.removeTasks(ids);
 
-    }).onComplete(deleteHanndler);
+    }).compose(any -> this.partitions.unregister(ids)).map(any -> ids)
+        .onComplete(written -> this.reads.markWritten()).onComplete(deleteHanndler);
 
   }
 
@@ -327,11 +1214,13 @@ public class TasksRepositoryImpl extends Repository implements TasksRepository {
   public void deleteAllTransactionByActioneer(final String profileId, final Handler<AsyncResult<Void>> deleteHanndler) {
 
     final var query = new JsonObject().put("transactions.actioneerId", profileId);
-    final var update = new JsonObject().put("$pull",
-        new JsonObject().put("transactions", new JsonObject().put("actioneerId", profileId)));
+    final var update = ModelVersions.withVersion(new JsonObject().put("$pull",
+        new JsonObject().put("transactions", new JsonObject().put("actioneerId", profileId))));
     final var options = new UpdateOptions().setMulti(true);
-    this.pool.updateCollectionWithOptions(TASKS_COLLECTION, query, update, options).map(result -> (Void) null)
-        .onComplete(deleteHanndler);
+    this.partitions.forEach(collection -> this.pool.updateCollectionWithOptions(collection, query, update, options))
+        .compose(result -> this.archive.removeTransactionsBy(profileId))
+        .compose(result -> this.inbox.removeTransactionsBy(profileId))
+        .onComplete(written -> this.reads.markWritten()).onComplete(deleteHanndler);
   }
 
   /**
@@ -341,11 +1230,13 @@ public class TasksRepositoryImpl extends Repository implements TasksRepository {
   public void deleteAllMessagesWithReceiver(final String profileId, final Handler<AsyncResult<Void>> deleteHanndler) {
 
     final var query = new JsonObject().put("transactions.messages.receiverId", profileId);
-    final var update = new JsonObject().put("$pull",
-        new JsonObject().put("transactions.$[].messages", new JsonObject().put("receiverId", profileId)));
+    final var update = ModelVersions.withVersion(new JsonObject().put("$pull",
+        new JsonObject().put("transactions.$[].messages", new JsonObject().put("receiverId", profileId))));
     final var options = new UpdateOptions().setMulti(true);
-    this.pool.updateCollectionWithOptions(TASKS_COLLECTION, query, update, options).map(result -> (Void) null)
-        .onComplete(deleteHanndler);
+    this.partitions.forEach(collection -> this.pool.updateCollectionWithOptions(collection, query, update, options))
+        .compose(result -> this.archive.removeMessagesTo(profileId))
+        .compose(result -> this.inbox.removeReceiver(profileId))
+        .onComplete(written -> this.reads.markWritten()).onComplete(deleteHanndler);
 
   }
 
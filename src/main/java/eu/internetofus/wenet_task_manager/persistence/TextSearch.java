@@ -0,0 +1,160 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.IndexModel;
+import io.vertx.ext.mongo.IndexOptions;
+
+/**
+ * The components to search for the models that contain a text, using the text indexes of the database. The models
+ * match if they contain any of the words of the text, and they are ordered by their relevance when the page does not
+ * define another order. The text indexes do not use any language, because the models can be written in the language
+ * of any of the applications, so the words are matched without stemming.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TextSearch {
+
+  /**
+   * The name of the field where the relevance of the found models is projected.
+   */
+  public static final String SCORE = "_score";
+
+  /**
+   * The language of the text indexes.
+   */
+  public static final String DEFAULT_LANGUAGE = "none";
+
+  /**
+   * The name of the field that can define the language of a model, that the models do not have.
+   */
+  public static final String LANGUAGE_OVERRIDE = "_textLanguage";
+
+  /**
+   * Hide the constructor of an utility class.
+   */
+  private TextSearch() {
+
+  }
+
+  /**
+   * Add into a query the condition to match the models that contain a text.
+   *
+   * @param query to add the condition.
+   * @param text  to search, or {@code null} to not search for any text.
+   *
+   * @return the query with the text condition.
+   */
+  public static JsonObject withText(final JsonObject query, final String text) {
+
+    if (text != null && !text.isBlank()) {
+
+      query.put("$text", new JsonObject().put("$search", text.trim()));
+    }
+    return query;
+
+  }
+
+  /**
+   * Check if a query search for a text.
+   *
+   * @param query to check.
+   *
+   * @return {@code true} if the query has a text condition.
+   */
+  public static boolean isTextSearch(final JsonObject query) {
+
+    return query != null && query.containsKey("$text");
+
+  }
+
+  /**
+   * Return the projection to obtain the relevance of the found models.
+   *
+   * @return the projection with the score of the text search.
+   */
+  public static JsonObject scoreProjection() {
+
+    return new JsonObject().put(SCORE, new JsonObject().put("$meta", "textScore"));
+
+  }
+
+  /**
+   * Return the order to ask the database for the models that contain a text.
+   *
+   * @param order of the page, or {@code null} to order by relevance.
+   *
+   * @return the order to use on the database.
+   */
+  public static JsonObject sortOf(final JsonObject order) {
+
+    if (order == null || order.isEmpty()) {
+
+      return scoreProjection();
+
+    } else {
+
+      return order;
+    }
+
+  }
+
+  /**
+   * Return the order to merge in memory the models that contain a text.
+   *
+   * @param order of the page, or {@code null} to order by relevance.
+   *
+   * @return the order over the projected fields.
+   */
+  public static JsonObject mergeOrderOf(final JsonObject order) {
+
+    if (order == null || order.isEmpty()) {
+
+      return new JsonObject().put(SCORE, -1);
+
+    } else {
+
+      return order;
+    }
+
+  }
+
+  /**
+   * Create the text index over some fields.
+   *
+   * @param weights of the fields to index.
+   *
+   * @return the text index.
+   */
+  public static IndexModel createIndex(final JsonObject weights) {
+
+    final var key = new JsonObject();
+    for (final var field : weights.fieldNames()) {
+
+      key.put(field, "text");
+    }
+    return new IndexModel(key, new IndexOptions().background(true).name("text").weights(weights)
+        .defaultLanguage(DEFAULT_LANGUAGE).languageOverride(LANGUAGE_OVERRIDE));
+
+  }
+
+}
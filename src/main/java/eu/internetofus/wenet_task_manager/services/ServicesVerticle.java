@@ -24,6 +24,9 @@ import eu.internetofus.common.components.interaction_protocol_engine.WeNetIntera
 import eu.internetofus.common.components.profile_manager.WeNetProfileManager;
 import eu.internetofus.common.components.service.WeNetService;
 import eu.internetofus.common.vertx.AbstractServicesVerticle;
+import eu.internetofus.wenet_task_manager.metrics.MetricsRegistry;
+import eu.internetofus.wenet_task_manager.metrics.WebClientMetricsInterceptor;
+import eu.internetofus.wenet_task_manager.tracing.WebClientTracingInterceptor;
 import io.vertx.core.json.JsonObject;
 
 /**
@@ -39,6 +42,12 @@ public class ServicesVerticle extends AbstractServicesVerticle {
   @Override
   protected void registerServices(final JsonObject serviceConf) throws Exception {
 
+    // measure the requests done to the other components
+    WebClientMetricsInterceptor.instrument(this.client, MetricsRegistry.get());
+
+    // propagate the trace context to the other components
+    WebClientTracingInterceptor.instrument(this.client);
+
     // register the service to interact with the profile manager
     WeNetProfileManager.register(this.vertx, this.client, serviceConf);
 
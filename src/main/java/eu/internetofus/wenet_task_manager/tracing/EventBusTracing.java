@@ -0,0 +1,191 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.tracing;
+
+import eu.internetofus.wenet_task_manager.metrics.EventBusMetrics;
+import io.vertx.core.eventbus.DeliveryContext;
+import io.vertx.core.eventbus.ReplyException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Propagate the trace context through the event bus. When a traced request sends a message a span is started, and
+ * the {@link TraceContext#TRACEPARENT} header is added to the message. The consumer of the message uses this header
+ * as the current trace context, so any message or HTTP request that it does is part of the same trace.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class EventBusTracing {
+
+  /**
+   * The spans of the requests that are waiting for a reply.
+   */
+  protected ConcurrentHashMap<String, Span> pending = new ConcurrentHashMap<>();
+
+  /**
+   * Called when a message is sent through the event bus.
+   *
+   * @param context of the sent message.
+   */
+  public void outbound(final DeliveryContext<Object> context) {
+
+    if (Tracer.isEnabled()) {
+
+      final var message = context.message();
+      final var address = message.address();
+      if (address.startsWith(EventBusMetrics.REPLY_ADDRESS_PREFIX)) {
+
+        this.endConsumerSpan(context.body());
+
+      } else {
+
+        final var parent = Tracer.current();
+        if (parent != null) {
+
+          final var replyAddress = message.replyAddress();
+          final var kind = replyAddress != null ? Span.CLIENT : Span.PRODUCER;
+          final var span = Tracer.startSpan(nameOf(address, message.headers().get(EventBusMetrics.ACTION_HEADER)),
+              kind, parent);
+          span.setAttribute("messaging.destination", address);
+          message.headers().set(TraceContext.TRACEPARENT, span.context.toTraceparent());
+          if (replyAddress != null) {
+
+            this.pending.put(replyAddress, span);
+
+          } else {
+
+            span.end();
+          }
+        }
+      }
+    }
+
+    context.next();
+
+  }
+
+  /**
+   * Called when a message is received from the event bus.
+   *
+   * @param context of the received message.
+   */
+  public void inbound(final DeliveryContext<Object> context) {
+
+    if (Tracer.isEnabled()) {
+
+      final var message = context.message();
+      final var address = message.address();
+      if (address.startsWith(EventBusMetrics.REPLY_ADDRESS_PREFIX)) {
+
+        final var span = this.pending.remove(address);
+        if (span != null) {
+
+          span.setError(context.body() instanceof ReplyException).end();
+        }
+
+      } else {
+
+        final var parent = TraceContext.parse(message.headers().get(TraceContext.TRACEPARENT));
+        if (parent != null) {
+
+          if (message.replyAddress() != null) {
+
+            final var span = Tracer.startSpan(
+                nameOf(address, message.headers().get(EventBusMetrics.ACTION_HEADER)), Span.SERVER, parent);
+            if (Tracer.setCurrent(span.context)) {
+
+              Tracer.requestContext().putLocal(Tracer.CURRENT_SPAN_KEY, span);
+            }
+
+          } else {
+
+            Tracer.setCurrent(parent);
+          }
+        }
+      }
+    }
+
+    context.next();
+
+  }
+
+  /**
+   * Finish the span of the message that the consumer is replying.
+   *
+   * @param reply that is sent.
+   */
+  protected void endConsumerSpan(final Object reply) {
+
+    final var context = Tracer.requestContext();
+    if (context != null) {
+
+      final Span span = context.getLocal(Tracer.CURRENT_SPAN_KEY);
+      if (span != null) {
+
+        context.removeLocal(Tracer.CURRENT_SPAN_KEY);
+        span.setError(reply instanceof ReplyException).end();
+      }
+    }
+
+  }
+
+  /**
+   * Finish, as failed, the spans of the requests that have not been replied after the specified time.
+   *
+   * @param timeout the maximum milliseconds to wait for a reply.
+   */
+  public void evictExpired(final long timeout) {
+
+    final var now = System.nanoTime();
+    final var limit = TimeUnit.MILLISECONDS.toNanos(timeout);
+    for (final var entry : this.pending.entrySet()) {
+
+      final var span = entry.getValue();
+      if (now - span.startNanos > limit && this.pending.remove(entry.getKey(), span)) {
+
+        span.setAttribute("timeout", true).setError(true).end();
+      }
+    }
+
+  }
+
+  /**
+   * Return the name of the span associated to a message.
+   *
+   * @param address where the message is sent.
+   * @param action  of the message.
+   *
+   * @return the name of the span.
+   */
+  protected static String nameOf(final String address, final String action) {
+
+    if (action == null) {
+
+      return address;
+
+    } else {
+
+      return address + " " + action;
+    }
+
+  }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.tracing;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.AsyncFile;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import org.tinylog.Logger;
+
+/**
+ * Exporter that append the finished spans, one JSON per line, to a file.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class FileSpanExporter implements SpanExporter {
+
+  /**
+   * The default file where the spans are stored.
+   */
+  public static final String DEFAULT_FILE = "var/log/spans.jsonl";
+
+  /**
+   * The file where the spans are written.
+   */
+  protected AsyncFile file;
+
+  /**
+   * The spans that are waiting to the file is opened.
+   */
+  protected List<Span> pending = new ArrayList<>();
+
+  /**
+   * This is {@code true} if the exporter is closed.
+   */
+  protected boolean closed;
+
+  /**
+   * {@inheritDoc}
+   *
+   * The path to the file is defined on the property {@code file}.
+   */
+  @Override
+  public void init(final Vertx vertx, final JsonObject conf) {
+
+    final var path = conf.getString("file", DEFAULT_FILE);
+    vertx.fileSystem().open(path, new OpenOptions().setAppend(true).setCreate(true)).onComplete(open -> {
+
+      if (open.failed()) {
+
+        Logger.error(open.cause(), "Cannot open the file {} to store the spans", path);
+        synchronized (this) {
+
+          this.closed = true;
+          this.pending.clear();
+        }
+
+      } else {
+
+        synchronized (this) {
+
+          this.file = open.result();
+          for (final var span : this.pending) {
+
+            this.write(span);
+          }
+          this.pending.clear();
+        }
+      }
+
+    });
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void export(final Span span) {
+
+    if (this.file != null) {
+
+      this.write(span);
+
+    } else if (!this.closed) {
+
+      this.pending.add(span);
+    }
+
+  }
+
+  /**
+   * Write a span into the file.
+   *
+   * @param span to write.
+   */
+  protected void write(final Span span) {
+
+    this.file.write(Buffer.buffer(span.toJsonObject().encode()).appendString("\n"));
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void close() {
+
+    this.closed = true;
+    if (this.file != null) {
+
+      this.file.close();
+      this.file = null;
+    }
+
+  }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.tracing;
+
+import eu.internetofus.wenet_task_manager.metrics.HttpServerMetricsHandler;
+import io.vertx.core.Handler;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Handler that starts a span for each HTTP request received by the API. The trace context of the request is obtained
+ * from the {@link TraceContext#TRACEPARENT} header, and the header is replaced with the context of the new span, so
+ * the resources receive it on the headers of the {@link io.vertx.ext.web.api.service.ServiceRequest}.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class HttpServerTracingHandler implements Handler<RoutingContext> {
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void handle(final RoutingContext context) {
+
+    if (Tracer.isEnabled()) {
+
+      final var request = context.request();
+      final var parent = TraceContext.parse(request.getHeader(TraceContext.TRACEPARENT));
+      final var span = Tracer.startSpan(request.method().name() + " " + request.path(), Span.SERVER, parent);
+      span.setAttribute("http.method", request.method().name()).setAttribute("http.target", request.path());
+      Tracer.setCurrent(span.context);
+      request.headers().set(TraceContext.TRACEPARENT, span.context.toTraceparent());
+      context.addBodyEndHandler(any -> {
+
+        final String operationId = context.get(HttpServerMetricsHandler.OPERATION_KEY);
+        if (operationId != null) {
+
+          span.name = request.method().name() + " " + operationId;
+        }
+        final var status = context.response().getStatusCode();
+        span.setAttribute("http.status_code", status).setError(status >= 500).end();
+
+      });
+    }
+
+    context.next();
+
+  }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.tracing;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Exporter that maintains the last finished spans on memory. It is useful for testing.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class InMemorySpanExporter implements SpanExporter {
+
+  /**
+   * The maximum number of spans to maintain.
+   */
+  protected int maxSpans = 10000;
+
+  /**
+   * The exported spans.
+   */
+  protected ArrayDeque<Span> spans = new ArrayDeque<>();
+
+  /**
+   * {@inheritDoc}
+   *
+   * The maximum number of spans to maintain is defined on the property {@code maxSpans}.
+   */
+  @Override
+  public void init(final Vertx vertx, final JsonObject conf) {
+
+    this.maxSpans = conf.getInteger("maxSpans", this.maxSpans);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void export(final Span span) {
+
+    if (this.spans.size() >= this.maxSpans) {
+
+      this.spans.removeFirst();
+    }
+    this.spans.addLast(span);
+
+  }
+
+  /**
+   * Return the exported spans.
+   *
+   * @return the spans in the order that they have finished.
+   */
+  public synchronized List<Span> getSpans() {
+
+    return new ArrayList<>(this.spans);
+
+  }
+
+  /**
+   * Remove all the exported spans.
+   */
+  public synchronized void reset() {
+
+    this.spans.clear();
+
+  }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.tracing;
+
+import io.vertx.core.json.JsonObject;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An operation that is measured as part of a trace.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class Span {
+
+  /**
+   * The kind of span that represents the reception of a request.
+   */
+  public static final String SERVER = "server";
+
+  /**
+   * The kind of span that represents a request to another component.
+   */
+  public static final String CLIENT = "client";
+
+  /**
+   * The kind of span that represents a message that is sent without waiting for a reply.
+   */
+  public static final String PRODUCER = "producer";
+
+  /**
+   * The kind of span that represents the process of a received message.
+   */
+  public static final String CONSUMER = "consumer";
+
+  /**
+   * The name of the operation.
+   */
+  public String name;
+
+  /**
+   * The kind of the span.
+   */
+  public String kind;
+
+  /**
+   * The context of the span.
+   */
+  public TraceContext context;
+
+  /**
+   * The identifier of the parent span, or {@code null} if it is the root of the trace.
+   */
+  public String parentSpanId;
+
+  /**
+   * The epoch time, in microseconds, when the span has started.
+   */
+  public long startTime;
+
+  /**
+   * The duration, in microseconds, of the span.
+   */
+  public long duration;
+
+  /**
+   * This is {@code true} if the operation has failed.
+   */
+  public boolean error;
+
+  /**
+   * The attributes of the span.
+   */
+  public JsonObject attributes = new JsonObject();
+
+  /**
+   * The monotonic time when the span has started.
+   */
+  protected long startNanos;
+
+  /**
+   * This is {@code true} if the span has ended.
+   */
+  protected boolean ended;
+
+  /**
+   * Create a new span.
+   *
+   * @param name    of the operation.
+   * @param kind    of span.
+   * @param context of the span.
+   * @param parent  context of the parent span, or {@code null} if it is the root.
+   */
+  public Span(final String name, final String kind, final TraceContext context, final TraceContext parent) {
+
+    this.name = name;
+    this.kind = kind;
+    this.context = context;
+    if (parent != null) {
+
+      this.parentSpanId = parent.spanId;
+    }
+    this.startTime = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    this.startNanos = System.nanoTime();
+
+  }
+
+  /**
+   * Set an attribute of the span.
+   *
+   * @param key   of the attribute.
+   * @param value of the attribute.
+   *
+   * @return this span.
+   */
+  public Span setAttribute(final String key, final Object value) {
+
+    this.attributes.put(key, value);
+    return this;
+
+  }
+
+  /**
+   * Mark the span as failed.
+   *
+   * @param error is {@code true} if the operation has failed.
+   *
+   * @return this span.
+   */
+  public Span setError(final boolean error) {
+
+    this.error = error;
+    return this;
+
+  }
+
+  /**
+   * Finish the span and export it. If the span has already finished nothing happens.
+   */
+  public void end() {
+
+    synchronized (this) {
+
+      if (this.ended) {
+
+        return;
+      }
+      this.ended = true;
+    }
+    this.duration = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - this.startNanos);
+    Tracer.export(this);
+
+  }
+
+  /**
+   * Return the JSON representation of the span.
+   *
+   * @return the span as JSON.
+   */
+  public JsonObject toJsonObject() {
+
+    return new JsonObject().put("traceId", this.context.traceId).put("spanId", this.context.spanId)
+        .put("parentSpanId", this.parentSpanId).put("name", this.name).put("kind", this.kind)
+        .put("startTime", this.startTime).put("duration", this.duration).put("error", this.error)
+        .put("attributes", this.attributes);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+
+    return this.toJsonObject().encode();
+
+  }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.tracing;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The component that receives the finished spans. To use your own exporter set the property {@code tracing.exporter}
+ * to the name of a class that implements this interface and has a default constructor.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public interface SpanExporter {
+
+  /**
+   * Called before start to export spans.
+   *
+   * @param vertx event bus to use.
+   * @param conf  configuration of the tracing.
+   */
+  default void init(final Vertx vertx, final JsonObject conf) {
+
+    // By default nothing to initialize
+  }
+
+  /**
+   * Export a finished span. This method is called from the event loops, so it must not block.
+   *
+   * @param span to export.
+   */
+  void export(Span span);
+
+  /**
+   * Called when the exporter is not used any more.
+   */
+  default void close() {
+
+    // By default nothing to release
+  }
+
+}
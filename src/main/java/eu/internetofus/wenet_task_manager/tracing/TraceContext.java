@@ -0,0 +1,192 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.tracing;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * The identifiers of a span that are propagated with the
+ * <a href="https://www.w3.org/TR/trace-context/">W3C trace context</a> {@code traceparent} header.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TraceContext {
+
+  /**
+   * The name of the header used to propagate the trace context.
+   */
+  public static final String TRACEPARENT = "traceparent";
+
+  /**
+   * The pattern that has to match a valid {@link #TRACEPARENT}.
+   */
+  protected static final Pattern TRACEPARENT_PATTERN = Pattern
+      .compile("^([0-9a-f]{2})-([0-9a-f]{32})-([0-9a-f]{16})-([0-9a-f]{2})(-.*)?$");
+
+  /**
+   * The identifier of the trace that is invalid.
+   */
+  protected static final String INVALID_TRACE_ID = "00000000000000000000000000000000";
+
+  /**
+   * The identifier of the span that is invalid.
+   */
+  protected static final String INVALID_SPAN_ID = "0000000000000000";
+
+  /**
+   * The identifier of the trace.
+   */
+  public final String traceId;
+
+  /**
+   * The identifier of the span.
+   */
+  public final String spanId;
+
+  /**
+   * This is {@code true} if the trace is sampled.
+   */
+  public final boolean sampled;
+
+  /**
+   * Create a new context.
+   *
+   * @param traceId identifier of the trace.
+   * @param spanId  identifier of the span.
+   * @param sampled is {@code true} if the trace is sampled.
+   */
+  public TraceContext(final String traceId, final String spanId, final boolean sampled) {
+
+    this.traceId = traceId;
+    this.spanId = spanId;
+    this.sampled = sampled;
+
+  }
+
+  /**
+   * Create the context for a new trace.
+   *
+   * @param sampled is {@code true} if the trace is sampled.
+   *
+   * @return the context of the new trace.
+   */
+  public static TraceContext root(final boolean sampled) {
+
+    return new TraceContext(randomHex(16), randomHex(8), sampled);
+
+  }
+
+  /**
+   * Create the context of a span that is a child of this one.
+   *
+   * @return the context of the child span.
+   */
+  public TraceContext child() {
+
+    return new TraceContext(this.traceId, randomHex(8), this.sampled);
+
+  }
+
+  /**
+   * Obtain the context defined on a {@link #TRACEPARENT} header.
+   *
+   * @param traceparent value of the header.
+   *
+   * @return the context defined on the header or {@code null} if it is not valid.
+   */
+  public static TraceContext parse(final String traceparent) {
+
+    if (traceparent == null) {
+
+      return null;
+    }
+
+    final var matcher = TRACEPARENT_PATTERN.matcher(traceparent.trim());
+    if (!matcher.matches() || "ff".equals(matcher.group(1)) || "00".equals(matcher.group(1)) && matcher.group(5) != null
+        || INVALID_TRACE_ID.equals(matcher.group(2)) || INVALID_SPAN_ID.equals(matcher.group(3))) {
+
+      return null;
+    }
+
+    final var flags = Integer.parseInt(matcher.group(4), 16);
+    return new TraceContext(matcher.group(2), matcher.group(3), (flags & 1) == 1);
+
+  }
+
+  /**
+   * Return the value of the {@link #TRACEPARENT} header that represents this context.
+   *
+   * @return the header value.
+   */
+  public String toTraceparent() {
+
+    final var value = new StringBuilder(55);
+    value.append("00-").append(this.traceId).append('-').append(this.spanId);
+    if (this.sampled) {
+
+      value.append("-01");
+
+    } else {
+
+      value.append("-00");
+    }
+    return value.toString();
+
+  }
+
+  /**
+   * Generate a random identifier that is not zero.
+   *
+   * @param bytes number of bytes of the identifier.
+   *
+   * @return the hexadecimal identifier.
+   */
+  protected static String randomHex(final int bytes) {
+
+    final var random = ThreadLocalRandom.current();
+    final var value = new StringBuilder(bytes * 2);
+    var allZero = true;
+    for (var i = 0; i < bytes; i++) {
+
+      final var b = random.nextInt(256);
+      allZero &= b == 0;
+      value.append(Character.forDigit(b >> 4, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    if (allZero) {
+
+      value.setCharAt(value.length() - 1, '1');
+    }
+    return value.toString();
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+
+    return this.toTraceparent();
+
+  }
+
+}
@@ -0,0 +1,244 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.tracing;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.impl.ContextInternal;
+import io.vertx.core.json.JsonObject;
+import java.util.concurrent.ThreadLocalRandom;
+import org.tinylog.Logger;
+
+/**
+ * The component that creates the spans and maintains the trace context of the request that is processing. The
+ * context is stored on the local data of the duplicated Vert.x context, that Vert.x creates for each HTTP request and
+ * each received event bus message.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class Tracer {
+
+  /**
+   * The key of the local context data where the current trace context is stored.
+   */
+  public static final String CURRENT_CONTEXT_KEY = "tracing.context";
+
+  /**
+   * The key of the local context data where the span that is processing a received message is stored.
+   */
+  public static final String CURRENT_SPAN_KEY = "tracing.span";
+
+  /**
+   * The exporter of the spans or {@code null} if the tracing is disabled.
+   */
+  private static SpanExporter exporter;
+
+  /**
+   * The ratio of the new traces that are sampled.
+   */
+  private static double sampleRatio = 1.0;
+
+  /**
+   * Hide the constructor of an utility class.
+   */
+  private Tracer() {
+
+  }
+
+  /**
+   * Configure the tracing. The property {@code exporter} can be {@code none} (the default value) to disable the
+   * tracing, {@code memory} to maintain the spans on memory, {@code file} to store them in a file or the name of a
+   * class that implements {@link SpanExporter}. The property {@code sampleRatio} defines the ratio of the new traces
+   * that are sampled.
+   *
+   * @param vertx event bus to use.
+   * @param conf  configuration of the tracing.
+   *
+   * @return the configured exporter or {@code null} if the tracing is disabled.
+   */
+  public static synchronized SpanExporter configure(final Vertx vertx, final JsonObject conf) {
+
+    close();
+    sampleRatio = conf.getDouble("sampleRatio", 1.0);
+    final var type = conf.getString("exporter", "none");
+    try {
+
+      SpanExporter configured = null;
+      if ("memory".equals(type)) {
+
+        configured = new InMemorySpanExporter();
+
+      } else if ("file".equals(type)) {
+
+        configured = new FileSpanExporter();
+
+      } else if (!"none".equals(type)) {
+
+        configured = (SpanExporter) Class.forName(type).getDeclaredConstructor().newInstance();
+      }
+
+      if (configured != null) {
+
+        configured.init(vertx, conf);
+      }
+      exporter = configured;
+
+    } catch (final Throwable cause) {
+
+      Logger.error(cause, "Cannot create the span exporter {}, so the tracing is disabled", type);
+      exporter = null;
+    }
+
+    return exporter;
+
+  }
+
+  /**
+   * Close the exporter and disable the tracing.
+   */
+  public static synchronized void close() {
+
+    if (exporter != null) {
+
+      exporter.close();
+      exporter = null;
+    }
+
+  }
+
+  /**
+   * Check if the tracing is enabled.
+   *
+   * @return {@code true} if the spans are exported.
+   */
+  public static boolean isEnabled() {
+
+    return exporter != null;
+
+  }
+
+  /**
+   * Start a new span.
+   *
+   * @param name   of the operation.
+   * @param kind   of the span.
+   * @param parent context of the parent span, or {@code null} to start a new trace.
+   *
+   * @return the started span.
+   */
+  public static Span startSpan(final String name, final String kind, final TraceContext parent) {
+
+    TraceContext context = null;
+    if (parent == null) {
+
+      context = TraceContext.root(sampleRatio >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRatio);
+
+    } else {
+
+      context = parent.child();
+    }
+    return new Span(name, kind, context, parent);
+
+  }
+
+  /**
+   * Export a finished span.
+   *
+   * @param span to export.
+   */
+  static void export(final Span span) {
+
+    final var current = exporter;
+    if (current != null && span.context.sampled) {
+
+      try {
+
+        current.export(span);
+
+      } catch (final Throwable cause) {
+
+        Logger.trace(cause, "Cannot export the span {}", span);
+      }
+    }
+
+  }
+
+  /**
+   * Return the context where the request is processing, if it is one that is created for a request.
+   *
+   * @return the duplicated context of the request or {@code null} if it is not processing a request.
+   */
+  protected static Context requestContext() {
+
+    final var context = Vertx.currentContext();
+    if (context instanceof ContextInternal && ((ContextInternal) context).isDuplicate()) {
+
+      return context;
+
+    } else {
+
+      return null;
+    }
+
+  }
+
+  /**
+   * Return the trace context of the request that is processing.
+   *
+   * @return the current trace context or {@code null} if it is not defined.
+   */
+  public static TraceContext current() {
+
+    final var context = requestContext();
+    if (context != null) {
+
+      return context.getLocal(CURRENT_CONTEXT_KEY);
+
+    } else {
+
+      return null;
+    }
+
+  }
+
+  /**
+   * Set the trace context of the request that is processing.
+   *
+   * @param traceContext to set.
+   *
+   * @return {@code true} if the context has been set.
+   */
+  public static boolean setCurrent(final TraceContext traceContext) {
+
+    final var context = requestContext();
+    if (context != null) {
+
+      context.putLocal(CURRENT_CONTEXT_KEY, traceContext);
+      return true;
+
+    } else {
+
+      return false;
+    }
+
+  }
+
+}
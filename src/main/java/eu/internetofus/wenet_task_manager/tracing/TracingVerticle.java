@@ -0,0 +1,85 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.tracing;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import org.tinylog.Logger;
+
+/**
+ * The verticle that configures the tracing and propagates the trace context through the event bus.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TracingVerticle extends AbstractVerticle {
+
+  /**
+   * The timer to remove the spans of the requests that have not been replied.
+   */
+  protected long evictTimer = -1;
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void start(final Promise<Void> startPromise) throws Exception {
+
+    try {
+
+      final var conf = this.config().getJsonObject("tracing", new JsonObject());
+      if (Tracer.configure(this.vertx, conf) != null) {
+
+        final var eventBusTracing = new EventBusTracing();
+        final var eventBus = this.vertx.eventBus();
+        eventBus.addOutboundInterceptor(eventBusTracing::outbound);
+        eventBus.addInboundInterceptor(eventBusTracing::inbound);
+        final var replyTimeout = conf.getLong("eventBusReplyTimeout", 30000L);
+        this.evictTimer = this.vertx.setPeriodic(replyTimeout, id -> eventBusTracing.evictExpired(replyTimeout));
+        Logger.info("Tracing enabled with the exporter {}", conf.getString("exporter"));
+      }
+      startPromise.complete();
+
+    } catch (final Throwable cause) {
+
+      Logger.error(cause, "Cannot start the tracing");
+      startPromise.fail(cause);
+
+    }
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void stop() throws Exception {
+
+    if (this.evictTimer != -1) {
+
+      this.vertx.cancelTimer(this.evictTimer);
+      this.evictTimer = -1;
+    }
+    Tracer.close();
+
+  }
+
+}
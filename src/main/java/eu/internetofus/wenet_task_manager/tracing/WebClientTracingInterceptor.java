@@ -0,0 +1,121 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.tracing;
+
+import io.vertx.core.Handler;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.impl.HttpContext;
+import io.vertx.ext.web.client.impl.WebClientInternal;
+
+/**
+ * Interceptor that propagates the current trace context on the requests done to the other WeNet components.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class WebClientTracingInterceptor implements Handler<HttpContext<?>> {
+
+  /**
+   * The key of the context where the span of the request is stored.
+   */
+  protected static final String SPAN_KEY = "tracing.span";
+
+  /**
+   * Add the interceptor to a client, if it allows it.
+   *
+   * @param client to trace.
+   */
+  public static void instrument(final WebClient client) {
+
+    if (client instanceof WebClientInternal) {
+
+      ((WebClientInternal) client).addInterceptor(new WebClientTracingInterceptor());
+    }
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void handle(final HttpContext<?> context) {
+
+    switch (context.phase()) {
+    case PREPARE_REQUEST:
+      this.start(context);
+      break;
+    case DISPATCH_RESPONSE:
+      this.end(context, context.response().statusCode() >= 500);
+      break;
+    case FAILURE:
+      this.end(context, true);
+      break;
+    default:
+      // Nothing to trace
+    }
+    context.next();
+
+  }
+
+  /**
+   * Start the span of a request if it is done inside a trace.
+   *
+   * @param context of the request.
+   */
+  protected void start(final HttpContext<?> context) {
+
+    if (Tracer.isEnabled()) {
+
+      final var parent = Tracer.current();
+      if (parent != null) {
+
+        final var request = context.request();
+        final var span = Tracer.startSpan(request.method().name() + " " + request.host(), Span.CLIENT, parent);
+        span.setAttribute("http.method", request.method().name()).setAttribute("http.host", request.host())
+            .setAttribute("http.target", request.uri());
+        request.putHeader(TraceContext.TRACEPARENT, span.context.toTraceparent());
+        context.set(SPAN_KEY, span);
+      }
+    }
+
+  }
+
+  /**
+   * Finish the span of a request.
+   *
+   * @param context of the request.
+   * @param error   is {@code true} if the request has failed.
+   */
+  protected void end(final HttpContext<?> context, final boolean error) {
+
+    final Span span = context.get(SPAN_KEY);
+    if (span != null) {
+
+      context.set(SPAN_KEY, null);
+      if (context.response() != null) {
+
+        span.setAttribute("http.status_code", context.response().statusCode());
+      }
+      span.setError(error).end();
+    }
+
+  }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the {@link ApiServerOptions}.
+ *
+ * @see ApiServerOptions
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class ApiServerOptionsTest {
+
+  /**
+   * Should enable the compression and HTTP/2 by default.
+   */
+  @Test
+  public void shouldConfigureDefaults() {
+
+    final var apiConf = ApiServerOptions.configure(new JsonObject().put("host", "localhost").put("port", 8080));
+    final var options = new HttpServerOptions(apiConf);
+    assertThat(options.isCompressionSupported()).isTrue();
+    assertThat(options.getCompressionLevel()).isEqualTo(ApiServerOptions.DEFAULT_COMPRESSION_LEVEL);
+    assertThat(options.isDecompressionSupported()).isFalse();
+    assertThat(options.getInitialSettings().getMaxConcurrentStreams())
+        .isEqualTo(ApiServerOptions.DEFAULT_MAX_CONCURRENT_STREAMS);
+    assertThat(options.getAlpnVersions()).hasSize(2);
+    assertThat(options.getPort()).isEqualTo(8080);
+    assertThat(ApiServerOptions.isCompressionEnabled(apiConf)).isTrue();
+    assertThat(ApiServerOptions.compressionMinSize(apiConf))
+        .isEqualTo(ApiServerOptions.DEFAULT_COMPRESSION_MIN_SIZE);
+
+  }
+
+  /**
+   * Should use the defined compression and HTTP/2 parameters.
+   */
+  @Test
+  public void shouldConfigureDefinedValues() {
+
+    final var apiConf = new JsonObject()
+        .put(ApiServerOptions.COMPRESSION_KEY,
+            new JsonObject().put("level", 9).put("minSize", 10).put("decompression", true))
+        .put(ApiServerOptions.HTTP2_KEY,
+            new JsonObject().put("maxConcurrentStreams", 5).put("connectionWindowSize", 1048576));
+    final var options = new HttpServerOptions(ApiServerOptions.configure(apiConf));
+    assertThat(options.getCompressionLevel()).isEqualTo(9);
+    assertThat(options.isDecompressionSupported()).isTrue();
+    assertThat(options.getInitialSettings().getMaxConcurrentStreams()).isEqualTo(5L);
+    assertThat(options.getHttp2ConnectionWindowSize()).isEqualTo(1048576);
+    assertThat(ApiServerOptions.compressionMinSize(apiConf)).isEqualTo(10);
+
+  }
+
+  /**
+   * Should disable the compression.
+   */
+  @Test
+  public void shouldDisableCompression() {
+
+    final var apiConf = new JsonObject().put(ApiServerOptions.COMPRESSION_KEY, new JsonObject().put("enabled", false));
+    assertThat(new HttpServerOptions(ApiServerOptions.configure(apiConf)).isCompressionSupported()).isFalse();
+    assertThat(ApiServerOptions.isCompressionEnabled(apiConf)).isFalse();
+    assertThat(ApiServerOptions.isCompressionEnabled(null)).isTrue();
+    assertThat(ApiServerOptions.compressionMinSize(null)).isEqualTo(ApiServerOptions.DEFAULT_COMPRESSION_MIN_SIZE);
+
+  }
+
+  /**
+   * Should fail with bad compression level.
+   */
+  @Test
+  public void shouldFailWithBadCompressionLevel() {
+
+    final var apiConf = new JsonObject().put(ApiServerOptions.COMPRESSION_KEY, new JsonObject().put("level", 10));
+    assertThatThrownBy(() -> ApiServerOptions.configure(apiConf)).isInstanceOf(IllegalArgumentException.class);
+
+  }
+
+  /**
+   * Should fail with bad maximum concurrent streams.
+   */
+  @Test
+  public void shouldFailWithBadMaxConcurrentStreams() {
+
+    final var apiConf = new JsonObject().put(ApiServerOptions.HTTP2_KEY,
+        new JsonObject().put("maxConcurrentStreams", 0));
+    assertThatThrownBy(() -> ApiServerOptions.configure(apiConf)).isInstanceOf(IllegalArgumentException.class);
+
+  }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.ext.web.Router;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Test the {@link CompressionThresholdHandler}.
+ *
+ * @see CompressionThresholdHandler
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class CompressionThresholdHandlerTest {
+
+  /**
+   * Start a server that compress the responses bigger than 100 bytes.
+   *
+   * @param vertx event bus to use.
+   *
+   * @return the port where the server is listening.
+   */
+  private Future<Integer> startServer(final Vertx vertx) {
+
+    final var router = Router.router(vertx);
+    router.route().handler(new CompressionThresholdHandler(100));
+    router.get("/small").handler(ctx -> ctx.response().end("{\"id\":\"1\"}"));
+    router.get("/large").handler(ctx -> ctx.response().end("{\"id\":\"1\"}".repeat(100)));
+    return vertx.createHttpServer(new HttpServerOptions().setCompressionSupported(true)).requestHandler(router)
+        .listen(0).map(server -> server.actualPort());
+
+  }
+
+  /**
+   * Request a path accepting compressed responses.
+   *
+   * @param vertx   event bus to use.
+   * @param port    of the server.
+   * @param path    to request.
+   * @param version of the HTTP protocol to use.
+   *
+   * @return the response of the server.
+   */
+  private Future<HttpClientResponse> get(final Vertx vertx, final int port, final String path,
+      final HttpVersion version) {
+
+    final var client = vertx.createHttpClient(
+        new HttpClientOptions().setProtocolVersion(version).setHttp2ClearTextUpgrade(false));
+    return client.request(HttpMethod.GET, port, "localhost", path)
+        .compose(request -> request.putHeader(HttpHeaders.ACCEPT_ENCODING, "gzip").send());
+
+  }
+
+  /**
+   * Should not compress the small responses on HTTP/1.1.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldCompressOnlyLargeResponsesOnHttp1(final Vertx vertx, final VertxTestContext testContext) {
+
+    this.startServer(vertx)
+        .compose(port -> this.get(vertx, port, "/small", HttpVersion.HTTP_1_1)
+            .compose(small -> this.get(vertx, port, "/large", HttpVersion.HTTP_1_1).map(large -> {
+
+              testContext.verify(() -> {
+
+                assertThat(small.getHeader(HttpHeaders.CONTENT_ENCODING)).isNotEqualTo("gzip");
+                assertThat(large.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+              });
+              return large;
+            })))
+        .onComplete(testContext.succeedingThenComplete());
+
+  }
+
+  /**
+   * Should compress all the responses on HTTP/2.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldCompressAllResponsesOnHttp2(final Vertx vertx, final VertxTestContext testContext) {
+
+    this.startServer(vertx).compose(port -> this.get(vertx, port, "/small", HttpVersion.HTTP_2))
+        .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+
+          assertThat(response.version()).isEqualTo(HttpVersion.HTTP_2);
+          assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+          testContext.completeNow();
+
+        })));
+
+  }
+
+  /**
+   * Should not change the responses when the threshold is disabled.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldCompressAllWhenThresholdDisabled(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var router = Router.router(vertx);
+    router.route().handler(new CompressionThresholdHandler(0));
+    router.get("/small").handler(ctx -> ctx.response().end("{\"id\":\"1\"}"));
+    vertx.createHttpServer(new HttpServerOptions().setCompressionSupported(true)).requestHandler(router).listen(0)
+        .compose(server -> this.get(vertx, server.actualPort(), "/small", HttpVersion.HTTP_1_1))
+        .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+
+          assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+          testContext.completeNow();
+
+        })));
+
+  }
+
+}
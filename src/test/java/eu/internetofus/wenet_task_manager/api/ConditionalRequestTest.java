@@ -0,0 +1,313 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.internetofus.wenet_task_manager.persistence.ModelVersions;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.api.service.ServiceRequest;
+import io.vertx.ext.web.api.service.ServiceResponse;
+import java.util.ArrayList;
+import javax.ws.rs.core.Response.Status;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the {@link ConditionalRequest}.
+ *
+ * @see ConditionalRequest
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class ConditionalRequestTest {
+
+  /**
+   * Create a conditional request with some headers.
+   *
+   * @param headers name and value of the headers of the request.
+   *
+   * @return the conditional request.
+   */
+  public static ConditionalRequest createConditionalRequest(final String... headers) {
+
+    final var map = MultiMap.caseInsensitiveMultiMap();
+    for (var i = 0; i + 1 < headers.length; i += 2) {
+
+      map.add(headers[i], headers[i + 1]);
+    }
+    return new ConditionalRequest(new ServiceRequest(new JsonObject(), map, null, new JsonObject()));
+
+  }
+
+  /**
+   * Create a stored model with a version.
+   *
+   * @param version of the model.
+   *
+   * @return the stored model.
+   */
+  public static JsonObject createStored(final long version) {
+
+    return new JsonObject().put("id", "1").put(ModelVersions.VERSION, version).put(ModelVersions.LAST_UPDATE_TS, 1234L);
+
+  }
+
+  /**
+   * Should generate the validators.
+   */
+  @Test
+  public void shouldGenerateValidators() {
+
+    assertThat(ConditionalRequest.etag(1234)).isEqualTo("\"1234\"");
+    assertThat(ConditionalRequest.lastModified(0)).isEqualTo("Thu, 1 Jan 1970 00:00:00 GMT");
+    final var response = ConditionalRequest.addValidators(new ServiceResponse(), 5, 1234L);
+    assertThat(response.getHeaders().get(HttpHeaders.ETAG)).isEqualTo("\"5\"");
+    assertThat(response.getHeaders().get(HttpHeaders.LAST_MODIFIED)).isEqualTo("Thu, 1 Jan 1970 00:20:34 GMT");
+    final var withoutUpdate = ConditionalRequest.addValidators(new ServiceResponse(), 5, null);
+    assertThat(withoutUpdate.getHeaders().get(HttpHeaders.ETAG)).isEqualTo("\"5\"");
+    assertThat(withoutUpdate.getHeaders().get(HttpHeaders.LAST_MODIFIED)).isNull();
+
+  }
+
+  /**
+   * Should not be conditional without headers.
+   */
+  @Test
+  public void shouldNotBeConditionalWithoutHeaders() {
+
+    final var conditional = new ConditionalRequest(null);
+    assertThat(conditional.isConditionalGet()).isFalse();
+    assertThat(conditional.isNotModified(1, 1L)).isFalse();
+    assertThat(conditional.isPreconditionSatisfied(1)).isTrue();
+
+  }
+
+  /**
+   * Should check the If-None-Match header.
+   */
+  @Test
+  public void shouldCheckIfNoneMatch() {
+
+    final var conditional = createConditionalRequest(HttpHeaders.IF_NONE_MATCH.toString(), "\"1\", W/\"2\"",
+        HttpHeaders.IF_MODIFIED_SINCE.toString(), ConditionalRequest.lastModified(100));
+    assertThat(conditional.isConditionalGet()).isTrue();
+    assertThat(conditional.isNotModified(1, 1000L)).isTrue();
+    assertThat(conditional.isNotModified(2, 1000L)).isTrue();
+    assertThat(conditional.isNotModified(3, 1L)).isFalse();
+    assertThat(createConditionalRequest(HttpHeaders.IF_NONE_MATCH.toString(), "*").isNotModified(3, null)).isTrue();
+
+  }
+
+  /**
+   * Should check the If-Modified-Since header.
+   */
+  @Test
+  public void shouldCheckIfModifiedSince() {
+
+    final var conditional = createConditionalRequest(HttpHeaders.IF_MODIFIED_SINCE.toString(),
+        ConditionalRequest.lastModified(100));
+    assertThat(conditional.isConditionalGet()).isTrue();
+    assertThat(conditional.isNotModified(1, 99L)).isTrue();
+    assertThat(conditional.isNotModified(1, 100L)).isTrue();
+    assertThat(conditional.isNotModified(1, 101L)).isFalse();
+    assertThat(conditional.isNotModified(1, null)).isFalse();
+    assertThat(createConditionalRequest(HttpHeaders.IF_MODIFIED_SINCE.toString(), "yesterday").isNotModified(1, 1L))
+        .isFalse();
+
+  }
+
+  /**
+   * Should check the If-Match header.
+   */
+  @Test
+  public void shouldCheckIfMatch() {
+
+    final var conditional = createConditionalRequest(HttpHeaders.IF_MATCH.toString(), "\"1\", W/\"2\"");
+    assertThat(conditional.isConditionalGet()).isFalse();
+    assertThat(conditional.isPreconditionSatisfied(1)).isTrue();
+    assertThat(conditional.isPreconditionSatisfied(2)).isFalse();
+    assertThat(createConditionalRequest(HttpHeaders.IF_MATCH.toString(), "*").isPreconditionSatisfied(2)).isTrue();
+
+  }
+
+  /**
+   * Should obtain the expected version from the If-Match header.
+   */
+  @Test
+  public void shouldObtainExpectedVersion() {
+
+    assertThat(new ConditionalRequest(null).expectedVersion()).isNull();
+    assertThat(createConditionalRequest(HttpHeaders.IF_MATCH.toString(), " \"123\" ").expectedVersion())
+        .isEqualTo(123L);
+    assertThat(createConditionalRequest(HttpHeaders.IF_MATCH.toString(), "W/\"123\"").expectedVersion()).isNull();
+    assertThat(createConditionalRequest(HttpHeaders.IF_MATCH.toString(), "\"1\", \"2\"").expectedVersion())
+        .isNull();
+    assertThat(createConditionalRequest(HttpHeaders.IF_MATCH.toString(), "*").expectedVersion()).isNull();
+    assertThat(createConditionalRequest(HttpHeaders.IF_MATCH.toString(), "\"\"").expectedVersion()).isNull();
+    assertThat(createConditionalRequest(HttpHeaders.IF_NONE_MATCH.toString(), "\"1\"").expectedVersion())
+        .isNull();
+
+  }
+
+  /**
+   * Should answer not modified.
+   */
+  @Test
+  public void shouldAnswerNotModified() {
+
+    final var conditional = createConditionalRequest(HttpHeaders.IF_NONE_MATCH.toString(), "\"1\"");
+    final var responses = new ArrayList<AsyncResult<ServiceResponse>>();
+    conditional.retrieveIfModified(() -> Future.succeededFuture(createStored(1)), responses::add,
+        () -> responses.add(Future.failedFuture("Retrieved")));
+    assertThat(responses).hasSize(1);
+    final var response = responses.get(0).result();
+    assertThat(response.getStatusCode()).isEqualTo(Status.NOT_MODIFIED.getStatusCode());
+    assertThat(response.getHeaders().get(HttpHeaders.ETAG)).isEqualTo("\"1\"");
+    assertThat(response.getHeaders().get(HttpHeaders.LAST_MODIFIED)).isEqualTo("Thu, 1 Jan 1970 00:20:34 GMT");
+
+  }
+
+  /**
+   * Should retrieve when the model has been modified, it is not found or the request is not conditional.
+   */
+  @Test
+  public void shouldRetrieveIfModified() {
+
+    final var retrieved = new ArrayList<String>();
+    final var conditional = createConditionalRequest(HttpHeaders.IF_NONE_MATCH.toString(), "\"1\"");
+    conditional.retrieveIfModified(() -> Future.succeededFuture(createStored(2)), response -> retrieved.add("response"),
+        () -> retrieved.add("modified"));
+    conditional.retrieveIfModified(() -> Future.failedFuture("Not found"), response -> retrieved.add("response"),
+        () -> retrieved.add("not found"));
+    createConditionalRequest().retrieveIfModified(() -> Future.failedFuture("Not called"),
+        response -> retrieved.add("response"), () -> retrieved.add("not conditional"));
+    assertThat(retrieved).containsExactly("modified", "not found", "not conditional");
+
+  }
+
+  /**
+   * Should add the validators of the captured model into the response.
+   */
+  @Test
+  public void shouldAddValidatorsOfCapturedModel() {
+
+    final var conditional = createConditionalRequest();
+    final var found = conditional.capture(Future.succeededFuture(createStored(5)));
+    assertThat(found.result()).isEqualTo(new JsonObject().put("id", "1").put(ModelVersions.LAST_UPDATE_TS, 1234L));
+
+    final var responses = new ArrayList<AsyncResult<ServiceResponse>>();
+    final var handler = conditional.wrap(responses::add);
+    handler.handle(Future.succeededFuture(new ServiceResponse().setStatusCode(Status.OK.getStatusCode())));
+    handler.handle(Future.succeededFuture(new ServiceResponse().setStatusCode(Status.NOT_FOUND.getStatusCode())));
+    handler.handle(Future.failedFuture("Error"));
+    assertThat(responses).hasSize(3);
+    assertThat(responses.get(0).result().getHeaders().get(HttpHeaders.ETAG)).isEqualTo("\"5\"");
+    assertThat(responses.get(1).result().getHeaders().get(HttpHeaders.ETAG)).isNull();
+
+  }
+
+  /**
+   * Should not add validators when any model has been captured.
+   */
+  @Test
+  public void shouldNotAddValidatorsWithoutCapturedModel() {
+
+    final var conditional = createConditionalRequest();
+    assertThat(conditional.capture(Future.failedFuture("Not found")).failed()).isTrue();
+    final var responses = new ArrayList<AsyncResult<ServiceResponse>>();
+    conditional.wrap(responses::add)
+        .handle(Future.succeededFuture(new ServiceResponse().setStatusCode(Status.OK.getStatusCode())));
+    assertThat(responses.get(0).result().getHeaders().get(HttpHeaders.ETAG)).isNull();
+
+  }
+
+  /**
+   * Should fail the precondition.
+   */
+  @Test
+  public void shouldFailPrecondition() {
+
+    final var conditional = createConditionalRequest(HttpHeaders.IF_MATCH.toString(), "\"1\"");
+    final var found = new ArrayList<AsyncResult<JsonObject>>();
+    final var responses = new ArrayList<AsyncResult<ServiceResponse>>();
+    conditional.<JsonObject>checkPrecondition(found::add, responses::add)
+        .handle(conditional.capture(Future.succeededFuture(createStored(2))));
+    assertThat(found).isEmpty();
+    assertThat(responses).hasSize(1);
+    assertThat(responses.get(0).result().getStatusCode()).isEqualTo(Status.PRECONDITION_FAILED.getStatusCode());
+
+  }
+
+  /**
+   * Should satisfy the precondition.
+   */
+  @Test
+  public void shouldSatisfyPrecondition() {
+
+    final var conditional = createConditionalRequest(HttpHeaders.IF_MATCH.toString(), "\"1\"");
+    final var found = new ArrayList<AsyncResult<JsonObject>>();
+    final var responses = new ArrayList<AsyncResult<ServiceResponse>>();
+    final var handler = conditional.<JsonObject>checkPrecondition(found::add, responses::add);
+    handler.handle(conditional.capture(Future.succeededFuture(createStored(1))));
+    handler.handle(Future.failedFuture("Not found"));
+    assertThat(found).hasSize(2);
+    assertThat(responses).isEmpty();
+
+  }
+
+  /**
+   * Should fail the precondition when the conditional write does not match the expected version.
+   */
+  @Test
+  public void shouldFailPreconditionWhenWriteIsModified() {
+
+    final var conditional = createConditionalRequest(HttpHeaders.IF_MATCH.toString(), "\"1\"");
+    final var written = new ArrayList<AsyncResult<Void>>();
+    final var responses = new ArrayList<AsyncResult<ServiceResponse>>();
+    conditional.<Void>checkWritten(written::add, responses::add).handle(Future.failedFuture(ModelVersions.modified()));
+    assertThat(written).isEmpty();
+    assertThat(responses).hasSize(1);
+    assertThat(responses.get(0).result().getStatusCode()).isEqualTo(Status.PRECONDITION_FAILED.getStatusCode());
+
+  }
+
+  /**
+   * Should inform of the writes that are not modified.
+   */
+  @Test
+  public void shouldInformWrittenWhenIsNotModified() {
+
+    final var conditional = createConditionalRequest(HttpHeaders.IF_MATCH.toString(), "\"1\"");
+    final var written = new ArrayList<AsyncResult<Void>>();
+    final var responses = new ArrayList<AsyncResult<ServiceResponse>>();
+    final var handler = conditional.<Void>checkWritten(written::add, responses::add);
+    handler.handle(Future.succeededFuture());
+    handler.handle(Future.failedFuture("Not Found document to update"));
+    assertThat(written).hasSize(2);
+    assertThat(responses).isEmpty();
+
+  }
+
+}
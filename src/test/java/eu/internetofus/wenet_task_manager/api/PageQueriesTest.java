@@ -0,0 +1,111 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the {@link PageQueries}.
+ *
+ * @see PageQueries
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class PageQueriesTest {
+
+  /**
+   * Should obtain the key of the shapes.
+   */
+  @Test
+  public void shouldObtainKey() {
+
+    assertThat(PageQueries.keyOf("tasks", "a,b", "")).isNotEqualTo(PageQueries.keyOf("tasks", "a", "b"));
+    assertThat(PageQueries.keyOf("tasks", "a", "b")).isEqualTo(PageQueries.keyOf("tasks", "a", "b"));
+    assertThat(PageQueries.keyOf("tasks", "a", "b")).isNotEqualTo(PageQueries.keyOf("messages", "a", "b"));
+
+  }
+
+  /**
+   * Should obtain the shape of the queries and sorts.
+   */
+  @Test
+  public void shouldObtainShapes() {
+
+    final var query = new JsonObject().put("appId", "1")
+        .put("goal.name", new JsonObject().put("$regex", "eat").put("$options", "i"))
+        .put("_creationTs", new JsonObject().put("$lte", 10).put("$gte", 0))
+        .put("goal", new JsonObject().put("name", "eat"))
+        .put("$and", new JsonArray().add(new JsonObject().put("closeTs", new JsonObject().put("$exists", true)))
+            .add("value"));
+    assertThat(PageQueries.shapeOf(query))
+        .isEqualTo("appId:eq,goal.name:$options$regex,_creationTs:$gte$lte,goal:eq,$and[closeTs:$exists;eq]");
+    assertThat(PageQueries.shapeOf(null)).isEmpty();
+    assertThat(PageQueries.sortShapeOf(new JsonObject().put("goal.name", -1).put("_id", 1).put("appId", "a")))
+        .isEqualTo("goal.name:desc,_id:asc,appId:asc");
+    assertThat(PageQueries.sortShapeOf(null)).isEmpty();
+
+  }
+
+  /**
+   * Should count the shapes of the searches.
+   */
+  @Test
+  public void shouldCountShapes() {
+
+    final var registry = new SimpleMeterRegistry();
+    final var queries = new PageQueries(2, registry);
+    final var sort = new JsonObject().put("_creationTs", 1);
+    queries.count("tasks", new JsonObject().put("appId", "1"), sort);
+    queries.count("tasks", new JsonObject().put("appId", "2"), sort);
+    queries.count("tasks", new JsonObject().put("requesterId", "1"), null);
+    queries.count("tasks", new JsonObject().put("taskTypeId", "1"), null);
+    queries.count("messages", new JsonObject(), null);
+    assertThat(registry.get(PageQueries.SHAPES_METRIC).tag("operation", "tasks").tag("filter", "appId:eq")
+        .tag("sort", "_creationTs:asc").counter().count()).isEqualTo(2.0);
+    assertThat(registry.get(PageQueries.SHAPES_METRIC).tag("operation", "tasks").tag("filter", "requesterId:eq")
+        .tag("sort", "").counter().count()).isEqualTo(1.0);
+    final var other = registry.get(PageQueries.SHAPES_METRIC).tag("filter", PageQueries.OTHER_SHAPE).counters();
+    assertThat(other).hasSize(1);
+    assertThat(other.iterator().next().count()).isEqualTo(2.0);
+    assertThat(registry.get(PageQueries.SHAPES_METRIC).counters()).hasSize(3);
+
+  }
+
+  /**
+   * Should create with a configuration.
+   */
+  @Test
+  public void shouldCreateWithConfiguration() {
+
+    final var queries = PageQueries.create(new JsonObject().put("maxShapes", 3));
+    assertThat(queries.maxShapes).isEqualTo(3);
+    final var defaults = PageQueries.create(null);
+    assertThat(defaults.maxShapes).isEqualTo(PageQueries.DEFAULT_MAX_SHAPES);
+    assertThat(new PageQueries().registry).isNotNull();
+
+  }
+
+}
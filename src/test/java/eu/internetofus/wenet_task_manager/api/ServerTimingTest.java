@@ -0,0 +1,100 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Future;
+import io.vertx.ext.web.api.service.ServiceResponse;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the {@link ServerTiming}.
+ *
+ * @see ServerTiming
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class ServerTimingTest {
+
+  /**
+   * Should add the header with the measured phases.
+   */
+  @Test
+  public void shouldAddHeaderWithPhases() {
+
+    final var timing = new ServerTiming("testOperation");
+    final var response = new ServiceResponse[1];
+    final var handler = timing.wrap(result -> response[0] = result.result());
+    timing.measure(ServerTiming.PERSISTENCE, timing.starting(ServerTiming.SERIALIZATION, result -> {
+      // Nothing to do
+    })).handle(Future.succeededFuture());
+    timing.start(ServerTiming.REMOTE_LOOKUP);
+    timing.ending(ServerTiming.REMOTE_LOOKUP, () -> handler.handle(Future.succeededFuture(new ServiceResponse())))
+        .run();
+
+    final var value = response[0].getHeaders().get(ServerTiming.HEADER);
+    final var duration = ";dur=\\d+\\.\\d{3}";
+    assertThat(value).matches("persistence" + duration + ", remote-lookup" + duration + ", serialization" + duration
+        + ", resource" + duration);
+
+  }
+
+  /**
+   * Should ignore the end of a phase that has not started.
+   */
+  @Test
+  public void shouldIgnoreEndOfNotStartedPhase() {
+
+    final var timing = new ServerTiming("testOperation");
+    timing.end(ServerTiming.PERSISTENCE);
+    assertThat(timing.durations).isEmpty();
+
+  }
+
+  /**
+   * Should not add header to a failed response.
+   */
+  @Test
+  public void shouldNotAddHeaderOnFailure() {
+
+    final var timing = new ServerTiming("testOperation");
+    final var failed = new boolean[1];
+    timing.wrap(result -> failed[0] = result.failed()).handle(Future.failedFuture("Undefined"));
+    assertThat(failed[0]).isTrue();
+    assertThat(timing.durations).isEmpty();
+
+  }
+
+  /**
+   * Should append the duration of a phase in milliseconds.
+   */
+  @Test
+  public void shouldAppendPhase() {
+
+    final var value = new StringBuilder();
+    ServerTiming.append(value, ServerTiming.VALIDATION, 1500000L);
+    ServerTiming.append(value, ServerTiming.TOTAL, 12000000L);
+    assertThat(value.toString()).isEqualTo("validation;dur=1.500, total;dur=12.000");
+
+  }
+
+}
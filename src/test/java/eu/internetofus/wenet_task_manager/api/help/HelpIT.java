@@ -30,6 +30,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import eu.internetofus.wenet_task_manager.WeNetTaskManagerIntegrationExtension;
+import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.junit5.VertxTestContext;
@@ -80,4 +81,29 @@ public class HelpIT {
     }).send(testContext);
   }
 
+  /**
+   * Verify that return not modified when the client has the OpenAPI description.
+   *
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldReturnNotModifiedOpenAPi(final WebClient client, final VertxTestContext testContext) {
+
+    testRequest(client, HttpMethod.GET, Help.PATH + Help.OPENAPI_YAML_PATH).expect(res -> {
+
+      assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+      final var etag = res.getHeader(HttpHeaders.ETAG.toString());
+      assertThat(etag).isNotEmpty();
+      testRequest(client, HttpMethod.GET, Help.PATH + Help.OPENAPI_YAML_PATH)
+          .with(req -> req.putHeader(HttpHeaders.IF_NONE_MATCH.toString(), etag)).expect(notModified -> {
+
+            assertThat(notModified.statusCode()).isEqualTo(Status.NOT_MODIFIED.getStatusCode());
+            assertThat(notModified.getHeader(HttpHeaders.ETAG.toString())).isEqualTo(etag);
+
+          }).send(testContext);
+
+    }).send(testContext);
+  }
+
 }
@@ -0,0 +1,212 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api.help;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.util.zip.GZIPInputStream;
+import javax.ws.rs.core.Response.Status;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the {@link OpenApiDocument}.
+ *
+ * @see OpenApiDocument
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class OpenApiDocumentTest {
+
+  /**
+   * The content of the document to test.
+   */
+  public static final String CONTENT = "openapi: 3.0.1\ninfo:\n  title: Test\n";
+
+  /**
+   * Create the document to test.
+   *
+   * @return the document to test.
+   *
+   * @throws Exception if can not create the document.
+   */
+  public OpenApiDocument createDocument() throws Exception {
+
+    return new OpenApiDocument(Buffer.buffer(CONTENT));
+
+  }
+
+  /**
+   * Should load the OpenAPI description of the API.
+   *
+   * @throws Exception if can not load the document.
+   */
+  @Test
+  public void shouldLoadOpenApiResource() throws Exception {
+
+    final var document = OpenApiDocument.load(HelpResource.OPENA_API_RESOURCE);
+    assertThat(document.content.length()).isPositive();
+    assertThat(document.getEtag()).startsWith("\"").endsWith("\"");
+
+  }
+
+  /**
+   * Should not load an undefined resource.
+   */
+  @Test
+  public void shouldNotLoadUndefinedResource() {
+
+    assertThatThrownBy(() -> OpenApiDocument.load("undefined-openapi.yaml"))
+        .isInstanceOf(FileNotFoundException.class);
+
+  }
+
+  /**
+   * Should return the document without compression.
+   *
+   * @throws Exception if can not create the document.
+   */
+  @Test
+  public void shouldReturnDocument() throws Exception {
+
+    final var document = this.createDocument();
+    final var response = document.response(MultiMap.caseInsensitiveMultiMap());
+    assertThat(response.getStatusCode()).isEqualTo(Status.OK.getStatusCode());
+    assertThat(response.getPayload().toString()).isEqualTo(CONTENT);
+    assertThat(response.getHeaders().get(HttpHeaders.ETAG)).isEqualTo(document.getEtag());
+    assertThat(response.getHeaders().get(HttpHeaders.CONTENT_TYPE)).isEqualTo(OpenApiDocument.CONTENT_TYPE);
+    assertThat(response.getHeaders().get(HttpHeaders.CONTENT_ENCODING)).isNull();
+    assertThat(response.getHeaders().get(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING.toString());
+
+  }
+
+  /**
+   * Should return the document without compression when the headers are not defined.
+   *
+   * @throws Exception if can not create the document.
+   */
+  @Test
+  public void shouldReturnDocumentWithoutHeaders() throws Exception {
+
+    final var response = this.createDocument().response(null);
+    assertThat(response.getStatusCode()).isEqualTo(Status.OK.getStatusCode());
+    assertThat(response.getPayload().toString()).isEqualTo(CONTENT);
+
+  }
+
+  /**
+   * Should return the document compressed with gzip.
+   *
+   * @throws Exception if can not create the document.
+   */
+  @Test
+  public void shouldReturnGzipDocument() throws Exception {
+
+    final var document = this.createDocument();
+    final var response = document
+        .response(MultiMap.caseInsensitiveMultiMap().add(HttpHeaders.ACCEPT_ENCODING, "br;q=1.0, gzip;q=0.8"));
+    assertThat(response.getStatusCode()).isEqualTo(Status.OK.getStatusCode());
+    assertThat(response.getHeaders().get(HttpHeaders.CONTENT_ENCODING)).isEqualTo(OpenApiDocument.GZIP);
+    assertThat(response.getHeaders().get(HttpHeaders.ETAG)).isNotEqualTo(document.getEtag());
+    try (var in = new GZIPInputStream(new ByteArrayInputStream(response.getPayload().getBytes()))) {
+
+      assertThat(new String(in.readAllBytes())).isEqualTo(CONTENT);
+    }
+
+  }
+
+  /**
+   * Should not compress when the client rejects gzip.
+   *
+   * @throws Exception if can not create the document.
+   */
+  @Test
+  public void shouldNotCompressWhenGzipIsRejected() throws Exception {
+
+    final var response = this.createDocument()
+        .response(MultiMap.caseInsensitiveMultiMap().add(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip; q=0"));
+    assertThat(response.getHeaders().get(HttpHeaders.CONTENT_ENCODING)).isNull();
+    assertThat(response.getPayload().toString()).isEqualTo(CONTENT);
+
+  }
+
+  /**
+   * Should return not modified when the client has the document.
+   *
+   * @throws Exception if can not create the document.
+   */
+  @Test
+  public void shouldReturnNotModified() throws Exception {
+
+    final var document = this.createDocument();
+    final var response = document.response(MultiMap.caseInsensitiveMultiMap().add(HttpHeaders.IF_NONE_MATCH,
+        "\"other\", W/" + document.getEtag()));
+    assertThat(response.getStatusCode()).isEqualTo(Status.NOT_MODIFIED.getStatusCode());
+    assertThat(response.getPayload()).isNull();
+    assertThat(response.getHeaders().get(HttpHeaders.ETAG)).isEqualTo(document.getEtag());
+
+  }
+
+  /**
+   * Should return not modified for any entity tag.
+   *
+   * @throws Exception if can not create the document.
+   */
+  @Test
+  public void shouldReturnNotModifiedForAnyTag() throws Exception {
+
+    final var response = this.createDocument().response(MultiMap.caseInsensitiveMultiMap()
+        .add(HttpHeaders.IF_NONE_MATCH, "*").add(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+    assertThat(response.getStatusCode()).isEqualTo(Status.NOT_MODIFIED.getStatusCode());
+
+  }
+
+  /**
+   * Should return the document when the client has another version.
+   *
+   * @throws Exception if can not create the document.
+   */
+  @Test
+  public void shouldReturnDocumentWhenChanged() throws Exception {
+
+    final var response = this.createDocument()
+        .response(MultiMap.caseInsensitiveMultiMap().add(HttpHeaders.IF_NONE_MATCH, "\"other\""));
+    assertThat(response.getStatusCode()).isEqualTo(Status.OK.getStatusCode());
+
+  }
+
+  /**
+   * Should calculate the same hash for the same content.
+   */
+  @Test
+  public void shouldCalculateSameHash() {
+
+    assertThat(OpenApiDocument.hash(Buffer.buffer(CONTENT))).isEqualTo(OpenApiDocument.hash(Buffer.buffer(CONTENT)))
+        .isNotEqualTo(OpenApiDocument.hash(Buffer.buffer("other")));
+
+  }
+
+}
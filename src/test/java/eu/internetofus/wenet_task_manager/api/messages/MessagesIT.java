@@ -585,4 +585,106 @@ public class MessagesIT {
     });
   }
 
+  /**
+   * Should retrieve the inbox of an user by pages.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldRetrieveInboxByPages(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    final var testId = UUID.randomUUID().toString();
+    final var receiverId = testId + "_Receiver_0";
+    this.assertTaskForTest(testId, 1, vertx, testContext).onSuccess(task -> {
+
+      testRequest(client, HttpMethod.GET, Messages.PATH + "/inbox")
+          .with(queryParam("receiverId", receiverId), queryParam("limit", "15")).expect(res -> {
+
+            assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+            final var page = assertThatBodyIs(InboxPage.class, res);
+            assertThat(page.messages).hasSize(15).allMatch(message -> receiverId.equals(message.receiverId));
+            assertThat(page.next).isNotNull();
+
+            testRequest(client, HttpMethod.GET, Messages.PATH + "/inbox").with(queryParam("receiverId", receiverId),
+                queryParam("appId", task.appId), queryParam("after", page.next)).expect(res2 -> {
+
+                  assertThat(res2.statusCode()).isEqualTo(Status.OK.getStatusCode());
+                  final var page2 = assertThatBodyIs(InboxPage.class, res2);
+                  assertThat(page2.messages).hasSize(5).doesNotContainAnyElementsOf(page.messages);
+                  assertThat(page2.next).isNull();
+
+                }).send(testContext);
+
+          }).send(testContext);
+    });
+
+  }
+
+  /**
+   * Should not retrieve the inbox with a bad cursor.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldFailRetrieveInboxWithBadCursor(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    testRequest(client, HttpMethod.GET, Messages.PATH + "/inbox")
+        .with(queryParam("receiverId", "undefined"), queryParam("after", "undefined")).expect(res -> {
+
+          assertThat(res.statusCode()).isEqualTo(Status.BAD_REQUEST.getStatusCode());
+
+        }).send(testContext);
+
+  }
+
+  /**
+   * Should return the message received while the receiver is polling.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldPollNewMessage(final Vertx vertx, final WebClient client, final VertxTestContext testContext) {
+
+    final var testId = UUID.randomUUID().toString();
+    final var receiverId = testId + "_Poller";
+    this.assertTaskForTest(testId, 1, vertx, testContext).onSuccess(task -> {
+
+      final var message = new Message();
+      message.appId = task.appId;
+      message.label = "polled";
+      message.receiverId = receiverId;
+      vertx.setTimer(1000, id -> TasksRepository.createProxy(vertx).addMessageIntoTransaction(task.id, "0", message));
+      testRequest(client, HttpMethod.GET, Messages.PATH + Messages.POLL_PATH)
+          .with(queryParam("receiverId", receiverId), queryParam("timeout", "10")).expect(res -> {
+
+            assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+            final var poll = assertThatBodyIs(MessagesPoll.class, res);
+            assertThat(poll.messages).hasSize(1);
+            assertThat(poll.messages.get(0).label).isEqualTo("polled");
+            assertThat(poll.lastEventId).isNotNull();
+
+            testRequest(client, HttpMethod.GET, Messages.PATH + Messages.POLL_PATH).with(
+                queryParam("receiverId", receiverId), queryParam("lastEventId", String.valueOf(poll.lastEventId)),
+                queryParam("timeout", "1")).expect(res2 -> {
+
+                  assertThat(res2.statusCode()).isEqualTo(Status.OK.getStatusCode());
+                  final var poll2 = assertThatBodyIs(MessagesPoll.class, res2);
+                  assertThat(poll2.messages).isEmpty();
+                  assertThat(poll2.lastEventId).isEqualTo(poll.lastEventId);
+
+                }).send(testContext);
+
+          }).send(testContext);
+    });
+
+  }
+
 }
@@ -22,6 +22,8 @@ package eu.internetofus.wenet_task_manager.api.messages;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import eu.internetofus.common.model.Model;
+import eu.internetofus.wenet_task_manager.events.ReceiverSubscriptions;
 import io.vertx.core.Vertx;
 import io.vertx.ext.web.api.service.ServiceRequest;
 import io.vertx.junit5.VertxExtension;
@@ -53,7 +55,7 @@ public class MessagesResourceTest {
 
     var resource = new MessagesResource(vertx);
     resource.retrieveMessagesPage(null, null, null, null, null, null, null, null, null, null, null, null, null, null,
-        null, null, null, null, null, null, null, null, null, null, 0, 10, request,
+        null, null, null, null, null, null, null, null, null, null, 0, 10, null, request,
         testContext.succeeding(response -> testContext.verify(() -> {
 
           assertThat(response.getStatusCode()).isEqualTo(Status.BAD_REQUEST.getStatusCode());
@@ -63,4 +65,78 @@ public class MessagesResourceTest {
 
   }
 
+  /**
+   * Should fail retrieve inbox because fail repository.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   * @param request     mocked request to do the operation.
+   */
+  @Test
+  public void shouldFailRetrieveInboxBecauseFailRepository(final Vertx vertx, final VertxTestContext testContext,
+      @Mock final ServiceRequest request) {
+
+    var resource = new MessagesResource(vertx);
+    resource.retrieveInbox("receiverId", null, null, null, 10, request,
+        testContext.succeeding(response -> testContext.verify(() -> {
+
+          assertThat(response.getStatusCode()).isEqualTo(Status.BAD_REQUEST.getStatusCode());
+          testContext.completeNow();
+
+        })));
+
+  }
+
+  /**
+   * Should not poll messages without receiver.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   * @param request     mocked request to do the operation.
+   */
+  @Test
+  public void shouldFailPollMessagesWithoutReceiver(final Vertx vertx, final VertxTestContext testContext,
+      @Mock final ServiceRequest request) {
+
+    var resource = new MessagesResource(vertx);
+    resource.pollMessages(" ", null, null, 1, request, testContext.succeeding(response -> testContext.verify(() -> {
+
+      assertThat(response.getStatusCode()).isEqualTo(Status.BAD_REQUEST.getStatusCode());
+      resource.pollMessages(null, null, null, 1, request,
+          testContext.succeeding(response2 -> testContext.verify(() -> {
+
+            assertThat(response2.getStatusCode()).isEqualTo(Status.BAD_REQUEST.getStatusCode());
+            testContext.completeNow();
+
+          })));
+
+    })));
+
+  }
+
+  /**
+   * Should poll without messages when the timeout elapses.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   * @param request     mocked request to do the operation.
+   */
+  @Test
+  public void shouldPollWithoutMessagesWhenTimeout(final Vertx vertx, final VertxTestContext testContext,
+      @Mock final ServiceRequest request) {
+
+    var resource = new MessagesResource(vertx, new ReceiverSubscriptions(vertx, 1));
+    resource.pollMessages("receiverId", null, 3L, -1, request,
+        testContext.succeeding(response -> testContext.verify(() -> {
+
+          assertThat(response.getStatusCode()).isEqualTo(Status.OK.getStatusCode());
+          final var poll = Model.fromJsonObject(response.getPayload().toJsonObject(), MessagesPoll.class);
+          assertThat(poll.messages).isEmpty();
+          assertThat(poll.lastEventId).isEqualTo(3L);
+          testContext.completeNow();
+
+        })));
+
+  }
+
 }
@@ -0,0 +1,72 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api.metrics;
+
+import static io.reactiverse.junit5.web.TestRequest.testRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.internetofus.wenet_task_manager.WeNetTaskManagerIntegrationExtension;
+import eu.internetofus.wenet_task_manager.api.help.Help;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxTestContext;
+import javax.ws.rs.core.Response.Status;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * The integration test over the {@link Metrics}.
+ *
+ * @see Metrics
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(WeNetTaskManagerIntegrationExtension.class)
+public class MetricsIT {
+
+  /**
+   * Verify that return the metrics in the Prometheus format.
+   *
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldReturnMetrics(final WebClient client, final VertxTestContext testContext) {
+
+    testRequest(client, HttpMethod.GET, Help.PATH + Help.INFO_PATH).expect(info -> {
+
+      assertThat(info.statusCode()).isEqualTo(Status.OK.getStatusCode());
+      testRequest(client, HttpMethod.GET, Metrics.PATH).expect(res -> {
+
+        assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+        assertThat(res.getHeader(HttpHeaders.CONTENT_TYPE.toString()))
+            .isEqualTo(MetricsResource.PROMETHEUS_CONTENT_TYPE);
+        final var body = res.bodyAsString();
+        assertThat(body).contains("http_server_requests_seconds_count", "vertx_eventbus_requests_seconds_count",
+            "jvm_memory_used_bytes", "jvm_gc_", "vertx_eventloop_lag_seconds");
+
+      }).send(testContext);
+
+    }).send(testContext);
+  }
+
+}
@@ -30,6 +30,7 @@ import eu.internetofus.common.components.models.HumanDescription;
 import eu.internetofus.common.components.models.Task;
 import eu.internetofus.common.components.models.TaskTransaction;
 import eu.internetofus.wenet_task_manager.WeNetTaskManagerIntegrationExtension;
+import eu.internetofus.wenet_task_manager.persistence.PageTotals;
 import eu.internetofus.wenet_task_manager.persistence.TasksRepository;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
@@ -483,6 +484,62 @@ public class TaskTransactionsIT {
     });
   }
 
+  /**
+   * Should retrieve a page without counting the total or estimating it.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldRetrieveTaskTransactionPageWithoutExactTotal(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    var testId = UUID.randomUUID().toString();
+    this.assertTaskForTest(testId, 1, vertx, testContext).onSuccess(task -> {
+
+      testRequest(client, HttpMethod.GET, TaskTransactions.PATH).with(queryParam("taskId", task.id),
+          queryParam("offset", String.valueOf(5)), queryParam("limit", String.valueOf(7)), queryParam("total", "none"))
+          .expect(res -> {
+
+            assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+            final var page = assertThatBodyIs(TaskTransactionsPage.class, res);
+            assertThat(page.total).isEqualTo(13l);
+            assertThat(page.transactions).isEqualTo(task.transactions.subList(5, 12));
+
+            testRequest(client, HttpMethod.GET, TaskTransactions.PATH).with(queryParam("taskId", task.id),
+                queryParam("offset", String.valueOf(15)), queryParam("total", "estimated")).expect(res2 -> {
+
+                  assertThat(res2.statusCode()).isEqualTo(Status.OK.getStatusCode());
+                  final var page2 = assertThatBodyIs(TaskTransactionsPage.class, res2);
+                  assertThat(page2.total).isEqualTo(20l);
+                  assertThat(res2.bodyAsJsonObject().containsKey(PageTotals.TOTAL_CAPPED)).isFalse();
+                  assertThat(page2.transactions).isEqualTo(task.transactions.subList(15, 20));
+
+                }).send(testContext);
+
+          }).send(testContext);
+    });
+  }
+
+  /**
+   * Should not retrieve a page with an undefined total mode.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldNotRetrieveTaskTransactionPageWithBadTotal(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    testRequest(client, HttpMethod.GET, TaskTransactions.PATH).with(queryParam("total", "undefined")).expect(res -> {
+
+      assertThat(res.statusCode()).isEqualTo(Status.BAD_REQUEST.getStatusCode());
+
+    }).send(testContext);
+  }
+
   /**
    * Should retrieve a page depending of the transaction identifier.
    *
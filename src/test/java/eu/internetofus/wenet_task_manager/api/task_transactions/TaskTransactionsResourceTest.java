@@ -53,7 +53,7 @@ public class TaskTransactionsResourceTest {
 
     var resource = new TaskTransactionsResource(vertx);
     resource.retrieveTaskTransactionsPage(null, null, null, null, null, null, null, null, null, null, null, null, null,
-        null, null, null, null, null, null, null, null, null, 0, 10, request,
+        null, null, null, null, null, null, null, null, null, 0, 10, null, request,
         testContext.succeeding(response -> testContext.verify(() -> {
 
           assertThat(response.getStatusCode()).isEqualTo(Status.BAD_REQUEST.getStatusCode());
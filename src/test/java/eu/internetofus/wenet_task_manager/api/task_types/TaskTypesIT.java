@@ -33,10 +33,12 @@ import eu.internetofus.common.model.ErrorMessage;
 import eu.internetofus.common.model.Merges;
 import eu.internetofus.common.vertx.AbstractModelResourcesIT;
 import eu.internetofus.wenet_task_manager.WeNetTaskManagerIntegrationExtension;
+import eu.internetofus.wenet_task_manager.api.ConditionalRequest;
 import eu.internetofus.wenet_task_manager.api.tasks.Tasks;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.junit5.VertxTestContext;
@@ -272,4 +274,65 @@ public class TaskTypesIT extends AbstractModelResourcesIT<TaskType, String> {
 
   }
 
+  /**
+   * Verify that answer not modified when the task type has not been modified
+   * since the date of the If-Modified-Since header.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see TaskTypes#retrieveTaskType(String,
+   *      io.vertx.ext.web.api.service.ServiceRequest, Handler)
+   */
+  @Test
+  public void shouldRetrieveNotModifiedTaskType(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    StoreServices.storeTaskTypeExample(1, vertx, testContext).onSuccess(taskType -> {
+
+      testRequest(client, HttpMethod.GET, TaskTypes.PATH + "/" + taskType.id)
+          .with(req -> req.putHeader(HttpHeaders.IF_MODIFIED_SINCE.toString(),
+              ConditionalRequest.lastModified(taskType._lastUpdateTs)))
+          .expect(res -> {
+
+            assertThat(res.statusCode()).isEqualTo(Status.NOT_MODIFIED.getStatusCode());
+            assertThat(res.getHeader(HttpHeaders.ETAG.toString())).isEqualTo(ConditionalRequest.etag(0));
+
+          }).send(testContext);
+    });
+
+  }
+
+  /**
+   * Verify that can not update a task type that has been modified after the
+   * version defined on the If-Match header.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see TaskTypes#updateTaskType(String, io.vertx.core.json.JsonObject,
+   *      io.vertx.ext.web.api.service.ServiceRequest, Handler)
+   */
+  @Test
+  public void shouldNotUpdateTaskTypeWithStaleIfMatch(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    StoreServices.storeTaskTypeExample(1, vertx, testContext).onSuccess(taskType -> {
+
+      final var source = new TaskTypeTest().createModelExample(2);
+      testRequest(client, HttpMethod.PUT, TaskTypes.PATH + "/" + taskType.id)
+          .with(req -> req.putHeader(HttpHeaders.IF_MATCH.toString(), "\"undefined\""))
+          .expect(res -> {
+
+            assertThat(res.statusCode()).isEqualTo(Status.PRECONDITION_FAILED.getStatusCode());
+            final var error = assertThatBodyIs(ErrorMessage.class, res);
+            assertThat(error.code).isEqualTo(ConditionalRequest.PRECONDITION_FAILED);
+
+          }).sendJson(source.toJsonObject(), testContext);
+    });
+
+  }
+
 }
@@ -0,0 +1,114 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.api.tasks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the {@link TaskMergePatch}.
+ *
+ * @see TaskMergePatch
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TaskMergePatchTest {
+
+  /**
+   * Should not merge on the database the undefined or empty patches.
+   */
+  @Test
+  public void shouldNotMergeEmptyPatch() {
+
+    assertThat(TaskMergePatch.toSet(null)).isNull();
+    assertThat(TaskMergePatch.toSet(new JsonObject())).isNull();
+    assertThat(TaskMergePatch.toSet(new JsonObject().putNull("closeTs"))).isNull();
+    assertThat(TaskMergePatch.toSet(new JsonObject().put("goal", new JsonObject()))).isNull();
+
+  }
+
+  /**
+   * Should merge the close time.
+   */
+  @Test
+  public void shouldMergeCloseTs() {
+
+    assertThat(TaskMergePatch.toSet(new JsonObject().put("closeTs", 10)))
+        .isEqualTo(new JsonObject().put("closeTs", 10L));
+    assertThat(TaskMergePatch.toSet(new JsonObject().put("closeTs", 10L).putNull("attributes")))
+        .isEqualTo(new JsonObject().put("closeTs", 10L));
+
+  }
+
+  /**
+   * Should not merge on the database an invalid close time.
+   */
+  @Test
+  public void shouldNotMergeInvalidCloseTs() {
+
+    assertThat(TaskMergePatch.toSet(new JsonObject().put("closeTs", -1))).isNull();
+    assertThat(TaskMergePatch.toSet(new JsonObject().put("closeTs", 1.5d))).isNull();
+    assertThat(TaskMergePatch.toSet(new JsonObject().put("closeTs", "1"))).isNull();
+
+  }
+
+  /**
+   * Should merge the name and the description of the goal.
+   */
+  @Test
+  public void shouldMergeGoal() {
+
+    assertThat(TaskMergePatch.toSet(new JsonObject().put("closeTs", 10).put("goal",
+        new JsonObject().put("name", " Name ").put("description", "").putNull("keywords"))))
+        .isEqualTo(new JsonObject().put("closeTs", 10L).put("goal.name", "Name").put("goal.description", ""));
+
+  }
+
+  /**
+   * Should not merge on the database the goals that have to be validated over the stored task.
+   */
+  @Test
+  public void shouldNotMergeInvalidGoal() {
+
+    assertThat(TaskMergePatch.toSet(new JsonObject().put("goal", "Goal"))).isNull();
+    assertThat(TaskMergePatch.toSet(new JsonObject().put("goal", new JsonObject().put("name", " ")))).isNull();
+    assertThat(TaskMergePatch.toSet(new JsonObject().put("goal", new JsonObject().put("description", 1)))).isNull();
+    assertThat(TaskMergePatch.toSet(
+        new JsonObject().put("goal", new JsonObject().put("keywords", new JsonArray().add("keyword"))))).isNull();
+
+  }
+
+  /**
+   * Should not merge on the database the fields that have to be validated over the stored task.
+   */
+  @Test
+  public void shouldNotMergeOtherFields() {
+
+    assertThat(TaskMergePatch.toSet(new JsonObject().put("closeTs", 10).put("attributes", new JsonObject())))
+        .isNull();
+    assertThat(TaskMergePatch.toSet(new JsonObject().put("taskTypeId", "type"))).isNull();
+
+  }
+
+}
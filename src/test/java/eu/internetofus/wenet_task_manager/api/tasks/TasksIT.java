@@ -42,9 +42,11 @@ import eu.internetofus.common.model.Model;
 import eu.internetofus.common.model.TimeManager;
 import eu.internetofus.common.vertx.AbstractModelResourcesIT;
 import eu.internetofus.wenet_task_manager.WeNetTaskManagerIntegrationExtension;
+import eu.internetofus.wenet_task_manager.api.ConditionalRequest;
 import eu.internetofus.wenet_task_manager.persistence.TasksRepository;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
@@ -363,6 +365,35 @@ public class TasksIT extends AbstractModelResourcesIT<Task, String> {
     }).send(testContext);
   }
 
+  /**
+   * Verify that the statistics count the tasks created for an application.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldGetTaskStatisticsOfApp(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    final var appId = UUID.randomUUID().toString();
+    final var task = new TaskTest().createModelExample(1);
+    task.appId = appId;
+    testContext.assertComplete(TasksRepository.createProxy(vertx).storeTask(task)).onSuccess(stored -> {
+
+      testRequest(client, HttpMethod.GET, Tasks.PATH + Tasks.STATISTICS_PATH)
+          .with(queryParam("appId", appId), queryParam("counter", "created")).expect(res -> {
+
+            assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+            final var statistics = assertThatBodyIs(TaskStatistics.class, res);
+            assertThat(statistics.totals.getLong("created")).isEqualTo(1L);
+            assertThat(statistics.counters).hasSize(1);
+            assertThat(statistics.counters.get(0).taskTypeId).isEqualTo(stored.taskTypeId);
+
+          }).send(testContext);
+    });
+  }
+
   /**
    * Verify get a page with the tasks with an specific appId.
    *
@@ -1516,4 +1547,72 @@ public class TasksIT extends AbstractModelResourcesIT<Task, String> {
     });
   }
 
+  /**
+   * Verify that answer not modified when the client has the current version of
+   * the task.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see Tasks#retrieveTask(String, io.vertx.ext.web.api.service.ServiceRequest,
+   *      io.vertx.core.Handler)
+   */
+  @Test
+  public void shouldRetrieveNotModifiedTask(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    StoreServices.storeTaskExample(1, vertx, testContext).onSuccess(task -> {
+
+      testRequest(client, HttpMethod.GET, Tasks.PATH + "/" + task.id).expect(res -> {
+
+        assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+        final var etag = res.getHeader(HttpHeaders.ETAG.toString());
+        assertThat(etag).isEqualTo(ConditionalRequest.etag(0));
+        assertThat(res.getHeader(HttpHeaders.LAST_MODIFIED.toString()))
+            .isEqualTo(ConditionalRequest.lastModified(task._lastUpdateTs));
+        testRequest(client, HttpMethod.GET, Tasks.PATH + "/" + task.id)
+            .with(req -> req.putHeader(HttpHeaders.IF_NONE_MATCH.toString(), etag)).expect(notModified -> {
+
+              assertThat(notModified.statusCode()).isEqualTo(Status.NOT_MODIFIED.getStatusCode());
+              assertThat(notModified.getHeader(HttpHeaders.ETAG.toString())).isEqualTo(etag);
+
+            }).send(testContext);
+
+      }).send(testContext);
+    });
+
+  }
+
+  /**
+   * Verify that can not merge a task that has been modified after the version
+   * defined on the If-Match header.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see Tasks#mergeTask(String, JsonObject,
+   *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
+   */
+  @Test
+  public void shouldNotMergeTaskWithStaleIfMatch(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    StoreServices.storeTaskExample(1, vertx, testContext).onSuccess(task -> {
+
+      final var source = new JsonObject().put("attributes", new JsonObject().put("key", "value"));
+      testRequest(client, HttpMethod.PATCH, Tasks.PATH + "/" + task.id)
+          .with(req -> req.putHeader(HttpHeaders.IF_MATCH.toString(), ConditionalRequest.etag(1)))
+          .expect(res -> {
+
+            assertThat(res.statusCode()).isEqualTo(Status.PRECONDITION_FAILED.getStatusCode());
+            final var error = assertThatBodyIs(ErrorMessage.class, res);
+            assertThat(error.code).isEqualTo(ConditionalRequest.PRECONDITION_FAILED);
+
+          }).sendJson(source, testContext);
+    });
+
+  }
+
 }
@@ -22,7 +22,10 @@ package eu.internetofus.wenet_task_manager.api.tasks;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import io.vertx.core.MultiMap;
 import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.api.service.ServiceRequest;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
@@ -52,8 +55,52 @@ public class TasksResourceTest {
       @Mock final ServiceRequest request) {
 
     final var resource = new TasksResource(vertx);
-    resource.retrieveTasksPage(null, null, null, null, null, null, null, null, null, null, null, null, null, 0, 100,
-        request, testContext.succeeding(response -> testContext.verify(() -> {
+    resource.retrieveTasksPage(null, null, null, null, null, null, null, null, null, null, null, null, null, null,
+        0, 100, null, request, testContext.succeeding(response -> testContext.verify(() -> {
+
+          assertThat(response.getStatusCode()).isEqualTo(Status.BAD_REQUEST.getStatusCode());
+          testContext.completeNow();
+
+        })));
+
+  }
+
+  /**
+   * Should not retrieve the task statistics because the repository fails.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context of the test.
+   * @param request     mocked request to do the operation.
+   */
+  @Test
+  public void shouldNotRetrieveTaskStatisticsBecauseRetrieveFailed(final Vertx vertx,
+      final VertxTestContext testContext, @Mock final ServiceRequest request) {
+
+    final var resource = new TasksResource(vertx);
+    resource.retrieveTaskStatistics(null, null, null, null, null, null, 100, request,
+        testContext.succeeding(response -> testContext.verify(() -> {
+
+          assertThat(response.getStatusCode()).isEqualTo(Status.BAD_REQUEST.getStatusCode());
+          testContext.completeNow();
+
+        })));
+
+  }
+
+  /**
+   * Should not merge on the server a task because the repository fails.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context of the test.
+   */
+  @Test
+  public void shouldNotMergeTaskOnServerBecauseMergeFailed(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var resource = new TasksResource(vertx, true);
+    final var headers = MultiMap.caseInsensitiveMultiMap().add(HttpHeaders.IF_MATCH, "\"1\"");
+    final var request = new ServiceRequest(new JsonObject(), headers, null, new JsonObject());
+    resource.mergeTask("undefined", new JsonObject().put("closeTs", 2), request,
+        testContext.succeeding(response -> testContext.verify(() -> {
 
           assertThat(response.getStatusCode()).isEqualTo(Status.BAD_REQUEST.getStatusCode());
           testContext.completeNow();
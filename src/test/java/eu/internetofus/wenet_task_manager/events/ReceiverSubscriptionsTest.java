@@ -0,0 +1,189 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.events;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Test the {@link ReceiverSubscriptions}.
+ *
+ * @see ReceiverSubscriptions
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class ReceiverSubscriptionsTest {
+
+  /**
+   * Create a message event.
+   *
+   * @param id         identifier of the event.
+   * @param appId      identifier of the application of the message.
+   * @param receiverId identifier of the receiver of the message.
+   *
+   * @return the message event.
+   */
+  private static JsonObject createEvent(final long id, final String appId, final String receiverId) {
+
+    return new JsonObject().put("id", id).put("type", TaskEvents.MESSAGE_ADDED).put("appId", appId).put("message",
+        new JsonObject().put("appId", appId).put("receiverId", receiverId).put("label", "label_" + id));
+
+  }
+
+  /**
+   * Should complete the poll when a message for the receiver arrives.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldCompletePollWithNewMessage(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var subscriptions = new ReceiverSubscriptions(vertx, 60);
+    final var message = createEvent(4, "app", "receiver").getJsonObject("message");
+    subscriptions.poll("receiver", "app", null, 10000).onComplete(testContext.succeeding(poll -> {
+
+      testContext.verify(() -> {
+
+        assertThat(poll).isEqualTo(
+            new JsonObject().put("lastEventId", 4L).put("messages", new JsonArray().add(message)));
+        assertThat(subscriptions.getReceiversCount()).isEqualTo(1);
+      });
+      subscriptions.close().onComplete(testContext.succeedingThenComplete());
+
+    }));
+    subscriptions.dispatch(new JsonObject().put("id", 1L).put("type", TaskEvents.TASK_CREATED));
+    subscriptions.dispatch(new JsonObject().put("id", 2L).put("type", TaskEvents.MESSAGE_ADDED));
+    subscriptions.dispatch(createEvent(2, "app", "other"));
+    subscriptions.dispatch(createEvent(3, "other", "receiver"));
+    vertx.eventBus().publish(TaskEvents.ADDRESS, createEvent(4, "app", "receiver"));
+
+  }
+
+  /**
+   * Should return the buffered messages after the last event.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldReturnBufferedMessages(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var subscriptions = new ReceiverSubscriptions(vertx, 60);
+    subscriptions.poll("receiver", null, null, 0).compose(first -> {
+
+      testContext.verify(() -> assertThat(first).isEqualTo(
+          new JsonObject().put("lastEventId", 0L).put("messages", new JsonArray())));
+      for (var id = 1; id <= ReceiverSubscriptions.MAX_BUFFERED_MESSAGES + 2; id++) {
+
+        subscriptions.dispatch(createEvent(id, id % 2 == 0 ? "app" : "other", "receiver"));
+      }
+      return subscriptions.poll("receiver", "app", 100L, 10000);
+
+    }).compose(second -> {
+
+      testContext.verify(() -> {
+
+        assertThat(second.getLong("lastEventId")).isEqualTo(102L);
+        assertThat(second.getJsonArray("messages")).containsExactly(
+            createEvent(102, "app", "receiver").getJsonObject("message"));
+      });
+      return subscriptions.poll("receiver", null, 0L, 10000);
+
+    }).compose(third -> {
+
+      testContext.verify(() -> {
+
+        assertThat(third.getLong("lastEventId")).isEqualTo(102L);
+        assertThat(third.getJsonArray("messages")).hasSize(ReceiverSubscriptions.MAX_BUFFERED_MESSAGES);
+      });
+      return subscriptions.poll("receiver", null, null, 1);
+
+    }).onComplete(testContext.succeeding(fourth -> testContext.verify(() -> {
+
+      assertThat(fourth.getLong("lastEventId")).isEqualTo(102L);
+      assertThat(fourth.getJsonArray("messages")).isEmpty();
+      testContext.completeNow();
+
+    })));
+
+  }
+
+  /**
+   * Should complete the parked polls when the index is closed.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldCompletePollsWhenClose(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var subscriptions = new ReceiverSubscriptions(vertx, 60);
+    subscriptions.poll("receiver", null, 5L, 60000).onComplete(testContext.succeeding(poll -> testContext.verify(() -> {
+
+      assertThat(poll.getLong("lastEventId")).isEqualTo(5L);
+      assertThat(poll.getJsonArray("messages")).isEmpty();
+      assertThat(subscriptions.getReceiversCount()).isEqualTo(0);
+      subscriptions.close().onComplete(testContext.succeedingThenComplete());
+
+    })));
+    subscriptions.close();
+
+  }
+
+  /**
+   * Should remove the receivers that have not polled in the retention time.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldEvictExpiredReceivers(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var subscriptions = new ReceiverSubscriptions(vertx, 0);
+    subscriptions.poll("idle", null, null, 0).onComplete(testContext.succeeding(idle -> {
+
+      subscriptions.poll("waiting", null, null, 60000);
+      subscriptions.evictExpired();
+      testContext.verify(() -> assertThat(subscriptions.getReceiversCount()).isEqualTo(2));
+      subscriptions.receivers.get("idle").lastPollTs -= 10;
+      subscriptions.receivers.get("waiting").lastPollTs -= 10;
+      subscriptions.evictExpired();
+      testContext.verify(() -> {
+
+        assertThat(subscriptions.getReceiversCount()).isEqualTo(1);
+        assertThat(subscriptions.receivers).containsOnlyKeys("waiting");
+      });
+      subscriptions.close().onComplete(testContext.succeedingThenComplete());
+
+    }));
+
+  }
+
+}
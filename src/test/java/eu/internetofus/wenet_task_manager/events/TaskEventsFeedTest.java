@@ -0,0 +1,158 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.events;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Test the {@link TaskEventsFeed}.
+ *
+ * @see TaskEventsFeed
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class TaskEventsFeedTest {
+
+  /**
+   * Create an event.
+   *
+   * @param id    identifier of the event.
+   * @param appId identifier of the application of the event.
+   *
+   * @return the event.
+   */
+  private static JsonObject createEvent(final long id, final String appId) {
+
+    return new JsonObject().put("id", id).put("type", TaskEvents.TASK_CREATED).put("appId", appId);
+
+  }
+
+  /**
+   * Should dispatch the events to the subscribers that match them.
+   */
+  @Test
+  public void shouldDispatchToMatchingSubscribers() {
+
+    final var feed = new TaskEventsFeed(10);
+    final var all = new ArrayList<JsonObject>();
+    final var app = new ArrayList<JsonObject>();
+    final var allId = feed.subscribe(new JsonObject(), null, all::add);
+    feed.subscribe(TaskEvents.createFilter("app", null, null, null), null, app::add);
+    feed.subscribe(new JsonObject(), null, event -> {
+      throw new IllegalStateException("Closed");
+    });
+    assertThat(feed.getSubscribersCount()).isEqualTo(3);
+    feed.dispatch(createEvent(1, "app"));
+    feed.dispatch(createEvent(2, "other"));
+    assertThat(all).containsExactly(createEvent(1, "app"), createEvent(2, "other"));
+    assertThat(app).containsExactly(createEvent(1, "app"));
+
+    assertThat(feed.unsubscribe(allId)).isTrue();
+    assertThat(feed.unsubscribe(allId)).isFalse();
+    feed.dispatch(createEvent(3, "app"));
+    assertThat(all).hasSize(2);
+    assertThat(app).hasSize(2);
+
+  }
+
+  /**
+   * Should resume the feed from the buffered events.
+   */
+  @Test
+  public void shouldResumeFromBuffer() {
+
+    final var feed = new TaskEventsFeed(3);
+    for (var id = 1; id <= 4; id++) {
+
+      feed.dispatch(createEvent(id, id % 2 == 0 ? "app" : "other"));
+    }
+
+    final var resumed = new ArrayList<JsonObject>();
+    feed.subscribe(new JsonObject(), 2L, resumed::add);
+    assertThat(resumed).containsExactly(createEvent(3, "other"), createEvent(4, "app"));
+
+    final var filtered = new ArrayList<JsonObject>();
+    feed.subscribe(TaskEvents.createFilter("app", null, null, null), 1L, filtered::add);
+    assertThat(filtered).containsExactly(createEvent(2, "app"), createEvent(4, "app"));
+
+    final var news = new ArrayList<JsonObject>();
+    feed.subscribe(new JsonObject(), null, news::add);
+    assertThat(news).isEmpty();
+
+  }
+
+  /**
+   * Should send a gap event when the events after the resume token are not buffered.
+   */
+  @Test
+  public void shouldSendGapWhenResumeIsTooOld() {
+
+    final var feed = new TaskEventsFeed(2);
+    for (var id = 1; id <= 4; id++) {
+
+      feed.dispatch(createEvent(id, "app"));
+    }
+    final var resumed = new ArrayList<JsonObject>();
+    feed.subscribe(new JsonObject(), 0L, resumed::add);
+    assertThat(resumed).hasSize(3);
+    assertThat(resumed.get(0)).isEqualTo(new JsonObject().put("id", 2L).put("type", TaskEvents.GAP).put("from", 0L));
+    assertThat(resumed.subList(1, 3)).containsExactly(createEvent(3, "app"), createEvent(4, "app"));
+
+    final var unbuffered = new TaskEventsFeed(0);
+    unbuffered.dispatch(createEvent(1, "app"));
+    final var gap = new ArrayList<JsonObject>();
+    unbuffered.subscribe(new JsonObject(), 0L, gap::add);
+    assertThat(gap).extracting(event -> event.getString("type")).isEqualTo(List.of(TaskEvents.GAP));
+
+  }
+
+  /**
+   * Should receive the events published on the event bus.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldListenEventBus(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var feed = new TaskEventsFeed(TaskEventsFeed.DEFAULT_BUFFER_SIZE);
+    feed.subscribe(new JsonObject(), null, event -> testContext.verify(() -> {
+
+      assertThat(event.getString("taskId")).isEqualTo("task");
+      feed.close().compose(empty -> feed.close()).onComplete(testContext.succeedingThenComplete());
+
+    }));
+    feed.listen(vertx).onComplete(testContext.succeeding(
+        empty -> new TaskEvents(vertx, true).publish(TaskEvents.TASK_CREATED, "task", null, null, null)));
+
+  }
+
+}
@@ -0,0 +1,212 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.events;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Test the {@link TaskEventsHandler}.
+ *
+ * @see TaskEventsHandler
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class TaskEventsHandlerTest {
+
+  /**
+   * Start a server that streams the events of a feed.
+   *
+   * @param vertx event bus to use.
+   * @param feed  with the events to stream.
+   *
+   * @return the future started server.
+   */
+  private static Future<HttpServer> startServer(final Vertx vertx, final TaskEventsFeed feed) {
+
+    final var router = Router.router(vertx);
+    router.route().handler(new TaskEventsHandler(vertx, feed, 50));
+    router.get("/tasks/:taskId").handler(ctx -> ctx.end(ctx.pathParam("taskId")));
+    return vertx.createHttpServer().requestHandler(router).listen(0);
+
+  }
+
+  /**
+   * Should convert an event to a frame.
+   */
+  @Test
+  public void shouldConvertToFrame() {
+
+    final var event = new JsonObject().put("id", 1).put("type", TaskEvents.TASK_CLOSED);
+    assertThat(TaskEventsHandler.toFrame(event))
+        .isEqualTo("id: 1\nevent: taskClosed\ndata: {\"id\":1,\"type\":\"taskClosed\"}\n\n");
+
+  }
+
+  /**
+   * Should pass to the next handler the other requests.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldPassOtherRequests(final Vertx vertx, final VertxTestContext testContext) {
+
+    startServer(vertx, new TaskEventsFeed(1)).onComplete(testContext.succeeding(server -> {
+
+      WebClient.create(vertx).get(server.actualPort(), "localhost", "/tasks/task").send()
+          .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+
+            assertThat(response.bodyAsString()).isEqualTo("task");
+            testContext.completeNow();
+
+          })));
+    }));
+
+  }
+
+  /**
+   * Should not stream with bad parameters.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldNotStreamWithBadParameters(final Vertx vertx, final VertxTestContext testContext) {
+
+    startServer(vertx, new TaskEventsFeed(1)).onComplete(testContext.succeeding(server -> {
+
+      final var client = WebClient.create(vertx);
+      client.get(server.actualPort(), "localhost", TaskEventsHandler.PATH + "?types=undefined").send()
+          .compose(badType -> client.get(server.actualPort(), "localhost", TaskEventsHandler.PATH)
+              .putHeader(TaskEventsHandler.LAST_EVENT_ID, "last").send().map(badId -> {
+
+                assertThat(badType.statusCode()).isEqualTo(400);
+                assertThat(badId.statusCode()).isEqualTo(400);
+                assertThat(badId.bodyAsJsonObject().getString("code")).isEqualTo("bad_events_parameter");
+                return badId;
+
+              }))
+          .onComplete(testContext.succeedingThenComplete());
+    }));
+
+  }
+
+  /**
+   * Should stream the filtered events resuming from the last event identifier.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldStreamEvents(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var feed = new TaskEventsFeed(10);
+    final var buffered = new JsonObject().put("id", 2L).put("type", TaskEvents.TASK_CREATED).put("appId", "app");
+    feed.dispatch(new JsonObject().put("id", 1L).put("type", TaskEvents.TASK_CREATED).put("appId", "app"));
+    feed.dispatch(buffered);
+    final var published = new JsonObject().put("id", 4L).put("type", TaskEvents.TASK_CLOSED).put("appId", "app");
+    startServer(vertx, feed).onComplete(testContext.succeeding(server -> {
+
+      final HttpClient client = vertx.createHttpClient();
+      client.request(HttpMethod.GET, server.actualPort(), "localhost",
+          TaskEventsHandler.PATH + "?appId=app&types=taskCreated,%20taskClosed&lastEventId=1")
+          .compose(request -> request.send()).onComplete(testContext.succeeding(response -> {
+
+            assertThat(response.getHeader("Content-Type")).isEqualTo("text/event-stream");
+            final var received = new StringBuilder();
+            response.handler(buffer -> {
+
+              received.append(buffer.toString());
+              final var text = received.toString();
+              if (text.contains(": connected") && !text.contains("id: 3") && feed.getSubscribersCount() == 1
+                  && !text.contains("id: 4")) {
+
+                feed.dispatch(new JsonObject().put("id", 3L).put("type", TaskEvents.TASK_CREATED).put("appId", "o"));
+                feed.dispatch(published);
+              }
+              if (text.contains(TaskEventsHandler.toFrame(published)) && text.contains(": keep-alive")) {
+
+                testContext.verify(() -> {
+
+                  assertThat(text).contains(TaskEventsHandler.toFrame(buffered)).doesNotContain("id: 1\n");
+                  assertThat(text.indexOf("id: 2\n")).isLessThan(text.indexOf("id: 4\n"));
+                });
+                client.close().onComplete(closed -> vertx.setTimer(100, id -> testContext.verify(() -> {
+
+                  assertThat(feed.getSubscribersCount()).isEqualTo(0);
+                  testContext.completeNow();
+
+                })));
+              }
+            });
+          }));
+    }));
+
+  }
+
+  /**
+   * Should end the stream of a client that is too slow to receive the events.
+   *
+   * @param vertx event bus to use.
+   */
+  @Test
+  public void shouldEndStreamOfSlowClient(final Vertx vertx) {
+
+    final var feed = new TaskEventsFeed(10);
+    final var response = mock(HttpServerResponse.class);
+    when(response.writeQueueFull()).thenReturn(false, true);
+    final var stream = new TaskEventsHandler.EventsStream(vertx, feed, response);
+    stream.subscription = feed.subscribe(new JsonObject(), null, stream::send);
+    stream.timer = vertx.setPeriodic(1000, id -> stream.keepAlive());
+    final var first = new JsonObject().put("id", 1L).put("type", TaskEvents.TASK_CREATED);
+    feed.dispatch(first);
+    feed.dispatch(new JsonObject().put("id", 2L).put("type", TaskEvents.TASK_CREATED));
+    feed.dispatch(new JsonObject().put("id", 3L).put("type", TaskEvents.TASK_CREATED));
+    stream.keepAlive();
+    verify(response, times(1)).write(anyString());
+    verify(response).write(TaskEventsHandler.toFrame(first));
+    verify(response, times(1)).end();
+    assertThat(feed.getSubscribersCount()).isEqualTo(0);
+    assertThat(vertx.cancelTimer(stream.timer)).isFalse();
+
+  }
+
+}
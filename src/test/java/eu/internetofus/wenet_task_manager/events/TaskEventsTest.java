@@ -0,0 +1,140 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.events;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Test the {@link TaskEvents}.
+ *
+ * @see TaskEvents
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class TaskEventsTest {
+
+  /**
+   * Should the identifiers of the events grow monotonically.
+   */
+  @Test
+  public void shouldObtainGrowingIdentifiers() {
+
+    final var first = TaskEvents.nextId();
+    final var second = TaskEvents.nextId();
+    assertThat(second).isGreaterThan(first);
+    assertThat(first).isGreaterThanOrEqualTo(System.currentTimeMillis() * 1000L - 1000000L);
+
+  }
+
+  /**
+   * Should create an event with the attributes of the task and the payload.
+   */
+  @Test
+  public void shouldCreateEvent() {
+
+    final var task = new JsonObject().put("appId", "app").put("taskTypeId", "type").put("requesterId", "requester");
+    final var message = new JsonObject().put("receiverId", "receiver");
+    final var event = TaskEvents.createEvent(TaskEvents.MESSAGE_ADDED, "task", task, "message", message);
+    assertThat(event.getLong("id")).isNotNull();
+    assertThat(event.getLong("ts")).isNotNull();
+    assertThat(event.copy().put("id", 0).put("ts", 0))
+        .isEqualTo(new JsonObject().put("id", 0).put("type", TaskEvents.MESSAGE_ADDED).put("taskId", "task")
+            .put("appId", "app").put("taskTypeId", "type").put("requesterId", "requester").put("message", message)
+            .put("ts", 0));
+
+    final var empty = TaskEvents.createEvent(TaskEvents.TASK_CREATED, "task", null, "message", null);
+    assertThat(empty.fieldNames()).containsExactlyInAnyOrder("id", "type", "taskId", "ts");
+
+  }
+
+  /**
+   * Should create the filters of the events.
+   */
+  @Test
+  public void shouldCreateFilter() {
+
+    assertThat(TaskEvents.createFilter(null, null, null, null)).isEqualTo(new JsonObject());
+    assertThat(TaskEvents.createFilter("app", "type", "requester", List.of(TaskEvents.TASK_CLOSED)))
+        .isEqualTo(new JsonObject().put("appId", "app").put("taskTypeId", "type").put("requesterId", "requester")
+            .put("types", new JsonArray().add(TaskEvents.TASK_CLOSED)));
+    assertThatThrownBy(() -> TaskEvents.createFilter(null, null, null, List.of("undefined")))
+        .isInstanceOf(IllegalArgumentException.class);
+
+  }
+
+  /**
+   * Should match the events with the filters.
+   */
+  @Test
+  public void shouldMatchEvents() {
+
+    final var event = new JsonObject().put("type", TaskEvents.TASK_CREATED).put("appId", "app").put("taskTypeId",
+        "type");
+    assertThat(TaskEvents.matches(event, new JsonObject())).isTrue();
+    assertThat(TaskEvents.matches(event, TaskEvents.createFilter("app", "type", null, null))).isTrue();
+    assertThat(TaskEvents.matches(event, TaskEvents.createFilter("other", null, null, null))).isFalse();
+    assertThat(TaskEvents.matches(event, TaskEvents.createFilter(null, null, "requester", null))).isFalse();
+    assertThat(TaskEvents.matches(event, TaskEvents.createFilter(null, null, null, List.of(TaskEvents.TASK_CREATED))))
+        .isTrue();
+    assertThat(TaskEvents.matches(event, TaskEvents.createFilter(null, null, null, List.of(TaskEvents.TASK_CLOSED))))
+        .isFalse();
+
+  }
+
+  /**
+   * Should publish the events only when it is enabled.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldPublishWhenEnabled(final Vertx vertx, final VertxTestContext testContext) {
+
+    vertx.eventBus().<JsonObject>consumer(TaskEvents.ADDRESS, message -> testContext.verify(() -> {
+
+      assertThat(message.body().getString("taskId")).isEqualTo("enabled");
+      testContext.completeNow();
+
+    })).completionHandler(testContext.succeeding(empty -> {
+
+      final var disabled = new TaskEvents(vertx, false);
+      assertThat(disabled.isEnabled()).isFalse();
+      disabled.publish(TaskEvents.TASK_CREATED, "disabled", null, null, null);
+      final var enabled = new TaskEvents(vertx, true);
+      assertThat(enabled.isEnabled()).isTrue();
+      enabled.publish(TaskEvents.TASK_CREATED, "enabled", null, null, null);
+
+    }));
+
+  }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryContext;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Test the {@link EventBusMetrics}.
+ *
+ * @see EventBusMetrics
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class EventBusMetricsTest {
+
+  /**
+   * Create the metrics and register it on the event bus.
+   *
+   * @param vertx    event bus to use.
+   * @param registry where the metrics are stored.
+   *
+   * @return the created metrics.
+   */
+  private EventBusMetrics createMetrics(final Vertx vertx, final SimpleMeterRegistry registry) {
+
+    final var metrics = new EventBusMetrics(registry);
+    vertx.eventBus().addOutboundInterceptor((final DeliveryContext<Object> context) -> metrics.outbound(context));
+    vertx.eventBus().addInboundInterceptor((final DeliveryContext<Object> context) -> metrics.inbound(context));
+    return metrics;
+
+  }
+
+  /**
+   * Should measure a request that has been replied.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldMeasureRepliedRequest(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var registry = new SimpleMeterRegistry();
+    final var metrics = this.createMetrics(vertx, registry);
+    vertx.eventBus().consumer("test.metrics.reply", msg -> msg.reply("pong"));
+    vertx.eventBus()
+        .request("test.metrics.reply", "ping", new DeliveryOptions().addHeader(EventBusMetrics.ACTION_HEADER, "ping"))
+        .onComplete(testContext.succeeding(reply -> testContext.verify(() -> {
+
+          final var timer = registry.find(EventBusMetrics.REQUESTS_METRIC).tag("address", "test.metrics.reply")
+              .tag("action", "ping").tag("outcome", "success").timer();
+          assertThat(timer).isNotNull();
+          assertThat(timer.count()).isEqualTo(1L);
+          assertThat(metrics.pending).isEmpty();
+          testContext.completeNow();
+
+        })));
+
+  }
+
+  /**
+   * Should measure a request that has failed.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldMeasureFailedRequest(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var registry = new SimpleMeterRegistry();
+    this.createMetrics(vertx, registry);
+    vertx.eventBus().consumer("test.metrics.fail", msg -> msg.fail(1, "Bad request"));
+    vertx.eventBus().request("test.metrics.fail", "ping")
+        .onComplete(testContext.failing(error -> testContext.verify(() -> {
+
+          final var timer = registry.find(EventBusMetrics.REQUESTS_METRIC).tag("address", "test.metrics.fail")
+              .tag("action", "none").tag("outcome", "failure").timer();
+          assertThat(timer).isNotNull();
+          assertThat(timer.count()).isEqualTo(1L);
+          testContext.completeNow();
+
+        })));
+
+  }
+
+  /**
+   * Should mark as timeout the requests that have not been replied.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldEvictExpiredRequests(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var registry = new SimpleMeterRegistry();
+    final var metrics = this.createMetrics(vertx, registry);
+    vertx.eventBus().consumer("test.metrics.noreply", msg -> {
+      // Never reply
+    });
+    vertx.eventBus().request("test.metrics.noreply", "ping");
+    vertx.setTimer(100, id -> testContext.verify(() -> {
+
+      assertThat(metrics.pending).hasSize(1);
+      metrics.evictExpired(0);
+      assertThat(metrics.pending).isEmpty();
+      final var timer = registry.find(EventBusMetrics.REQUESTS_METRIC).tag("address", "test.metrics.noreply")
+          .tag("outcome", "timeout").timer();
+      assertThat(timer).isNotNull();
+      assertThat(timer.count()).isEqualTo(1L);
+      testContext.completeNow();
+
+    }));
+
+  }
+
+}
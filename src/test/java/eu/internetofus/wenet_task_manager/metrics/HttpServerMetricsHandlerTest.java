@@ -0,0 +1,123 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.internetofus.wenet_task_manager.api.ServerTiming;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Test the {@link HttpServerMetricsHandler}.
+ *
+ * @see HttpServerMetricsHandler
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class HttpServerMetricsHandlerTest {
+
+  /**
+   * Create a router with a route that simulates an OpenAPI operation.
+   *
+   * @param vertx   event bus to use.
+   * @param handler to test.
+   *
+   * @return the router to use.
+   */
+  private Router createRouter(final Vertx vertx, final HttpServerMetricsHandler handler) {
+
+    final var router = Router.router(vertx);
+    router.route().handler(handler);
+    router.get("/operation").handler(ctx -> handler.validated(ctx, "testOperation"))
+        .handler(ctx -> ctx.response().putHeader(ServerTiming.HEADER, "persistence;dur=1.000").end());
+    return router;
+
+  }
+
+  /**
+   * Should measure the requests by operation and complete the server timing header.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldMeasureByOperationWithServerTiming(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var registry = new SimpleMeterRegistry();
+    final var handler = new HttpServerMetricsHandler(registry, true);
+    vertx.createHttpServer().requestHandler(this.createRouter(vertx, handler)).listen(0)
+        .onComplete(testContext.succeeding(server -> {
+
+          final var client = WebClient.create(vertx);
+          client.get(server.actualPort(), "localhost", "/operation").send()
+              .compose(response -> client.get(server.actualPort(), "localhost", "/undefined").send()
+                  .map(response))
+              .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+
+                assertThat(response.getHeader(ServerTiming.HEADER))
+                    .matches("persistence;dur=1\\.000, validation;dur=\\d+\\.\\d{3}, total;dur=\\d+\\.\\d{3}");
+                assertThat(registry.find(HttpServerMetricsHandler.REQUESTS_METRIC).tag("operation", "testOperation")
+                    .tag("status", "200").timer().count()).isEqualTo(1L);
+                assertThat(registry.find(HttpServerMetricsHandler.VALIDATION_METRIC)
+                    .tag("operation", "testOperation").timer().count()).isEqualTo(1L);
+                assertThat(registry.find(HttpServerMetricsHandler.REQUESTS_METRIC).tag("status", "404").timer())
+                    .isNotNull();
+                testContext.completeNow();
+
+              })));
+        }));
+
+  }
+
+  /**
+   * Should remove the server timing header when it is disabled.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldRemoveServerTimingWhenDisabled(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var handler = new HttpServerMetricsHandler(new SimpleMeterRegistry(), false);
+    vertx.createHttpServer().requestHandler(this.createRouter(vertx, handler)).listen(0)
+        .onComplete(testContext.succeeding(server -> {
+
+          WebClient.create(vertx).get(server.actualPort(), "localhost", "/operation").send()
+              .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+
+                assertThat(response.statusCode()).isEqualTo(200);
+                assertThat(response.getHeader(ServerTiming.HEADER)).isNull();
+                testContext.completeNow();
+
+              })));
+        }));
+
+  }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the {@link MetricsRegistry}.
+ *
+ * @see MetricsRegistry
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class MetricsRegistryTest {
+
+  /**
+   * Should scrape the JVM metrics.
+   */
+  @Test
+  public void shouldScrapeJvmMetrics() {
+
+    final var registry = MetricsRegistry.get();
+    assertThat(MetricsRegistry.get()).isSameAs(registry);
+    assertThat(MetricsRegistry.scrape()).contains("jvm_memory_used_bytes", "jvm_threads_live_threads",
+        "process_uptime_seconds");
+    MetricsRegistry.close();
+    MetricsRegistry.close();
+    assertThat(MetricsRegistry.get()).isNotSameAs(registry);
+
+  }
+
+}
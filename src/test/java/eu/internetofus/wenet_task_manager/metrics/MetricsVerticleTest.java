@@ -0,0 +1,69 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Test the {@link MetricsVerticle}.
+ *
+ * @see MetricsVerticle
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class MetricsVerticleTest {
+
+  /**
+   * Should measure the event loop lag.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldMeasureEventLoopLag(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var options = new DeploymentOptions().setConfig(new JsonObject().put("metrics",
+        new JsonObject().put("eventLoopLagInterval", 10).put("eventBusReplyTimeout", 10)));
+    vertx.deployVerticle(MetricsVerticle.class, options).onComplete(testContext.succeeding(id -> {
+
+      vertx.setTimer(200, any -> vertx.undeploy(id)
+          .onComplete(testContext.succeeding(undeployed -> testContext.verify(() -> {
+
+            final var lag = MetricsRegistry.get().find(MetricsVerticle.EVENT_LOOP_LAG_METRIC).timer();
+            assertThat(lag).isNotNull();
+            assertThat(lag.count()).isPositive();
+            testContext.completeNow();
+
+          }))));
+    }));
+
+  }
+
+}
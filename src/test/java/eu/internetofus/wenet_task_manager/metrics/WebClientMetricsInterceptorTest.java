@@ -0,0 +1,74 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Test the {@link WebClientMetricsInterceptor}.
+ *
+ * @see WebClientMetricsInterceptor
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class WebClientMetricsInterceptorTest {
+
+  /**
+   * Should measure the success and failed requests.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldMeasureRequests(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var registry = new SimpleMeterRegistry();
+    vertx.createHttpServer().requestHandler(request -> request.response().setStatusCode(204).end()).listen(0)
+        .onComplete(testContext.succeeding(server -> {
+
+          final var client = WebClient.create(vertx);
+          WebClientMetricsInterceptor.instrument(client, registry);
+          final var port = server.actualPort();
+          client.get(port, "localhost", "/").send().compose(response -> server.close())
+              .compose(closed -> client.get(port, "localhost", "/").send())
+              .onComplete(testContext.failing(error -> testContext.verify(() -> {
+
+                assertThat(registry.find(WebClientMetricsInterceptor.REQUESTS_METRIC).tag("host", "localhost")
+                    .tag("status", "204").timer().count()).isEqualTo(1L);
+                assertThat(registry.find(WebClientMetricsInterceptor.REQUESTS_METRIC).tag("status", "error").timer()
+                    .count()).isEqualTo(1L);
+                testContext.completeNow();
+
+              })));
+        }));
+
+  }
+
+}
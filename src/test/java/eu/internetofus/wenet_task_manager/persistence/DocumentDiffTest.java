@@ -0,0 +1,208 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the {@link DocumentDiff}.
+ *
+ * @see DocumentDiff
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class DocumentDiffTest {
+
+  /**
+   * Create a task with some transactions.
+   *
+   * @return the task.
+   */
+  private static JsonObject createTask() {
+
+    final var messages = new JsonArray().add(new JsonObject().put("label", "first"));
+    final var transactions = new JsonArray().add(new JsonObject().put("id", "0").put("messages", messages))
+        .add(new JsonObject().put("id", "1").put("messages", new JsonArray()));
+    return new JsonObject().put("goal", new JsonObject().put("name", "Goal").put("description", "Description"))
+        .put("closeTs", 10).put("transactions", transactions).put("attributes", new JsonObject());
+
+  }
+
+  /**
+   * Should not change anything on equal documents.
+   */
+  @Test
+  public void shouldBeEmptyForEqualDocuments() {
+
+    assertThat(DocumentDiff.diff(createTask(), createTask())).isEmpty();
+    assertThat(DocumentDiff.diff(null, null)).isEmpty();
+
+  }
+
+  /**
+   * Should set only the changed fields.
+   */
+  @Test
+  public void shouldSetChangedFields() {
+
+    final var changed = createTask();
+    changed.put("closeTs", 20L);
+    changed.getJsonObject("goal").put("name", "Other");
+    changed.getJsonArray("transactions").getJsonObject(1).put("label", "new");
+    assertThat(DocumentDiff.diff(createTask(), changed)).isEqualTo(new JsonObject().put("$set",
+        new JsonObject().put("goal.name", "Other").put("closeTs", 20L).put("transactions.1.label", "new")));
+
+  }
+
+  /**
+   * Should not change the numbers with the same value and different type.
+   */
+  @Test
+  public void shouldNotChangeNumbersWithSameValue() {
+
+    final var changed = createTask();
+    changed.put("closeTs", 10L);
+    assertThat(DocumentDiff.diff(createTask(), changed)).isEmpty();
+    changed.put("closeTs", 10.0d);
+    assertThat(DocumentDiff.diff(createTask(), changed)).isEmpty();
+    changed.put("closeTs", 10.5d);
+    assertThat(DocumentDiff.diff(createTask(), changed))
+        .isEqualTo(new JsonObject().put("$set", new JsonObject().put("closeTs", 10.5d)));
+
+  }
+
+  /**
+   * Should unset the removed fields.
+   */
+  @Test
+  public void shouldUnsetRemovedFields() {
+
+    final var changed = createTask();
+    changed.putNull("closeTs");
+    changed.getJsonObject("goal").remove("description");
+    assertThat(DocumentDiff.diff(createTask(), changed)).isEqualTo(
+        new JsonObject().put("$unset", new JsonObject().put("goal.description", "").put("closeTs", "")));
+
+  }
+
+  /**
+   * Should set the fields that are new.
+   */
+  @Test
+  public void shouldSetNewFields() {
+
+    final var changed = createTask();
+    changed.put("communityId", "community");
+    changed.getJsonObject("attributes").put("key", new JsonArray().add(1));
+    assertThat(DocumentDiff.diff(createTask(), changed)).isEqualTo(new JsonObject().put("$set",
+        new JsonObject().put("attributes.key", new JsonArray().add(1)).put("communityId", "community")));
+
+  }
+
+  /**
+   * Should push the elements added at the end of the arrays.
+   */
+  @Test
+  public void shouldPushAddedElements() {
+
+    final var changed = createTask();
+    final var transaction = new JsonObject().put("id", "2");
+    changed.getJsonArray("transactions").add(transaction);
+    assertThat(DocumentDiff.diff(createTask(), changed)).isEqualTo(new JsonObject().put("$push",
+        new JsonObject().put("transactions", new JsonObject().put("$each", new JsonArray().add(transaction)))));
+
+    final var other = createTask();
+    final var message = new JsonObject().put("label", "second");
+    other.getJsonArray("transactions").getJsonObject(0).getJsonArray("messages").add(message);
+    assertThat(DocumentDiff.diff(createTask(), other)).isEqualTo(new JsonObject().put("$push", new JsonObject()
+        .put("transactions.0.messages", new JsonObject().put("$each", new JsonArray().add(message)))));
+
+  }
+
+  /**
+   * Should set the arrays that are not only extended.
+   */
+  @Test
+  public void shouldSetReplacedArrays() {
+
+    final var changed = createTask();
+    changed.getJsonArray("transactions").remove(0);
+    assertThat(DocumentDiff.diff(createTask(), changed)).isEqualTo(new JsonObject().put("$set",
+        new JsonObject().put("transactions", changed.getJsonArray("transactions"))));
+
+    final var reordered = createTask();
+    final var transactions = reordered.getJsonArray("transactions");
+    transactions.add(transactions.remove(0));
+    transactions.add(new JsonObject());
+    assertThat(DocumentDiff.diff(createTask(), reordered)).isEqualTo(
+        new JsonObject().put("$set", new JsonObject().put("transactions", transactions)));
+
+  }
+
+  /**
+   * Should set to {@code null} the removed elements of an array.
+   */
+  @Test
+  public void shouldSetNullRemovedElements() {
+
+    final var original = new JsonObject().put("values", new JsonArray().add(1).add(2).addNull());
+    final var changed = new JsonObject().put("values", new JsonArray().add(1).addNull().addNull());
+    assertThat(DocumentDiff.diff(original, changed))
+        .isEqualTo(new JsonObject().put("$set", new JsonObject().putNull("values.1")));
+
+  }
+
+  /**
+   * Should replace the values that change their type.
+   */
+  @Test
+  public void shouldSetValuesWithOtherType() {
+
+    final var changed = createTask();
+    changed.put("goal", "Goal");
+    assertThat(DocumentDiff.diff(createTask(), changed))
+        .isEqualTo(new JsonObject().put("$set", new JsonObject().put("goal", "Goal")));
+
+  }
+
+  /**
+   * Should apply the fields to set over a document.
+   */
+  @Test
+  public void shouldApplySet() {
+
+    final var document = createTask();
+    final var set = new JsonObject().put("closeTs", 20L).put("goal.name", "Other").put("attributes.key.value", 1)
+        .put("communityId", "community");
+    final var expected = createTask().put("closeTs", 20L).put("communityId", "community");
+    expected.getJsonObject("goal").put("name", "Other");
+    expected.getJsonObject("attributes").put("key", new JsonObject().put("value", 1));
+    assertThat(DocumentDiff.applySet(document, set)).isSameAs(document).isEqualTo(expected);
+    assertThat(DocumentDiff.applySet(new JsonObject().put("goal", "Goal"), new JsonObject().put("goal.name", "Name")))
+        .isEqualTo(new JsonObject().put("goal", new JsonObject().put("name", "Name")));
+
+  }
+
+}
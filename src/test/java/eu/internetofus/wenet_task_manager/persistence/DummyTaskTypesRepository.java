@@ -39,6 +39,14 @@ public class DummyTaskTypesRepository implements TaskTypesRepository {
 
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void searchTaskTypeVersion(final String id, final Handler<AsyncResult<JsonObject>> searchHandler) {
+
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -55,6 +63,15 @@ public class DummyTaskTypesRepository implements TaskTypesRepository {
 
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void updateChangedTaskType(final JsonObject original, final JsonObject taskType,
+      final Long expectedVersion, final Handler<AsyncResult<Void>> updateHandler) {
+
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -71,4 +88,31 @@ public class DummyTaskTypesRepository implements TaskTypesRepository {
 
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void addTaskTypeNorm(final String taskTypeId, final JsonObject norm,
+      final Handler<AsyncResult<Void>> addHandler) {
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setTaskTypeNorm(final String taskTypeId, final int index, final int size, final JsonObject norm,
+      final Handler<AsyncResult<Void>> setHandler) {
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void removeTaskTypeNorm(final String taskTypeId, final int index, final int size,
+      final Handler<AsyncResult<Void>> removeHandler) {
+
+  }
+
 }
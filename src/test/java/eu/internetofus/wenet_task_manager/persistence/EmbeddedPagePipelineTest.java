@@ -0,0 +1,364 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the {@link EmbeddedPagePipeline}.
+ *
+ * @see EmbeddedPagePipeline
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class EmbeddedPagePipelineTest {
+
+  /**
+   * The default order of the messages.
+   */
+  private static final JsonObject DEFAULT_ORDER = new JsonObject().put("_creationTs", 1).put("_id", 1)
+      .put(EmbeddedPagePipeline.TRANSACTIONS_INDEX, 1).put(EmbeddedPagePipeline.MESSAGES_INDEX, 1);
+
+  /**
+   * Obtain the names of the stages of a pipeline.
+   *
+   * @param pipeline to get the stages.
+   *
+   * @return the names of the stages.
+   */
+  private static ArrayList<String> stagesOf(final JsonArray pipeline) {
+
+    final var stages = new ArrayList<String>();
+    for (var i = 0; i < pipeline.size(); i++) {
+
+      stages.add(pipeline.getJsonObject(i).fieldNames().iterator().next());
+    }
+    return stages;
+
+  }
+
+  /**
+   * Should sort the tasks before unwinding with the default order.
+   */
+  @Test
+  public void shouldSortBeforeUnwindWithDefaultOrder() {
+
+    final var query = new JsonObject().put("appId", "1");
+    final var pipeline = EmbeddedPagePipeline.forMessages(query, DEFAULT_ORDER, 0, 10,
+        TasksRepositoryImpl.SORT_INDEXES);
+    assertThat(pipeline.isSortedBeforeUnwind()).isTrue();
+    assertThat(pipeline.needsDiskUse()).isFalse();
+    final var stages = pipeline.build();
+    assertThat(stagesOf(stages)).containsExactly("$match", "$sort", "$project", "$unwind", "$unwind", "$facet");
+    assertThat(stages.getJsonObject(0).getJsonObject("$match")).isEqualTo(query);
+    assertThat(stages.getJsonObject(1).getJsonObject("$sort"))
+        .isEqualTo(new JsonObject().put("_creationTs", 1).put("_id", 1));
+    final var page = stages.getJsonObject(5).getJsonObject("$facet").getJsonArray("messages");
+    assertThat(stagesOf(page)).containsExactly("$skip", "$limit", "$replaceRoot");
+
+  }
+
+  /**
+   * Should filter the transactions and messages before unwinding them.
+   */
+  @Test
+  public void shouldFilterBeforeUnwind() {
+
+    final var query = new JsonObject().put("appId", "1").put("transactions.label", "label")
+        .put("transactions._creationTs", new JsonObject().put("$gte", 1).put("$lte", 100))
+        .put("transactions.messages.receiverId", new JsonObject().put("$regex", "^user").put("$options", "i"));
+    final var pipeline = EmbeddedPagePipeline.forMessages(query, DEFAULT_ORDER, 0, 10, TasksRepositoryImpl.SORT_INDEXES)
+        .build();
+    assertThat(stagesOf(pipeline)).containsExactly("$match", "$sort", "$project", "$addFields", "$unwind", "$match",
+        "$addFields", "$unwind", "$match", "$facet");
+    assertThat(pipeline.getJsonObject(2).getJsonObject("$project").fieldNames())
+        .containsExactlyInAnyOrder("transactions.messages", "transactions.label", "transactions._creationTs");
+    final var transactionsFilter = pipeline.getJsonObject(3).getJsonObject("$addFields").getJsonObject("transactions")
+        .getJsonObject("$filter");
+    assertThat(transactionsFilter.getString("input")).isEqualTo("$transactions");
+    assertThat(transactionsFilter.getJsonObject("cond").getJsonArray("$and")).hasSize(2);
+    final var messagesFilter = pipeline.getJsonObject(6).getJsonObject("$addFields")
+        .getJsonObject("transactions.messages").getJsonObject("$filter");
+    assertThat(messagesFilter.getJsonObject("cond").encode())
+        .contains("\"$regexMatch\":{\"input\":\"$$message.receiverId\",\"regex\":\"^user\",\"options\":\"i\"}");
+    assertThat(pipeline.getJsonObject(8).getJsonObject("$match"))
+        .isEqualTo(new JsonObject().put("transactions.messages.receiverId", query.getValue(
+            "transactions.messages.receiverId")));
+
+  }
+
+  /**
+   * Should sort after unwinding when the order uses a message field.
+   */
+  @Test
+  public void shouldSortAfterUnwindWhenOrderByMessageField() {
+
+    final var order = new JsonObject().put("transactions.messages.label", -1).put("_id", 1);
+    final var pipeline = EmbeddedPagePipeline.forMessages(new JsonObject(), order, 0, 10,
+        TasksRepositoryImpl.SORT_INDEXES);
+    assertThat(pipeline.isSortedBeforeUnwind()).isFalse();
+    assertThat(pipeline.needsDiskUse()).isFalse();
+    final var stages = pipeline.build();
+    assertThat(stagesOf(stages)).containsExactly("$match", "$project", "$unwind", "$unwind", "$facet");
+    assertThat(stages.getJsonObject(1).getJsonObject("$project").fieldNames())
+        .containsExactlyInAnyOrder("transactions.messages", "_id");
+    final var page = stages.getJsonObject(4).getJsonObject("$facet").getJsonArray("messages");
+    assertThat(page.getJsonObject(0).getJsonObject("$sort")).isEqualTo(order);
+
+  }
+
+  /**
+   * Should need the disk when the sorted page is too far.
+   */
+  @Test
+  public void shouldNeedDiskUseWhenPageIsFar() {
+
+    final var order = new JsonObject().put("transactions.messages.label", 1);
+    assertThat(EmbeddedPagePipeline.forMessages(null, order, EmbeddedPagePipeline.MAX_IN_MEMORY_SORT, 10,
+        TasksRepositoryImpl.SORT_INDEXES).needsDiskUse()).isTrue();
+
+  }
+
+  /**
+   * Should need the disk when the tasks are sorted without an index.
+   */
+  @Test
+  public void shouldNeedDiskUseWhenSortWithoutIndex() {
+
+    final var order = new JsonObject().put("goal.name", 1);
+    final var pipeline = EmbeddedPagePipeline.forMessages(null, order, 0, 10, TasksRepositoryImpl.SORT_INDEXES);
+    assertThat(pipeline.isSortedBeforeUnwind()).isTrue();
+    assertThat(pipeline.needsDiskUse()).isTrue();
+    final var reverse = new JsonObject().put("_creationTs", -1).put("_id", -1);
+    assertThat(EmbeddedPagePipeline.forMessages(null, reverse, 0, 10, TasksRepositoryImpl.SORT_INDEXES).needsDiskUse())
+        .isFalse();
+    final var mixed = new JsonObject().put("_creationTs", -1).put("_id", 1);
+    assertThat(EmbeddedPagePipeline.forMessages(null, mixed, 0, 10, TasksRepositoryImpl.SORT_INDEXES).needsDiskUse())
+        .isTrue();
+    assertThat(EmbeddedPagePipeline.forMessages(null, null, 0, 10, TasksRepositoryImpl.SORT_INDEXES).needsDiskUse())
+        .isFalse();
+
+  }
+
+  /**
+   * Should not filter the transactions when their index is used to sort the messages of different tasks.
+   */
+  @Test
+  public void shouldNotFilterWhenIndexOrderBetweenTasks() {
+
+    final var query = new JsonObject().put("transactions.label", "label").put("transactions.messages.label", "l");
+    final var order = new JsonObject().put(EmbeddedPagePipeline.TRANSACTIONS_INDEX, 1)
+        .put(EmbeddedPagePipeline.MESSAGES_INDEX, 1).put("_id", 1);
+    final var pipeline = EmbeddedPagePipeline.forMessages(query, order, 0, 10, TasksRepositoryImpl.SORT_INDEXES);
+    assertThat(pipeline.isSortedBeforeUnwind()).isFalse();
+    assertThat(stagesOf(pipeline.build())).doesNotContain("$addFields");
+
+  }
+
+  /**
+   * Should not sort before unwind when the indexes are not ascending or not after the task identifier.
+   */
+  @Test
+  public void shouldNotSortBeforeUnwindWithBadIndexSuffix() {
+
+    assertThat(EmbeddedPagePipeline.forMessages(null,
+        new JsonObject().put("_id", 1).put(EmbeddedPagePipeline.TRANSACTIONS_INDEX, -1), 0, 10,
+        TasksRepositoryImpl.SORT_INDEXES).isSortedBeforeUnwind()).isFalse();
+    assertThat(EmbeddedPagePipeline.forMessages(null,
+        new JsonObject().put("appId", 1).put(EmbeddedPagePipeline.TRANSACTIONS_INDEX, 1), 0, 10,
+        TasksRepositoryImpl.SORT_INDEXES).isSortedBeforeUnwind()).isFalse();
+    assertThat(EmbeddedPagePipeline.forMessages(null,
+        new JsonObject().put("_id", 1).put(EmbeddedPagePipeline.MESSAGES_INDEX, 1), 0, 10,
+        TasksRepositoryImpl.SORT_INDEXES).isSortedBeforeUnwind()).isFalse();
+    assertThat(EmbeddedPagePipeline.forMessages(null, new JsonObject().put("_id", 1)
+        .put(EmbeddedPagePipeline.TRANSACTIONS_INDEX, 1).put(EmbeddedPagePipeline.MESSAGES_INDEX, 1).put("appId", 1),
+        0, 10, TasksRepositoryImpl.SORT_INDEXES).isSortedBeforeUnwind()).isFalse();
+
+  }
+
+  /**
+   * Should not project when the query has logical operators.
+   */
+  @Test
+  public void shouldMatchOperatorsAfterUnwind() {
+
+    final var query = new JsonObject().put("$or", new JsonArray().add(new JsonObject().put("appId", "1")));
+    final var stages = EmbeddedPagePipeline.forMessages(query, DEFAULT_ORDER, 0, 10, TasksRepositoryImpl.SORT_INDEXES)
+        .build();
+    assertThat(stagesOf(stages)).containsExactly("$match", "$sort", "$unwind", "$unwind", "$match", "$facet");
+
+  }
+
+  /**
+   * Should convert the conditions to expressions.
+   */
+  @Test
+  public void shouldConvertToExpression() {
+
+    assertThat(EmbeddedPagePipeline.toExpression("$$m.f", "v"))
+        .isEqualTo(new JsonObject().put("$eq", new JsonArray().add("$$m.f").add("v")));
+    assertThat(EmbeddedPagePipeline.toExpression("$$m.f", new JsonObject().put("$gt", 1)))
+        .isEqualTo(new JsonObject().put("$gt", new JsonArray().add("$$m.f").add(1)));
+    assertThat(EmbeddedPagePipeline.toExpression("$$m.f", new JsonObject().put("$regex", "a")).getJsonArray("$and"))
+        .hasSize(2);
+    assertThat(EmbeddedPagePipeline.toExpression("$$m.f", new JsonObject().put("$exists", true))).isNull();
+    assertThat(EmbeddedPagePipeline.toExpression("$$m.f", new JsonObject().put("$gt", new JsonObject()))).isNull();
+    assertThat(EmbeddedPagePipeline.toExpression("$$m.f", new JsonObject().put("$options", "i"))).isNull();
+    assertThat(EmbeddedPagePipeline.toExpression("$$m.f", new JsonArray())).isNull();
+    final var pipeline = EmbeddedPagePipeline.forMessages(null, null, 0, 10, TasksRepositoryImpl.SORT_INDEXES);
+    assertThat(pipeline.createFilter("transactions", "t", new JsonObject().put("transactions.a.b", "v"))).isNull();
+    assertThat(pipeline.createFilter("transactions", "t",
+        new JsonObject().put("transactions.a", new JsonObject().put("$in", new JsonArray())))).isNull();
+
+  }
+
+  /**
+   * Should convert the aggregation result to a page.
+   */
+  @Test
+  public void shouldConvertToPage() {
+
+    final var pipeline = EmbeddedPagePipeline.forMessages(null, null, 3, 10, TasksRepositoryImpl.SORT_INDEXES);
+    assertThat(pipeline.toPage(null)).isEqualTo(new JsonObject().put("offset", 3).put("total", 0L));
+    assertThat(pipeline.toPage(new JsonObject().put("total", new JsonArray()).put("messages", new JsonArray())))
+        .isEqualTo(new JsonObject().put("offset", 3).put("total", 0L));
+    final var messages = new JsonArray().add(new JsonObject().put("label", "l"));
+    assertThat(pipeline.toPage(new JsonObject()
+        .put("total", new JsonArray().add(new JsonObject().put("count", 4L))).put("messages", messages)))
+        .isEqualTo(new JsonObject().put("offset", 3).put("total", 4L).put("messages", messages));
+
+  }
+
+  /**
+   * Should mark the page when the total of any collection reaches the maximum total.
+   */
+  @Test
+  public void shouldMarkCappedTotal() {
+
+    final var pipeline = EmbeddedPagePipeline.forMessages(null, null, 0, 10, TasksRepositoryImpl.SORT_INDEXES)
+        .withMaxTotal(5);
+    final var totals = new JsonArray().add(new JsonObject().put("count", 4L)).add(new JsonObject().put("count", 3L));
+    assertThat(pipeline.toPage(new JsonObject().put("total", totals)))
+        .isEqualTo(new JsonObject().put("offset", 0).put("total", 7L));
+    totals.add(new JsonObject().put("count", 5L));
+    assertThat(pipeline.toPage(new JsonObject().put("total", totals))).isEqualTo(
+        new JsonObject().put("offset", 0).put("total", 12L).put(PageTotals.TOTAL_CAPPED, true));
+
+  }
+
+  /**
+   * Should build the pipeline to obtain the transactions.
+   */
+  @Test
+  public void shouldBuildTransactionsPipeline() {
+
+    final var query = new JsonObject().put("appId", "1").put("transactions.label", "label")
+        .put("transactions.messages.receiverId", "receiver");
+    final var order = new JsonObject().put("_creationTs", 1).put("_id", 1).put(EmbeddedPagePipeline.TRANSACTIONS_INDEX,
+        1);
+    final var pipeline = EmbeddedPagePipeline.forTransactions(query, order, 0, 10, TasksRepositoryImpl.SORT_INDEXES);
+    assertThat(pipeline.isSortedBeforeUnwind()).isTrue();
+    assertThat(pipeline.getModels()).isEqualTo("transactions");
+    final var stages = pipeline.build();
+    assertThat(stagesOf(stages)).containsExactly("$match", "$sort", "$project", "$addFields", "$unwind", "$match",
+        "$facet");
+    assertThat(stages.getJsonObject(2).getJsonObject("$project")).isEqualTo(new JsonObject().put("transactions", 1));
+    assertThat(stages.getJsonObject(5).getJsonObject("$match")).isEqualTo(new JsonObject()
+        .put("transactions.label", "label").put("transactions.messages.receiverId", "receiver"));
+    final var facet = stages.getJsonObject(6).getJsonObject("$facet");
+    assertThat(facet.fieldNames()).containsExactlyInAnyOrder("total", "transactions");
+    assertThat(facet.getJsonArray("transactions").getJsonObject(2))
+        .isEqualTo(new JsonObject().put("$replaceRoot", new JsonObject().put("newRoot", "$transactions")));
+    assertThat(EmbeddedPagePipeline.forTransactions(null,
+        new JsonObject().put("_id", 1).put(EmbeddedPagePipeline.TRANSACTIONS_INDEX, 1)
+            .put(EmbeddedPagePipeline.MESSAGES_INDEX, 1),
+        0, 10, TasksRepositoryImpl.SORT_INDEXES).isSortedBeforeUnwind()).isFalse();
+
+  }
+
+  /**
+   * Should build the pipeline that counts until a maximum.
+   */
+  @Test
+  public void shouldBuildWithMaxTotal() {
+
+    final var stages = EmbeddedPagePipeline.forMessages(null, DEFAULT_ORDER, 0, 10, TasksRepositoryImpl.SORT_INDEXES)
+        .withMaxTotal(100).build();
+    final var total = stages.getJsonObject(stages.size() - 1).getJsonObject("$facet").getJsonArray("total");
+    assertThat(total).isEqualTo(new JsonArray().add(new JsonObject().put("$limit", 100))
+        .add(new JsonObject().put("$count", "count")));
+
+  }
+
+  /**
+   * Should build the pipeline that does not count the total.
+   */
+  @Test
+  public void shouldBuildWithoutTotal() {
+
+    final var pipeline = EmbeddedPagePipeline.forMessages(null, DEFAULT_ORDER, 5, 2, TasksRepositoryImpl.SORT_INDEXES)
+        .withoutTotal();
+    final var stages = pipeline.build();
+    assertThat(stagesOf(stages)).containsExactly("$match", "$sort", "$project", "$unwind", "$unwind", "$skip",
+        "$limit", "$replaceRoot", "$group");
+    assertThat(stages.getJsonObject(6)).isEqualTo(new JsonObject().put("$limit", 3));
+    assertThat(stages.getJsonObject(8)).isEqualTo(new JsonObject().put("$group",
+        new JsonObject().putNull("_id").put("messages", new JsonObject().put("$push", "$$ROOT"))));
+
+    final var messages = new JsonArray().add(new JsonObject().put("label", "1"))
+        .add(new JsonObject().put("label", "2"));
+    assertThat(pipeline.toPage(new JsonObject().put("messages", messages.copy().add(new JsonObject()))))
+        .isEqualTo(new JsonObject().put("offset", 5).put("total", 8L).put("messages", messages));
+    assertThat(pipeline.toPage(null)).isEqualTo(new JsonObject().put("offset", 5).put("total", 5L));
+
+  }
+
+  /**
+   * Should obtain the models from the start of the page to merge them from some collections.
+   */
+  @Test
+  public void shouldObtainModelsFromStart() {
+
+    final var order = new JsonObject().put("transactions._creationTs", -1).put("transactions.messages.label", 1)
+        .put("transactions.id", 1);
+    final var pipeline = EmbeddedPagePipeline.forTransactions(null, order, 20, 10, TasksRepositoryImpl.SORT_INDEXES)
+        .withMaxTotal(100);
+    final var fromStart = pipeline.fromStart();
+    assertThat(fromStart.offset).isEqualTo(0);
+    assertThat(fromStart.limit).isEqualTo(30);
+    assertThat(fromStart.maxTotal).isEqualTo(100);
+    assertThat(fromStart.isCountingTotal()).isTrue();
+    assertThat(pipeline.withoutTotal().fromStart().isCountingTotal()).isFalse();
+    assertThat(pipeline.getModelsOrder()).isEqualTo(new JsonObject().put("_creationTs", -1));
+    assertThat(EmbeddedPagePipeline.forMessages(null, new JsonObject().put("transactions.messages.label", 1)
+        .put("_creationTs", 1).put("transactions.messages.receiverId", 1), 0, 10, TasksRepositoryImpl.SORT_INDEXES)
+        .getModelsOrder()).isEqualTo(new JsonObject().put("label", 1));
+    assertThat(EmbeddedPagePipeline.forMessages(null, null, 0, 10, TasksRepositoryImpl.SORT_INDEXES).getModelsOrder())
+        .isEmpty();
+
+  }
+
+}
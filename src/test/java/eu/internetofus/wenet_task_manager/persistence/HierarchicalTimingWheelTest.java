@@ -0,0 +1,169 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the {@link HierarchicalTimingWheel}.
+ *
+ * @see HierarchicalTimingWheel
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class HierarchicalTimingWheelTest {
+
+  /**
+   * Should expire the timeouts on the lowest level at their time.
+   */
+  @Test
+  public void shouldExpireOnLowestLevel() {
+
+    final var wheel = new HierarchicalTimingWheel<String>(1, 8, 100);
+    assertThat(wheel.getCurrentTime()).isEqualTo(100L);
+    wheel.schedule("third", 105);
+    wheel.schedule("first", 101);
+    final var cancelled = wheel.schedule("cancelled", 103);
+    wheel.schedule("second", 103);
+    cancelled.cancel();
+    assertThat(cancelled.isCancelled()).isTrue();
+    assertThat(wheel.size()).isEqualTo(4);
+
+    final var expired = new ArrayList<String>();
+    wheel.advance(100, timeout -> expired.add(timeout.getItem()));
+    assertThat(expired).isEmpty();
+    wheel.advance(103, timeout -> expired.add(timeout.getItem()));
+    assertThat(expired).containsExactly("first", "second");
+    wheel.advance(110, timeout -> expired.add(timeout.getItem()));
+    assertThat(expired).containsExactly("first", "second", "third");
+    assertThat(wheel.size()).isEqualTo(0);
+
+  }
+
+  /**
+   * Should expire on the next advance the timeouts that are already reached.
+   */
+  @Test
+  public void shouldExpireReachedTimeoutsOnNextAdvance() {
+
+    final var wheel = new HierarchicalTimingWheel<String>(10, 4, 105);
+    assertThat(wheel.getCurrentTime()).isEqualTo(100L);
+    final var timeout = wheel.schedule("past", 50);
+    wheel.schedule("current", 109);
+    assertThat(timeout.getExpiration()).isEqualTo(50L);
+    final var expired = new ArrayList<String>();
+    wheel.advance(100, reached -> expired.add(reached.getItem()));
+    assertThat(expired).containsExactly("past", "current");
+
+    wheel.advance(1000, reached -> expired.add(reached.getItem()));
+    assertThat(wheel.getCurrentTime()).isEqualTo(1000L);
+
+  }
+
+  /**
+   * Should cascade the timeouts from the highest levels.
+   */
+  @Test
+  public void shouldCascadeFromHighLevels() {
+
+    final var wheel = new HierarchicalTimingWheel<Long>(1, 4, 0);
+    final var times = List.of(3L, 4L, 15L, 16L, 17L, 63L, 64L, 200L, 1000L);
+    for (final var time : times) {
+
+      wheel.schedule(time, time);
+    }
+    wheel.schedule(-1L, 500L).cancel();
+    assertThat(wheel.levels.size()).isGreaterThan(3);
+
+    final var expired = new HashMap<Long, Long>();
+    for (var now = 0L; now <= 1000L; now++) {
+
+      final var current = now;
+      wheel.advance(now, timeout -> expired.put(timeout.getItem(), current));
+    }
+    assertThat(expired).hasSize(times.size());
+    for (final var time : times) {
+
+      assertThat(expired.get(time)).isEqualTo(time);
+    }
+    assertThat(wheel.size()).isEqualTo(0);
+
+  }
+
+  /**
+   * Should expire a big number of random timeouts in order.
+   */
+  @Test
+  public void shouldExpireRandomTimeoutsInOrder() {
+
+    final var random = new Random(0);
+    final var wheel = new HierarchicalTimingWheel<Long>(1, 16, 1000);
+    final var times = new ArrayList<Long>();
+    for (var i = 0; i < 10000; i++) {
+
+      final var time = 1000L + random.nextInt(100000);
+      times.add(time);
+      wheel.schedule(time, time);
+    }
+    final var expired = new ArrayList<Long>();
+    for (var now = 1000L; now <= 101000L; now += 1 + random.nextInt(7)) {
+
+      final var current = now;
+      wheel.advance(now, timeout -> {
+
+        assertThat(timeout.getExpiration()).isLessThanOrEqualTo(current);
+        expired.add(timeout.getItem());
+
+      });
+    }
+    wheel.advance(101000L, timeout -> expired.add(timeout.getItem()));
+    times.sort(Long::compare);
+    assertThat(expired).isSorted().isEqualTo(times);
+
+  }
+
+  /**
+   * Should store on the top level the timeouts that are after the time covered by the wheel.
+   */
+  @Test
+  public void shouldStoreFarTimeoutsOnTopLevel() {
+
+    final var wheel = new HierarchicalTimingWheel<String>(1, 2, 0);
+    wheel.schedule("far", Long.MAX_VALUE / 2);
+    assertThat(wheel.levels).hasSize(HierarchicalTimingWheel.MAX_LEVELS);
+    final var expired = new ArrayList<String>();
+    wheel.advance(1 << 10, timeout -> expired.add(timeout.getItem()));
+    assertThat(expired).isEmpty();
+    assertThat(wheel.size()).isEqualTo(1);
+
+    final var big = new HierarchicalTimingWheel<String>(Long.MAX_VALUE, 1 << 20, 0);
+    big.schedule("overflow", Long.MAX_VALUE - 1);
+    assertThat(big.levels).hasSize(1);
+
+  }
+
+}
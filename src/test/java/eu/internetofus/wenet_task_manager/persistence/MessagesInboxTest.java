@@ -0,0 +1,637 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.MongoClientBulkWriteResult;
+import io.vertx.ext.mongo.MongoClientDeleteResult;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Test the {@link MessagesInbox}.
+ *
+ * @see MessagesInbox
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(MockitoExtension.class)
+public class MessagesInboxTest {
+
+  /**
+   * Stream that emits its documents when its handler is defined, and ends when the documents are emitted and its end
+   * handler is defined, independently of the order that the handlers are defined.
+   */
+  static class DocumentsStream implements ReadStream<JsonObject> {
+
+    /**
+     * The documents to emit.
+     */
+    List<JsonObject> documents;
+
+    /**
+     * The handler of the documents.
+     */
+    Handler<JsonObject> handler;
+
+    /**
+     * The handler of the end of the stream.
+     */
+    Handler<Void> endHandler;
+
+    /**
+     * Create the stream.
+     *
+     * @param documents to emit.
+     */
+    DocumentsStream(final List<JsonObject> documents) {
+
+      this.documents = documents;
+    }
+
+    /**
+     * This is {@code true} if the documents have been emitted.
+     */
+    boolean emitted;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ReadStream<JsonObject> exceptionHandler(final Handler<Throwable> handler) {
+
+      return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ReadStream<JsonObject> handler(final Handler<JsonObject> handler) {
+
+      this.handler = handler;
+      if (handler != null && !this.emitted) {
+
+        this.emitted = true;
+        this.documents.forEach(handler::handle);
+        this.end();
+      }
+      return this;
+    }
+
+    /**
+     * Notify the end of the stream if the documents have been emitted and the end handler is defined.
+     */
+    private void end() {
+
+      if (this.emitted && this.endHandler != null) {
+
+        final var end = this.endHandler;
+        this.endHandler = null;
+        end.handle(null);
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ReadStream<JsonObject> pause() {
+
+      return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ReadStream<JsonObject> resume() {
+
+      return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ReadStream<JsonObject> fetch(final long amount) {
+
+      return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ReadStream<JsonObject> endHandler(final Handler<Void> endHandler) {
+
+      this.endHandler = endHandler;
+      this.end();
+      return this;
+    }
+
+  }
+
+  /**
+   * Create a task with some messages.
+   *
+   * @param transactions number of transactions of the task.
+   * @param messages     number of messages of each transaction.
+   *
+   * @return the task with the messages.
+   */
+  private static JsonObject createTask(final int transactions, final int messages) {
+
+    final var array = new JsonArray();
+    for (var i = 0; i < transactions; i++) {
+
+      final var transaction = new JsonObject().put("id", String.valueOf(i)).put("actioneerId", "actioneer_" + i)
+          .put("_creationTs", 100 + i);
+      final var transactionMessages = new JsonArray();
+      for (var j = 0; j < messages; j++) {
+
+        transactionMessages.add(new JsonObject().put("appId", "app").put("receiverId", "receiver_" + j)
+            .put("label", "label_" + j).put("attributes", new JsonObject().put("j", j)));
+      }
+      array.add(transaction.put("messages", transactionMessages));
+    }
+    return new JsonObject().put("_id", "task").put("transactions", array.addNull().add(new JsonObject()));
+
+  }
+
+  /**
+   * Create an archived task with some messages and compressed transactions.
+   *
+   * @param transactions number of transactions of the task.
+   * @param messages     number of messages of each transaction.
+   *
+   * @return the archived task.
+   */
+  private static JsonObject createArchivedTask(final int transactions, final int messages) {
+
+    final var task = createTask(transactions, messages);
+    task.getJsonArray("transactions").remove(transactions);
+    return TaskArchive.toArchived(task, true);
+
+  }
+
+  /**
+   * Create the inbox over the tasks that are not partitioned.
+   *
+   * @param pool mocked database connections.
+   *
+   * @return the inbox to test.
+   */
+  private static MessagesInbox createInbox(final MongoClient pool) {
+
+    return new MessagesInbox(pool, new TaskPartitions(pool));
+
+  }
+
+  /**
+   * Should create the entries of the messages of a task.
+   */
+  @Test
+  public void shouldCreateEntries() {
+
+    final var task = createTask(2, 3);
+    final var previous = new HashMap<String, List<Long>>();
+    final var first = MessagesInbox.toEntry("task", task.getJsonArray("transactions").getJsonObject(0),
+        task.getJsonArray("transactions").getJsonObject(0).getJsonArray("messages").getJsonObject(0), 0, 0);
+    previous.put(MessagesInbox.keyOf(first), new ArrayList<>(List.of(7L)));
+    final var entries = MessagesInbox.toEntries("task", task, previous);
+    assertThat(entries).hasSize(6);
+    assertThat(entries.get(0).getLong("_creationTs")).isEqualTo(7L);
+    assertThat(entries.get(1).getLong("_creationTs")).isEqualTo(100L);
+    assertThat(entries.get(5).getLong("_creationTs")).isEqualTo(101L);
+    assertThat(entries.get(5).getString("transactionActioneerId")).isEqualTo("actioneer_1");
+    assertThat(entries.get(5).getString("receiverId")).isEqualTo("receiver_2");
+    assertThat(entries.get(5).getString("taskId")).isEqualTo("task");
+    assertThat(entries.get(5).getString("_id")).isEqualTo("task:1:2").isEqualTo(MessagesInbox.idOf("task", "1", 2));
+    assertThat(MessagesInbox.toEntries("task", task, new HashMap<>()).get(0).getString("_id"))
+        .isEqualTo("task:0:0").isEqualTo(entries.get(0).getString("_id"));
+    assertThat(previous.values()).allMatch(List::isEmpty);
+    assertThat(MessagesInbox.toEntries("task", new JsonObject(), new HashMap<>())).isEmpty();
+    assertThat(MessagesInbox.toEntry("task", new JsonObject(), new JsonObject(), 0, 1).fieldNames())
+        .doesNotContain("receiverId", "appId", "label", "attributes");
+
+  }
+
+  /**
+   * Should encode and decode the cursors.
+   */
+  @Test
+  public void shouldEncodeAndDecodeCursor() {
+
+    final var cursor = MessagesInbox.encodeCursor(new JsonObject().put("_creationTs", 10L).put("_id", "id"));
+    assertThat(MessagesInbox.decodeCursor(cursor)).isEqualTo(new JsonArray().add(10L).add("id"));
+    final var query = MessagesInbox.createQuery("receiver", "app", "label", cursor);
+    assertThat(query.getString("receiverId")).isEqualTo("receiver");
+    assertThat(query.getString("appId")).isEqualTo("app");
+    assertThat(query.getString("label")).isEqualTo("label");
+    assertThat(query.getJsonArray("$or")).hasSize(2);
+    assertThat(MessagesInbox.createQuery("receiver", null, null, null))
+        .isEqualTo(new JsonObject().put("receiverId", "receiver"));
+    assertThatThrownBy(() -> MessagesInbox.decodeCursor("undefined")).isInstanceOf(IllegalArgumentException.class);
+    final var badCursor = MessagesInbox.encodeCursor(new JsonObject().put("_id", "id"));
+    assertThatThrownBy(() -> MessagesInbox.decodeCursor(badCursor)).isInstanceOf(IllegalArgumentException.class);
+
+  }
+
+  /**
+   * Should convert the entries to a page.
+   */
+  @Test
+  public void shouldConvertToPage() {
+
+    final var entries = MessagesInbox.toEntries("task", createTask(1, 3), new HashMap<>());
+    final var page = MessagesInbox.toPage(entries, 2);
+    assertThat(page.getJsonArray("messages")).hasSize(2);
+    assertThat(page.getJsonArray("messages").getJsonObject(0).fieldNames())
+        .containsExactlyInAnyOrderElementsOf(MessagesInbox.MESSAGE_FIELDS);
+    assertThat(page.getString("next")).isEqualTo(MessagesInbox.encodeCursor(entries.get(1)));
+    assertThat(MessagesInbox.toPage(entries, 3).containsKey("next")).isFalse();
+    assertThat(MessagesInbox.toPage(new ArrayList<>(), 3)).isEqualTo(new JsonObject());
+
+  }
+
+  /**
+   * Mock the marker of the fill of the inbox.
+   *
+   * @param pool    mocked database connections.
+   * @param markers that are returned when the fill is started.
+   */
+  private static void mockFillMarker(final MongoClient pool, final JsonObject... markers) {
+
+    when(pool.createIndexes(eq(MessagesInbox.MESSAGES_COLLECTION), anyList())).thenReturn(Future.succeededFuture());
+    final var futures = new ArrayList<Future<JsonObject>>();
+    for (final var marker : markers) {
+
+      futures.add(Future.succeededFuture(marker));
+    }
+    when(pool.findOneAndUpdateWithOptions(eq(MigrationMarkers.MIGRATIONS_COLLECTION),
+        eq(new JsonObject().put("_id", MessagesInbox.FILL_MIGRATION)), any(), any(), any()))
+        .thenReturn(futures.get(0), futures.subList(1, futures.size()).toArray(new Future[0]));
+
+  }
+
+  /**
+   * Should migrate and fill the inbox with the tasks of all the collections.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldMigrateAndFillInbox(@Mock final MongoClient pool) {
+
+    mockFillMarker(pool, new JsonObject().put(MigrationMarkers.START_TS, 1L));
+    when(pool.findBatchWithOptions(eq(TasksRepositoryImpl.TASKS_COLLECTION), any(JsonObject.class),
+        any(FindOptions.class))).thenReturn(new DocumentsStream(List.of(createTask(1, 2), createTask(0, 0))));
+    final var archived = createArchivedTask(2, 1);
+    when(pool.findBatchWithOptions(eq(TaskArchive.ARCHIVE_COLLECTION), any(JsonObject.class), any(FindOptions.class)))
+        .thenReturn(new DocumentsStream(List.of(archived)));
+    when(pool.removeDocuments(eq(MessagesInbox.MESSAGES_COLLECTION), any(JsonObject.class)))
+        .thenReturn(Future.succeededFuture(new MongoClientDeleteResult()));
+    final var operations = ArgumentCaptor.forClass(List.class);
+    when(pool.bulkWrite(eq(MessagesInbox.MESSAGES_COLLECTION), operations.capture()))
+        .thenReturn(Future.succeededFuture(new MongoClientBulkWriteResult()));
+    when(pool.updateCollection(eq(MigrationMarkers.MIGRATIONS_COLLECTION), any(), any(JsonObject.class)))
+        .thenReturn(Future.succeededFuture());
+    assertThat(createInbox(pool).migrate().succeeded()).isTrue();
+    verify(pool, times(2)).bulkWrite(eq(MessagesInbox.MESSAGES_COLLECTION), anyList());
+    verify(pool, times(2)).removeDocuments(MessagesInbox.MESSAGES_COLLECTION, new JsonObject().put("taskId", "task")
+        .put("_id", new JsonObject().put("$not", new JsonObject().put("$regex", MessagesInbox.ID_SEPARATOR))));
+    final var upsert = (BulkOperation) operations.getAllValues().get(1).get(1);
+    assertThat(upsert.getFilter()).isEqualTo(new JsonObject().put("_id", "task:1:0"));
+    assertThat(upsert.isUpsert()).isTrue();
+    assertThat(upsert.getDocument().getJsonObject("$setOnInsert").getString("receiverId")).isEqualTo("receiver_0");
+    final var query = new JsonObject().put("_id", MessagesInbox.FILL_MIGRATION);
+    verify(pool).updateCollection(MigrationMarkers.MIGRATIONS_COLLECTION, query, new JsonObject().put("$addToSet",
+        new JsonObject().put(MigrationMarkers.STEPS, TasksRepositoryImpl.TASKS_COLLECTION)));
+    verify(pool).updateCollection(MigrationMarkers.MIGRATIONS_COLLECTION, query, new JsonObject().put("$addToSet",
+        new JsonObject().put(MigrationMarkers.STEPS, TaskArchive.ARCHIVE_COLLECTION)));
+    verify(pool, times(3)).updateCollection(eq(MigrationMarkers.MIGRATIONS_COLLECTION), eq(query),
+        any(JsonObject.class));
+
+  }
+
+  /**
+   * Should resume the fill of the inbox from the collections that have not been filled.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldResumeFillInbox(@Mock final MongoClient pool) {
+
+    mockFillMarker(pool, new JsonObject().put(MigrationMarkers.START_TS, 1L).put(MigrationMarkers.STEPS,
+        new JsonArray().add(TasksRepositoryImpl.TASKS_COLLECTION)));
+    when(pool.findBatchWithOptions(eq(TaskArchive.ARCHIVE_COLLECTION), any(JsonObject.class), any(FindOptions.class)))
+        .thenReturn(new DocumentsStream(List.of()));
+    when(pool.updateCollection(eq(MigrationMarkers.MIGRATIONS_COLLECTION), any(), any(JsonObject.class)))
+        .thenReturn(Future.succeededFuture());
+    assertThat(createInbox(pool).migrate().succeeded()).isTrue();
+    verify(pool, never()).findBatchWithOptions(eq(TasksRepositoryImpl.TASKS_COLLECTION), any(), any());
+    verify(pool, times(2)).updateCollection(eq(MigrationMarkers.MIGRATIONS_COLLECTION), any(),
+        any(JsonObject.class));
+
+  }
+
+  /**
+   * Should not fill the inbox when the fill is completed, but do the pending repairs.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldMigrateWithoutFillInbox(@Mock final MongoClient pool) {
+
+    final var removeReceiver = new JsonObject().put("remove", new JsonObject().put("receiverId", "receiver"));
+    final var repairTask = MessagesInbox.repairTask("task");
+    mockFillMarker(pool, new JsonObject().put(MigrationMarkers.START_TS, 1L).put(MigrationMarkers.COMPLETED_TS, 2L)
+        .put(MigrationMarkers.PENDING, new JsonArray().add(removeReceiver).add(repairTask)));
+    when(pool.removeDocuments(MessagesInbox.MESSAGES_COLLECTION, new JsonObject().put("receiverId", "receiver")))
+        .thenReturn(Future.failedFuture("Cannot remove"));
+    when(pool.findOne(eq(TasksRepositoryImpl.TASKS_COLLECTION), eq(new JsonObject().put("_id", "task")), any()))
+        .thenReturn(Future.succeededFuture());
+    when(pool.findOne(eq(TaskArchive.ARCHIVE_COLLECTION), eq(new JsonObject().put("_id", "task")), any()))
+        .thenReturn(Future.succeededFuture());
+    when(pool.removeDocuments(MessagesInbox.MESSAGES_COLLECTION, new JsonObject().put("taskId", "task")))
+        .thenReturn(Future.succeededFuture(new MongoClientDeleteResult()));
+    when(pool.updateCollection(eq(MigrationMarkers.MIGRATIONS_COLLECTION), any(), any(JsonObject.class)))
+        .thenReturn(Future.succeededFuture());
+    assertThat(createInbox(pool).migrate().succeeded()).isTrue();
+    verify(pool, never()).findBatchWithOptions(any(), any(), any());
+    verify(pool).updateCollection(MigrationMarkers.MIGRATIONS_COLLECTION,
+        new JsonObject().put("_id", MessagesInbox.FILL_MIGRATION),
+        new JsonObject().put("$pull", new JsonObject().put(MigrationMarkers.PENDING, repairTask)));
+    verify(pool, times(1)).updateCollection(eq(MigrationMarkers.MIGRATIONS_COLLECTION), any(),
+        any(JsonObject.class));
+
+  }
+
+  /**
+   * Should repair a task synchronizing its entries with the archived task.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldRepairArchivedTask(@Mock final MongoClient pool) {
+
+    final var query = new JsonObject().put("taskId", "task");
+    when(pool.findOne(eq(TasksRepositoryImpl.TASKS_COLLECTION), eq(new JsonObject().put("_id", "task")), any()))
+        .thenReturn(Future.succeededFuture());
+    when(pool.findOne(eq(TaskArchive.ARCHIVE_COLLECTION), eq(new JsonObject().put("_id", "task")), any()))
+        .thenReturn(Future.succeededFuture(createArchivedTask(1, 2)));
+    when(pool.find(MessagesInbox.MESSAGES_COLLECTION, query)).thenReturn(Future.succeededFuture(List.of()));
+    when(pool.removeDocuments(MessagesInbox.MESSAGES_COLLECTION, query))
+        .thenReturn(Future.succeededFuture(new MongoClientDeleteResult()));
+    when(pool.bulkWrite(eq(MessagesInbox.MESSAGES_COLLECTION), anyList()))
+        .thenReturn(Future.succeededFuture(new MongoClientBulkWriteResult()));
+    assertThat(createInbox(pool).repair(MessagesInbox.repairTask("task")).succeeded()).isTrue();
+    verify(pool).bulkWrite(eq(MessagesInbox.MESSAGES_COLLECTION), argThat(operations -> operations.size() == 2));
+
+  }
+
+  /**
+   * Should fail fill when can not insert.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldFailFillWhenCanNotInsert(@Mock final MongoClient pool) {
+
+    when(pool.findBatchWithOptions(eq("tasks"), any(JsonObject.class), any(FindOptions.class)))
+        .thenReturn(new DocumentsStream(List.of(createTask(1, 2))));
+    when(pool.removeDocuments(eq(MessagesInbox.MESSAGES_COLLECTION), any(JsonObject.class)))
+        .thenReturn(Future.succeededFuture(new MongoClientDeleteResult()));
+    when(pool.bulkWrite(eq(MessagesInbox.MESSAGES_COLLECTION), anyList()))
+        .thenReturn(Future.failedFuture("Cannot insert"));
+    assertThat(createInbox(pool).fillFrom("tasks").failed()).isTrue();
+
+  }
+
+  /**
+   * Should insert the messages by bulks.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldAddTaskByBulks(@Mock final MongoClient pool) {
+
+    when(pool.bulkWrite(eq(MessagesInbox.MESSAGES_COLLECTION), anyList()))
+        .thenReturn(Future.succeededFuture(new MongoClientBulkWriteResult()));
+    assertThat(createInbox(pool).addTask("task", createTask(MessagesInbox.BULK_SIZE, 1)).succeeded()).isTrue();
+    verify(pool, times(1)).bulkWrite(eq(MessagesInbox.MESSAGES_COLLECTION), anyList());
+    assertThat(createInbox(pool).addTask("task", createTask(MessagesInbox.BULK_SIZE + 1, 1)).succeeded())
+        .isTrue();
+    verify(pool, times(3)).bulkWrite(eq(MessagesInbox.MESSAGES_COLLECTION), anyList());
+
+  }
+
+  /**
+   * Should add a message and store the repair of the task if the inbox can not be updated.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldAddMessageStoringRepairOnFailure(@Mock final MongoClient pool) {
+
+    final var operations = ArgumentCaptor.forClass(List.class);
+    when(pool.bulkWrite(eq(MessagesInbox.MESSAGES_COLLECTION), operations.capture())).thenReturn(
+        Future.succeededFuture(new MongoClientBulkWriteResult()), Future.failedFuture("Cannot insert"),
+        Future.failedFuture("Cannot insert"));
+    when(pool.updateCollection(eq(MigrationMarkers.MIGRATIONS_COLLECTION), any(), any(JsonObject.class)))
+        .thenReturn(Future.succeededFuture(), Future.failedFuture("Cannot store repair"));
+    final var inbox = createInbox(pool);
+    final var transaction = new JsonObject().put("id", "1").put("messages", new JsonArray().add(new JsonObject()));
+    final var message = new JsonObject().put("receiverId", "receiver");
+    assertThat(inbox.addMessage("task", transaction, message, 1).succeeded()).isTrue();
+    assertThat(((BulkOperation) operations.getValue().get(0)).getFilter())
+        .isEqualTo(new JsonObject().put("_id", "task:1:1"));
+    assertThat(inbox.addMessage("task", transaction, message, 1).succeeded()).isTrue();
+    verify(pool).updateCollection(MigrationMarkers.MIGRATIONS_COLLECTION,
+        new JsonObject().put("_id", MessagesInbox.FILL_MIGRATION), new JsonObject().put("$addToSet",
+            new JsonObject().put(MigrationMarkers.PENDING, MessagesInbox.repairTask("task"))));
+    assertThat(inbox.addMessage("task", transaction, message, 1).succeeded()).isTrue();
+
+  }
+
+  /**
+   * Should not modify the inbox when the messages of the task are the same.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldNotUpdateTaskWhenMessagesNotChanged(@Mock final MongoClient pool) {
+
+    final var task = createTask(2, 2);
+    final var previous = MessagesInbox.toEntries("task", task, new HashMap<>());
+    when(pool.find(MessagesInbox.MESSAGES_COLLECTION, new JsonObject().put("taskId", "task")))
+        .thenReturn(Future.succeededFuture(previous));
+    assertThat(createInbox(pool).updateTask("task", task).succeeded()).isTrue();
+    verify(pool, never()).removeDocuments(any(), any());
+
+  }
+
+  /**
+   * Should replace the inbox entries when the messages of the task change.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldUpdateTaskWhenMessagesChanged(@Mock final MongoClient pool) {
+
+    final var previous = MessagesInbox.toEntries("task", createTask(1, 2), new HashMap<>());
+    final var query = new JsonObject().put("taskId", "task");
+    when(pool.find(MessagesInbox.MESSAGES_COLLECTION, query)).thenReturn(Future.succeededFuture(previous));
+    when(pool.removeDocuments(MessagesInbox.MESSAGES_COLLECTION, query))
+        .thenReturn(Future.succeededFuture(new MongoClientDeleteResult()));
+    when(pool.bulkWrite(eq(MessagesInbox.MESSAGES_COLLECTION), anyList()))
+        .thenReturn(Future.succeededFuture(new MongoClientBulkWriteResult()));
+    assertThat(createInbox(pool).updateTask("task", createTask(2, 2)).succeeded()).isTrue();
+    verify(pool, times(1)).bulkWrite(eq(MessagesInbox.MESSAGES_COLLECTION), anyList());
+
+  }
+
+  /**
+   * Should remove the entries of the inbox.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldRemoveEntries(@Mock final MongoClient pool) {
+
+    when(pool.removeDocuments(eq(MessagesInbox.MESSAGES_COLLECTION), any(JsonObject.class)))
+        .thenReturn(Future.succeededFuture(new MongoClientDeleteResult()));
+    final var inbox = createInbox(pool);
+    assertThat(inbox.removeTasks(new JsonArray().add("task")).succeeded()).isTrue();
+    assertThat(inbox.removeTransactionsBy("actioneer").succeeded()).isTrue();
+    verify(pool).removeDocuments(MessagesInbox.MESSAGES_COLLECTION,
+        new JsonObject().put("taskId", new JsonObject().put("$in", new JsonArray().add("task"))));
+    verify(pool).removeDocuments(MessagesInbox.MESSAGES_COLLECTION,
+        new JsonObject().put("transactionActioneerId", "actioneer"));
+
+  }
+
+  /**
+   * Should synchronize the tasks with entries of a removed receiver, so the messages that follow the removed ones
+   * obtain the identifiers of their new positions.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldSynchronizeTasksOfRemovedReceiver(@Mock final MongoClient pool) {
+
+    final var previous = MessagesInbox.toEntries("task", createTask(1, 3), new HashMap<>());
+    when(pool.findWithOptions(eq(MessagesInbox.MESSAGES_COLLECTION),
+        eq(new JsonObject().put("receiverId", "receiver_0")), any(FindOptions.class)))
+        .thenReturn(Future.succeededFuture(List.of(previous.get(0))));
+    final var task = createTask(1, 3);
+    task.getJsonArray("transactions").getJsonObject(0).getJsonArray("messages").remove(0);
+    when(pool.findOne(eq(TasksRepositoryImpl.TASKS_COLLECTION), eq(new JsonObject().put("_id", "task")), any()))
+        .thenReturn(Future.succeededFuture(task));
+    final var query = new JsonObject().put("taskId", "task");
+    when(pool.find(MessagesInbox.MESSAGES_COLLECTION, query)).thenReturn(Future.succeededFuture(previous));
+    when(pool.removeDocuments(MessagesInbox.MESSAGES_COLLECTION, query))
+        .thenReturn(Future.succeededFuture(new MongoClientDeleteResult()));
+    final var operations = ArgumentCaptor.forClass(List.class);
+    when(pool.bulkWrite(eq(MessagesInbox.MESSAGES_COLLECTION), operations.capture()))
+        .thenReturn(Future.succeededFuture(new MongoClientBulkWriteResult()));
+    assertThat(createInbox(pool).removeReceiver("receiver_0").succeeded()).isTrue();
+    final var written = (List<BulkOperation>) operations.getValue();
+    assertThat(written).hasSize(2);
+    assertThat(written.get(0).getFilter()).isEqualTo(new JsonObject().put("_id", MessagesInbox.idOf("task", "0", 0)));
+    assertThat(written.get(0).getDocument().getJsonObject("$setOnInsert").getString("receiverId"))
+        .isEqualTo("receiver_1");
+    assertThat(written.get(1).getFilter()).isEqualTo(new JsonObject().put("_id", MessagesInbox.idOf("task", "0", 1)));
+
+  }
+
+  /**
+   * Should store the repairs when the entries of the inbox can not be removed.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldStoreRepairsWhenCanNotRemoveEntries(@Mock final MongoClient pool) {
+
+    when(pool.removeDocuments(eq(MessagesInbox.MESSAGES_COLLECTION), any(JsonObject.class)))
+        .thenReturn(Future.failedFuture("Cannot remove"));
+    when(pool.updateCollection(eq(MigrationMarkers.MIGRATIONS_COLLECTION), any(), any(JsonObject.class)))
+        .thenReturn(Future.succeededFuture());
+    final var inbox = createInbox(pool);
+    assertThat(inbox.removeTasks(new JsonArray().add("task1").add("task2")).succeeded()).isTrue();
+    when(pool.findWithOptions(eq(MessagesInbox.MESSAGES_COLLECTION), any(), any(FindOptions.class)))
+        .thenReturn(Future.failedFuture("Cannot find"));
+    assertThat(inbox.removeReceiver("receiver").succeeded()).isTrue();
+    final var query = new JsonObject().put("_id", MessagesInbox.FILL_MIGRATION);
+    verify(pool).updateCollection(MigrationMarkers.MIGRATIONS_COLLECTION, query, new JsonObject().put("$addToSet",
+        new JsonObject().put(MigrationMarkers.PENDING, MessagesInbox.repairTask("task1"))));
+    verify(pool).updateCollection(MigrationMarkers.MIGRATIONS_COLLECTION, query, new JsonObject().put("$addToSet",
+        new JsonObject().put(MigrationMarkers.PENDING, MessagesInbox.repairTask("task2"))));
+    verify(pool).updateCollection(MigrationMarkers.MIGRATIONS_COLLECTION, query, new JsonObject().put("$addToSet",
+        new JsonObject().put(MigrationMarkers.PENDING, MessagesInbox.repairReceiver("receiver"))));
+
+  }
+
+  /**
+   * Should retrieve a page of the inbox.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldRetrievePage(@Mock final MongoClient pool) {
+
+    final var entries = MessagesInbox.toEntries("task", createTask(1, 3), new HashMap<>());
+    when(pool.findWithOptions(eq(MessagesInbox.MESSAGES_COLLECTION), eq(new JsonObject().put("receiverId", "r")),
+        any(FindOptions.class))).thenReturn(Future.succeededFuture(entries));
+    final var inbox = createInbox(pool);
+    final var page = inbox.retrievePage("r", null, null, null, 2);
+    assertThat(page.result().getJsonArray("messages")).hasSize(2);
+    assertThat(page.result().getString("next")).isNotNull();
+    assertThat(inbox.retrievePage("r", null, null, "undefined", 2).failed()).isTrue();
+
+  }
+
+}
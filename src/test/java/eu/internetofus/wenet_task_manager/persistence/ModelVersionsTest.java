@@ -0,0 +1,182 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.MongoClientUpdateResult;
+import javax.ws.rs.core.Response.Status;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Test the {@link ModelVersions}.
+ *
+ * @see ModelVersions
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class ModelVersionsTest {
+
+  /**
+   * Should obtain the version of the stored models.
+   */
+  @Test
+  public void shouldObtainVersion() {
+
+    assertThat(ModelVersions.versionOf(null)).isEqualTo(0L);
+    assertThat(ModelVersions.versionOf(new JsonObject())).isEqualTo(0L);
+    assertThat(ModelVersions.versionOf(new JsonObject().put(ModelVersions.VERSION, 3L))).isEqualTo(3L);
+    final var model = new JsonObject().put("id", "1").put(ModelVersions.VERSION, 3L);
+    assertThat(ModelVersions.withoutVersion(model)).isEqualTo(new JsonObject().put("id", "1"));
+    assertThat(ModelVersions.withoutVersion(null)).isNull();
+
+  }
+
+  /**
+   * Should condition the queries to the expected version.
+   */
+  @Test
+  public void shouldAddExpectedVersionIntoQuery() {
+
+    assertThat(ModelVersions.withExpected(new JsonObject().put("_id", "1"), null))
+        .isEqualTo(new JsonObject().put("_id", "1"));
+    assertThat(ModelVersions.withExpected(new JsonObject().put("_id", "1"), 3L))
+        .isEqualTo(new JsonObject().put("_id", "1").put(ModelVersions.VERSION, 3L));
+    final var unversioned = ModelVersions.withExpected(new JsonObject().put("_id", "1"), 0L);
+    assertThat(unversioned.getJsonObject(ModelVersions.VERSION).getJsonArray("$in")).containsExactly(0L, null);
+    assertThat(ModelVersions.isConditional(unversioned)).isTrue();
+    assertThat(ModelVersions.isConditional(new JsonObject().put("_id", "1"))).isFalse();
+
+  }
+
+  /**
+   * Should increment the version on the updates.
+   */
+  @Test
+  public void shouldIncrementVersion() {
+
+    final var update = new JsonObject().put("$inc", new JsonObject().put("count", 1));
+    final var versioned = ModelVersions.withVersion(update);
+    assertThat(versioned.getJsonObject("$inc"))
+        .isEqualTo(new JsonObject().put("count", 1).put(ModelVersions.VERSION, 1L));
+    assertThat(update.getJsonObject("$inc").containsKey(ModelVersions.VERSION)).isFalse();
+    assertThat(ModelVersions.nextExpression().getJsonArray("$add").getLong(1)).isEqualTo(1L);
+
+  }
+
+  /**
+   * Should detect the failures of the modified models.
+   */
+  @Test
+  public void shouldDetectModified() {
+
+    assertThat(ModelVersions.isModified(ModelVersions.modified())).isTrue();
+    assertThat(ModelVersions.isModified(new Throwable("Not Found document to update"))).isFalse();
+    assertThat(ModelVersions.isModified(null)).isFalse();
+
+  }
+
+  /**
+   * Should fail with precondition failed only when a conditional write does not match a model that exists.
+   */
+  @Test
+  public void shouldFailUnmatched() {
+
+    final var pool = mock(MongoClient.class);
+    when(pool.count(eq("tasks"), eq(new JsonObject().put("_id", "1")))).thenReturn(Future.succeededFuture(1L));
+    when(pool.count(eq("tasks"), eq(new JsonObject().put("_id", "2")))).thenReturn(Future.succeededFuture(0L));
+
+    assertThat(ModelVersions.isModified(ModelVersions.unmatched(pool, "tasks", "1", true).cause())).isTrue();
+    assertThat(ModelVersions.isModified(ModelVersions.unmatched(pool, "tasks", "2", true).cause())).isFalse();
+    assertThat(ModelVersions.isModified(ModelVersions.unmatched(pool, "tasks", "1", false).cause())).isFalse();
+
+  }
+
+  /**
+   * Should apply the changes only if the model has the expected version.
+   */
+  @Test
+  public void shouldUpdateChangesOfExpectedVersion() {
+
+    final var pool = mock(MongoClient.class);
+    final var query = new JsonObject().put("_id", "1").put(ModelVersions.VERSION, 1L);
+    final var changes = new JsonObject().put("$set", new JsonObject().put("name", "name"));
+    when(pool.updateCollection(eq("tasks"), eq(query), eq(ModelVersions.withVersion(changes))))
+        .thenReturn(Future.succeededFuture(new MongoClientUpdateResult(0L, null, 0L)));
+    when(pool.count(eq("tasks"), eq(new JsonObject().put("_id", "1")))).thenReturn(Future.succeededFuture(1L));
+
+    final var updated = ModelVersions.updateChanges(pool, "tasks", query, changes);
+    assertThat(updated.failed()).isTrue();
+    assertThat(((Exception) updated.cause()).getMessage()).isEqualTo(ModelVersions.MODIFIED_MESSAGE);
+    assertThat(ModelVersions.modified().failureCode()).isEqualTo(Status.PRECONDITION_FAILED.getStatusCode());
+
+  }
+
+  /**
+   * Should update the model and increment its version in one call.
+   */
+  @Test
+  public void shouldFindOneAndUpdateWithOneCall() {
+
+    final var pool = mock(MongoClient.class);
+    final var original = new JsonObject().put("_id", "1").put(ModelVersions.VERSION, 1L);
+    when(pool.findOneAndUpdate(eq("tasks"), any(), any())).thenReturn(Future.succeededFuture(original));
+
+    final var query = new JsonObject().put("_id", "1");
+    final var update = new JsonObject().put("$set", new JsonObject().put("closeTs", 2L));
+    final var result = ModelVersions.findOneAndUpdate(pool, "tasks", query, update);
+    assertThat(result.result()).isSameAs(original);
+    final var updateCaptor = ArgumentCaptor.forClass(JsonObject.class);
+    verify(pool).findOneAndUpdate(eq("tasks"), eq(query), updateCaptor.capture());
+    verify(pool, never()).findOne(any(), any(), any());
+    assertThat(updateCaptor.getValue().getJsonObject("$set").getLong("closeTs")).isEqualTo(2L);
+    assertThat(updateCaptor.getValue().getJsonObject("$inc").getLong(ModelVersions.VERSION)).isEqualTo(1L);
+    assertThat(update.containsKey("$inc")).isFalse();
+
+  }
+
+  /**
+   * Should not update a model that is not defined.
+   */
+  @Test
+  public void shouldNotFindOneAndUpdateUndefinedModel() {
+
+    final var pool = mock(MongoClient.class);
+    when(pool.findOneAndUpdate(eq("tasks"), any(), any())).thenReturn(Future.succeededFuture());
+
+    final var result = ModelVersions.findOneAndUpdate(pool, "tasks", new JsonObject().put("_id", "1"),
+        new JsonObject());
+    assertThat(result.succeeded()).isTrue();
+    assertThat(result.result()).isNull();
+
+  }
+
+}
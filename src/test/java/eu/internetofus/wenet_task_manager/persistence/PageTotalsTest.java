@@ -0,0 +1,224 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.CountOptions;
+import io.vertx.ext.mongo.MongoClient;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Test the {@link PageTotals}.
+ *
+ * @see PageTotals
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(MockitoExtension.class)
+public class PageTotalsTest {
+
+  /**
+   * Should obtain the mode of a total.
+   */
+  @Test
+  public void shouldObtainMode() {
+
+    assertThat(PageTotals.modeOf(null)).isEqualTo(PageTotals.EXACT);
+    for (final var mode : PageTotals.MODES) {
+
+      assertThat(PageTotals.modeOf(mode)).isEqualTo(mode);
+    }
+    assertThatThrownBy(() -> PageTotals.modeOf("undefined")).isInstanceOf(IllegalArgumentException.class);
+
+  }
+
+  /**
+   * Should use the configuration or the default values.
+   */
+  @Test
+  public void shouldCreateWithConfiguration() {
+
+    assertThat(new PageTotals(null).getMaxCount()).isEqualTo(PageTotals.DEFAULT_MAX_COUNT);
+    final var totals = new PageTotals(new JsonObject().put("maxCount", 5).put("cacheTimeout", -1));
+    assertThat(totals.getMaxCount()).isEqualTo(5);
+    totals.putCached("key", 3L);
+    assertThat(totals.getCached("key")).isNull();
+
+  }
+
+  /**
+   * Should count all the documents.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldCountExact(@Mock final MongoClient pool) {
+
+    final var query = new JsonObject().put("appId", "1");
+    when(pool.count("tasks", query)).thenReturn(Future.succeededFuture(15L));
+    assertThat(new PageTotals(null).count(pool, "tasks", query, PageTotals.EXACT).result()).isEqualTo(15L);
+
+  }
+
+  /**
+   * Should not count the documents.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldNotCount(@Mock final MongoClient pool) {
+
+    final var result = new PageTotals(null).count(pool, "tasks", null, PageTotals.NONE);
+    assertThat(result.succeeded()).isTrue();
+    assertThat(result.result()).isNull();
+    verifyNoInteractions(pool);
+
+  }
+
+  /**
+   * Should use the collection metadata to estimate the total without query.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldEstimateWithMetadata(@Mock final MongoClient pool) {
+
+    when(pool.runCommand("count", new JsonObject().put("count", "tasks")))
+        .thenReturn(Future.succeededFuture(new JsonObject().put("n", 123L).put("ok", 1)));
+    assertThat(new PageTotals(null).count(pool, "tasks", new JsonObject(), PageTotals.ESTIMATED).result())
+        .isEqualTo(123L);
+
+  }
+
+  /**
+   * Should estimate the total counting until the maximum.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldEstimateUntilMaxCount(@Mock final MongoClient pool) {
+
+    final var query = new JsonObject().put("appId", "1");
+    final var options = ArgumentCaptor.forClass(CountOptions.class);
+    when(pool.countWithOptions(eq("tasks"), eq(query), options.capture())).thenReturn(Future.succeededFuture(7L));
+    final var totals = new PageTotals(new JsonObject().put("maxCount", 7));
+    assertThat(totals.count(pool, "tasks", query, PageTotals.ESTIMATED).result()).isEqualTo(7L);
+    assertThat(options.getValue().getLimit()).isEqualTo(7);
+
+  }
+
+  /**
+   * Should detect the totals that are capped by the maximum count.
+   */
+  @Test
+  public void shouldDetectCappedTotal() {
+
+    final var query = new JsonObject().put("appId", "1");
+    final var totals = new PageTotals(new JsonObject().put("maxCount", 7));
+    assertThat(totals.isCapped(query, PageTotals.ESTIMATED, 7L)).isTrue();
+    assertThat(totals.isCapped(query, PageTotals.ESTIMATED, 6L)).isFalse();
+    assertThat(totals.isCapped(query, PageTotals.ESTIMATED, null)).isFalse();
+    assertThat(totals.isCapped(new JsonObject(), PageTotals.ESTIMATED, 100L)).isFalse();
+    assertThat(totals.isCapped(query, PageTotals.EXACT, 100L)).isFalse();
+    assertThat(PageTotals.markCapped(new JsonObject(), true))
+        .isEqualTo(new JsonObject().put(PageTotals.TOTAL_CAPPED, true));
+    assertThat(PageTotals.markCapped(new JsonObject(), false)).isEqualTo(new JsonObject());
+
+  }
+
+  /**
+   * Should reuse the cached total.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldReuseCachedTotal(@Mock final MongoClient pool) {
+
+    final var query = new JsonObject().put("appId", "1");
+    when(pool.count(eq("tasks"), any())).thenReturn(Future.succeededFuture(4L));
+    final var totals = new PageTotals(null);
+    assertThat(totals.count(pool, "tasks", query, PageTotals.CACHED).result()).isEqualTo(4L);
+    assertThat(totals.count(pool, "tasks", query.copy(), PageTotals.CACHED).result()).isEqualTo(4L);
+    verify(pool, times(1)).count("tasks", query);
+    assertThat(totals.count(pool, "tasks", new JsonObject(), PageTotals.CACHED).result()).isEqualTo(4L);
+    verify(pool, times(2)).count(eq("tasks"), any());
+
+  }
+
+  /**
+   * Should remove the least recently used totals.
+   */
+  @Test
+  public void shouldRemoveLeastRecentlyUsedTotals() {
+
+    final var totals = new PageTotals(null);
+    for (var i = 0; i <= PageTotals.MAX_CACHED_TOTALS; i++) {
+
+      totals.putCached(String.valueOf(i), i);
+      if (i == 1) {
+
+        assertThat(totals.getCached("0")).isEqualTo(0L);
+      }
+    }
+    assertThat(totals.getCached("0")).isEqualTo(0L);
+    assertThat(totals.getCached("1")).isNull();
+    assertThat(PageTotals.keyOf("tasks", "messages", null))
+        .isNotEqualTo(PageTotals.keyOf("tasks", "transactions", null));
+
+  }
+
+  /**
+   * Should create a page.
+   */
+  @Test
+  public void shouldCreatePage() {
+
+    final List<JsonObject> found = new ArrayList<>();
+    assertThat(PageTotals.toPage(3, 2, "tasks", found, null))
+        .isEqualTo(new JsonObject().put("offset", 3).put("total", 3L));
+    found.add(new JsonObject().put("id", "1"));
+    found.add(new JsonObject().put("id", "2"));
+    found.add(new JsonObject().put("id", "3"));
+    assertThat(PageTotals.toPage(3, 2, "tasks", found, null)).isEqualTo(new JsonObject().put("offset", 3)
+        .put("total", 6L).put("tasks", new JsonArray().add(found.get(0)).add(found.get(1))));
+    assertThat(PageTotals.toPage(0, 5, "tasks", found, 100L)).isEqualTo(new JsonObject().put("offset", 0)
+        .put("total", 100L).put("tasks", new JsonArray(found)));
+
+  }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.junit5.VertxExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Test the {@link ReadPreferenceRouter}.
+ *
+ * @see ReadPreferenceRouter
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class ReadPreferenceRouterTest {
+
+  /**
+   * Should read everything from the primary when the read preferences are not configured.
+   *
+   * @param vertx event bus to use.
+   */
+  @Test
+  public void shouldReadFromPrimaryByDefault(final Vertx vertx) {
+
+    final var pool = mock(MongoClient.class);
+    final var reads = ReadPreferenceRouter.create(vertx, pool, null);
+    assertThat(reads.forPrimary()).isSameAs(pool);
+    assertThat(reads.forPages()).isSameAs(pool);
+    reads.markWritten();
+    assertThat(reads.forPages()).isSameAs(pool);
+
+  }
+
+  /**
+   * Should read everything from the primary when the pages are read from the primary.
+   *
+   * @param vertx event bus to use.
+   */
+  @Test
+  public void shouldReadFromPrimaryWhenPagesConfiguredAsPrimary(final Vertx vertx) {
+
+    final var pool = mock(MongoClient.class);
+    final var conf = new JsonObject().put("reads", new JsonObject().put("pages", ReadPreferenceRouter.PRIMARY));
+    final var reads = ReadPreferenceRouter.create(vertx, pool, conf);
+    assertThat(reads.forPages()).isSameAs(pool);
+
+  }
+
+  /**
+   * Should create a pool to read the pages with the configured read preference.
+   *
+   * @param vertx event bus to use.
+   */
+  @Test
+  public void shouldCreatePoolForPages(final Vertx vertx) {
+
+    final var pool = mock(MongoClient.class);
+    final var conf = new JsonObject().put("db_name", "wenetTaskManagerDB").put("host", "localhost")
+        .put("port", 27017).put("reads", new JsonObject().put("pages", "secondaryPreferred"));
+    final var reads = ReadPreferenceRouter.create(vertx, pool, conf);
+    assertThat(reads.forPrimary()).isSameAs(pool);
+    assertThat(reads.forPages()).isNotSameAs(pool).isNotNull();
+    reads.forPages().close();
+
+  }
+
+  /**
+   * Should read the pages from the primary after a write.
+   */
+  @Test
+  public void shouldReadPagesFromPrimaryAfterWrite() {
+
+    final var primary = mock(MongoClient.class);
+    final var pages = mock(MongoClient.class);
+    final var reads = new ReadPreferenceRouter(primary, pages, 60000L);
+    assertThat(reads.forPages()).isSameAs(pages);
+    reads.markWritten();
+    assertThat(reads.forPages()).isSameAs(primary);
+    assertThat(reads.forPrimary()).isSameAs(primary);
+
+  }
+
+  /**
+   * Should read the pages from the secondaries when the time after the write has passed.
+   */
+  @Test
+  public void shouldReadPagesFromSecondaryAfterWriteWindow() {
+
+    final var primary = mock(MongoClient.class);
+    final var pages = mock(MongoClient.class);
+    final var reads = new ReadPreferenceRouter(primary, pages, 0L);
+    reads.markWritten();
+    assertThat(reads.forPages()).isSameAs(pages);
+
+  }
+
+  /**
+   * Should read from the primary only the pages of the application or requester of a written task.
+   */
+  @Test
+  public void shouldReadPagesFromPrimaryOnlyForScopeOfWrittenTask() {
+
+    final var primary = mock(MongoClient.class);
+    final var pages = mock(MongoClient.class);
+    final var reads = new ReadPreferenceRouter(primary, pages, 60000L);
+    reads.markWritten(new JsonObject().put("appId", "app_1").put("requesterId", "requester_1"));
+    assertThat(reads.forPages(new JsonObject().put("appId", "app_1"))).isSameAs(primary);
+    assertThat(reads.forPages(new JsonObject().put("requesterId", "requester_1"))).isSameAs(primary);
+    assertThat(reads.forPages(new JsonObject().put("appId", "app_2"))).isSameAs(pages);
+    assertThat(reads.forPages(new JsonObject().put("appId", "app_2").put("requesterId", "requester_2")))
+        .isSameAs(pages);
+    assertThat(reads.forPages(new JsonObject().put("goalName", "goal"))).isSameAs(primary);
+    assertThat(reads.forPages()).isSameAs(primary);
+
+  }
+
+  /**
+   * Should read any page from the primary after a write without all the scopes.
+   */
+  @Test
+  public void shouldReadAnyPageFromPrimaryAfterUnscopedWrite() {
+
+    final var primary = mock(MongoClient.class);
+    final var pages = mock(MongoClient.class);
+    final var reads = new ReadPreferenceRouter(primary, pages, 60000L);
+    reads.markWritten(new JsonObject().put("requesterId", "requester_1"));
+    assertThat(reads.forPages(new JsonObject().put("appId", "app_2"))).isSameAs(primary);
+    assertThat(reads.forPages(new JsonObject().put("requesterId", "requester_2"))).isSameAs(primary);
+
+  }
+
+  /**
+   * Should read any page from the primary when too many scopes are written at the same time.
+   */
+  @Test
+  public void shouldReadAnyPageFromPrimaryWhenTooManyScopedWrites() {
+
+    final var primary = mock(MongoClient.class);
+    final var pages = mock(MongoClient.class);
+    final var reads = new ReadPreferenceRouter(primary, pages, 60000L);
+    for (var i = 0; i <= ReadPreferenceRouter.MAX_TRACKED_WRITES; i++) {
+
+      reads.markWritten(new JsonObject().put("appId", "app_" + i).put("requesterId", "requester_" + i));
+    }
+    assertThat(reads.forPages(new JsonObject().put("appId", "undefined"))).isSameAs(primary);
+
+  }
+
+}
@@ -0,0 +1,377 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.MongoClientBulkWriteResult;
+import io.vertx.ext.mongo.MongoClientDeleteResult;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Test the {@link TaskArchive}.
+ *
+ * @see TaskArchive
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class TaskArchiveTest {
+
+  /**
+   * Create a closed task.
+   *
+   * @param id      identifier of the task.
+   * @param closeTs time stamp when the task has been closed.
+   *
+   * @return the closed task.
+   */
+  private static JsonObject createTask(final String id, final long closeTs) {
+
+    return new JsonObject().put("_id", id).put("requesterId", "requester").put("closeTs", closeTs).put("transactions",
+        new JsonArray().add(new JsonObject().put("id", "0").put("actioneerId", "requester"))
+            .add(new JsonObject().put("id", "1").put("actioneerId", "actioneer").put("messages",
+                new JsonArray().add(new JsonObject().put("receiverId", "receiver"))
+                    .add(new JsonObject().put("receiverId", "requester"))))
+            .add(new JsonObject().put("id", "2").put("actioneerId", "requester")));
+
+  }
+
+  /**
+   * Should include the archive only on the queries of the closed tasks.
+   */
+  @Test
+  public void shouldIncludeArchive() {
+
+    assertThat(TaskArchive.includes(null)).isFalse();
+    assertThat(TaskArchive.includes(new JsonObject())).isFalse();
+    assertThat(TaskArchive.includes(new JsonObject().put("closeTs", new JsonObject().put("$exists", false))))
+        .isFalse();
+    assertThat(
+        TaskArchive.includes(new JsonObject().put("closeTs", new JsonObject().put("$exists", false).put("$gte", 10))))
+        .isFalse();
+    assertThat(TaskArchive.includes(new JsonObject().put("closeTs", new JsonObject().put("$gte", 10)))).isTrue();
+    assertThat(TaskArchive.includes(new JsonObject().put("closeTs", new JsonObject().put("$gt", 10)))).isTrue();
+    assertThat(TaskArchive.includes(new JsonObject().put("closeTs", new JsonObject().put("$exists", true))))
+        .isTrue();
+    assertThat(TaskArchive.includes(new JsonObject().put("closeTs", new JsonObject().put("$lte", 10)))).isTrue();
+    assertThat(TaskArchive.includes(new JsonObject().put("closeTs", new JsonObject().put("$lt", 10)))).isTrue();
+    assertThat(TaskArchive.includes(new JsonObject().put("closeTs", 10))).isTrue();
+
+  }
+
+  /**
+   * Should convert a task to the archive and back.
+   */
+  @Test
+  public void shouldConvertArchivedTask() {
+
+    final var task = createTask("1", 10);
+    final var compressed = TaskArchive.toArchived(task, true);
+    assertThat(compressed.containsKey("transactions")).isFalse();
+    assertThat(compressed.getJsonObject(TaskArchive.COMPRESSED_TRANSACTIONS).getBinary("$binary")).isNotEmpty();
+    assertThat(compressed.getJsonArray(TaskArchive.ACTIONEER_IDS))
+        .isEqualTo(new JsonArray().add("requester").add("actioneer"));
+    assertThat(compressed.getJsonArray(TaskArchive.RECEIVER_IDS))
+        .isEqualTo(new JsonArray().add("receiver").add("requester"));
+    assertThat(compressed.getLong(TaskArchive.ARCHIVED_TS)).isNotNull();
+    assertThat(TaskArchive.fromArchived(compressed)).isEqualTo(task);
+
+    final var uncompressed = TaskArchive.toArchived(task, false);
+    assertThat(uncompressed.getJsonArray("transactions")).isEqualTo(task.getJsonArray("transactions"));
+    assertThat(TaskArchive.fromArchived(uncompressed)).isEqualTo(task);
+
+    final var withoutTransactions = new JsonObject().put("_id", "2");
+    assertThat(TaskArchive.fromArchived(TaskArchive.toArchived(withoutTransactions, true)))
+        .isEqualTo(withoutTransactions);
+
+  }
+
+  /**
+   * Should convert a query over the tasks to the query over the archive.
+   */
+  @Test
+  public void shouldCreateArchivedQuery() {
+
+    assertThat(TaskArchive.archivedQuery(null)).isEqualTo(new JsonObject());
+    final var query = new JsonObject().put("requesterId", "requester")
+        .put("closeTs", new JsonObject().put("$gte", 10)).put("transactions.label", "label")
+        .put("transactions.actioneerId", "actioneer").put("transactions.messages.receiverId", "receiver")
+        .put("$or", new JsonArray().add(new JsonObject().put("transactions.id", "1")));
+    assertThat(TaskArchive.archivedQuery(query)).isEqualTo(new JsonObject().put("requesterId", "requester")
+        .put("closeTs", new JsonObject().put("$gte", 10)).put(TaskArchive.ACTIONEER_IDS, "actioneer")
+        .put(TaskArchive.RECEIVER_IDS, new JsonObject().put("$in", new JsonArray().add("receiver").addNull())));
+
+  }
+
+  /**
+   * Should create the stages that replace the archive by the decompressed tasks.
+   */
+  @Test
+  public void shouldCreateUnarchiveStages() {
+
+    final var archived = TaskArchive.toArchived(createTask("1", 10), true);
+    final var stages = TaskArchive.unarchiveStages(List.of(archived));
+    assertThat(stages).hasSize(4);
+    assertThat(stages.getJsonObject(0)).isEqualTo(new JsonObject().put("$limit", 1));
+    assertThat(stages.getJsonObject(1).getJsonObject("$project").getJsonObject("tasks").getJsonArray("$literal"))
+        .isEqualTo(new JsonArray().add(createTask("1", 10)));
+    assertThat(archived.containsKey(TaskArchive.COMPRESSED_TRANSACTIONS)).isTrue();
+
+  }
+
+  /**
+   * Should move the closed tasks to the archive.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldArchiveClosedTasks(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var pool = mock(MongoClient.class);
+    when(pool.createIndexes(any(), anyList())).thenReturn(Future.succeededFuture());
+    final var tasks = new ArrayList<JsonObject>();
+    for (var i = 0; i < 3; i++) {
+
+      tasks.add(createTask(String.valueOf(i), i));
+    }
+    when(pool.findWithOptions(eq(TasksRepositoryImpl.TASKS_COLLECTION), any(), any(FindOptions.class)))
+        .thenAnswer(invocation -> {
+
+          final FindOptions options = invocation.getArgument(2);
+          final var found = new ArrayList<JsonObject>();
+          while (!tasks.isEmpty() && found.size() < options.getLimit()) {
+
+            found.add(tasks.remove(0));
+          }
+          return Future.succeededFuture(found);
+
+        });
+    final var operations = ArgumentCaptor.forClass(List.class);
+    when(pool.bulkWrite(eq(TaskArchive.ARCHIVE_COLLECTION), operations.capture()))
+        .thenReturn(Future.succeededFuture(new MongoClientBulkWriteResult()));
+    final var removed = ArgumentCaptor.forClass(JsonObject.class);
+    when(pool.removeDocuments(eq(TasksRepositoryImpl.TASKS_COLLECTION), removed.capture()))
+        .thenReturn(Future.succeededFuture(new MongoClientDeleteResult()));
+
+    final var archive = new TaskArchive(vertx, pool);
+    archive.start(new JsonObject().put("age", 10).put("batchSize", 2).put("compress", false).put("period", 1000000))
+        .compose(empty -> archive.archiveUntilEmpty(100, 0))
+        .onComplete(testContext.succeeding(archived -> testContext.verify(() -> {
+
+          archive.stop();
+          archive.stop();
+          assertThat(archived).isEqualTo(3);
+          assertThat(archive.age).isEqualTo(10L);
+          assertThat(operations.getAllValues()).hasSize(2);
+          final var first = (List<BulkOperation>) operations.getAllValues().get(0);
+          assertThat(first).hasSize(2);
+          assertThat(first.get(0).getFilter()).isEqualTo(new JsonObject().put("_id", "0"));
+          assertThat(first.get(0).isUpsert()).isTrue();
+          assertThat(TaskArchive.fromArchived(first.get(0).getDocument())).isEqualTo(createTask("0", 0));
+          assertThat(removed.getAllValues().get(1))
+              .isEqualTo(new JsonObject().put("closeTs", new JsonObject().put("$lt", 100L)).put("_id",
+                  new JsonObject().put("$in", new JsonArray().add("2"))));
+          testContext.completeNow();
+
+        })));
+
+  }
+
+  /**
+   * Should not archive twice at the same time.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldNotArchiveTwiceAtTheSameTime(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var pool = mock(MongoClient.class);
+    when(pool.findWithOptions(eq(TasksRepositoryImpl.TASKS_COLLECTION), any(), any(FindOptions.class)))
+        .thenReturn(Future.failedFuture("Unexpected"));
+    final var archive = new TaskArchive(vertx, pool);
+    archive.archiving = true;
+    archive.archiveAll();
+    archive.archiving = false;
+    archive.archiveAll();
+    vertx.setTimer(100, id -> testContext.verify(() -> {
+
+      assertThat(archive.archiving).isFalse();
+      verify(pool).findWithOptions(eq(TasksRepositoryImpl.TASKS_COLLECTION), any(), any(FindOptions.class));
+      testContext.completeNow();
+
+    }));
+
+  }
+
+  /**
+   * Should search and remove archived tasks.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldSearchAndRemoveArchivedTasks(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var pool = mock(MongoClient.class);
+    when(pool.findOne(eq(TaskArchive.ARCHIVE_COLLECTION), any(), isNull())).thenAnswer(invocation -> {
+
+      final JsonObject query = invocation.getArgument(1);
+      final var id = query.getString("_id");
+      return Future.succeededFuture("1".equals(id) ? TaskArchive.toArchived(createTask(id, 10), true) : null);
+
+    });
+    when(pool.removeDocument(eq(TaskArchive.ARCHIVE_COLLECTION), any()))
+        .thenReturn(Future.succeededFuture(new MongoClientDeleteResult(1)));
+    when(pool.findWithOptions(eq(TaskArchive.ARCHIVE_COLLECTION), any(), any(FindOptions.class)))
+        .thenReturn(Future.succeededFuture(List.of(new JsonObject().put("_id", "1"))),
+            Future.succeededFuture(List.of()));
+    when(pool.removeDocuments(eq(TaskArchive.ARCHIVE_COLLECTION), any()))
+        .thenReturn(Future.succeededFuture(new MongoClientDeleteResult(1)));
+    final var archive = new TaskArchive(vertx, pool);
+    archive.findTask("1", null).onComplete(testContext.succeeding(found -> testContext.verify(() -> {
+
+      assertThat(found).isEqualTo(createTask("1", 10));
+      archive.findTask("2", null).onComplete(testContext.succeeding(undefined -> testContext.verify(() -> {
+
+        assertThat(undefined).isNull();
+        archive.removeTask("1").compose(removed -> {
+
+          testContext.verify(() -> assertThat(removed).isTrue());
+          return archive.removeTasksOf("requester");
+
+        }).compose(ids -> {
+
+          testContext.verify(() -> assertThat(ids).isEqualTo(new JsonArray().add("1")));
+          return archive.removeTasksOf("requester");
+
+        }).onComplete(testContext.succeeding(ids -> testContext.verify(() -> {
+
+          assertThat(ids).isEmpty();
+          testContext.completeNow();
+
+        })));
+      })));
+    })));
+
+  }
+
+  /**
+   * Should remove the transactions of an actioneer from the archived tasks.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldRemoveTransactionsBy(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var pool = mock(MongoClient.class);
+    when(pool.find(eq(TaskArchive.ARCHIVE_COLLECTION), any())).thenReturn(
+        Future.succeededFuture(List.of(TaskArchive.toArchived(createTask("1", 10), true),
+            TaskArchive.toArchived(createTask("2", 10), false))),
+        Future.succeededFuture(List.of()));
+    final var operations = ArgumentCaptor.forClass(List.class);
+    when(pool.bulkWrite(eq(TaskArchive.ARCHIVE_COLLECTION), operations.capture()))
+        .thenReturn(Future.succeededFuture(new MongoClientBulkWriteResult()));
+    final var archive = new TaskArchive(vertx, pool);
+    archive.removeTransactionsBy("actioneer").compose(empty -> archive.removeTransactionsBy("actioneer"))
+        .onComplete(testContext.succeeding(empty -> testContext.verify(() -> {
+
+          verify(pool).bulkWrite(eq(TaskArchive.ARCHIVE_COLLECTION), anyList());
+          final var written = (List<BulkOperation>) operations.getValue();
+          assertThat(written).hasSize(2);
+          final var compressed = written.get(0).getDocument();
+          assertThat(compressed.getJsonArray(TaskArchive.ACTIONEER_IDS)).isEqualTo(new JsonArray().add("requester"));
+          assertThat(TaskArchive.fromArchived(compressed).getJsonArray("transactions")).hasSize(2);
+          assertThat(written.get(1).getDocument().getJsonArray("transactions")).hasSize(2);
+          testContext.completeNow();
+
+        })));
+
+  }
+
+  /**
+   * Should remove the messages sent to a receiver from the archived tasks.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldRemoveMessagesTo(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var pool = mock(MongoClient.class);
+    final var legacy = TaskArchive.toArchived(createTask("2", 10), false);
+    legacy.remove(TaskArchive.RECEIVER_IDS);
+    when(pool.find(eq(TaskArchive.ARCHIVE_COLLECTION), any())).thenReturn(
+        Future.succeededFuture(List.of(TaskArchive.toArchived(createTask("1", 10), true), legacy)),
+        Future.succeededFuture(List.of()));
+    final var operations = ArgumentCaptor.forClass(List.class);
+    when(pool.bulkWrite(eq(TaskArchive.ARCHIVE_COLLECTION), operations.capture()))
+        .thenReturn(Future.succeededFuture(new MongoClientBulkWriteResult()));
+    final var archive = new TaskArchive(vertx, pool);
+    archive.removeMessagesTo("receiver").compose(empty -> archive.removeMessagesTo("receiver"))
+        .onComplete(testContext.succeeding(empty -> testContext.verify(() -> {
+
+          verify(pool).bulkWrite(eq(TaskArchive.ARCHIVE_COLLECTION), anyList());
+          final var written = (List<BulkOperation>) operations.getValue();
+          assertThat(written).hasSize(2);
+          final var expectedMessages = new JsonArray().add(new JsonObject().put("receiverId", "requester"));
+          final var compressed = written.get(0).getDocument();
+          assertThat(compressed.getJsonArray(TaskArchive.RECEIVER_IDS)).isEqualTo(new JsonArray().add("requester"));
+          final var transactions = TaskArchive.fromArchived(compressed).getJsonArray("transactions");
+          assertThat(transactions).hasSize(3);
+          assertThat(transactions.getJsonObject(1).getJsonArray("messages")).isEqualTo(expectedMessages);
+          final var rewritten = written.get(1).getDocument();
+          assertThat(rewritten.getJsonArray(TaskArchive.RECEIVER_IDS)).isEqualTo(new JsonArray().add("requester"));
+          assertThat(rewritten.getJsonArray("transactions").getJsonObject(1).getJsonArray("messages"))
+              .isEqualTo(expectedMessages);
+          testContext.completeNow();
+
+        })));
+
+  }
+
+}
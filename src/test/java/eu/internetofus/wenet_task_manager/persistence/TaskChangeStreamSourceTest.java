@@ -0,0 +1,174 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import eu.internetofus.wenet_task_manager.events.TaskEvents;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Test the {@link TaskChangeStreamSource}.
+ *
+ * @see TaskChangeStreamSource
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class TaskChangeStreamSourceTest {
+
+  /**
+   * Create a task with a transaction with a message.
+   *
+   * @return the task.
+   */
+  private static JsonObject createTask() {
+
+    final var messages = new JsonArray().add(new JsonObject().put("receiverId", "receiver"));
+    final var transactions = new JsonArray().add(new JsonObject().put("id", "0"))
+        .add(new JsonObject().put("id", "1").put("messages", messages));
+    return new JsonObject().put("_id", "task").put("appId", "app").put("transactions", transactions);
+
+  }
+
+  /**
+   * Obtain the types of some events.
+   *
+   * @param events to obtain the types.
+   *
+   * @return the types of the events.
+   */
+  private static List<String> typesOf(final List<JsonObject> events) {
+
+    return events.stream().map(event -> event.getString("type")).collect(Collectors.toList());
+
+  }
+
+  /**
+   * Should convert the insert and replace changes.
+   */
+  @Test
+  public void shouldConvertInsertAndReplace() {
+
+    final var task = createTask();
+    final var created = TaskChangeStreamSource.toEvents("insert", task, List.of());
+    assertThat(typesOf(created)).containsExactly(TaskEvents.TASK_CREATED);
+    assertThat(created.get(0).getString("taskId")).isEqualTo("task");
+    assertThat(created.get(0).getString("appId")).isEqualTo("app");
+    assertThat(typesOf(TaskChangeStreamSource.toEvents("replace", task, List.of())))
+        .containsExactly(TaskEvents.TASK_UPDATED);
+    assertThat(TaskChangeStreamSource.toEvents("delete", task, List.of())).isEmpty();
+    assertThat(TaskChangeStreamSource.toEvents("insert", null, List.of())).isEmpty();
+
+  }
+
+  /**
+   * Should convert the update changes.
+   */
+  @Test
+  public void shouldConvertUpdates() {
+
+    final var task = createTask();
+    final var transaction = TaskChangeStreamSource.toEvents("update", task, List.of("transactions.1", "_lastUpdateTs"));
+    assertThat(typesOf(transaction)).containsExactly(TaskEvents.TRANSACTION_ADDED);
+    assertThat(transaction.get(0).getJsonObject("transaction").getString("id")).isEqualTo("1");
+
+    final var message = TaskChangeStreamSource.toEvents("update", task, List.of("transactions.1.messages.0"));
+    assertThat(typesOf(message)).containsExactly(TaskEvents.MESSAGE_ADDED);
+    assertThat(message.get(0).getJsonObject("message").getString("receiverId")).isEqualTo("receiver");
+    assertThat(TaskChangeStreamSource.toEvents("update", task,
+        List.of("transactions.0.messages", "transactions.5.messages", "transactions.1.id"))).isEmpty();
+    assertThat(TaskChangeStreamSource.toEvents("update", new JsonObject().put("_id", "task"),
+        List.of("transactions"))).isEmpty();
+
+    assertThat(typesOf(TaskChangeStreamSource.toEvents("update", task, List.of("closeTs", "goal", "attributes"))))
+        .containsExactly(TaskEvents.TASK_UPDATED);
+    task.put("closeTs", 1L);
+    assertThat(typesOf(TaskChangeStreamSource.toEvents("update", task, List.of("closeTs", "goal"))))
+        .containsExactly(TaskEvents.TASK_CLOSED, TaskEvents.TASK_UPDATED);
+
+  }
+
+  /**
+   * Should publish the events of the watched changes, and watch again when the stream fails.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldPublishWatchedChanges(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var pool = mock(MongoClient.class);
+    final ReadStream<ChangeStreamDocument<JsonObject>> stream = mock(ReadStream.class);
+    doReturn(stream).when(pool).watch(eq(TasksRepositoryImpl.TASKS_COLLECTION), any(), eq(true), anyInt());
+    final var source = new TaskChangeStreamSource(vertx, pool, new TaskEvents(vertx, true), 10);
+    vertx.eventBus().<JsonObject>consumer(TaskEvents.ADDRESS, message -> testContext.verify(() -> {
+
+      assertThat(message.body().getString("type")).isEqualTo(TaskEvents.TRANSACTION_ADDED);
+      testContext.completeNow();
+
+    })).completionHandler(testContext.succeeding(empty -> {
+
+      source.start();
+      final ArgumentCaptor<Handler<ChangeStreamDocument<JsonObject>>> handler = ArgumentCaptor
+          .forClass(Handler.class);
+      verify(stream).handler(handler.capture());
+      final ArgumentCaptor<Handler<Throwable>> exceptionHandler = ArgumentCaptor.forClass(Handler.class);
+      verify(stream).exceptionHandler(exceptionHandler.capture());
+
+      handler.getValue().handle(new ChangeStreamDocument<>(null, null, null, null, null, null, null, null, null, null));
+      final var description = new UpdateDescription(List.of(), new BsonDocument("transactions.1", new BsonInt64(1)));
+      handler.getValue().handle(new ChangeStreamDocument<>(OperationType.UPDATE, null, null, null, createTask(), null,
+          null, description, null, null));
+
+      exceptionHandler.getValue().handle(new Throwable("Not replica set"));
+      verify(pool, times(1)).watch(eq(TasksRepositoryImpl.TASKS_COLLECTION), any(), eq(true), eq(10));
+
+    }));
+
+  }
+
+}
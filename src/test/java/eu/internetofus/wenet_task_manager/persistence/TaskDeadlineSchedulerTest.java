@@ -0,0 +1,266 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import eu.internetofus.common.components.models.TaskTransaction;
+import eu.internetofus.common.model.TimeManager;
+import eu.internetofus.wenet_task_manager.events.TaskEvents;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Test the {@link TaskDeadlineScheduler}.
+ *
+ * @see TaskDeadlineScheduler
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class TaskDeadlineSchedulerTest {
+
+  /**
+   * Create a task with a deadline.
+   *
+   * @param id       identifier of the task.
+   * @param deadline time stamp of the deadline.
+   *
+   * @return the task.
+   */
+  private static JsonObject createTask(final String id, final long deadline) {
+
+    return new JsonObject().put("_id", id).put("appId", "app").put("requesterId", "requester").put("attributes",
+        new JsonObject().put("deadlineTs", deadline));
+
+  }
+
+  /**
+   * Should obtain the minimum deadline of a task.
+   */
+  @Test
+  public void shouldObtainDeadline() {
+
+    final var fields = TaskDeadlineScheduler.DEFAULT_FIELDS;
+    assertThat(TaskDeadlineScheduler.deadlineOf(new JsonObject(), fields)).isNull();
+    assertThat(TaskDeadlineScheduler.deadlineOf(new JsonObject().put("attributes",
+        new JsonObject().put("deadlineTs", "tomorrow")), fields)).isNull();
+    assertThat(TaskDeadlineScheduler.deadlineOf(createTask("task", 10), fields))
+        .isEqualTo(new JsonObject().put("field", "deadlineTs").put("ts", 10L));
+    assertThat(TaskDeadlineScheduler.deadlineOf(new JsonObject().put("attributes",
+        new JsonObject().put("deadlineTs", 20).put("expirationDate", 15.5)), fields))
+        .isEqualTo(new JsonObject().put("field", "expirationDate").put("ts", 15L));
+    assertThat(TaskDeadlineScheduler.deadlineOf(createTask("task", 10), List.of())).isNull();
+
+  }
+
+  /**
+   * Should schedule and cancel the deadlines of the tasks.
+   *
+   * @param vertx event bus to use.
+   */
+  @Test
+  public void shouldScheduleAndCancel(final Vertx vertx) {
+
+    final var scheduler = new TaskDeadlineScheduler(vertx, mock(MongoClient.class), new TaskEvents(vertx, false),
+        mock(TaskStatisticsCounters.class), null);
+    assertThat(scheduler.fields).isEqualTo(TaskDeadlineScheduler.DEFAULT_FIELDS);
+    assertThat(scheduler.close).isFalse();
+    assertThat(scheduler.transactionLabel).isNull();
+    final var now = TimeManager.now();
+    scheduler.schedule("1", createTask("1", now + 100));
+    scheduler.schedule("2", createTask("2", now + 1000000));
+    scheduler.schedule("3", new JsonObject());
+    scheduler.schedule("4", createTask("4", now + 100).put("closeTs", now));
+    assertThat(scheduler.getScheduledCount()).isEqualTo(2);
+
+    scheduler.schedule("1", createTask("1", now + 200));
+    assertThat(scheduler.getScheduledCount()).isEqualTo(2);
+    assertThat(scheduler.wheel.size()).isEqualTo(3);
+    scheduler.schedule("1", createTask("1", now).put("closeTs", now));
+    scheduler.cancel("2");
+    scheduler.cancel("undefined");
+    assertThat(scheduler.getScheduledCount()).isEqualTo(0);
+    scheduler.advance(now + 2000000);
+    assertThat(scheduler.wheel.size()).isEqualTo(0);
+
+  }
+
+  /**
+   * Should load the deadlines of the open tasks when start.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldSeedWhenStart(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var pool = mock(MongoClient.class);
+    when(pool.createIndexes(eq(TasksRepositoryImpl.TASKS_COLLECTION), anyList()))
+        .thenReturn(Future.succeededFuture());
+    final var query = ArgumentCaptor.forClass(JsonObject.class);
+    final var now = TimeManager.now();
+    when(pool.findBatchWithOptions(eq(TasksRepositoryImpl.TASKS_COLLECTION), query.capture(), any(FindOptions.class)))
+        .thenAnswer(invocation -> new MessagesInboxTest.DocumentsStream(
+            List.of(createTask("1", now + 100), createTask("2", now + 200))));
+    final var scheduler = new TaskDeadlineScheduler(vertx, pool, new TaskEvents(vertx, false),
+        mock(TaskStatisticsCounters.class), new JsonObject().put("fields", new JsonArray().add("deadlineTs")));
+    scheduler.start().onComplete(testContext.succeeding(empty -> testContext.verify(() -> {
+
+      assertThat(scheduler.getScheduledCount()).isEqualTo(2);
+      assertThat(scheduler.timer).isNotEqualTo(-1L);
+      assertThat(query.getValue()).isEqualTo(new JsonObject().putNull("closeTs").put("$or", new JsonArray()
+          .add(new JsonObject().put("attributes.deadlineTs", new JsonObject().put("$type", "number")))));
+      scheduler.stop();
+      scheduler.stop();
+      assertThat(scheduler.timer).isEqualTo(-1L);
+
+      final var withoutFields = new TaskDeadlineScheduler(vertx, pool, new TaskEvents(vertx, false),
+          mock(TaskStatisticsCounters.class), new JsonObject().put("fields", new JsonArray()));
+      withoutFields.start().onComplete(testContext.succeeding(started -> {
+
+        withoutFields.stop();
+        testContext.completeNow();
+
+      }));
+    })));
+
+  }
+
+  /**
+   * Should close the expired tasks and notify the interaction protocol engine.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldCloseExpiredTasks(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var pool = mock(MongoClient.class);
+    final var now = TimeManager.now();
+    when(pool.findOneAndUpdate(eq(TasksRepositoryImpl.TASKS_COLLECTION), any(), any())).thenAnswer(invocation -> {
+
+      final JsonObject query = invocation.getArgument(1);
+      return Future.succeededFuture("1".equals(query.getString("_id")) ? createTask("1", now) : null);
+
+    });
+    when(pool.findOne(eq(TasksRepositoryImpl.TASKS_COLLECTION), any(), any())).thenReturn(Future.succeededFuture());
+    final var statistics = mock(TaskStatisticsCounters.class);
+    when(statistics.closeTask(any(), anyLong())).thenReturn(Future.succeededFuture());
+    final var notified = new ArrayList<TaskTransaction>();
+    final var scheduler = new TaskDeadlineScheduler(vertx, pool, new TaskEvents(vertx, true), statistics,
+        new JsonObject().put("close", true).put("transactionLabel", "taskExpired")) {
+
+      @Override
+      protected void notifyEngine(final TaskTransaction transaction) {
+
+        notified.add(transaction);
+      }
+    };
+    final var types = new ArrayList<String>();
+    vertx.eventBus().<JsonObject>consumer(TaskEvents.ADDRESS, event -> {
+
+      types.add(event.body().getString("type"));
+      if (types.size() == 2) {
+
+        testContext.verify(() -> {
+
+          assertThat(types).containsExactly(TaskEvents.TASK_CLOSED, TaskEvents.TASK_EXPIRED);
+          assertThat(event.body().getJsonObject("deadline"))
+              .isEqualTo(new JsonObject().put("field", "deadlineTs").put("ts", now));
+          assertThat(notified).hasSize(1);
+          assertThat(notified.get(0).taskId).isEqualTo("1");
+          assertThat(notified.get(0).label).isEqualTo("taskExpired");
+          assertThat(notified.get(0).actioneerId).isEqualTo("requester");
+          verify(statistics).closeTask(any(), anyLong());
+        });
+        testContext.completeNow();
+      }
+
+    }).completionHandler(testContext.succeeding(empty -> {
+
+      scheduler.schedule("1", createTask("1", now));
+      scheduler.schedule("2", createTask("2", now));
+      scheduler.advance(now);
+
+    }));
+
+  }
+
+  /**
+   * Should only publish the expiration when the tasks are not closed.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldExpireWithoutClose(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var pool = mock(MongoClient.class);
+    final var now = TimeManager.now();
+    when(pool.findOne(eq(TasksRepositoryImpl.TASKS_COLLECTION), any(), isNull())).thenAnswer(invocation -> {
+
+      final JsonObject query = invocation.getArgument(1);
+      return Future.succeededFuture("1".equals(query.getString("_id")) ? createTask("1", now) : null);
+
+    });
+    final var statistics = mock(TaskStatisticsCounters.class);
+    final var scheduler = new TaskDeadlineScheduler(vertx, pool, new TaskEvents(vertx, true), statistics,
+        new JsonObject().put("close", false).put("transactionLabel", " "));
+    assertThat(scheduler.transactionLabel).isNull();
+    vertx.eventBus().<JsonObject>consumer(TaskEvents.ADDRESS, event -> testContext.verify(() -> {
+
+      assertThat(event.body().getString("type")).isEqualTo(TaskEvents.TASK_EXPIRED);
+      assertThat(event.body().getString("taskId")).isEqualTo("1");
+      verify(statistics, never()).closeTask(any(), anyLong());
+      testContext.completeNow();
+
+    })).completionHandler(testContext.succeeding(empty -> {
+
+      scheduler.schedule("2", createTask("2", now - 1));
+      scheduler.schedule("1", createTask("1", now));
+      scheduler.advance(now);
+
+    }));
+
+  }
+
+}
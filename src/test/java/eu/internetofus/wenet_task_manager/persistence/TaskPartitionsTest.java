@@ -0,0 +1,443 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import eu.internetofus.common.model.TimeManager;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.MongoClientDeleteResult;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Test the {@link TaskPartitions}.
+ *
+ * @see TaskPartitions
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class TaskPartitionsTest {
+
+  /**
+   * Create a task.
+   *
+   * @param id      identifier of the task.
+   * @param closeTs time stamp when the task has been closed.
+   *
+   * @return the task.
+   */
+  private static JsonObject createTask(final String id, final long closeTs) {
+
+    return new JsonObject().put("_id", id).put("closeTs", closeTs);
+
+  }
+
+  /**
+   * Create a router with some partitions.
+   *
+   * @param pool       of database connections.
+   * @param partitions names of the partitions.
+   *
+   * @return the router with the partitions.
+   */
+  private static TaskPartitions createPartitions(final MongoClient pool, final String... partitions) {
+
+    final var router = new TaskPartitions(pool);
+    router.enabled = true;
+    router.partitions.addAll(List.of(partitions));
+    return router;
+
+  }
+
+  /**
+   * Should obtain the partition of a time stamp.
+   */
+  @Test
+  public void shouldObtainPartitionOfTime() {
+
+    assertThat(TaskPartitions.partitionOf(0)).isEqualTo("tasks_197001");
+    assertThat(TaskPartitions.partitionOf(1666137600)).isEqualTo("tasks_202210");
+    assertThat(TaskPartitions.partitionOf(1667260799)).isEqualTo("tasks_202210");
+    assertThat(TaskPartitions.partitionOf(1667260800)).isEqualTo("tasks_202211");
+    assertThat(TaskPartitions.startOf("tasks_202210")).isEqualTo(1664582400L);
+    assertThat(TaskPartitions.endOf("tasks_202210")).isEqualTo(1667260800L);
+    assertThat(TaskPartitions.endOf("tasks_202212")).isEqualTo(TaskPartitions.startOf("tasks_202301"));
+    assertThat(TaskPartitions.PARTITION_PATTERN.matcher("tasks_202210").matches()).isTrue();
+    assertThat(TaskPartitions.PARTITION_PATTERN.matcher("tasksArchive").matches()).isFalse();
+
+  }
+
+  /**
+   * Should use only the tasks collection when the partitions are disabled.
+   *
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldUseTasksCollectionWhenDisabled(final VertxTestContext testContext) {
+
+    final var pool = mock(MongoClient.class);
+    final var router = new TaskPartitions(pool);
+    assertThat(router.isEnabled()).isFalse();
+    assertThat(router.collectionsFor(null)).containsExactly(TasksRepositoryImpl.TASKS_COLLECTION);
+    final var task = new JsonObject();
+    router.prepareCollectionFor(task, partition -> Future.failedFuture("Unexpected")).compose(collection -> {
+
+      testContext.verify(() -> {
+
+        assertThat(collection).isEqualTo(TasksRepositoryImpl.TASKS_COLLECTION);
+        assertThat(task.containsKey("_id")).isFalse();
+      });
+      return router.resolve("1");
+
+    }).compose(collection -> {
+
+      testContext.verify(() -> assertThat(collection).isEqualTo(TasksRepositoryImpl.TASKS_COLLECTION));
+      return router.unregister(new JsonArray().add("1"));
+
+    }).compose(empty -> router.start(new JsonObject().put("enabled", false)))
+        .onComplete(testContext.succeeding(empty -> testContext.verify(() -> {
+
+          assertThat(router.isEnabled()).isFalse();
+          verify(pool, never()).getCollections();
+          testContext.completeNow();
+
+        })));
+
+  }
+
+  /**
+   * Should load the partitions when start.
+   *
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldLoadPartitionsWhenStart(final VertxTestContext testContext) {
+
+    final var pool = mock(MongoClient.class);
+    when(pool.getCollections()).thenReturn(Future.succeededFuture(List.of("tasks_202211", "tasks", "tasksArchive",
+        "tasks_202210", TaskPartitions.PARTITIONS_COLLECTION)));
+    final var router = new TaskPartitions(pool);
+    router.start(null).onComplete(testContext.succeeding(empty -> testContext.verify(() -> {
+
+      assertThat(router.isEnabled()).isTrue();
+      assertThat(router.getCollections()).containsExactly(TasksRepositoryImpl.TASKS_COLLECTION, "tasks_202210",
+          "tasks_202211");
+      testContext.completeNow();
+
+    })));
+
+  }
+
+  /**
+   * Should select the partitions that overlap the creation range of a query.
+   */
+  @Test
+  public void shouldSelectPartitionsOfCreationRange() {
+
+    final var router = createPartitions(null, "tasks_202209", "tasks_202210", "tasks_202211");
+    final var october = TaskPartitions.startOf("tasks_202210");
+    final var november = TaskPartitions.startOf("tasks_202211");
+    assertThat(router.collectionsFor(new JsonObject())).containsExactly("tasks", "tasks_202209", "tasks_202210",
+        "tasks_202211");
+    assertThat(router.collectionsFor(new JsonObject().put("_creationTs", october + 100))).containsExactly("tasks",
+        "tasks_202210");
+    assertThat(router.collectionsFor(new JsonObject().put("_creationTs", new JsonObject().put("$gte", october + 100))))
+        .containsExactly("tasks", "tasks_202210", "tasks_202211");
+    assertThat(router.collectionsFor(new JsonObject().put("_creationTs", new JsonObject().put("$gt", october + 100)
+        .put("$lte", november - 1)))).containsExactly("tasks", "tasks_202210");
+    assertThat(router.collectionsFor(new JsonObject().put("_creationTs", new JsonObject().put("$lt", october))))
+        .containsExactly("tasks", "tasks_202209", "tasks_202210");
+    assertThat(router.collectionsFor(new JsonObject().put("_creationTs", new JsonObject().put("$gte", november + 10))))
+        .containsExactly("tasks", "tasks_202210", "tasks_202211");
+    assertThat(router.collectionsFor(new JsonObject().put("_creationTs", new JsonObject().put("$gte", november + 100))))
+        .containsExactly("tasks", "tasks_202211");
+    assertThat(router.collectionsFor(new JsonObject().put("_creationTs", "undefined"))).hasSize(4);
+
+  }
+
+  /**
+   * Should register the partition of the new tasks.
+   *
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldRegisterPartitionOfNewTasks(final VertxTestContext testContext) {
+
+    final var pool = mock(MongoClient.class);
+    final var entries = ArgumentCaptor.forClass(JsonObject.class);
+    when(pool.insert(eq(TaskPartitions.PARTITIONS_COLLECTION), entries.capture()))
+        .thenReturn(Future.succeededFuture(null));
+    when(pool.findOne(eq(TasksRepositoryImpl.TASKS_COLLECTION), any(), any())).thenReturn(Future.succeededFuture());
+    final var router = createPartitions(pool);
+    final var initialized = new ArrayList<String>();
+    final var expected = TaskPartitions.partitionOf(TimeManager.now());
+    final var task = new JsonObject();
+    router.prepareCollectionFor(task, partition -> {
+
+      initialized.add(partition);
+      return Future.succeededFuture();
+
+    }).compose(collection -> {
+
+      testContext.verify(() -> {
+
+        assertThat(collection).isEqualTo(expected);
+        assertThat(task.getString("_id")).hasSize(24);
+        assertThat(entries.getValue())
+            .isEqualTo(new JsonObject().put("_id", task.getString("_id")).put("partition", expected));
+      });
+      return router.prepareCollectionFor(new JsonObject().put("_id", "1"), partition -> Future.failedFuture("Twice"));
+
+    }).compose(collection -> router.resolve("1"))
+        .onComplete(testContext.succeeding(collection -> testContext.verify(() -> {
+
+          assertThat(collection).isEqualTo(expected);
+          assertThat(initialized).containsExactly(expected);
+          assertThat(router.getCollections()).containsExactly(TasksRepositoryImpl.TASKS_COLLECTION, expected);
+          verify(pool, never()).findOne(eq(TaskPartitions.PARTITIONS_COLLECTION), any(), any());
+          verify(pool).findOne(eq(TasksRepositoryImpl.TASKS_COLLECTION), any(), any());
+          testContext.completeNow();
+
+        })));
+
+  }
+
+  /**
+   * Should not register a task with the identifier of a task stored before the partitions.
+   *
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldNotRegisterTaskWithIdentifierOnTasksCollection(final VertxTestContext testContext) {
+
+    final var pool = mock(MongoClient.class);
+    when(pool.findOne(eq(TasksRepositoryImpl.TASKS_COLLECTION), any(), any()))
+        .thenReturn(Future.succeededFuture(new JsonObject().put("_id", "1")));
+    final var router = createPartitions(pool);
+    router.prepareCollectionFor(new JsonObject().put("_id", "1"), partition -> Future.succeededFuture())
+        .onComplete(testContext.failing(cause -> testContext.verify(() -> {
+
+          verify(pool, never()).insert(any(), any());
+          testContext.completeNow();
+
+        })));
+
+  }
+
+  /**
+   * Should remove the partition of a task that can not be stored.
+   *
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldUnregisterPartitionOfNotStoredTask(final VertxTestContext testContext) {
+
+    final var pool = mock(MongoClient.class);
+    when(pool.insert(eq(TaskPartitions.PARTITIONS_COLLECTION), any())).thenReturn(Future.succeededFuture(null));
+    final var removed = ArgumentCaptor.forClass(JsonObject.class);
+    when(pool.removeDocuments(eq(TaskPartitions.PARTITIONS_COLLECTION), removed.capture()))
+        .thenReturn(Future.succeededFuture(new MongoClientDeleteResult(1)));
+    final var router = createPartitions(pool);
+    final var task = new JsonObject();
+    router.store(task, partition -> Future.succeededFuture(), collection -> Future.failedFuture("Cannot store"))
+        .onComplete(testContext.failing(cause -> testContext.verify(() -> {
+
+          assertThat(cause).hasMessage("Cannot store");
+          final var id = task.getString("_id");
+          assertThat(removed.getValue())
+              .isEqualTo(new JsonObject().put("_id", new JsonObject().put("$in", new JsonArray().add(id))));
+          assertThat(router.cache).doesNotContainKey(id);
+          testContext.completeNow();
+
+        })));
+
+  }
+
+  /**
+   * Should store the task on the tasks collection when the partitions are disabled.
+   *
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldStoreOnTasksCollectionWhenDisabled(final VertxTestContext testContext) {
+
+    final var pool = mock(MongoClient.class);
+    final var router = new TaskPartitions(pool);
+    router.store(new JsonObject(), partition -> Future.failedFuture("Unexpected"), Future::succeededFuture)
+        .onComplete(testContext.succeeding(collection -> testContext.verify(() -> {
+
+          assertThat(collection).isEqualTo(TasksRepositoryImpl.TASKS_COLLECTION);
+          verify(pool, never()).insert(any(), any());
+          testContext.completeNow();
+
+        })));
+
+  }
+
+  /**
+   * Should resolve the partition of the tasks.
+   *
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldResolvePartitionOfTasks(final VertxTestContext testContext) {
+
+    final var pool = mock(MongoClient.class);
+    when(pool.findOne(eq(TaskPartitions.PARTITIONS_COLLECTION), any(), isNull())).thenAnswer(invocation -> {
+
+      final JsonObject query = invocation.getArgument(1);
+      final var id = query.getString("_id");
+      return Future.succeededFuture("1".equals(id) ? new JsonObject().put("_id", id).put("partition", "tasks_202210")
+          : null);
+
+    });
+    when(pool.removeDocuments(eq(TaskPartitions.PARTITIONS_COLLECTION), any()))
+        .thenReturn(Future.succeededFuture(new MongoClientDeleteResult(1)));
+    final var router = createPartitions(pool, "tasks_202210");
+    router.cacheSize = 1;
+    router.resolve("1").compose(collection -> {
+
+      testContext.verify(() -> assertThat(collection).isEqualTo("tasks_202210"));
+      return router.resolve("1");
+
+    }).compose(collection -> {
+
+      testContext.verify(() -> assertThat(collection).isEqualTo("tasks_202210"));
+      return router.resolve("2");
+
+    }).compose(collection -> {
+
+      testContext.verify(() -> assertThat(collection).isEqualTo(TasksRepositoryImpl.TASKS_COLLECTION));
+      return router.unregister(new JsonArray().add("1"));
+
+    }).compose(empty -> router.unregister(new JsonArray())).compose(empty -> router.resolve("1"))
+        .onComplete(testContext.succeeding(collection -> testContext.verify(() -> {
+
+          assertThat(collection).isEqualTo("tasks_202210");
+          verify(pool, times(3)).findOne(eq(TaskPartitions.PARTITIONS_COLLECTION), any(), isNull());
+          verify(pool).removeDocuments(eq(TaskPartitions.PARTITIONS_COLLECTION), any());
+          testContext.completeNow();
+
+        })));
+
+  }
+
+  /**
+   * Should do an operation over all the collections.
+   *
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldDoOperationForEachCollection(final VertxTestContext testContext) {
+
+    final var router = createPartitions(null, "tasks_202210", "tasks_202211");
+    final var collections = new ArrayList<String>();
+    router.forEach(collection -> {
+
+      collections.add(collection);
+      return Future.succeededFuture(collection);
+
+    }).onComplete(testContext.succeeding(empty -> testContext.verify(() -> {
+
+      assertThat(collections).containsExactly("tasks", "tasks_202210", "tasks_202211");
+      testContext.completeNow();
+
+    })));
+
+  }
+
+  /**
+   * Should merge the tasks of some collections.
+   */
+  @Test
+  public void shouldMergeTasks() {
+
+    final var order = new JsonObject().put("closeTs", -1).put("attributes.priority", 1);
+    final var tasks = List.of(createTask("4", 40), createTask("2", 20), createTask("1", 10));
+    final var archived = List.of(createTask("3", 30), createTask("2", 20), createTask("0", 0));
+    final var merged = TaskPartitions.merge(order, List.of(tasks, archived), 1, 3);
+    assertThat(merged).extracting(task -> task.getString("_id")).containsExactly("3", "2", "1");
+    assertThat(TaskPartitions.merge(null, List.of(tasks, List.of(), archived), 0, 10))
+        .extracting(task -> task.getString("_id")).containsExactly("4", "2", "1", "3", "0");
+    final var models = List.of(new JsonObject().put("id", "0"), new JsonObject().put("id", "0"));
+    assertThat(TaskPartitions.merge(new JsonObject(), List.of(models), 0, 10)).hasSize(2);
+
+    final var first = new JsonObject().put("name", "a").put("attributes", new JsonObject().put("priority", 1));
+    final var second = new JsonObject().put("name", "b").put("attributes", new JsonObject().put("priority", "1"));
+    assertThat(TaskPartitions.compare(new JsonObject().put("name", 1), first, second)).isNegative();
+    assertThat(TaskPartitions.compare(new JsonObject().put("name", -1), first, second)).isPositive();
+    assertThat(TaskPartitions.compare(new JsonObject().put("attributes.priority", 1), first, second)).isZero();
+    assertThat(TaskPartitions.compare(new JsonObject().put("undefined", 1), first, second)).isZero();
+    assertThat(TaskPartitions.compare(new JsonObject().put("name.undefined", 1), first, second)).isZero();
+    assertThat(TaskPartitions.compare(new JsonObject().put("name", 1), new JsonObject(), second)).isNegative();
+    assertThat(TaskPartitions.compare(new JsonObject().put("name", 1), first, new JsonObject())).isPositive();
+
+  }
+
+  /**
+   * Should create the projection to merge the tasks.
+   */
+  @Test
+  public void shouldCreateKeysProjection() {
+
+    assertThat(TaskPartitions.keysProjection(null, null)).isEqualTo(new JsonObject().put("_id", 1));
+    assertThat(TaskPartitions.keysProjection(new JsonObject().put("goal.name", 1).put("_creationTs", -1), null))
+        .isEqualTo(new JsonObject().put("_id", 1).put("goal.name", 1).put("_creationTs", 1));
+    final var score = TextSearch.scoreProjection();
+    assertThat(TaskPartitions.keysProjection(TextSearch.mergeOrderOf(null), score))
+        .isEqualTo(score.copy().put("_id", 1));
+    assertThat(score).isEqualTo(TextSearch.scoreProjection());
+
+  }
+
+  /**
+   * Should sort the tasks by the order of their identifiers.
+   */
+  @Test
+  public void shouldSortByIds() {
+
+    final var keys = List.of(new JsonObject().put("_id", "2"), new JsonObject().put("_id", "0"),
+        new JsonObject().put("_id", "1"));
+    final var tasks = List.of(createTask("1", 10), createTask("2", 20), createTask("1", 11));
+    assertThat(TaskPartitions.sortByIds(keys, tasks)).containsExactly(createTask("2", 20), createTask("1", 10));
+    assertThat(TaskPartitions.sortByIds(List.of(), tasks)).isEmpty();
+
+  }
+
+}
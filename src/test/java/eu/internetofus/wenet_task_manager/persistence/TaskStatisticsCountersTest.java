@@ -0,0 +1,310 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.BulkWriteOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.MongoClientBulkWriteResult;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Test the {@link TaskStatisticsCounters}.
+ *
+ * @see TaskStatisticsCounters
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(MockitoExtension.class)
+public class TaskStatisticsCountersTest {
+
+  /**
+   * A time stamp of the second day after the epoch.
+   */
+  private static final long TS = TaskStatisticsCounters.SECONDS_OF_DAY + 3600;
+
+  /**
+   * Create a task with some transactions and messages.
+   *
+   * @return the task.
+   */
+  private static JsonObject createTask() {
+
+    final var messages = new JsonArray().add(new JsonObject().put("receiverId", "receiver"))
+        .add(new JsonObject().put("receiverId", "receiver")).addNull();
+    final var transactions = new JsonArray()
+        .add(new JsonObject().put("label", "label").put("_creationTs", TS).put("messages", messages))
+        .add(new JsonObject().put("label", "label").put("_creationTs", TS)).addNull();
+    return new JsonObject().put("id", "task").put("appId", "app").put("taskTypeId", "type").put("_creationTs", TS)
+        .put("closeTs", TS + TaskStatisticsCounters.SECONDS_OF_DAY).put("transactions", transactions);
+
+  }
+
+  /**
+   * Capture the operations of the bulk write over the counters.
+   *
+   * @param pool mocked database connections.
+   *
+   * @return the captor of the operations.
+   */
+  @SuppressWarnings("unchecked")
+  private static ArgumentCaptor<List<BulkOperation>> captureIncrements(final MongoClient pool) {
+
+    final ArgumentCaptor<List<BulkOperation>> operations = ArgumentCaptor.forClass(List.class);
+    when(pool.bulkWriteWithOptions(eq(TaskStatisticsCounters.STATISTICS_COLLECTION), operations.capture(),
+        any(BulkWriteOptions.class))).thenReturn(Future.succeededFuture(new MongoClientBulkWriteResult()));
+    return operations;
+
+  }
+
+  /**
+   * Should obtain the start of the day.
+   */
+  @Test
+  public void shouldObtainDay() {
+
+    assertThat(TaskStatisticsCounters.dayOf(TS)).isEqualTo(TaskStatisticsCounters.SECONDS_OF_DAY);
+    assertThat(TaskStatisticsCounters.dayOf(0)).isEqualTo(0L);
+    assertThat(TaskStatisticsCounters.dayOf(-1)).isEqualTo(-TaskStatisticsCounters.SECONDS_OF_DAY);
+
+  }
+
+  /**
+   * Should count a new task with its transactions and messages.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldAddTask(@Mock final MongoClient pool) {
+
+    final var operations = captureIncrements(pool);
+    assertThat(new TaskStatisticsCounters(pool).addTask(createTask()).succeeded()).isTrue();
+    final var increments = new ArrayList<String>();
+    for (final var operation : operations.getValue()) {
+
+      assertThat(operation.isUpsert()).isTrue();
+      final var filter = operation.getFilter();
+      assertThat(filter.getString("appId")).isEqualTo("app");
+      assertThat(filter.getString("taskTypeId")).isEqualTo("type");
+      increments.add(filter.getString("counter") + ":" + filter.getString("key") + ":" + filter.getLong("day") + ":"
+          + operation.getDocument().getJsonObject("$inc").getInteger("count"));
+    }
+    final var day = TaskStatisticsCounters.SECONDS_OF_DAY;
+    assertThat(increments).containsExactly("created::" + day + ":1", "closed::" + 2 * day + ":1",
+        "transactions:label:" + day + ":2", "messages:receiver:" + day + ":2");
+
+  }
+
+  /**
+   * Should count the transactions, messages and closes.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldCountEvents(@Mock final MongoClient pool) {
+
+    final var operations = captureIncrements(pool);
+    final var counters = new TaskStatisticsCounters(pool);
+    final var task = new JsonObject().put("_id", "task");
+    assertThat(counters.closeTask(task, TS).succeeded()).isTrue();
+    assertThat(operations.getValue().get(0).getFilter()).isEqualTo(new JsonObject().put("appId", "")
+        .put("taskTypeId", "").put("counter", "closed").put("day", TaskStatisticsCounters.SECONDS_OF_DAY)
+        .put("key", ""));
+    assertThat(counters.addTransaction(task, new JsonObject().put("label", "l").put("_creationTs", TS)).succeeded())
+        .isTrue();
+    assertThat(operations.getValue()).hasSize(1);
+    assertThat(operations.getValue().get(0).getFilter().getString("key")).isEqualTo("l");
+    final var transaction = new JsonObject().put("_creationTs", TS + TaskStatisticsCounters.SECONDS_OF_DAY);
+    assertThat(counters.addMessage(task, transaction, new JsonObject().put("receiverId", "r")).succeeded()).isTrue();
+    assertThat(operations.getValue().get(0).getFilter().getString("counter")).isEqualTo("messages");
+    assertThat(operations.getValue().get(0).getFilter().getString("key")).isEqualTo("r");
+    assertThat(operations.getValue().get(0).getFilter().getLong("day"))
+        .isEqualTo(2 * TaskStatisticsCounters.SECONDS_OF_DAY);
+
+  }
+
+  /**
+   * Should not increment when there are no counters.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldNotIncrementWithoutCounters(@Mock final MongoClient pool) {
+
+    assertThat(new TaskStatisticsCounters(pool).increment(List.of()).succeeded()).isTrue();
+    verify(pool, never()).bulkWriteWithOptions(any(), anyList(), any());
+
+  }
+
+  /**
+   * Should not fail when the counters can not be updated.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldNotFailWhenCannotIncrement(@Mock final MongoClient pool) {
+
+    when(pool.bulkWriteWithOptions(any(), anyList(), any())).thenReturn(Future.failedFuture("Cannot write"));
+    assertThat(new TaskStatisticsCounters(pool).addTask(new JsonObject()).succeeded()).isTrue();
+
+  }
+
+  /**
+   * Should fill the counters from the tasks until the fill is completed.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldMigrate(@Mock final MongoClient pool) {
+
+    when(pool.createIndexes(eq(TaskStatisticsCounters.STATISTICS_COLLECTION), anyList()))
+        .thenReturn(Future.succeededFuture());
+    when(pool.findOneAndUpdateWithOptions(eq(MigrationMarkers.MIGRATIONS_COLLECTION),
+        eq(new JsonObject().put("_id", TaskStatisticsCounters.FILL_MIGRATION)), any(), any(), any()))
+        .thenReturn(Future.succeededFuture(new JsonObject().put(MigrationMarkers.START_TS, TS)),
+            Future.succeededFuture(new JsonObject().put(MigrationMarkers.START_TS, TS)),
+            Future.succeededFuture(
+                new JsonObject().put(MigrationMarkers.START_TS, TS).put(MigrationMarkers.COMPLETED_TS, TS)));
+    when(pool.updateCollection(eq(MigrationMarkers.MIGRATIONS_COLLECTION), any(), any(JsonObject.class)))
+        .thenReturn(Future.failedFuture("Cannot complete"), Future.succeededFuture());
+    final var pipelines = ArgumentCaptor.forClass(JsonArray.class);
+    when(pool.aggregate(eq("tasks"), pipelines.capture()))
+        .thenAnswer(invocation -> new MessagesInboxTest.DocumentsStream(List.of()));
+    final var counters = new TaskStatisticsCounters(pool);
+    assertThat(counters.migrate("tasks").failed()).isTrue();
+    verify(pool, times(TaskStatisticsCounters.COUNTERS.size())).aggregate(eq("tasks"), any(JsonArray.class));
+    assertThat(counters.migrate("tasks").succeeded()).isTrue();
+    verify(pool, times(2 * TaskStatisticsCounters.COUNTERS.size())).aggregate(eq("tasks"), any(JsonArray.class));
+    assertThat(pipelines.getValue()).isEqualTo(
+        TaskStatisticsCounters.createFillPipeline(TaskStatisticsCounters.COUNTERS.get(3), TS));
+    assertThat(counters.migrate("tasks").succeeded()).isTrue();
+    verify(pool, times(2 * TaskStatisticsCounters.COUNTERS.size())).aggregate(eq("tasks"), any(JsonArray.class));
+
+  }
+
+  /**
+   * Should create the pipelines to fill the counters.
+   */
+  @Test
+  public void shouldCreateFillPipeline() {
+
+    for (final var counter : TaskStatisticsCounters.COUNTERS) {
+
+      final var pipeline = TaskStatisticsCounters.createFillPipeline(counter, TS);
+      final var merge = pipeline.getJsonObject(pipeline.size() - 1).getJsonObject("$merge");
+      assertThat(merge.getString("into")).isEqualTo(TaskStatisticsCounters.STATISTICS_COLLECTION);
+      assertThat(merge.getJsonArray("on").getList()).isEqualTo(TaskStatisticsCounters.KEY_FIELDS);
+      assertThat(merge.getJsonArray("whenMatched").getJsonObject(0).getJsonObject("$set"))
+          .isEqualTo(new JsonObject().put(TaskStatisticsCounters.FILLED, "$$new." + TaskStatisticsCounters.FILLED));
+      final var group = pipeline.getJsonObject(pipeline.size() - 3).getJsonObject("$group");
+      assertThat(group.getJsonObject("_id").getJsonObject("counter").getString("$literal")).isEqualTo(counter);
+      final var match = pipeline.getJsonObject(pipeline.size() - 4).getJsonObject("$match");
+      assertThat(match).isEqualTo(new JsonObject().put("_ts", new JsonObject().put("$lt", TS)));
+    }
+    assertThat(TaskStatisticsCounters.createFillPipeline(TaskStatisticsCounters.MESSAGES, TS)).hasSize(7);
+    assertThat(TaskStatisticsCounters.createFillPipeline(TaskStatisticsCounters.CREATED, TS)).hasSize(5);
+    final var time = TaskStatisticsCounters.createFillPipeline(TaskStatisticsCounters.TRANSACTIONS, TS).getJsonObject(1)
+        .getJsonObject("$set").getJsonObject("_ts");
+    assertThat(time).isEqualTo(new JsonObject().put("$ifNull", new JsonArray().add("$transactions._creationTs")
+        .add(new JsonObject().put("$ifNull", new JsonArray().add("$_creationTs").add(0L)))));
+
+  }
+
+  /**
+   * Should create the query of the counters.
+   */
+  @Test
+  public void shouldCreateQuery() {
+
+    assertThat(TaskStatisticsCounters.createQuery(null, null, null, null, null, null)).isEqualTo(new JsonObject());
+    assertThat(TaskStatisticsCounters.createQuery("app", "type", "messages", "r", TS, 10L))
+        .isEqualTo(new JsonObject().put("appId", "app").put("taskTypeId", "type").put("counter", "messages")
+            .put("key", "r").put("day", new JsonObject().put("$gte", TaskStatisticsCounters.SECONDS_OF_DAY)
+                .put("$lte", 10L)));
+
+  }
+
+  /**
+   * Should retrieve the counters with the totals of all the counters that match the query.
+   *
+   * @param pool mocked database connections.
+   */
+  @Test
+  public void shouldRetrieve(@Mock final MongoClient pool) {
+
+    final var counters = new JsonArray().add(new JsonObject().put("counter", "created").put("count", 3L));
+    final var totals = new JsonArray().add(new JsonObject().put("_id", "created").put("count", 5L))
+        .add(new JsonObject().put("_id", "messages").put("count", 7L));
+    final var pipelines = ArgumentCaptor.forClass(JsonArray.class);
+    when(pool.aggregate(eq(TaskStatisticsCounters.STATISTICS_COLLECTION), pipelines.capture())).thenReturn(
+        new MessagesInboxTest.DocumentsStream(
+            List.of(new JsonObject().put("counters", counters).put("totals", totals))),
+        new MessagesInboxTest.DocumentsStream(
+            List.of(new JsonObject().put("counters", new JsonArray()).put("totals", new JsonArray()))));
+    final var statistics = new TaskStatisticsCounters(pool);
+    final var retrieved = statistics.retrieve(null, null, null, null, null, null, 1).result();
+    assertThat(pipelines.getValue()).isEqualTo(TaskStatisticsCounters.createRetrievePipeline(new JsonObject(), 1));
+    assertThat(retrieved.getJsonObject("totals")).isEqualTo(new JsonObject().put("created", 5L).put("closed", 0L)
+        .put("transactions", 0L).put("messages", 7L));
+    assertThat(retrieved.getJsonArray("counters")).isEqualTo(counters);
+    final var empty = statistics.retrieve(null, null, null, null, null, null, 10).result();
+    assertThat(empty.containsKey("counters")).isFalse();
+    assertThat(empty.getJsonObject("totals").getLong("created")).isEqualTo(0L);
+
+  }
+
+  /**
+   * Should create the pipeline that retrieves the counters and the totals of all of them.
+   */
+  @Test
+  public void shouldCreateRetrievePipeline() {
+
+    final var query = new JsonObject().put("appId", "app");
+    final var pipeline = TaskStatisticsCounters.createRetrievePipeline(query, 10);
+    assertThat(pipeline.getJsonObject(0)).isEqualTo(new JsonObject().put("$match", query));
+    final var facet = pipeline.getJsonObject(2).getJsonObject("$facet");
+    assertThat(facet.getJsonArray("counters").getJsonObject(1)).isEqualTo(new JsonObject().put("$limit", 10));
+    assertThat(facet.getJsonArray("totals").getJsonObject(0).getJsonObject("$group").getString("_id"))
+        .isEqualTo("$counter");
+    assertThat(TaskStatisticsCounters.createRetrievePipeline(query, 0).getJsonObject(2).getJsonObject("$facet")
+        .getJsonArray("counters")).hasSize(2);
+
+  }
+
+}
@@ -0,0 +1,240 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the {@link TaskTypeKeywordIndex}.
+ *
+ * @see TaskTypeKeywordIndex
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TaskTypeKeywordIndexTest {
+
+  /**
+   * Create a task type.
+   *
+   * @param id       identifier of the task type.
+   * @param name     of the task type.
+   * @param keywords of the task type.
+   *
+   * @return the task type.
+   */
+  private static JsonObject createTaskType(final String id, final String name, final String... keywords) {
+
+    final var values = new JsonArray();
+    for (final var keyword : keywords) {
+
+      values.add(keyword);
+    }
+    return new JsonObject().put("id", id).put("name", name).put("keywords", values);
+
+  }
+
+  /**
+   * Create an index with some task types.
+   *
+   * @return the loaded index.
+   */
+  private static TaskTypeKeywordIndex createIndex() {
+
+    final var index = new TaskTypeKeywordIndex(2);
+    index.load(List.of(createTaskType("1", "Eat", "food", "restaurant"),
+        createTaskType("2", "Ask", "question", "food"), createTaskType("3", "Cook", "foodie", "kitchen"),
+        new JsonObject().put("id", "4").put("name", "Without keywords")));
+    return index;
+
+  }
+
+  /**
+   * Obtain the identifiers of the task types of a page.
+   *
+   * @param page with the task types.
+   *
+   * @return the identifiers of the task types on the page.
+   */
+  private static List<Object> idsOf(final JsonObject page) {
+
+    final var taskTypes = page.getJsonArray("taskTypes", new JsonArray());
+    return taskTypes.stream().map(taskType -> ((JsonObject) taskType).getValue("id")).collect(Collectors.toList());
+
+  }
+
+  /**
+   * Should not answer the queries before loading the task types.
+   */
+  @Test
+  public void shouldNotRetrievePageBeforeLoad() {
+
+    final var index = new TaskTypeKeywordIndex(0);
+    assertThat(index.isLoaded()).isFalse();
+    assertThat(index.retrievePage(new JsonObject(), null, 0, 10)).isNull();
+    index.load(List.of());
+    assertThat(index.isLoaded()).isTrue();
+    assertThat(index.retrievePage(new JsonObject(), null, 0, 10))
+        .isEqualTo(new JsonObject().put("offset", 0).put("total", 0L));
+
+  }
+
+  /**
+   * Should retrieve the task types with an exact keyword.
+   */
+  @Test
+  public void shouldRetrievePageWithKeyword() {
+
+    final var index = createIndex();
+    final var page = index.retrievePage(new JsonObject().put("keywords", "food"), null, 0, 10);
+    assertThat(page.getLong("total")).isEqualTo(2L);
+    assertThat(idsOf(page)).containsExactly("1", "2");
+    assertThat(idsOf(index.retrievePage(null, null, 0, 10))).containsExactly("1", "2", "3", "4");
+    assertThat(idsOf(index.retrievePage(new JsonObject(), null, 1, 2))).containsExactly("2", "3");
+
+  }
+
+  /**
+   * Should retrieve the task types with a keyword that match a regular expression.
+   */
+  @Test
+  public void shouldRetrievePageWithRegex() {
+
+    final var index = createIndex();
+    assertThat(idsOf(index.retrievePage(new JsonObject().put("keywords", new JsonObject().put("$regex", "^foo")), null,
+        0, 10))).containsExactly("1", "2", "3");
+    assertThat(idsOf(index.retrievePage(new JsonObject().put("keywords", new JsonObject().put("$regex", "^foodi")),
+        null, 0, 10))).containsExactly("3");
+    assertThat(idsOf(index.retrievePage(new JsonObject().put("keywords", new JsonObject().put("$regex", "tion")), null,
+        0, 10))).containsExactly("2");
+    assertThat(idsOf(index.retrievePage(
+        new JsonObject().put("keywords", new JsonObject().put("$regex", "^KITCHEN$").put("$options", "i")), null, 0,
+        10))).containsExactly("3");
+    assertThat(idsOf(index.retrievePage(
+        new JsonObject().put("keywords", new JsonObject().put("$elemMatch", new JsonObject().put("$regex", "^rest"))),
+        null, 0, 10))).containsExactly("1");
+
+  }
+
+  /**
+   * Should retrieve the task types with all or any of some keywords.
+   */
+  @Test
+  public void shouldRetrievePageWithAllOrAnyKeywords() {
+
+    final var index = createIndex();
+    assertThat(idsOf(index.retrievePage(
+        new JsonObject().put("keywords", new JsonObject().put("$all", new JsonArray().add("food").add("question"))),
+        null, 0, 10))).containsExactly("2");
+    assertThat(idsOf(index.retrievePage(
+        new JsonObject().put("keywords", new JsonObject().put("$in", new JsonArray().add("kitchen").add("question"))),
+        null, 0, 10))).containsExactly("2", "3");
+    assertThat(idsOf(index.retrievePage(new JsonObject().put("$and",
+        new JsonArray().add(new JsonObject().put("keywords", "food"))
+            .add(new JsonObject().put("keywords", new JsonObject().put("$regex", "^rest")))),
+        null, 0, 10))).containsExactly("1");
+
+  }
+
+  /**
+   * Should sort the task types by name.
+   */
+  @Test
+  public void shouldRetrievePageSortedByName() {
+
+    final var index = createIndex();
+    assertThat(idsOf(index.retrievePage(new JsonObject(), new JsonObject().put("name", 1), 0, 10)))
+        .containsExactly("2", "3", "1", "4");
+    assertThat(idsOf(index.retrievePage(new JsonObject(), new JsonObject().put("name", -1), 0, 10)))
+        .containsExactly("4", "1", "3", "2");
+
+  }
+
+  /**
+   * Should not answer the queries that the index can not resolve.
+   */
+  @Test
+  public void shouldNotRetrievePageForUnsupportedQueries() {
+
+    final var index = createIndex();
+    assertThat(index.retrievePage(new JsonObject().put("name", "Eat"), null, 0, 10)).isNull();
+    assertThat(index.retrievePage(new JsonObject(), new JsonObject().put("keywords", 1), 0, 10)).isNull();
+    assertThat(index.retrievePage(new JsonObject().put("keywords", 1), null, 0, 10)).isNull();
+    assertThat(index.retrievePage(new JsonObject().put("keywords", new JsonObject().put("$regex", "(")), null, 0, 10))
+        .isNull();
+    assertThat(index.retrievePage(
+        new JsonObject().put("keywords", new JsonObject().put("$regex", "food").put("$options", "u")), null, 0, 10))
+        .isNull();
+    assertThat(index.retrievePage(new JsonObject().put("keywords",
+        new JsonObject().put("$all", new JsonArray().add(new JsonObject().put("$regex", "food")))), null, 0, 10))
+        .isNull();
+    assertThat(index.retrievePage(
+        new JsonObject().put("keywords", new JsonObject().put("$in", new JsonArray().add(1))), null, 0, 10)).isNull();
+    assertThat(index.retrievePage(new JsonObject().put("$and", new JsonArray().add("food")), null, 0, 10)).isNull();
+    assertThat(index.retrievePage(new JsonObject().put("$text", new JsonObject().put("$search", "food")), null, 0, 10))
+        .isNull();
+
+  }
+
+  /**
+   * Should maintain the index when the task types are modified or removed.
+   */
+  @Test
+  public void shouldMaintainIndex() {
+
+    final var index = createIndex();
+    index.put(createTaskType("1", "Eat", "drink"));
+    assertThat(idsOf(index.retrievePage(new JsonObject().put("keywords", "food"), null, 0, 10))).containsExactly("2");
+    assertThat(idsOf(index.retrievePage(new JsonObject().put("keywords", "drink"), null, 0, 10)))
+        .containsExactly("1");
+    assertThat(index.keywordsWithPrefix("re")).isEmpty();
+    index.remove("2");
+    index.remove("undefined");
+    assertThat(index.retrievePage(new JsonObject().put("keywords", "food"), null, 0, 10).getLong("total"))
+        .isEqualTo(0L);
+    assertThat(index.keywordsWithPrefix("fo")).containsExactly("foodie");
+    assertThat(index.keywordsWithPrefix("")).containsExactlyInAnyOrder("foodie", "kitchen", "drink");
+    assertThat(idsOf(index.retrievePage(new JsonObject(), null, 0, 10))).containsExactly("1", "3", "4");
+
+  }
+
+  /**
+   * Should obtain the literal prefix of the regular expressions.
+   */
+  @Test
+  public void shouldObtainLiteralPrefix() {
+
+    assertThat(TaskTypeKeywordIndex.literalPrefixOf("food")).isEmpty();
+    assertThat(TaskTypeKeywordIndex.literalPrefixOf("^food")).isEqualTo("food");
+    assertThat(TaskTypeKeywordIndex.literalPrefixOf("^food.*$")).isEqualTo("food");
+    assertThat(TaskTypeKeywordIndex.literalPrefixOf("^foods?")).isEqualTo("food");
+    assertThat(TaskTypeKeywordIndex.literalPrefixOf("^foo+d")).isEqualTo("foo");
+    assertThat(TaskTypeKeywordIndex.literalPrefixOf("^food|drink")).isEmpty();
+    assertThat(TaskTypeKeywordIndex.literalPrefixOf("^\\d")).isEmpty();
+
+  }
+
+}
@@ -22,6 +22,8 @@ package eu.internetofus.wenet_task_manager.persistence;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import eu.internetofus.common.components.StoreServices;
+import eu.internetofus.common.components.models.ProtocolNorm;
 import eu.internetofus.common.components.models.TaskType;
 import eu.internetofus.common.components.models.TaskTypeTest;
 import eu.internetofus.common.vertx.ModelsPageContext;
@@ -358,6 +360,114 @@ public class TaskTypesRepositoryIT {
     });
   }
 
+  /**
+   * Verify that can not update a task type that has been modified since the expected version.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TaskTypesRepository#updateTaskType(TaskType, TaskType, Long)
+   */
+  @Test
+  public void shouldNotUpdateTaskTypeWhenIsModified(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var taskType = new TaskType();
+    taskType.name = "NEW NAME";
+    final var repository = TaskTypesRepository.createProxy(vertx);
+    testContext.assertComplete(repository.storeTaskType(taskType)).onSuccess(stored -> {
+
+      final var first = new TaskType();
+      first.id = stored.id;
+      first.name = "FIRST";
+      final var second = new TaskType();
+      second.id = stored.id;
+      second.name = "SECOND";
+      testContext.assertComplete(repository.updateTaskType(stored, first, 0L)).onSuccess(
+          empty -> repository.updateTaskType(stored, second, 0L).onComplete(update -> {
+
+            testContext.verify(() -> {
+
+              assertThat(update.failed()).isTrue();
+              assertThat(ModelVersions.isModified(update.cause())).isTrue();
+            });
+            testContext.assertComplete(repository.searchTaskTypeObject(stored.id))
+                .onSuccess(found -> testContext.verify(() -> {
+
+                  assertThat(found.getString("name")).isEqualTo("FIRST");
+                  assertThat(ModelVersions.versionOf(found)).isEqualTo(1L);
+                  testContext.completeNow();
+                }));
+          }));
+
+    });
+  }
+
+  /**
+   * Create a norm.
+   *
+   * @param index of the norm.
+   *
+   * @return the norm.
+   */
+  private static ProtocolNorm createNorm(final int index) {
+
+    final var norm = new ProtocolNorm();
+    norm.description = "Norm " + index;
+    norm.whenever = "is_received(_Action," + index + ")";
+    norm.thenceforth = "send_user_message(" + index + ")";
+    return norm;
+
+  }
+
+  /**
+   * Verify that can add, set and remove the norms of a task type.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TaskTypesRepository#addTaskTypeNorm(String, ProtocolNorm)
+   * @see TaskTypesRepository#setTaskTypeNorm(String, int, int, ProtocolNorm)
+   * @see TaskTypesRepository#removeTaskTypeNorm(String, int, int)
+   */
+  @Test
+  public void shouldAddSetAndRemoveTaskTypeNorms(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var taskType = new TaskType();
+    taskType.name = "Task type with norms";
+    final var repository = TaskTypesRepository.createProxy(vertx);
+    testContext.assertComplete(repository.storeTaskType(taskType).compose(stored -> repository
+        .addTaskTypeNorm(stored.id, createNorm(0))
+        .compose(empty -> repository.addTaskTypeNorm(stored.id, createNorm(1)))
+        .compose(empty -> repository.setTaskTypeNorm(stored.id, 0, 2, createNorm(2)))
+        .compose(empty -> repository.removeTaskTypeNorm(stored.id, 1, 2))
+        .compose(empty -> repository.searchTaskType(stored.id)))).onSuccess(found -> testContext.verify(() -> {
+
+          assertThat(found.norms).containsExactly(createNorm(2));
+          testContext.assertFailure(repository.setTaskTypeNorm(found.id, 0, 2, createNorm(3))
+              .recover(error -> repository.removeTaskTypeNorm(found.id, 0, 2))
+              .recover(error -> repository.removeTaskTypeNorm(found.id, 1, 1)))
+              .onFailure(error -> testContext.completeNow());
+
+        }));
+
+  }
+
+  /**
+   * Verify that can not add a norm into an undefined task type.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TaskTypesRepository#addTaskTypeNorm(String, ProtocolNorm)
+   */
+  @Test
+  public void shouldNotAddNormIntoUndefinedTaskType(final Vertx vertx, final VertxTestContext testContext) {
+
+    testContext.assertFailure(TaskTypesRepository.createProxy(vertx).addTaskTypeNorm("undefined", createNorm(0)))
+        .onFailure(error -> testContext.completeNow());
+
+  }
+
   /**
    * Verify that update a defined taskType object.
    *
@@ -634,4 +744,121 @@ public class TaskTypesRepositoryIT {
 
   }
 
+  /**
+   * Check that obtain the version of a stored task type.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TaskTypesRepository#searchTaskTypeVersion(String)
+   */
+  @Test
+  public void shouldSearchTaskTypeVersion(final Vertx vertx, final VertxTestContext testContext) {
+
+    testContext.assertComplete(StoreServices.storeTaskTypeExample(1, vertx, testContext)).onSuccess(stored -> {
+
+      testContext.assertComplete(TaskTypesRepository.createProxy(vertx).searchTaskTypeVersion(stored.id))
+          .onSuccess(version -> testContext.verify(() -> {
+
+            assertThat(ModelVersions.versionOf(version)).isEqualTo(0L);
+            assertThat(version.getLong(ModelVersions.LAST_UPDATE_TS)).isEqualTo(stored._lastUpdateTs);
+            testContext.completeNow();
+
+          }));
+    });
+
+  }
+
+  /**
+   * Check that can not obtain the version of an undefined task type.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TaskTypesRepository#searchTaskTypeVersion(String)
+   */
+  @Test
+  public void shouldNotSearchUndefinedTaskTypeVersion(final Vertx vertx, final VertxTestContext testContext) {
+
+    testContext
+        .assertFailure(TaskTypesRepository.createProxy(vertx).searchTaskTypeVersion("undefined task type identifier"))
+        .onFailure(failed -> testContext.completeNow());
+
+  }
+
+  /**
+   * Verify that can search for the task types that contain a text, ordered by relevance.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TaskTypesRepository#retrieveTaskTypesPage(JsonObject, JsonObject, int, int)
+   */
+  @Test
+  public void shouldSearchTaskTypesWithText(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var word = "word" + UUID.randomUUID().toString().replaceAll("-", "");
+    final var onDescription = new TaskType();
+    onDescription.description = "The description with the " + word;
+    final var onKeywords = new TaskType();
+    onKeywords.keywords = new ArrayList<>();
+    onKeywords.keywords.add(word);
+    final var onName = new TaskType();
+    onName.name = "The name with the " + word;
+    final var repository = TaskTypesRepository.createProxy(vertx);
+    testContext.assertComplete(repository.storeTaskType(onDescription).compose(storedOnDescription -> repository
+        .storeTaskType(onKeywords).compose(storedOnKeywords -> repository.storeTaskType(onName)
+            .compose(storedOnName -> repository.storeTaskType(new TaskType())
+                .compose(stored -> repository.retrieveTaskTypesPage(TextSearch.withText(new JsonObject(), word), null,
+                    0, 10))
+                .onSuccess(page -> testContext.verify(() -> {
+
+                  assertThat(page.total).isEqualTo(3L);
+                  assertThat(page.taskTypes).containsExactly(storedOnName, storedOnKeywords, storedOnDescription);
+                  testContext.completeNow();
+
+                }))))));
+
+  }
+
+  /**
+   * Verify that the pages by keywords follow the changes of the task types.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TaskTypesRepository#retrieveTaskTypesPage(JsonObject, JsonObject, int, int)
+   */
+  @Test
+  public void shouldRetrieveTaskTypesByChangedKeywords(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var previous = UUID.randomUUID().toString();
+    final var next = UUID.randomUUID().toString();
+    final var previousQuery = TaskTypesRepository.createTaskTypesPageQuery(null, null, List.of(previous));
+    final var nextQuery = TaskTypesRepository.createTaskTypesPageQuery(null, null, List.of(next));
+    final var taskType = new TaskType();
+    taskType.keywords = new ArrayList<>(List.of(previous));
+    final var repository = TaskTypesRepository.createProxy(vertx);
+    testContext.assertComplete(repository.storeTaskType(taskType).compose(stored -> {
+
+      stored.keywords = new ArrayList<>(List.of(next));
+      return repository.updateTaskType(stored).compose(empty -> repository.retrieveTaskTypesPage(previousQuery, null,
+          0, 10)).compose(previousPage -> repository.retrieveTaskTypesPage(nextQuery, null, 0, 10)
+              .compose(nextPage -> repository.deleteTaskType(stored.id)
+                  .compose(empty -> repository.retrieveTaskTypesPage(nextQuery, null, 0, 10))
+                  .onSuccess(deletedPage -> testContext.verify(() -> {
+
+                    assertThat(previousPage.total).isEqualTo(0L);
+                    assertThat(nextPage.total).isEqualTo(1L);
+                    assertThat(nextPage.taskTypes.get(0).id).isEqualTo(stored.id);
+                    assertThat(nextPage.taskTypes.get(0).keywords).containsExactly(next);
+                    assertThat(deletedPage.total).isEqualTo(0L);
+                    testContext.completeNow();
+
+                  }))));
+
+    }));
+
+  }
+
 }
@@ -28,6 +28,7 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 
+import eu.internetofus.common.components.models.ProtocolNorm;
 import eu.internetofus.common.components.models.TaskType;
 import eu.internetofus.common.model.ValidationErrorException;
 import eu.internetofus.common.vertx.ModelsPageContext;
@@ -157,6 +158,89 @@ public class TaskTypesRepositoryTest {
 
   }
 
+  /**
+   * Should not add or set a norm because can not convert to an object.
+   *
+   * @param testContext context that executes the test.
+   *
+   * @see TaskTypesRepository#addTaskTypeNorm(String, ProtocolNorm)
+   * @see TaskTypesRepository#setTaskTypeNorm(String, int, int, ProtocolNorm)
+   */
+  @Test
+  public void shouldFailAddOrSetNormBecauseNoObject(final VertxTestContext testContext) {
+
+    final var norm = new ProtocolNorm() {
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public JsonObject toJsonObject() {
+
+        return null;
+
+      }
+    };
+    final var repository = spy(new DummyTaskTypesRepository());
+    testContext.assertFailure(repository.addTaskTypeNorm("id", norm)
+        .recover(error -> repository.setTaskTypeNorm("id", 0, 1, norm)))
+        .onFailure(error -> testContext.completeNow());
+
+  }
+
+  /**
+   * Should set a norm of a task type.
+   *
+   * @param testContext context that executes the test.
+   *
+   * @see TaskTypesRepository#setTaskTypeNorm(String, int, int, ProtocolNorm)
+   */
+  @Test
+  public void shouldSetNorm(final VertxTestContext testContext) {
+
+    final var norm = new ProtocolNorm() {
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public JsonObject toJsonObject() {
+
+        return new JsonObject().put("description", "Norm");
+
+      }
+    };
+    final var repository = spy(new DummyTaskTypesRepository());
+    testContext.assertComplete(repository.setTaskTypeNorm("id", 1, 3, norm))
+        .onSuccess(empty -> testContext.completeNow());
+
+    @SuppressWarnings("unchecked")
+    final ArgumentCaptor<Handler<AsyncResult<Void>>> setHandler = ArgumentCaptor.forClass(Handler.class);
+    verify(repository, timeout(30000).times(1)).setTaskTypeNorm(eq("id"), eq(1), eq(3),
+        eq(new JsonObject().put("description", "Norm")), setHandler.capture());
+    setHandler.getValue().handle(Future.succeededFuture());
+
+  }
+
+  /**
+   * Should not remove a norm of a task type when the repository fails.
+   *
+   * @param testContext context that executes the test.
+   *
+   * @see TaskTypesRepository#removeTaskTypeNorm(String, int, int)
+   */
+  @Test
+  public void shouldFailRemoveNormWhenRepositoryFails(final VertxTestContext testContext) {
+
+    final var repository = spy(new DummyTaskTypesRepository());
+    testContext.assertFailure(repository.removeTaskTypeNorm("id", 0, 1))
+        .onFailure(error -> testContext.completeNow());
+
+    @SuppressWarnings("unchecked")
+    final ArgumentCaptor<Handler<AsyncResult<Void>>> removeHandler = ArgumentCaptor.forClass(Handler.class);
+    verify(repository, timeout(30000).times(1)).removeTaskTypeNorm(eq("id"), eq(0), eq(1), removeHandler.capture());
+    removeHandler.getValue().handle(Future.failedFuture("Not found"));
+
+  }
+
   /**
    * Should not update task type because can not convert to an object.
    *
@@ -30,10 +30,14 @@ import eu.internetofus.common.components.models.Task;
 import eu.internetofus.common.components.models.TaskTest;
 import eu.internetofus.common.components.models.TaskTransaction;
 import eu.internetofus.common.components.models.TaskTransactionTest;
+import eu.internetofus.common.model.Model;
+import eu.internetofus.common.model.TimeManager;
 import eu.internetofus.wenet_task_manager.WeNetTaskManagerIntegrationExtension;
+import eu.internetofus.wenet_task_manager.events.TaskEvents;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.MongoClient;
 import io.vertx.junit5.VertxTestContext;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -338,6 +342,162 @@ public class TasksRepositoryIT {
 
   }
 
+  /**
+   * Verify that can update only the changed fields of a task.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TasksRepository#updateTask(Task, Task)
+   */
+  @Test
+  public void shouldUpdateChangedTask(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var task = new TaskTest().createModelExample(23);
+    testContext.assertComplete(TasksRepository.createProxy(vertx).storeTask(task)).onSuccess(stored -> {
+
+      final var update = Model.fromJsonObject(stored.toJsonObject(), Task.class);
+      update.closeTs = 100L;
+      update.attributes = new JsonObject().put("changed", true);
+      update._lastUpdateTs = 2;
+      testContext
+          .assertComplete(TasksRepository.createProxy(vertx).updateTask(stored, update)
+              .compose(empty -> TasksRepository.createProxy(vertx).searchTask(stored.id)))
+          .onSuccess(foundTask -> testContext.verify(() -> {
+
+            assertThat(foundTask._lastUpdateTs).isGreaterThan(stored._lastUpdateTs);
+            update._lastUpdateTs = foundTask._lastUpdateTs;
+            assertThat(foundTask).isEqualTo(update);
+            testContext.completeNow();
+          }));
+
+    });
+
+  }
+
+  /**
+   * Verify that can not update the changed fields of a task that has been modified since the expected version.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TasksRepository#updateTask(Task, Task, Long)
+   */
+  @Test
+  public void shouldNotUpdateChangedTaskWhenIsModified(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var task = new TaskTest().createModelExample(23);
+    final var repository = TasksRepository.createProxy(vertx);
+    testContext.assertComplete(repository.storeTask(task)).onSuccess(stored -> {
+
+      final var first = Model.fromJsonObject(stored.toJsonObject(), Task.class);
+      first.attributes = new JsonObject().put("first", true);
+      final var second = Model.fromJsonObject(stored.toJsonObject(), Task.class);
+      second.attributes = new JsonObject().put("second", true);
+      testContext.assertComplete(repository.updateTask(stored, first, 0L)).onSuccess(
+          empty -> repository.updateTask(stored, second, 0L).onComplete(update -> {
+
+            testContext.verify(() -> {
+
+              assertThat(update.failed()).isTrue();
+              assertThat(ModelVersions.isModified(update.cause())).isTrue();
+            });
+            testContext.assertComplete(repository.searchTaskObject(stored.id))
+                .onSuccess(found -> testContext.verify(() -> {
+
+                  assertThat(found.getJsonObject("attributes")).isEqualTo(first.attributes);
+                  assertThat(ModelVersions.versionOf(found)).isEqualTo(1L);
+                  testContext.completeNow();
+                }));
+          }));
+
+    });
+
+  }
+
+  /**
+   * Verify that can not update the changed fields of an undefined task.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TasksRepository#updateTask(Task, Task)
+   */
+  @Test
+  public void shouldNotUpdateChangedUndefinedTask(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var original = new Task();
+    original.id = "undefined";
+    final var task = new Task();
+    task.id = "undefined";
+    task.closeTs = 100L;
+    testContext.assertFailure(TasksRepository.createProxy(vertx).updateTask(original, task))
+        .onFailure(failed -> testContext.completeNow());
+
+  }
+
+  /**
+   * Verify that can merge some fields into a task that has not been modified.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TasksRepository#mergeTask(String, long, JsonObject)
+   */
+  @Test
+  public void shouldMergeTask(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var task = new TaskTest().createModelExample(23);
+    task.closeTs = null;
+    final var repository = TasksRepository.createProxy(vertx);
+    testContext.assertComplete(repository.storeTask(task)).onSuccess(stored -> {
+
+      final var set = new JsonObject().put("closeTs", 100L).put("goal.name", "Merged name");
+      testContext.assertComplete(repository.mergeTask(stored.id, 0L, set)
+          .compose(merged -> repository.searchTask(stored.id).map(found -> {
+
+            testContext.verify(() -> {
+
+              assertThat(merged).isEqualTo(found);
+              assertThat(found.closeTs).isEqualTo(100L);
+              assertThat(found.goal.name).isEqualTo("Merged name");
+              assertThat(found.goal.description).isEqualTo(stored.goal.description);
+            });
+            return found;
+
+          })).compose(found -> repository.mergeTask(stored.id, 0L, set)))
+          .onSuccess(modified -> testContext.verify(() -> {
+
+            assertThat(modified).isNull();
+            testContext.completeNow();
+          }));
+
+    });
+
+  }
+
+  /**
+   * Verify that can not merge an undefined task.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TasksRepository#mergeTask(String, long, JsonObject)
+   */
+  @Test
+  public void shouldNotMergeUndefinedTask(final Vertx vertx, final VertxTestContext testContext) {
+
+    testContext
+        .assertComplete(
+            TasksRepository.createProxy(vertx).mergeTask("undefined", 0, new JsonObject().put("closeTs", 100L)))
+        .onSuccess(merged -> testContext.verify(() -> {
+
+          assertThat(merged).isNull();
+          testContext.completeNow();
+        }));
+
+  }
+
   /**
    * Verify that update a defined task object.
    *
@@ -1165,6 +1325,267 @@ public class TasksRepositoryIT {
 
   }
 
+  /**
+   * Check that the inbox of a receiver contains the messages of the stored tasks and the added messages, and that
+   * they are removed with the messages of the receiver.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TasksRepository#retrieveInboxPage(String, String, String, String, int)
+   */
+  @Test
+  public void shouldMaintainInboxOfReceiver(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var receiverId = UUID.randomUUID().toString();
+    final List<Task> tasks = new ArrayList<>();
+    testContext.assertComplete(this.storeSomeTasks(vertx, testContext, task -> {
+
+      final var transaction = new TaskTransactionTest().createModelExample(tasks.size());
+      for (var j = 0; j < 3; j++) {
+
+        final var message = new MessageTest().createModelExample(j);
+        message.receiverId = receiverId;
+        transaction.messages.add(message);
+      }
+      task.transactions.add(transaction);
+
+    }, 4, tasks).compose(empty -> {
+
+      final var repository = TasksRepository.createProxy(vertx);
+      final var message = new MessageTest().createModelExample(3);
+      message.receiverId = receiverId;
+      return repository.addTransactionIntoTask(tasks.get(0).id, new TaskTransactionTest().createModelExample(9))
+          .compose(transaction -> repository.addMessageIntoTransaction(tasks.get(0).id, transaction.id, message))
+          .compose(added -> repository.retrieveInboxPage(receiverId, null, null, null, 20)).compose(page -> {
+
+            testContext.verify(() -> {
+
+              assertThat(page.messages).hasSize(13).contains(message);
+              assertThat(page.next).isNull();
+            });
+            return repository.retrieveInboxPage(receiverId, null, null, null, 5);
+
+          }).compose(page -> {
+
+            testContext.verify(() -> assertThat(page.next).isNotNull());
+            return repository.deleteAllMessagesWithReceiver(receiverId);
+
+          }).compose(empty2 -> repository.retrieveInboxPage(receiverId, null, null, null, 10));
+
+    })).onSuccess(page -> testContext.verify(() -> {
+
+      assertThat(page.messages).isNull();
+      testContext.completeNow();
+
+    }));
+
+  }
+
+  /**
+   * Check that the statistics count the created and closed tasks, and the added transactions and messages.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TasksRepository#retrieveTaskStatistics(String, String, String, String, Long, Long, int)
+   */
+  @Test
+  public void shouldCountTaskStatistics(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var appId = UUID.randomUUID().toString();
+    final var receiverId = UUID.randomUUID().toString();
+    final List<Task> tasks = new ArrayList<>();
+    testContext.assertComplete(this.storeSomeTasks(vertx, testContext, task -> {
+
+      task.appId = appId;
+      task.closeTs = null;
+      task.transactions = new ArrayList<>();
+      final var transaction = new TaskTransactionTest().createModelExample(tasks.size());
+      transaction.messages = new ArrayList<>();
+      for (var j = 0; j < 3; j++) {
+
+        final var message = new MessageTest().createModelExample(j);
+        message.receiverId = receiverId;
+        transaction.messages.add(message);
+      }
+      task.transactions.add(transaction);
+
+    }, 4, tasks).compose(empty -> {
+
+      final var repository = TasksRepository.createProxy(vertx);
+      final var message = new MessageTest().createModelExample(3);
+      message.receiverId = receiverId;
+      final var task = tasks.get(0);
+      task.closeTs = TimeManager.now();
+      return repository.addTransactionIntoTask(task.id, new TaskTransactionTest().createModelExample(9))
+          .compose(transaction -> repository.addMessageIntoTransaction(task.id, transaction.id, message))
+          .compose(added -> repository.updateTask(task)).compose(updated -> repository.updateTask(task))
+          .compose(updated -> repository.retrieveTaskStatistics(appId, null, null, null, null, null, 100));
+
+    }).compose(statistics -> {
+
+      testContext.verify(() -> {
+
+        assertThat(statistics.totals.getLong("created")).isEqualTo(4L);
+        assertThat(statistics.totals.getLong("closed")).isEqualTo(1L);
+        assertThat(statistics.totals.getLong("transactions")).isEqualTo(5L);
+        assertThat(statistics.counters).allMatch(counter -> appId.equals(counter.appId));
+      });
+      return TasksRepository.createProxy(vertx).retrieveTaskStatistics(appId, null, "messages", receiverId, null,
+          null, 100);
+
+    })).onSuccess(statistics -> testContext.verify(() -> {
+
+      assertThat(statistics.totals.getLong("messages")).isEqualTo(13L);
+      assertThat(statistics.totals.getLong("created")).isEqualTo(0L);
+      testContext.completeNow();
+
+    }));
+
+  }
+
+  /**
+   * Check that the repository publishes the events of the tasks, transactions and messages.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TaskEvents
+   */
+  @Test
+  public void shouldPublishTaskEvents(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var appId = UUID.randomUUID().toString();
+    final var types = new ArrayList<String>();
+    final var consumer = vertx.eventBus().<JsonObject>consumer(TaskEvents.ADDRESS, event -> {
+
+      if (appId.equals(event.body().getString("appId"))) {
+
+        types.add(event.body().getString("type"));
+      }
+    });
+    final var task = new TaskTest().createModelExample(1);
+    task.id = null;
+    task.appId = appId;
+    task.closeTs = null;
+    final var repository = TasksRepository.createProxy(vertx);
+    testContext.assertComplete(repository.storeTask(task).compose(stored -> {
+
+      final var message = new MessageTest().createModelExample(1);
+      return repository.addTransactionIntoTask(stored.id, new TaskTransactionTest().createModelExample(1))
+          .compose(transaction -> repository.addMessageIntoTransaction(stored.id, transaction.id, message))
+          .compose(added -> repository.searchTask(stored.id)).compose(found -> {
+
+            found.closeTs = TimeManager.now();
+            return repository.updateTask(found);
+
+          });
+
+    })).onSuccess(empty -> vertx.setTimer(500, id -> testContext.verify(() -> {
+
+      consumer.unregister();
+      assertThat(types).containsExactly(TaskEvents.TASK_CREATED, TaskEvents.TRANSACTION_ADDED,
+          TaskEvents.MESSAGE_ADDED, TaskEvents.TASK_CLOSED, TaskEvents.TASK_UPDATED);
+      testContext.completeNow();
+
+    })));
+
+  }
+
+  /**
+   * Check that a task is closed when its deadline is reached.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TaskDeadlineScheduler
+   */
+  @Test
+  public void shouldCloseTaskWhenDeadlineIsReached(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var task = new TaskTest().createModelExample(1);
+    task.id = null;
+    task.closeTs = null;
+    task.attributes = new JsonObject().put("deadlineTs", TimeManager.now() + 1);
+    final var repository = TasksRepository.createProxy(vertx);
+    testContext.assertComplete(repository.storeTask(task)).onSuccess(stored -> vertx.setTimer(3000,
+        id -> testContext.assertComplete(repository.searchTask(stored.id)).onSuccess(found -> testContext.verify(() -> {
+
+          assertThat(found.closeTs).isNotNull().isGreaterThanOrEqualTo(task.attributes.getLong("deadlineTs"));
+          testContext.completeNow();
+
+        }))));
+
+  }
+
+  /**
+   * Check that an archived task is found by identifier and on the pages of the closed tasks and their transactions.
+   *
+   * @param vertx       event bus to use.
+   * @param pool        to access the database.
+   * @param testContext context that executes the test.
+   *
+   * @see TaskArchive
+   */
+  @Test
+  public void shouldFindArchivedTask(final Vertx vertx, final MongoClient pool, final VertxTestContext testContext) {
+
+    final var task = new TaskTest().createModelExample(1);
+    task.id = null;
+    task.requesterId = UUID.randomUUID().toString();
+    task.closeTs = 1L;
+    final var repository = TasksRepository.createProxy(vertx);
+    final var closed = TasksRepository.createTasksPageQuery(null, task.requesterId, null, null, null, null, null,
+        null, null, true, null, null);
+    final var open = TasksRepository.createTasksPageQuery(null, task.requesterId, null, null, null, null, null, null,
+        null, false, null, null);
+    final var closedFrom = TasksRepository.createTaskTransactionsPageQuery(null, task.requesterId, null, null, null,
+        null, null, null, null, null, null, 0L, null, null, null, null, null, null, null, null, null);
+    testContext.assertComplete(repository.storeTask(task).compose(stored -> {
+
+      task.id = stored.id;
+      return new TaskArchive(vertx, pool).archive(2L);
+
+    }).compose(archived -> pool.count(TasksRepositoryImpl.TASKS_COLLECTION, new JsonObject().put("_id", task.id)))
+        .compose(count -> {
+
+          testContext.verify(() -> assertThat(count).isEqualTo(0L));
+          return repository.searchTask(task.id);
+
+        }).compose(found -> {
+
+          testContext.verify(() -> assertThat(found.transactions).isEqualTo(task.transactions));
+          return repository.retrieveTasksPage(closed, null, 0, 10);
+
+        }).compose(page -> {
+
+          testContext.verify(() -> {
+
+            assertThat(page.total).isEqualTo(1L);
+            assertThat(page.tasks).hasSize(1);
+            assertThat(page.tasks.get(0).id).isEqualTo(task.id);
+          });
+          return repository.retrieveTaskTransactionsPage(closedFrom, null, 0, 10);
+
+        }).compose(page -> {
+
+          testContext.verify(() -> {
+
+            assertThat(page.total).isEqualTo((long) task.transactions.size());
+            assertThat(page.transactions).isEqualTo(task.transactions);
+          });
+          return repository.retrieveTasksPage(open, null, 0, 10);
+
+        })).onSuccess(page -> testContext.verify(() -> {
+
+          assertThat(page.total).isEqualTo(0L);
+          testContext.completeNow();
+
+        }));
+
+  }
+
   /**
    * Check that the messages to a receiver has been removed.
    *
@@ -1210,4 +1631,78 @@ public class TasksRepositoryIT {
     }
   }
 
+  /**
+   * Check that obtain the version of a stored task.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TasksRepository#searchTaskVersion(String)
+   */
+  @Test
+  public void shouldSearchTaskVersion(final Vertx vertx, final VertxTestContext testContext) {
+
+    testContext.assertComplete(StoreServices.storeTaskExample(1, vertx, testContext)).onSuccess(stored -> {
+
+      testContext.assertComplete(TasksRepository.createProxy(vertx).searchTaskVersion(stored.id))
+          .onSuccess(version -> testContext.verify(() -> {
+
+            assertThat(ModelVersions.versionOf(version)).isEqualTo(0L);
+            assertThat(version.getLong(ModelVersions.LAST_UPDATE_TS)).isEqualTo(stored._lastUpdateTs);
+            testContext.completeNow();
+
+          }));
+    });
+
+  }
+
+  /**
+   * Check that can not obtain the version of an undefined task.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TasksRepository#searchTaskVersion(String)
+   */
+  @Test
+  public void shouldNotSearchUndefinedTaskVersion(final Vertx vertx, final VertxTestContext testContext) {
+
+    testContext.assertFailure(TasksRepository.createProxy(vertx).searchTaskVersion("undefined task identifier"))
+        .onFailure(failed -> testContext.completeNow());
+
+  }
+
+  /**
+   * Verify that can search for the tasks that contain a text, ordered by relevance.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TasksRepository#retrieveTasksPage(JsonObject, JsonObject, int, int)
+   */
+  @Test
+  public void shouldSearchTasksWithText(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var word = "word" + UUID.randomUUID().toString().replaceAll("-", "");
+    final var onDescription = new TaskTest().createModelExample(1);
+    onDescription.goal.description = "The description with the " + word;
+    final var onName = new TaskTest().createModelExample(2);
+    onName.goal.name = "The name with the " + word;
+    final var without = new TaskTest().createModelExample(3);
+    final var repository = TasksRepository.createProxy(vertx);
+    testContext.assertComplete(repository.storeTask(onDescription).compose(
+        storedOnDescription -> repository.storeTask(onName).compose(storedOnName -> repository.storeTask(without)
+            .compose(stored -> repository.retrieveTasksPage(TextSearch.withText(new JsonObject(), word), null, 0, 10))
+            .onSuccess(page -> testContext.verify(() -> {
+
+              assertThat(page.total).isEqualTo(2L);
+              assertThat(page.tasks).hasSize(2);
+              assertThat(page.tasks.get(0)).isEqualTo(storedOnName);
+              assertThat(page.tasks.get(1)).isEqualTo(storedOnDescription);
+              testContext.completeNow();
+
+            })))));
+
+  }
+
 }
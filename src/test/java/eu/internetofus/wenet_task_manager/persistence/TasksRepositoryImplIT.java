@@ -23,12 +23,18 @@ package eu.internetofus.wenet_task_manager.persistence;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import eu.internetofus.common.components.Containers;
+import eu.internetofus.common.model.TimeManager;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.mongo.MongoClient;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
+import java.util.HashMap;
+import java.util.UUID;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -120,4 +126,190 @@ public class TasksRepositoryImplIT {
 
   }
 
+  /**
+   * Verify that the aggregation of the messages page uses the indexes of the tasks.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TasksRepositoryImpl#retrieveMessagesPage(JsonObject, JsonObject, int, int, String, io.vertx.core.Handler)
+   */
+  @Test
+  public void shouldRetrieveMessagesPageUsingIndex(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var pool = MongoClient.createShared(vertx, Containers.status().getMongoDBConfig(), "TEST");
+    final var repository = new TasksRepositoryImpl(vertx, pool, "latest");
+    final var query = new JsonObject().put("appId", "1").put("transactions.messages.receiverId", "1");
+    final var order = new JsonObject().put("_creationTs", 1).put("_id", 1).put("transactionsIndex", 1)
+        .put("messagesIndex", 1);
+    final var pipeline = EmbeddedPagePipeline.forMessages(query, order, 0, 10, TasksRepositoryImpl.SORT_INDEXES);
+    final var explain = new JsonObject().put("aggregate", TasksRepositoryImpl.TASKS_COLLECTION)
+        .put("pipeline", pipeline.build()).put("explain", true);
+    testContext.assertComplete(repository.createIndexes(TasksRepositoryImpl.TASKS_COLLECTION)
+        .compose(empty -> pool.runCommand("aggregate", explain)))
+        .onSuccess(plan -> testContext.verify(() -> {
+
+          assertThat(plan.encode()).contains("IXSCAN").doesNotContain("COLLSCAN");
+          testContext.completeNow();
+
+        }));
+
+  }
+
+  /**
+   * Verify that the tasks are stored on monthly partitions and that they are found on them.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TaskPartitions
+   */
+  @Test
+  public void shouldStoreTasksOnPartitions(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var pool = MongoClient.createShared(vertx, Containers.status().getMongoDBConfig(), "TEST");
+    final var repository = new TasksRepositoryImpl(vertx, pool, "latest");
+    final var requesterId = UUID.randomUUID().toString();
+    final var partition = TaskPartitions.partitionOf(TimeManager.now());
+    final var legacy = new JsonObject().put("requesterId", requesterId).put("appId", "1").put("_creationTs", 0L)
+        .put("transactions", new JsonArray().add(new JsonObject().put("id", "0").put("label", "legacy")));
+    final var task = new JsonObject().put("requesterId", requesterId).put("appId", "1");
+    final var query = new JsonObject().put("requesterId", requesterId);
+    final var order = new JsonObject().put("_creationTs", 1).put("_id", 1);
+    testContext.assertComplete(pool.insert(TasksRepositoryImpl.TASKS_COLLECTION, legacy)
+        .compose(legacyId -> repository.enablePartitions(new JsonObject())).compose(empty -> {
+
+          final Promise<JsonObject> stored = Promise.promise();
+          repository.storeTask(task, stored);
+          return stored.future();
+
+        }).compose(stored -> {
+
+          final Promise<JsonObject> transaction = Promise.promise();
+          repository.addTransactionIntoTask(stored.getString("id"), new JsonObject().put("label", "partitioned"),
+              transaction);
+          return transaction.future().map(stored);
+
+        }).compose(stored -> pool.findOne(partition, new JsonObject().put("_id", stored.getString("id")), null))
+        .compose(found -> {
+
+          testContext.verify(() -> {
+
+            assertThat(found).isNotNull();
+            assertThat(repository.partitions.getCollections()).contains(partition);
+          });
+          final Promise<JsonObject> page = Promise.promise();
+          repository.retrieveTasksPage(query, order, 1, 10, PageTotals.EXACT, page);
+          return page.future();
+
+        }).compose(page -> {
+
+          testContext.verify(() -> {
+
+            assertThat(page.getLong("total")).isEqualTo(2L);
+            assertThat(page.getJsonArray("tasks")).hasSize(1);
+            assertThat(page.getJsonArray("tasks").getJsonObject(0).getString("requesterId")).isEqualTo(requesterId);
+          });
+          final Promise<JsonObject> page2 = Promise.promise();
+          repository.retrieveTaskTransactionsPage(query, order, 0, 10, PageTotals.EXACT, page2);
+          return page2.future();
+
+        }).compose(page -> {
+
+          testContext.verify(() -> {
+
+            assertThat(page.getLong("total")).isEqualTo(2L);
+            assertThat(page.getJsonArray("transactions").getJsonObject(0).getString("label")).isEqualTo("legacy");
+            assertThat(page.getJsonArray("transactions").getJsonObject(1).getString("label"))
+                .isEqualTo("partitioned");
+          });
+          final Promise<JsonArray> deleted = Promise.promise();
+          repository.deleteAllTaskWithRequester(requesterId, deleted);
+          return deleted.future();
+
+        })).onSuccess(deleted -> testContext.verify(() -> {
+
+          assertThat(deleted).hasSize(2);
+          testContext.completeNow();
+
+        }));
+
+  }
+
+  /**
+   * Verify that a task with the identifier of a task stored before the partitions is not stored, and that its
+   * partition is not registered.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TaskPartitions
+   */
+  @Test
+  public void shouldNotStoreOnPartitionsTaskWithLegacyIdentifier(final Vertx vertx,
+      final VertxTestContext testContext) {
+
+    final var pool = MongoClient.createShared(vertx, Containers.status().getMongoDBConfig(), "TEST");
+    final var repository = new TasksRepositoryImpl(vertx, pool, "latest");
+    final var id = UUID.randomUUID().toString();
+    final var legacy = new JsonObject().put("_id", id).put("requesterId", id).put("appId", "1");
+    final var task = new JsonObject().put("id", id).put("requesterId", id).put("appId", "1");
+    testContext.assertComplete(pool.insert(TasksRepositoryImpl.TASKS_COLLECTION, legacy)
+        .compose(legacyId -> repository.enablePartitions(new JsonObject())).compose(empty -> {
+
+          final Promise<JsonObject> stored = Promise.promise();
+          repository.storeTask(task, stored);
+          return stored.future().transform(result -> Future.succeededFuture(result.failed()));
+
+        }).compose(failed -> {
+
+          testContext.verify(() -> assertThat(failed).isTrue());
+          return pool.findOne(TaskPartitions.PARTITIONS_COLLECTION, new JsonObject().put("_id", id), null);
+
+        }).compose(entry -> {
+
+          testContext.verify(() -> assertThat(entry).isNull());
+          return pool.removeDocuments(TasksRepositoryImpl.TASKS_COLLECTION, new JsonObject().put("_id", id));
+
+        })).onSuccess(removed -> testContext.completeNow());
+
+  }
+
+  /**
+   * Verify that the inbox is filled with the messages of the archived tasks, without duplicating the messages that
+   * are already on the inbox nor maintaining the entries with a random identifier.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see MessagesInbox#fillFrom(String)
+   */
+  @Test
+  public void shouldFillInboxFromArchive(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var pool = MongoClient.createShared(vertx, Containers.status().getMongoDBConfig(), "TEST");
+    final var inbox = new MessagesInbox(pool, new TaskPartitions(pool));
+    final var taskId = UUID.randomUUID().toString();
+    final var receiverId = UUID.randomUUID().toString();
+    final var messages = new JsonArray().add(new JsonObject().put("appId", "1").put("receiverId", receiverId))
+        .add(new JsonObject().put("appId", "1").put("receiverId", receiverId).put("label", "second"));
+    final var task = new JsonObject().put("_id", taskId).put("transactions",
+        new JsonArray().add(new JsonObject().put("id", "0").put("_creationTs", 1L).put("messages", messages)));
+    final var legacy = MessagesInbox.toEntries(taskId, task, new HashMap<>()).get(0).put("_id", "legacy-" + taskId);
+    final var query = new JsonObject().put("receiverId", receiverId);
+    testContext.assertComplete(pool.insert(TaskArchive.ARCHIVE_COLLECTION, TaskArchive.toArchived(task, true))
+        .compose(stored -> pool.insert(MessagesInbox.MESSAGES_COLLECTION, legacy))
+        .compose(stored -> inbox.fillFrom(TaskArchive.ARCHIVE_COLLECTION))
+        .compose(empty -> inbox.fillFrom(TaskArchive.ARCHIVE_COLLECTION))
+        .compose(empty -> pool.find(MessagesInbox.MESSAGES_COLLECTION, query))).onSuccess(entries -> {
+
+          testContext.verify(() -> assertThat(entries).extracting(entry -> entry.getString("_id"))
+              .containsExactlyInAnyOrder(MessagesInbox.idOf(taskId, "0", 0), MessagesInbox.idOf(taskId, "0", 1)));
+          testContext.assertComplete(pool.removeDocument(TaskArchive.ARCHIVE_COLLECTION,
+              new JsonObject().put("_id", taskId))).onSuccess(removed -> testContext.completeNow());
+
+        });
+
+  }
+
 }
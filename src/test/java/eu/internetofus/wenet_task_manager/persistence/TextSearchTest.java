@@ -0,0 +1,97 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the {@link TextSearch}.
+ *
+ * @see TextSearch
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TextSearchTest {
+
+  /**
+   * Should add the text condition only when the text is defined.
+   */
+  @Test
+  public void shouldAddTextCondition() {
+
+    assertThat(TextSearch.withText(new JsonObject(), null)).isEmpty();
+    assertThat(TextSearch.withText(new JsonObject(), "  ")).isEmpty();
+    final var query = TextSearch.withText(new JsonObject().put("appId", "1"), " eat pizza ");
+    assertThat(query).isEqualTo(
+        new JsonObject().put("appId", "1").put("$text", new JsonObject().put("$search", "eat pizza")));
+    assertThat(TextSearch.isTextSearch(query)).isTrue();
+    assertThat(TextSearch.isTextSearch(new JsonObject())).isFalse();
+    assertThat(TextSearch.isTextSearch(null)).isFalse();
+
+  }
+
+  /**
+   * Should order by relevance when the order is not defined.
+   */
+  @Test
+  public void shouldOrderByRelevance() {
+
+    final var score = new JsonObject().put(TextSearch.SCORE, new JsonObject().put("$meta", "textScore"));
+    assertThat(TextSearch.scoreProjection()).isEqualTo(score);
+    assertThat(TextSearch.sortOf(null)).isEqualTo(score);
+    assertThat(TextSearch.sortOf(new JsonObject())).isEqualTo(score);
+    assertThat(TextSearch.mergeOrderOf(null)).isEqualTo(new JsonObject().put(TextSearch.SCORE, -1));
+    assertThat(TextSearch.mergeOrderOf(new JsonObject())).isEqualTo(new JsonObject().put(TextSearch.SCORE, -1));
+
+  }
+
+  /**
+   * Should maintain the order when it is defined.
+   */
+  @Test
+  public void shouldMaintainDefinedOrder() {
+
+    final var order = new JsonObject().put("goal.name", 1);
+    assertThat(TextSearch.sortOf(order)).isSameAs(order);
+    assertThat(TextSearch.mergeOrderOf(order)).isSameAs(order);
+
+  }
+
+  /**
+   * Should create the text index with the weights of the fields.
+   */
+  @Test
+  public void shouldCreateIndex() {
+
+    final var weights = new JsonObject().put("name", 10).put("description", 1);
+    final var index = TextSearch.createIndex(weights);
+    assertThat(index.getKey()).isEqualTo(new JsonObject().put("name", "text").put("description", "text"));
+    assertThat(index.getOptions().getWeights()).isEqualTo(weights);
+    assertThat(index.getOptions().getDefaultLanguage()).isEqualTo(TextSearch.DEFAULT_LANGUAGE);
+    assertThat(index.getOptions().getLanguageOverride()).isEqualTo(TextSearch.LANGUAGE_OVERRIDE);
+    assertThat(index.getOptions().getName()).isEqualTo("text");
+
+  }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.tracing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryContext;
+import io.vertx.core.impl.ContextInternal;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Test the {@link EventBusTracing}.
+ *
+ * @see EventBusTracing
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class EventBusTracingTest {
+
+  /**
+   * Disable the tracing after each test.
+   */
+  @AfterEach
+  public void disableTracing() {
+
+    Tracer.close();
+
+  }
+
+  /**
+   * Should propagate the trace context to the consumer and export the spans.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldPropagateTraceContext(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var exporter = (InMemorySpanExporter) Tracer.configure(vertx, new JsonObject().put("exporter", "memory"));
+    final var tracing = new EventBusTracing();
+    vertx.eventBus().addOutboundInterceptor((final DeliveryContext<Object> context) -> tracing.outbound(context));
+    vertx.eventBus().addInboundInterceptor((final DeliveryContext<Object> context) -> tracing.inbound(context));
+    final var root = TraceContext.root(true);
+    vertx.eventBus().consumer("test.tracing", msg -> msg.reply(Tracer.current().traceId));
+    ((ContextInternal) vertx.getOrCreateContext()).duplicate().runOnContext(any -> {
+
+      assertThat(Tracer.setCurrent(root)).isTrue();
+      vertx.eventBus().request("test.tracing", "ping")
+          .onComplete(testContext.succeeding(reply -> testContext.verify(() -> {
+
+            assertThat(reply.body()).isEqualTo(root.traceId);
+            final var spans = exporter.getSpans();
+            assertThat(spans).hasSize(2);
+            final var server = spans.get(0);
+            final var client = spans.get(1);
+            assertThat(server.kind).isEqualTo(Span.SERVER);
+            assertThat(client.kind).isEqualTo(Span.CLIENT);
+            assertThat(client.context.traceId).isEqualTo(root.traceId);
+            assertThat(client.parentSpanId).isEqualTo(root.spanId);
+            assertThat(server.parentSpanId).isEqualTo(client.context.spanId);
+            assertThat(client.name).isEqualTo("test.tracing");
+            testContext.completeNow();
+
+          })));
+
+    });
+
+  }
+
+  /**
+   * Should not trace messages sent outside a trace.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldNotTraceWithoutCurrentContext(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var exporter = (InMemorySpanExporter) Tracer.configure(vertx, new JsonObject().put("exporter", "memory"));
+    final var tracing = new EventBusTracing();
+    vertx.eventBus().addOutboundInterceptor((final DeliveryContext<Object> context) -> tracing.outbound(context));
+    vertx.eventBus().addInboundInterceptor((final DeliveryContext<Object> context) -> tracing.inbound(context));
+    vertx.eventBus().consumer("test.tracing.none", msg -> msg.reply(Tracer.current() == null));
+    vertx.eventBus().request("test.tracing.none", "ping")
+        .onComplete(testContext.succeeding(reply -> testContext.verify(() -> {
+
+          assertThat(reply.body()).isEqualTo(true);
+          assertThat(exporter.getSpans()).isEmpty();
+          testContext.completeNow();
+
+        })));
+
+  }
+
+}
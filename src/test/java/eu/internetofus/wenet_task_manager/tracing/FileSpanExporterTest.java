@@ -0,0 +1,101 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.tracing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.io.File;
+import java.nio.file.Files;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Test the {@link FileSpanExporter}.
+ *
+ * @see FileSpanExporter
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class FileSpanExporterTest {
+
+  /**
+   * Should store the spans on the file.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   *
+   * @throws Exception if cannot create the file.
+   */
+  @Test
+  public void shouldStoreSpansOnFile(final Vertx vertx, final VertxTestContext testContext) throws Exception {
+
+    final var file = File.createTempFile("spans", ".jsonl");
+    file.deleteOnExit();
+    final var exporter = new FileSpanExporter();
+    exporter.init(vertx, new JsonObject().put("file", file.getAbsolutePath()));
+    final var parent = TraceContext.root(true);
+    exporter.export(new Span("first", Span.SERVER, parent.child(), parent));
+    vertx.setTimer(500, any -> {
+
+      exporter.export(new Span("second", Span.CLIENT, parent.child(), parent));
+      exporter.close();
+      exporter.export(new Span("ignored", Span.CLIENT, parent.child(), parent));
+      vertx.setTimer(500, other -> testContext.verify(() -> {
+
+        final var lines = Files.readAllLines(file.toPath());
+        assertThat(lines).hasSize(2);
+        assertThat(new JsonObject(lines.get(0)).getString("name")).isEqualTo("first");
+        assertThat(new JsonObject(lines.get(1)).getString("name")).isEqualTo("second");
+        testContext.completeNow();
+
+      }));
+    });
+
+  }
+
+  /**
+   * Should ignore the spans if cannot open the file.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldIgnoreSpansIfCannotOpenFile(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var exporter = new FileSpanExporter();
+    exporter.init(vertx, new JsonObject().put("file", "undefined/directory/spans.jsonl"));
+    vertx.setTimer(500, any -> testContext.verify(() -> {
+
+      exporter.export(new Span("ignored", Span.SERVER, TraceContext.root(true), null));
+      assertThat(exporter.pending).isEmpty();
+      exporter.close();
+      testContext.completeNow();
+
+    }));
+
+  }
+
+}
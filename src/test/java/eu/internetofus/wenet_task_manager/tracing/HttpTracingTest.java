@@ -0,0 +1,132 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.tracing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.impl.ContextInternal;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Test the {@link HttpServerTracingHandler} and the {@link WebClientTracingInterceptor}.
+ *
+ * @see HttpServerTracingHandler
+ * @see WebClientTracingInterceptor
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class HttpTracingTest {
+
+  /**
+   * Disable the tracing after each test.
+   */
+  @AfterEach
+  public void disableTracing() {
+
+    Tracer.close();
+
+  }
+
+  /**
+   * Should propagate the trace context from the client to the server.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldPropagateFromClientToServer(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var exporter = (InMemorySpanExporter) Tracer.configure(vertx, new JsonObject().put("exporter", "memory"));
+    final var router = Router.router(vertx);
+    router.route().handler(new HttpServerTracingHandler());
+    router.get("/traced").handler(ctx -> ctx.end(ctx.request().getHeader(TraceContext.TRACEPARENT)));
+    router.get("/error").handler(ctx -> ctx.response().setStatusCode(503).end());
+    vertx.createHttpServer().requestHandler(router).listen(0).onComplete(testContext.succeeding(server -> {
+
+      final var client = WebClient.create(vertx);
+      WebClientTracingInterceptor.instrument(client);
+      final var root = TraceContext.root(true);
+      ((ContextInternal) vertx.getOrCreateContext()).duplicate().runOnContext(any -> {
+
+        Tracer.setCurrent(root);
+        client.get(server.actualPort(), "localhost", "/traced").send()
+            .compose(traced -> client.get(server.actualPort(), "localhost", "/error").send().map(traced))
+            .onComplete(testContext.succeeding(traced -> testContext.verify(() -> {
+
+              final var serverContext = TraceContext.parse(traced.bodyAsString());
+              assertThat(serverContext.traceId).isEqualTo(root.traceId);
+              final var spans = exporter.getSpans();
+              assertThat(spans).hasSize(4);
+              final var tracedServer = spans.get(0);
+              final var tracedClient = spans.get(1);
+              assertThat(tracedServer.kind).isEqualTo(Span.SERVER);
+              assertThat(tracedServer.context.spanId).isEqualTo(serverContext.spanId);
+              assertThat(tracedServer.parentSpanId).isEqualTo(tracedClient.context.spanId);
+              assertThat(tracedClient.kind).isEqualTo(Span.CLIENT);
+              assertThat(tracedClient.parentSpanId).isEqualTo(root.spanId);
+              assertThat(tracedClient.error).isFalse();
+              assertThat(spans.get(2).error).isTrue();
+              assertThat(spans.get(3).error).isTrue();
+              testContext.completeNow();
+
+            })));
+      });
+    }));
+
+  }
+
+  /**
+   * Should not trace when the tracing is disabled.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldNotTraceWhenDisabled(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var router = Router.router(vertx);
+    router.route().handler(new HttpServerTracingHandler());
+    router.get("/traced").handler(ctx -> ctx.end(String.valueOf(ctx.request().getHeader(TraceContext.TRACEPARENT))));
+    vertx.createHttpServer().requestHandler(router).listen(0).onComplete(testContext.succeeding(server -> {
+
+      final var client = WebClient.create(vertx);
+      WebClientTracingInterceptor.instrument(client);
+      client.get(server.actualPort(), "localhost", "/traced").send()
+          .onComplete(testContext.succeeding(traced -> testContext.verify(() -> {
+
+            assertThat(traced.bodyAsString()).isEqualTo("null");
+            testContext.completeNow();
+
+          })));
+    }));
+
+  }
+
+}
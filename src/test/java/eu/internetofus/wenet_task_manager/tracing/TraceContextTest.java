@@ -0,0 +1,84 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.tracing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the {@link TraceContext}.
+ *
+ * @see TraceContext
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TraceContextTest {
+
+  /**
+   * Should parse a valid header.
+   */
+  @Test
+  public void shouldParseTraceparent() {
+
+    final var context = TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+    assertThat(context).isNotNull();
+    assertThat(context.traceId).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+    assertThat(context.spanId).isEqualTo("00f067aa0ba902b7");
+    assertThat(context.sampled).isTrue();
+    assertThat(context.toTraceparent()).isEqualTo("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+
+  }
+
+  /**
+   * Should not parse invalid headers.
+   */
+  @Test
+  public void shouldNotParseInvalidTraceparent() {
+
+    assertThat(TraceContext.parse(null)).isNull();
+    assertThat(TraceContext.parse("")).isNull();
+    assertThat(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7")).isNull();
+    assertThat(TraceContext.parse("00-00000000000000000000000000000000-00f067aa0ba902b7-01")).isNull();
+    assertThat(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-0000000000000000-01")).isNull();
+    assertThat(TraceContext.parse("ff-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01")).isNull();
+    assertThat(TraceContext.parse("00-4BF92F3577B34DA6A3CE929D0E0E4736-00F067AA0BA902B7-01")).isNull();
+
+  }
+
+  /**
+   * Should create a child on the same trace.
+   */
+  @Test
+  public void shouldCreateChild() {
+
+    final var root = TraceContext.root(false);
+    assertThat(root.traceId).hasSize(32);
+    assertThat(root.spanId).hasSize(16);
+    final var child = root.child();
+    assertThat(child.traceId).isEqualTo(root.traceId);
+    assertThat(child.spanId).isNotEqualTo(root.spanId);
+    assertThat(child.sampled).isFalse();
+    assertThat(TraceContext.parse(child.toTraceparent())).usingRecursiveComparison().isEqualTo(child);
+
+  }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.tracing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.impl.ContextInternal;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Test the {@link Tracer}.
+ *
+ * @see Tracer
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class TracerTest {
+
+  /**
+   * Disable the tracing after each test.
+   */
+  @AfterEach
+  public void disableTracing() {
+
+    Tracer.close();
+
+  }
+
+  /**
+   * Should be disabled by default.
+   *
+   * @param vertx event bus to use.
+   */
+  @Test
+  public void shouldBeDisabledByDefault(final Vertx vertx) {
+
+    assertThat(Tracer.configure(vertx, new JsonObject())).isNull();
+    assertThat(Tracer.isEnabled()).isFalse();
+
+  }
+
+  /**
+   * Should create the defined exporters.
+   *
+   * @param vertx event bus to use.
+   */
+  @Test
+  public void shouldCreateExporters(final Vertx vertx) {
+
+    assertThat(Tracer.configure(vertx, new JsonObject().put("exporter", "memory")))
+        .isInstanceOf(InMemorySpanExporter.class);
+    assertThat(Tracer.isEnabled()).isTrue();
+    assertThat(Tracer.configure(vertx,
+        new JsonObject().put("exporter", InMemorySpanExporter.class.getName()).put("maxSpans", 1)))
+        .isInstanceOf(InMemorySpanExporter.class);
+    assertThat(Tracer.configure(vertx, new JsonObject().put("exporter", "undefined.Exporter"))).isNull();
+    assertThat(Tracer.isEnabled()).isFalse();
+
+  }
+
+  /**
+   * Should export only the sampled spans.
+   *
+   * @param vertx event bus to use.
+   */
+  @Test
+  public void shouldExportSampledSpans(final Vertx vertx) {
+
+    final var exporter = (InMemorySpanExporter) Tracer
+        .configure(vertx, new JsonObject().put("exporter", "memory").put("sampleRatio", 0.0).put("maxSpans", 1));
+    Tracer.startSpan("notSampled", Span.SERVER, null).end();
+    assertThat(exporter.getSpans()).isEmpty();
+
+    final var parent = TraceContext.root(true);
+    final var span = Tracer.startSpan("sampled", Span.CLIENT, parent).setAttribute("key", "value");
+    span.end();
+    span.end();
+    Tracer.startSpan("last", Span.CLIENT, parent).end();
+    final var spans = exporter.getSpans();
+    assertThat(spans).hasSize(1);
+    assertThat(spans.get(0).name).isEqualTo("last");
+    assertThat(span.toJsonObject().getString("parentSpanId")).isEqualTo(parent.spanId);
+    assertThat(span.toString()).contains("\"key\":\"value\"");
+    exporter.reset();
+    assertThat(exporter.getSpans()).isEmpty();
+
+  }
+
+  /**
+   * Should only maintain the current context on a duplicated context.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldMaintainCurrentOnDuplicatedContext(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var traceContext = TraceContext.root(true);
+    assertThat(Tracer.setCurrent(traceContext)).isFalse();
+    assertThat(Tracer.current()).isNull();
+    vertx.runOnContext(any -> testContext.verify(() -> {
+
+      assertThat(Tracer.setCurrent(traceContext)).isFalse();
+      ((ContextInternal) vertx.getOrCreateContext()).duplicate().runOnContext(other -> testContext.verify(() -> {
+
+        assertThat(Tracer.setCurrent(traceContext)).isTrue();
+        assertThat(Tracer.current()).isSameAs(traceContext);
+        testContext.completeNow();
+
+      }));
+
+    }));
+
+  }
+
+}
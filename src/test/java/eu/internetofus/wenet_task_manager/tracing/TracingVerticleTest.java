@@ -0,0 +1,68 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_task_manager.tracing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Test the {@link TracingVerticle}.
+ *
+ * @see TracingVerticle
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class TracingVerticleTest {
+
+  /**
+   * Should enable and disable the tracing.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldEnableAndDisableTracing(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var options = new DeploymentOptions()
+        .setConfig(new JsonObject().put("tracing", new JsonObject().put("exporter", "memory")));
+    vertx.deployVerticle(TracingVerticle.class, options).compose(id -> {
+
+      assertThat(Tracer.isEnabled()).isTrue();
+      return vertx.undeploy(id);
+
+    }).onComplete(testContext.succeeding(any -> testContext.verify(() -> {
+
+      assertThat(Tracer.isEnabled()).isFalse();
+      testContext.completeNow();
+
+    })));
+
+  }
+
+}